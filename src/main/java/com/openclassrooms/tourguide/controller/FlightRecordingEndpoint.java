@@ -0,0 +1,33 @@
+package com.openclassrooms.tourguide.controller;
+
+import com.openclassrooms.tourguide.domain.dto.FlightRecordingDumpDTO;
+import com.openclassrooms.tourguide.service.flight.FlightRecorderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint of the continuous flight recording: {@code GET /actuator/flightrecording} tells whether it is
+ * running, and {@code POST /actuator/flightrecording} dumps it to a file.
+ */
+@Component
+@Endpoint( id = "flightrecording" )
+@RequiredArgsConstructor
+public class FlightRecordingEndpoint
+{
+    private final FlightRecorderService flightRecorderService;
+
+    @ReadOperation
+    public boolean isRecording( )
+    {
+        return flightRecorderService.isRecording( );
+    }
+
+    @WriteOperation
+    public FlightRecordingDumpDTO dump( )
+    {
+        return flightRecorderService.dump( );
+    }
+}
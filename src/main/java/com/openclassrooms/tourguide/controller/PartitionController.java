@@ -0,0 +1,73 @@
+package com.openclassrooms.tourguide.controller;
+
+import java.util.List;
+import java.util.Set;
+
+import com.openclassrooms.tourguide.domain.dto.UserTransferDTO;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Membership of the partitioned cluster, and handoff of users between nodes. A membership change must be posted to
+ * every member, each one then handing off the users it no longer owns. Changes and handoffs must carry the cluster
+ * secret in the {@value PartitionService#SECRET_HEADER} header, and are refused otherwise.
+ */
+@RestController
+@RequestMapping("/partition")
+@RequiredArgsConstructor
+public class PartitionController
+{
+    private final PartitionService partitionService;
+    private final UserService userService;
+
+    @GetMapping("/members")
+    public Set<String> getMembers( )
+    {
+        return partitionService.getMembers( );
+    }
+
+    @PostMapping("/members")
+    public Set<String> join( @RequestParam String node,
+                             @RequestHeader( value = PartitionService.SECRET_HEADER, required = false ) String secret )
+    {
+        checkMember( secret );
+        partitionService.join( node );
+        return partitionService.getMembers( );
+    }
+
+    @DeleteMapping("/members")
+    public Set<String> leave( @RequestParam String node,
+                              @RequestHeader( value = PartitionService.SECRET_HEADER, required = false ) String secret )
+    {
+        checkMember( secret );
+        partitionService.leave( node );
+        return partitionService.getMembers( );
+    }
+
+    @PostMapping("/users")
+    public int acceptUsers( @RequestBody List<UserTransferDTO> users,
+                            @RequestHeader( value = PartitionService.SECRET_HEADER, required = false ) String secret )
+    {
+        checkMember( secret );
+        return userService.acceptUsers( users );
+    }
+
+    private void checkMember( String secret )
+    {
+        if ( !partitionService.isMember( secret ) )
+        {
+            throw new ResponseStatusException( HttpStatus.FORBIDDEN, "Missing or invalid cluster secret" );
+        }
+    }
+}
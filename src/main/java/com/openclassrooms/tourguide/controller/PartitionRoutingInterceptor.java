@@ -0,0 +1,46 @@
+package com.openclassrooms.tourguide.controller;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Redirects the requests about a user held by another node to that node, with a 307 so that the method and body
+ * are kept. Requests only name the user, so a user this node does not hold is routed by its name-based id.
+ */
+@Component
+@RequiredArgsConstructor
+public class PartitionRoutingInterceptor implements HandlerInterceptor
+{
+    private final UserService userService;
+    private final PartitionService partitionService;
+
+    @Override
+    public boolean preHandle( HttpServletRequest request, HttpServletResponse response, Object handler )
+    {
+        String userName = request.getParameter( "userName" );
+        if ( !partitionService.isEnabled( ) || userName == null )
+        {
+            return true;
+        }
+
+        // Users still held here, e.g. until they are handed off, are served here
+        String owner = partitionService.getOwner( User.nameBasedId( userName ) );
+        if ( userService.getUser( userName ) != null || owner.equals( partitionService.getSelf( ) ) )
+        {
+            return true;
+        }
+
+        String query = request.getQueryString( );
+        response.setStatus( HttpStatus.TEMPORARY_REDIRECT.value( ) );
+        response.setHeader( HttpHeaders.LOCATION, owner + request.getRequestURI( ) + ( query != null ? "?" + query : "" ) );
+        return false;
+    }
+}
@@ -1,28 +1,88 @@
 package com.openclassrooms.tourguide.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
+import com.openclassrooms.tourguide.domain.dto.AttractionInRangeDTO;
 import com.openclassrooms.tourguide.domain.dto.ClosestAttractionsDTO;
+import com.openclassrooms.tourguide.domain.dto.ConcurrencyLimitStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.DailyVisitsDTO;
+import com.openclassrooms.tourguide.domain.dto.ItineraryDTO;
+import com.openclassrooms.tourguide.domain.dto.LeaderboardEntryDTO;
+import com.openclassrooms.tourguide.domain.dto.LocationHistoryPageDTO;
+import com.openclassrooms.tourguide.domain.dto.NearbyAttractionsCacheStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.NearbyUserDTO;
+import com.openclassrooms.tourguide.domain.dto.OverloadGuardStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.PipelineStageStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.RewardStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.TripDealScenariosDTO;
+import com.openclassrooms.tourguide.domain.dto.UserFeedUpdateDTO;
+import com.openclassrooms.tourguide.domain.dto.UserImportReportDTO;
+import com.openclassrooms.tourguide.service.ItineraryService;
+import com.openclassrooms.tourguide.service.LiveFeedService;
+import com.openclassrooms.tourguide.service.LoadSheddingService;
 import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.UserImportService;
 import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.bulk.UserImportFormat;
+import com.openclassrooms.tourguide.service.call.OverloadGuard;
+import com.openclassrooms.tourguide.service.call.OverloadedException;
+import com.openclassrooms.tourguide.service.feed.FeedSink;
+import com.openclassrooms.tourguide.service.feed.FeedSubscription;
+import com.openclassrooms.tourguide.service.geo.UserLocationIndex;
+import com.openclassrooms.tourguide.service.reward.RewardAnalytics;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.springframework.stereotype.Controller;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
 
 import com.openclassrooms.tourguide.domain.User;
-import com.openclassrooms.tourguide.domain.UserReward;
 
 import tripPricer.Provider;
 
-@Controller
+@RestController
 @RequiredArgsConstructor
 public class TourGuideController
 {
+    // Set on the responses served from cached data, the dependencies being overloaded
+    private static final String DEGRADED_HEADER = "X-TourGuide-Degraded";
+    // Most users served by a nearest users query
+    private static final int MAX_NEAREST_USERS = 1000;
+
     private final UserService userService;
     private final LocationService locationService;
+    private final RewardsService rewardsService;
+    private final ItineraryService itineraryService;
+    private final UserImportService userImportService;
+    private final LiveFeedService liveFeedService;
+    private final LoadSheddingService loadSheddingService;
+    private final VersionedResponseCache responseCache;
+    private final ObjectMapper objectMapper;
 
     @RequestMapping("/")
     public String index( )
@@ -31,29 +91,295 @@ public class TourGuideController
     }
 
     @RequestMapping("/getLocation")
-    public VisitedLocation getLocation( @RequestParam String userName )
+    public ResponseEntity<byte[]> getLocation( @RequestParam String userName, WebRequest request )
+    {
+        User user = getUser( userName );
+        return responseCache.respond( request, "location:" + user.getUserId( ), user.getVersionEpoch( ),
+                user.getLocationsVersion( ), ( ) -> userService.getUserLocation( user ) );
+    }
+
+    @RequestMapping("/getLocationHistory")
+    public ResponseEntity<StreamingResponseBody> getLocationHistory( @RequestParam String userName,
+                                                                     @RequestParam( required = false ) @DateTimeFormat( iso = DateTimeFormat.ISO.DATE_TIME ) Date from,
+                                                                     @RequestParam( required = false ) @DateTimeFormat( iso = DateTimeFormat.ISO.DATE_TIME ) Date to,
+                                                                     @RequestParam( required = false ) String cursor,
+                                                                     @RequestParam( defaultValue = "100" ) int limit )
+    {
+        LocationHistoryPageDTO page;
+        try
+        {
+            page = userService.getLocationHistory( getUser( userName ), from, to, cursor, limit );
+        } catch ( IllegalArgumentException e )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage( ) );
+        }
+        // Serialized straight to the response, the page being bounded
+        return ResponseEntity.ok( )
+                .contentType( MediaType.APPLICATION_JSON )
+                .body( outputStream -> objectMapper.writer( ).without( JsonGenerator.Feature.AUTO_CLOSE_TARGET ).writeValue( outputStream, page ) );
+    }
+
+    @RequestMapping("/getVisits")
+    public DailyVisitsDTO getVisits( @RequestParam String userName,
+                                     @RequestParam( required = false ) @DateTimeFormat( iso = DateTimeFormat.ISO.DATE ) LocalDate date )
     {
-        return userService.getUserLocation( getUser( userName ) );
+        return userService.getVisits( getUser( userName ), date != null ? date : LocalDate.now( ZoneOffset.UTC ) );
     }
 
     @RequestMapping("/getNearbyAttractions")
     public List<ClosestAttractionsDTO> getNearbyAttractions( @RequestParam String userName )
+    {
+        try ( OverloadGuard.Admission admission = loadSheddingService.getNearbyAttractionsGuard( ).admit( ) )
+        {
+            User user = getUser( userName );
+            VisitedLocation visitedLocation = userService.getUserLocation( user );
+            if ( admission.isDegraded( ) )
+            {
+                return locationService.getFiveClosestAttractionsWithKnownPoints( user, visitedLocation );
+            }
+            List<ClosestAttractionsDTO> attractions = locationService.getFiveClosestAttractions( visitedLocation );
+            // A points lookup that failed fast says nothing of the latency of rewardCentral, see OverloadGuard
+            if ( attractions.stream( ).noneMatch( ClosestAttractionsDTO::isDegraded ) )
+            {
+                admission.succeeded( );
+            }
+            return attractions;
+        }
+    }
+
+    @RequestMapping("/getAttractionsInProximity")
+    public List<AttractionInRangeDTO> getAttractionsInProximity( @RequestParam String userName )
+    {
+        User user = getUser( userName );
+        return locationService.getAttractionsInUserProximity( user, userService.getUserLocation( user ) );
+    }
+
+    @RequestMapping("/getItinerary")
+    public ItineraryDTO getItinerary( @RequestParam String userName,
+                                      @RequestParam( required = false ) List<String> attractionNames,
+                                      @RequestParam( defaultValue = "5" ) int stops )
     {
         VisitedLocation visitedLocation = userService.getUserLocation( getUser( userName ) );
-        return locationService.getFiveClosestAttractions( visitedLocation );
+        try
+        {
+            return itineraryService.planItinerary( visitedLocation, attractionNames, stops );
+        } catch ( IllegalArgumentException e )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage( ) );
+        }
+    }
+
+    @RequestMapping("/getUsersNearby")
+    public List<NearbyUserDTO> getUsersNearby( @RequestParam( required = false ) String attractionName,
+                                               @RequestParam( required = false ) Double latitude,
+                                               @RequestParam( required = false ) Double longitude,
+                                               @RequestParam double radiusMiles )
+    {
+        if ( !Double.isFinite( radiusMiles ) || radiusMiles <= 0 )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "radiusMiles must be finite and positive" );
+        }
+        Location center = getCenter( attractionName, latitude, longitude );
+        return toNearbyUsers( userService.getUserLocationIndex( ).getUsersWithin( center, radiusMiles ) );
+    }
+
+    @RequestMapping("/getNearestUsers")
+    public List<NearbyUserDTO> getNearestUsers( @RequestParam( required = false ) String attractionName,
+                                                @RequestParam( required = false ) Double latitude,
+                                                @RequestParam( required = false ) Double longitude,
+                                                @RequestParam( defaultValue = "10" ) int k )
+    {
+        if ( k < 1 || k > MAX_NEAREST_USERS )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "k must be between 1 and " + MAX_NEAREST_USERS );
+        }
+        Location center = getCenter( attractionName, latitude, longitude );
+        return toNearbyUsers( userService.getUserLocationIndex( ).getNearestUsers( center, k ) );
+    }
+
+    @RequestMapping("/getNearbyAttractionsCacheStats")
+    public NearbyAttractionsCacheStatsDTO getNearbyAttractionsCacheStats( )
+    {
+        return locationService.getNearbyAttractionsCache( ).getStats( );
     }
 
     @RequestMapping("/getRewards")
-    public List<UserReward> getRewards( @RequestParam String userName )
+    public ResponseEntity<byte[]> getRewards( @RequestParam String userName, WebRequest request )
     {
         User user = getUser( userName );
-        return user.getUserRewards( );
+        return responseCache.respond( request, "rewards:" + user.getUserId( ), user.getVersionEpoch( ),
+                user.getRewardsVersion( ), user::getUserRewards );
     }
 
     @RequestMapping("/getTripDeals")
-    public List<Provider> getTripDeals( @RequestParam String userName )
+    public ResponseEntity<List<Provider>> getTripDeals( @RequestParam String userName )
+    {
+        OverloadGuard guard = loadSheddingService.getTripDealsGuard( );
+        try ( OverloadGuard.Admission admission = guard.admit( ) )
+        {
+            User user = getUser( userName );
+            if ( !admission.isDegraded( ) )
+            {
+                List<Provider> tripDeals = userService.getTripDeals( user );
+                admission.succeeded( );
+                return ResponseEntity.ok( tripDeals );
+            }
+            List<Provider> lastTripDeals = userService.getLastTripDeals( user );
+            if ( lastTripDeals.isEmpty( ) )
+            {
+                throw new OverloadedException( "tripDeals overloaded, and no trip deals priced yet for " + userName,
+                        guard.getSettings( ).getRetryAfter( ) );
+            }
+            return ResponseEntity.ok( ).header( DEGRADED_HEADER, "true" ).body( lastTripDeals );
+        }
+    }
+
+    @RequestMapping("/getLeaderboard")
+    public List<LeaderboardEntryDTO> getLeaderboard( @RequestParam( defaultValue = "10" ) int top )
+    {
+        if ( top < 0 || top > RewardAnalytics.MAX_LEADERBOARD_SIZE )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST,
+                    "top must be between 0 and " + RewardAnalytics.MAX_LEADERBOARD_SIZE );
+        }
+        return rewardsService.getRewardAnalytics( ).getLeaderboard( top );
+    }
+
+    @RequestMapping("/getRewardStats")
+    public RewardStatsDTO getRewardStats( )
+    {
+        return rewardsService.getRewardAnalytics( ).getStats( );
+    }
+
+    @RequestMapping("/getTripDealScenarios")
+    public TripDealScenariosDTO getTripDealScenarios( @RequestParam String userName,
+                                                      @RequestParam( required = false ) List<Integer> tripDurations,
+                                                      @RequestParam( required = false ) List<Integer> adults,
+                                                      @RequestParam( required = false ) List<Integer> children,
+                                                      @RequestParam( defaultValue = "10" ) int top )
+    {
+        try
+        {
+            return userService.getTripDealScenarios( getUser( userName ), tripDurations, adults, children, top );
+        } catch ( IllegalArgumentException e )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage( ) );
+        }
+    }
+
+    @RequestMapping("/getConcurrencyLimits")
+    public List<ConcurrencyLimitStatsDTO> getConcurrencyLimits( )
+    {
+        return List.of( userService.getGpsUtilLimiter( ).getStats( ), locationService.getRewardCentralLimiter( ).getStats( ) );
+    }
+
+    @RequestMapping("/getOverloadGuards")
+    public List<OverloadGuardStatsDTO> getOverloadGuards( )
+    {
+        return loadSheddingService.getStats( );
+    }
+
+    @ExceptionHandler( OverloadedException.class )
+    public ResponseEntity<String> onOverloaded( OverloadedException e )
+    {
+        return ResponseEntity.status( HttpStatus.SERVICE_UNAVAILABLE )
+                .header( HttpHeaders.RETRY_AFTER, String.valueOf( Math.max( 1, e.getRetryAfter( ).toSeconds( ) ) ) )
+                .body( e.getMessage( ) );
+    }
+
+    @RequestMapping("/getTrackingPipelineStats")
+    public List<PipelineStageStatsDTO> getTrackingPipelineStats( )
+    {
+        return userService.getTrackingPipelineStats( );
+    }
+
+    @RequestMapping( value = "/subscribeFeed", produces = MediaType.TEXT_EVENT_STREAM_VALUE )
+    public SseEmitter subscribeFeed( @RequestParam( required = false ) List<String> userNames )
+    {
+        Set<UUID> userIds = null;
+        if ( userNames != null && !userNames.isEmpty( ) )
+        {
+            userIds = new HashSet<>( );
+            for ( String userName : userNames )
+            {
+                User user = getUser( userName );
+                if ( user == null )
+                {
+                    throw new ResponseStatusException( HttpStatus.NOT_FOUND, "Unknown user " + userName );
+                }
+                userIds.add( user.getUserId( ) );
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter( liveFeedService.getSettings( ).getTimeout( ).toMillis( ) );
+        FeedSubscription subscription;
+        try
+        {
+            subscription = liveFeedService.subscribe( userIds, new FeedSink( )
+            {
+                @Override
+                public void send( UserFeedUpdateDTO update ) throws IOException
+                {
+                    emitter.send( SseEmitter.event( ).name( "update" ).data( update, MediaType.APPLICATION_JSON ) );
+                }
+
+                @Override
+                public void close( )
+                {
+                    // The client stalled, and is dropped
+                    emitter.complete( );
+                }
+            } );
+        } catch ( IllegalStateException e )
+        {
+            throw new ResponseStatusException( HttpStatus.SERVICE_UNAVAILABLE, e.getMessage( ) );
+        }
+        emitter.onCompletion( subscription::close );
+        emitter.onTimeout( subscription::close );
+        emitter.onError( failure -> subscription.close( ) );
+        return emitter;
+    }
+
+    @PostMapping("/importUsers")
+    public UserImportReportDTO importUsers( InputStream body,
+                                            @RequestHeader( value = HttpHeaders.CONTENT_TYPE, required = false ) String contentType,
+                                            @RequestParam( defaultValue = "false" ) boolean track ) throws IOException
+    {
+        try
+        {
+            return userImportService.importUsers( body, UserImportFormat.fromContentType( contentType ), track );
+        } catch ( IllegalArgumentException e )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getMessage( ) );
+        }
+    }
+
+    private Location getCenter( String attractionName, Double latitude, Double longitude )
+    {
+        if ( attractionName != null )
+        {
+            return locationService.findAttraction( attractionName )
+                    .orElseThrow( ( ) -> new ResponseStatusException( HttpStatus.NOT_FOUND, "Unknown attraction " + attractionName ) );
+        }
+        if ( latitude == null || longitude == null )
+        {
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Either attractionName or latitude and longitude are required" );
+        }
+        return new Location( latitude, longitude );
+    }
+
+    private List<NearbyUserDTO> toNearbyUsers( List<UserLocationIndex.Match> users )
     {
-        return userService.getTripDeals( getUser( userName ) );
+        return users.stream( )
+                .map( match -> {
+                    NearbyUserDTO nearbyUser = new NearbyUserDTO( );
+                    nearbyUser.setUserName( match.user( ).getUserName( ) );
+                    // The position that matched, the user may have moved since
+                    nearbyUser.setUserLocation( match.location( ) );
+                    nearbyUser.setDistanceInMiles( match.distanceMiles( ) );
+                    return nearbyUser;
+                } )
+                .toList( );
     }
 
     private User getUser( String userName )
@@ -0,0 +1,95 @@
+package com.openclassrooms.tourguide.controller;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * The {@code VersionedResponseCache} class serves the responses of the endpoints whose content is versioned, such as
+ * the rewards or the location of a user.
+ *
+ * <p>The ETag of a response is derived from the version of its content: a conditional GET whose {@code If-None-Match}
+ * still matches is answered with a 304 and no body. Otherwise the serialized body of the latest version is cached, so
+ * that it is only serialized again once the version changed.</p>
+ *
+ * <p>The version must be read before the content is, so that a body is never cached under a version newer than
+ * its content. The cache is bounded: past {@link #MAX_ENTRIES} entries, arbitrary entries are evicted.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class VersionedResponseCache
+{
+    public static final int MAX_ENTRIES = 100_000;
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>( );
+
+
+    /**
+     * Answers a request for versioned content.
+     *
+     * @param request the request, possibly conditional
+     * @param key     the key of the content, e.g. the endpoint and the user
+     * @param epoch   the epoch of the versions, telling apart contents whose versions restarted
+     * @param version the version of the content, read before the content
+     * @param content the content, only retrieved when it must be serialized
+     * @return a 200 with the serialized content, or {@code null} once a 304 was sent
+     */
+    public ResponseEntity<byte[]> respond( WebRequest request, String key, long epoch, long version, Supplier<?> content )
+    {
+        String eTag = "\"" + Long.toHexString( epoch ) + "-" + version + "\"";
+        if ( request.checkNotModified( eTag ) )
+        {
+            return null;
+        }
+
+        CachedResponse cached = responses.get( key );
+        if ( cached == null || !cached.eTag( ).equals( eTag ) )
+        {
+            cached = new CachedResponse( eTag, serialize( content.get( ) ) );
+            evictIfFull( );
+            responses.put( key, cached );
+        }
+        return ResponseEntity.ok( )
+                .eTag( eTag )
+                .contentType( MediaType.APPLICATION_JSON )
+                .body( cached.body( ) );
+    }
+
+
+    private byte[] serialize( Object content )
+    {
+        try
+        {
+            return objectMapper.writeValueAsBytes( content );
+        } catch ( JsonProcessingException e )
+        {
+            throw new IllegalStateException( "Failed to serialize " + content.getClass( ).getSimpleName( ), e );
+        }
+    }
+
+
+    private void evictIfFull( )
+    {
+        Iterator<String> keys = responses.keySet( ).iterator( );
+        while ( responses.size( ) >= MAX_ENTRIES && keys.hasNext( ) )
+        {
+            keys.next( );
+            keys.remove( );
+        }
+    }
+
+
+    private record CachedResponse( String eTag, byte[] body )
+    {
+    }
+}
@@ -1,14 +1,24 @@
 package com.openclassrooms.tourguide.domain;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.openclassrooms.tourguide.testUtils.UserPreferences;
 import gpsUtil.location.VisitedLocation;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import tripPricer.Provider;
 
 @Data
@@ -20,11 +30,31 @@ public class User
     private String       emailAddress;
     private Date         latestLocationTimestamp;
 
+    // Only changed through addToVisitedLocations and addUserReward, which keep the versions and the points in step
+    @Setter( AccessLevel.NONE )
     private CopyOnWriteArrayList<VisitedLocation>   visitedLocations = new CopyOnWriteArrayList<>( );
-    private List<UserReward>                        userRewards      = new ArrayList<>( );
+    @Setter( AccessLevel.NONE )
+    private List<UserReward>                        userRewards      = new CopyOnWriteArrayList<>( );
     private UserPreferences                         userPreferences  = new UserPreferences( );
     private List<Provider>                          tripDeals        = new ArrayList<>( );
 
+    // Versions of the rewards and of the visited locations, increased after each change, and the random epoch
+    // telling apart two lives of the same user, e.g. on two nodes
+    @Getter( AccessLevel.NONE ) @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private final AtomicLong                        rewardsVersion         = new AtomicLong( );
+    @Getter( AccessLevel.NONE ) @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private final AtomicLong                        locationsVersion       = new AtomicLong( );
+    @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private final long                              versionEpoch           = ThreadLocalRandom.current( ).nextLong( );
+    // Sum of the points of every reward, updated as reward point lookups complete
+    @Getter( AccessLevel.NONE ) @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private final AtomicInteger                     cumulativeRewardPoints = new AtomicInteger( );
+    // Reward point lookups still running, and the future completed once none is left
+    @Getter( AccessLevel.NONE ) @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private int                                     pendingRewardLookups   = 0;
+    @Getter( AccessLevel.NONE ) @Setter( AccessLevel.NONE ) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private CompletableFuture<Void>                 rewardsSettled         = CompletableFuture.completedFuture( null );
+
 
     /**********************************************************************************
      *
@@ -39,6 +69,18 @@ public class User
         this.emailAddress = emailAddress;
     }
 
+    /**
+     * Derives a user id from a user name, so that a user keeps the same id from one run to the next, and every
+     * node agrees on the id, hence on the owner, of a user it only knows by name.
+     *
+     * @param userName the name of the user
+     * @return the name-based id of the user
+     */
+    public static UUID nameBasedId( String userName )
+    {
+        return UUID.nameUUIDFromBytes( ( "tourguide-user:" + userName ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
 
     /**********************************************************************************
      *
@@ -50,13 +92,148 @@ public class User
         return visitedLocations.get( visitedLocations.size( ) - 1 );
     }
 
-    public void addToVisitedLocations( VisitedLocation visitedLocation )
+    /**
+     * Adds a visited location, keeping the visited locations ordered by time: a location is normally appended, and
+     * a late one, e.g. imported, is inserted after the locations visited at or before its time.
+     *
+     * @param visitedLocation the visited location to add
+     */
+    public synchronized void addToVisitedLocations( VisitedLocation visitedLocation )
     {
-        visitedLocations.add( visitedLocation );
+        int index = visitedLocations.size( );
+        while ( index > 0 && visitedLocations.get( index - 1 ).timeVisited.after( visitedLocation.timeVisited ) )
+        {
+            index--;
+        }
+        visitedLocations.add( index, visitedLocation );
+        locationsVersion.incrementAndGet( );
     }
 
-    public void clearVisitedLocations( )
+    public synchronized void clearVisitedLocations( )
     {
         visitedLocations.clear( );
+        locationsVersion.incrementAndGet( );
+    }
+
+    /**
+     * Retrieves the version of the visited locations, increased after each change.
+     *
+     * @return the locations version
+     */
+    public long getLocationsVersion( )
+    {
+        return locationsVersion.get( );
+    }
+
+
+    /**********************************************************************************
+     *
+     * Methods Below: For Rewards
+     *
+     **********************************************************************************/
+    public void addUserReward( UserReward userReward )
+    {
+        userRewards.add( userReward );
+        cumulativeRewardPoints.addAndGet( userReward.getRewardPoints( ) );
+        rewardsVersion.incrementAndGet( );
+    }
+
+    /**
+     * Removes a reward, e.g. one whose points could not be looked up, so that it can be granted again.
+     *
+     * @param userReward the reward to remove
+     * @return {@code true} if the user had the reward
+     */
+    public boolean removeUserReward( UserReward userReward )
+    {
+        if ( !userRewards.removeIf( reward -> reward == userReward ) )
+        {
+            return false;
+        }
+        cumulativeRewardPoints.addAndGet( -userReward.getRewardPoints( ) );
+        rewardsVersion.incrementAndGet( );
+        return true;
+    }
+
+    /**
+     * Retrieves the version of the rewards, increased after a reward is added, removed or its points are settled.
+     *
+     * @return the rewards version
+     */
+    public long getRewardsVersion( )
+    {
+        return rewardsVersion.get( );
+    }
+
+    public boolean hasRewardFor( String attractionName )
+    {
+        return userRewards.stream( ).anyMatch( r -> r.attraction.attractionName.equals( attractionName ) );
+    }
+
+    /**
+     * Retrieves the sum of the points of the user's rewards, in constant time.
+     * Points whose lookup is still running are not counted yet, see {@link #getRewardsSettled( )}.
+     *
+     * @return the cumulative reward points
+     */
+    public int getCumulativeRewardPoints( )
+    {
+        return cumulativeRewardPoints.get( );
+    }
+
+    /**
+     * Retrieves a future completed once every reward point lookup started so far has settled.
+     *
+     * @return the future to await, already completed if no lookup is running
+     */
+    public synchronized CompletableFuture<Void> getRewardsSettled( )
+    {
+        return rewardsSettled;
+    }
+
+    /**
+     * Registers a reward point lookup, to be settled by {@link #settleRewardLookup( UserReward, int )}
+     * then ended by {@link #endRewardLookup( )}.
+     */
+    public synchronized void beginRewardLookup( )
+    {
+        if ( pendingRewardLookups++ == 0 )
+        {
+            rewardsSettled = new CompletableFuture<>( );
+        }
+    }
+
+    /**
+     * Assigns the looked up points to a reward already added to the user, and adds them to the cumulative points.
+     *
+     * @param userReward   the reward whose points were looked up
+     * @param rewardPoints the points
+     * @return the cumulative reward points, including these
+     */
+    public int settleRewardLookup( UserReward userReward, int rewardPoints )
+    {
+        userReward.setRewardPoints( rewardPoints );
+        int cumulative = cumulativeRewardPoints.addAndGet( rewardPoints );
+        rewardsVersion.incrementAndGet( );
+        return cumulative;
+    }
+
+    /**
+     * Ends a reward point lookup, completing the rewards settled future if it was the last one running.
+     */
+    public void endRewardLookup( )
+    {
+        CompletableFuture<Void> settled = null;
+        synchronized ( this )
+        {
+            if ( --pendingRewardLookups == 0 )
+            {
+                settled = rewardsSettled;
+            }
+        }
+        if ( settled != null )
+        {
+            settled.complete( null );
+        }
     }
 }
@@ -9,7 +9,8 @@ public class UserReward
 {
     public final VisitedLocation visitedLocation;
     public final Attraction 	 attraction;
-    public int 			         rewardPoints;
+    // Written by the reward point lookup thread
+    public volatile int 		 rewardPoints;
 
     public UserReward( VisitedLocation visitedLocation, Attraction attraction )
     {
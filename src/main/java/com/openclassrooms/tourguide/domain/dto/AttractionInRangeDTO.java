@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import gpsUtil.location.Location;
+import lombok.Data;
+
+@Data
+public class AttractionInRangeDTO
+{
+    private String attractionName;
+    private Location attractionLocation;
+    private Double userDistanceInMilesToAttraction;
+}
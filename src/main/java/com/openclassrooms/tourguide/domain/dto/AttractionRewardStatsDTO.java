@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class AttractionRewardStatsDTO
+{
+    private String attractionName;
+    private long rewards;
+    private long rewardPoints;
+}
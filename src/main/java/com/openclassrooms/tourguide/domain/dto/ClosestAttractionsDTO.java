@@ -10,5 +10,8 @@ public class ClosestAttractionsDTO
     private Location attractionLocation;
     private Location userLocation;
     private Double userDistanceInMilesToAttraction;
-    private int rewardPoints;
+    // Null when not known, the lookup having failed or been skipped
+    private Integer rewardPoints;
+    // Reward points cached or omitted rather than looked up, rewardCentral being overloaded or failing
+    private boolean degraded;
 }
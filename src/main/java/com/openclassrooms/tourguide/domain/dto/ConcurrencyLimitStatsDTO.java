@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class ConcurrencyLimitStatsDTO
+{
+    private String dependency;
+    private String algorithm;
+    private int limit;
+    private int inFlight;
+    private int waiting;
+    private double latencyMillis;
+    private double baselineLatencyMillis;
+    private long completed;
+    private long failed;
+    private long rejected;
+}
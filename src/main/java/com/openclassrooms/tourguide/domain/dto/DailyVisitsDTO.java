@@ -0,0 +1,16 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class DailyVisitsDTO
+{
+    // Day of arrival of the visits, in UTC
+    private LocalDate date;
+    private List<VisitDTO> visits;
+    private long totalDwellMinutes;
+    private int distinctAttractions;
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.time.Instant;
+
+import lombok.Data;
+
+@Data
+public class FlightRecordingDumpDTO
+{
+    private String path;
+    private long sizeBytes;
+    // Time span covered by the dump
+    private Instant startTime;
+    private Instant endTime;
+}
@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.List;
+
+import gpsUtil.location.Location;
+import lombok.Data;
+
+@Data
+public class ItineraryDTO
+{
+    private Location userLocation;
+    private List<ItineraryStopDTO> stops;
+    private double totalDistanceInMiles;
+    // Sum of the known reward points of the stops
+    private int totalRewardPoints;
+    // True when the reward points of a stop are not known
+    private boolean degraded;
+    // False when the time budget elapsed while the tour could still be shortened
+    private boolean converged;
+}
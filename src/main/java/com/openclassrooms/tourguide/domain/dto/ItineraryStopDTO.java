@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import gpsUtil.location.Location;
+import lombok.Data;
+
+@Data
+public class ItineraryStopDTO
+{
+    // Position of the stop in the itinerary, from 1
+    private int order;
+    private String attractionName;
+    private Location attractionLocation;
+    // Distance from the previous stop, or from the user for the first one
+    private double legDistanceInMiles;
+    private double cumulativeDistanceInMiles;
+    // Null when not known, the lookup having failed
+    private Integer rewardPoints;
+    // Reward points omitted, rewardCentral failing or overloaded
+    private boolean degraded;
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class LeaderboardEntryDTO
+{
+    private int rank;
+    private String userName;
+    private int rewardPoints;
+}
@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.List;
+
+import gpsUtil.location.VisitedLocation;
+import lombok.Data;
+
+@Data
+public class LocationHistoryPageDTO
+{
+    // Visited locations of the page, in time order
+    private List<VisitedLocation> locations;
+    // Cursor of the next page, null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class NearbyAttractionsCacheStatsDTO
+{
+    private long catalogVersion;
+    private int cachedCells;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private double averageHitMicros;
+    private double averageMissMicros;
+    // Time the hits would have cost as misses
+    private double estimatedSavedMillis;
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import gpsUtil.location.Location;
+import lombok.Data;
+
+@Data
+public class NearbyUserDTO
+{
+    private String userName;
+    private Location userLocation;
+    private double distanceInMiles;
+}
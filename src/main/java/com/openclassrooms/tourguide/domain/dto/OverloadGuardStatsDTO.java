@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class OverloadGuardStatsDTO
+{
+    private String endpoint;
+    private int inFlight;
+    // Recent latency of the requests served in full, 0 once older than the latency window
+    private double latencyMillis;
+    private long served;
+    private long degraded;
+    private long rejected;
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class PipelineStageStatsDTO
+{
+    private String stage;
+    private int queueDepth;
+    private long submitted;
+    private long completed;
+    private long inFlight;
+    private double throughputPerSecond;
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.List;
+import java.util.SortedMap;
+
+import lombok.Data;
+
+@Data
+public class RewardStatsDTO
+{
+    private long totalRewards;
+    private long totalRewardPoints;
+    private long rewardedUsers;
+    private List<AttractionRewardStatsDTO> attractions;
+    // Number of rewarded users per range of cumulative points, keyed by the lower bound of the range
+    private SortedMap<Integer, Long> pointsDistribution;
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.UUID;
+
+import lombok.Data;
+
+@Data
+public class TripDealOfferDTO
+{
+    private String scenario;
+    private int tripDuration;
+    private int numberOfAdults;
+    private int numberOfChildren;
+    private String providerName;
+    private double price;
+    private UUID tripId;
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class TripDealScenariosDTO
+{
+    // Cheapest offers across the priced scenarios
+    private List<TripDealOfferDTO> offers;
+    private int scenarios;
+    private int pricedScenarios;
+    // Scenarios not priced before the deadline, or whose pricing failed
+    private List<String> unpricedScenarios;
+    private boolean partial;
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.UserReward;
+import gpsUtil.location.VisitedLocation;
+import lombok.Data;
+
+@Data
+public class UserFeedUpdateDTO
+{
+    private UUID userId;
+    private String userName;
+    // Latest location of the user, null if only rewards changed
+    private VisitedLocation location;
+    // Rewards settled since the previous update
+    private List<UserReward> rewards = new ArrayList<>( );
+    // Cumulative points of the user after these rewards, null if no reward settled
+    private Integer cumulativeRewardPoints;
+    // Changes merged into this update while the subscriber was busy
+    private int conflated;
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import lombok.Data;
+
+@Data
+public class UserImportRecordDTO
+{
+    private String userName;
+    private String phoneNumber;
+    private String emailAddress;
+    // Initial location of the user, both or none
+    private Double latitude;
+    private Double longitude;
+}
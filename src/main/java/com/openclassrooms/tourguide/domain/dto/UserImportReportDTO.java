@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class UserImportReportDTO
+{
+    private String format;
+    private long records;
+    private long imported;
+    // Records whose user name was already known, or seen earlier in the import
+    private long duplicates;
+    private long rejected;
+    // Imported users owned by other nodes, handed off to them
+    private long handedOff;
+    private long trackingEnqueued;
+    // Imported users not tracked, the tracking pipeline being too far behind
+    private long trackingSkipped;
+    private long elapsedMillis;
+    private double recordsPerSecond;
+    // First rejections, by line number
+    private List<String> errors;
+}
@@ -0,0 +1,44 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.testUtils.UserPreferences;
+import lombok.Data;
+
+/**
+ * State of a user handed off from one TourGuide node to another.
+ */
+@Data
+public class UserTransferDTO
+{
+    private UUID userId;
+    private String userName;
+    private String phoneNumber;
+    private String emailAddress;
+    private Date latestLocationTimestamp;
+    private UserPreferences userPreferences;
+    private List<VisitedLocationDTO> visitedLocations;
+    private List<UserRewardDTO> userRewards;
+
+    @Data
+    public static class VisitedLocationDTO
+    {
+        private double latitude;
+        private double longitude;
+        private Date timeVisited;
+    }
+
+    @Data
+    public static class UserRewardDTO
+    {
+        private VisitedLocationDTO visitedLocation;
+        private String attractionName;
+        private String city;
+        private String state;
+        private double latitude;
+        private double longitude;
+        private int rewardPoints;
+    }
+}
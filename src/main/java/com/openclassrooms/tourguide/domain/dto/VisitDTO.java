@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.domain.dto;
+
+import java.util.Date;
+
+import gpsUtil.location.Location;
+import lombok.Data;
+
+@Data
+public class VisitDTO
+{
+    // Center of the locations of the visit
+    private Location location;
+    private Date arrival;
+    private Date departure;
+    private long dwellMinutes;
+    private int locations;
+    // Attraction nearest to the center of the visit
+    private String attractionName;
+    private double attractionDistanceInMiles;
+    // True while the user is still within the radius of the visit
+    private boolean ongoing;
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.List;
+import java.util.UUID;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Source of users' locations and of the attraction catalog, implemented by the {@code gpsUtil} library
+ * or by a simulation.
+ */
+public interface GpsGateway
+{
+    VisitedLocation getUserLocation( UUID userId );
+
+    List<Attraction> getAttractions( );
+}
@@ -0,0 +1,39 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.service.flight.ExternalCallEvent;
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * {@link GpsGateway} backed by the {@code gpsUtil} library.
+ */
+public class LibraryGpsGateway implements GpsGateway
+{
+    private final GpsUtil gpsUtil;
+
+    public LibraryGpsGateway( )
+    {
+        this( new GpsUtil( ) );
+    }
+
+    public LibraryGpsGateway( GpsUtil gpsUtil )
+    {
+        this.gpsUtil = gpsUtil;
+    }
+
+    @Override
+    public VisitedLocation getUserLocation( UUID userId )
+    {
+        return ExternalCallEvent.record( "gpsUtil", "getUserLocation", userId, ( ) -> gpsUtil.getUserLocation( userId ) );
+    }
+
+    @Override
+    public List<Attraction> getAttractions( )
+    {
+        return ExternalCallEvent.record( "gpsUtil", "getAttractions", null, gpsUtil::getAttractions );
+    }
+}
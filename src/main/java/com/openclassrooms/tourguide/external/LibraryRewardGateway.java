@@ -0,0 +1,31 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.service.flight.ExternalCallEvent;
+import rewardCentral.RewardCentral;
+
+/**
+ * {@link RewardGateway} backed by the {@code rewardCentral} library.
+ */
+public class LibraryRewardGateway implements RewardGateway
+{
+    private final RewardCentral rewardCentral;
+
+    public LibraryRewardGateway( )
+    {
+        this( new RewardCentral( ) );
+    }
+
+    public LibraryRewardGateway( RewardCentral rewardCentral )
+    {
+        this.rewardCentral = rewardCentral;
+    }
+
+    @Override
+    public int getAttractionRewardPoints( UUID attractionId, UUID userId )
+    {
+        return ExternalCallEvent.record( "rewardCentral", "getAttractionRewardPoints", userId,
+                ( ) -> rewardCentral.getAttractionRewardPoints( attractionId, userId ) );
+    }
+}
@@ -0,0 +1,34 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.service.flight.ExternalCallEvent;
+import tripPricer.Provider;
+import tripPricer.TripPricer;
+
+/**
+ * {@link TripPricerGateway} backed by the {@code tripPricer} library.
+ */
+public class LibraryTripPricerGateway implements TripPricerGateway
+{
+    private final TripPricer tripPricer;
+
+    public LibraryTripPricerGateway( )
+    {
+        this( new TripPricer( ) );
+    }
+
+    public LibraryTripPricerGateway( TripPricer tripPricer )
+    {
+        this.tripPricer = tripPricer;
+    }
+
+    @Override
+    public List<Provider> getPrice( String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints )
+    {
+        // TourGuide passes the user's id as the attraction id
+        return ExternalCallEvent.record( "tripPricer", "getPrice", attractionId,
+                ( ) -> tripPricer.getPrice( apiKey, attractionId, adults, children, nightsStay, rewardsPoints ) );
+    }
+}
@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.UUID;
+
+/**
+ * Source of the reward points granted for visiting attractions, implemented by the {@code rewardCentral} library
+ * or by a simulation.
+ */
+public interface RewardGateway
+{
+    int getAttractionRewardPoints( UUID attractionId, UUID userId );
+}
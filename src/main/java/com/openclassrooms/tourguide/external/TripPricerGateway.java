@@ -0,0 +1,14 @@
+package com.openclassrooms.tourguide.external;
+
+import java.util.List;
+import java.util.UUID;
+
+import tripPricer.Provider;
+
+/**
+ * Source of trip deals, implemented by the {@code tripPricer} library or by a simulation.
+ */
+public interface TripPricerGateway
+{
+    List<Provider> getPrice( String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints );
+}
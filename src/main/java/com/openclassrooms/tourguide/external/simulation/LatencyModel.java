@@ -0,0 +1,47 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the latencies injected by a simulated gateway.
+ */
+@FunctionalInterface
+public interface LatencyModel
+{
+    long nextLatencyNanos( SplittableRandom random );
+
+
+    static LatencyModel none( )
+    {
+        return random -> 0;
+    }
+
+    static LatencyModel fixed( Duration latency )
+    {
+        long nanos = latency.toNanos( );
+        return random -> nanos;
+    }
+
+    static LatencyModel uniform( Duration min, Duration max )
+    {
+        long minNanos = min.toNanos( );
+        long maxNanos = Math.max( minNanos + 1, max.toNanos( ) );
+        return random -> random.nextLong( minNanos, maxNanos );
+    }
+
+    /**
+     * Pareto distribution: most latencies are close to {@code scale}, but a few are many times longer.
+     *
+     * @param scale the minimal latency
+     * @param max   the latency at which the tail is cut
+     * @param shape the Pareto shape, the lower the heavier the tail
+     * @return a long-tail latency model
+     */
+    static LatencyModel longTail( Duration scale, Duration max, double shape )
+    {
+        long scaleNanos = scale.toNanos( );
+        long maxNanos = max.toNanos( );
+        return random -> (long) Math.min( maxNanos, scaleNanos / Math.pow( 1 - random.nextDouble( ), 1 / shape ) );
+    }
+}
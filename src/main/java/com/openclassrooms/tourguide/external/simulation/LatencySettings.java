@@ -0,0 +1,38 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Latency injected by a simulated gateway, see {@link LatencyModel}.
+ */
+@Data
+public class LatencySettings
+{
+    public enum Type
+    {
+        NONE,
+        FIXED,
+        UNIFORM,
+        LONG_TAIL
+    }
+
+    private Type     type      = Type.NONE;
+    // Fixed latency, lower bound of the uniform latency, or scale of the long-tail latency
+    private Duration base      = Duration.ZERO;
+    // Upper bound of the uniform latency, or cut of the long-tail latency
+    private Duration max       = Duration.ZERO;
+    private double   tailShape = 1.5;
+
+    public LatencyModel toModel( )
+    {
+        return switch ( type )
+        {
+            case NONE -> LatencyModel.none( );
+            case FIXED -> LatencyModel.fixed( base );
+            case UNIFORM -> LatencyModel.uniform( base, max );
+            case LONG_TAIL -> LatencyModel.longTail( base, max, tailShape );
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Derives independent, reproducible random generators from a seed and a few keys.
+ */
+final class SeededRandoms
+{
+    private SeededRandoms( )
+    {
+    }
+
+    static SplittableRandom of( long seed, long... keys )
+    {
+        long state = mix( seed );
+        for ( long key : keys )
+        {
+            state = mix( state ^ key );
+        }
+        return new SplittableRandom( state );
+    }
+
+    static long key( UUID uuid )
+    {
+        return uuid.getMostSignificantBits( ) * 31 + uuid.getLeastSignificantBits( );
+    }
+
+    // SplitMix64 finalizer
+    private static long mix( long z )
+    {
+        z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+        return z ^ ( z >>> 31 );
+    }
+}
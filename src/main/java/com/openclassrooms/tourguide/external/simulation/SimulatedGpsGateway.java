@@ -0,0 +1,78 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openclassrooms.tourguide.external.GpsGateway;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Simulated {@link GpsGateway}, serving a fixed attraction catalog and seeded users' locations.
+ *
+ * <p>Each user lives around a home location derived from the seed and its id, and the n-th location of a user only
+ * depends on the seed, its id and n: it is usually close to home, and sometimes at one of the attractions.</p>
+ */
+public class SimulatedGpsGateway implements GpsGateway
+{
+    private static final long   LATENCY_KEY            = 1;
+    private static final double ATTRACTION_PROBABILITY = 0.1;
+    private static final double HOME_RADIUS_DEGREES    = 1;
+
+    private final long seed;
+    private final LatencyModel latencyModel;
+    private final SimulationClock clock;
+    private final List<Attraction> catalog;
+
+    private final Map<UUID, AtomicLong> userCalls = new ConcurrentHashMap<>( );
+    private final AtomicLong calls = new AtomicLong( );
+
+
+    public SimulatedGpsGateway( SimulationSettings settings, SimulationClock clock, List<Attraction> catalog )
+    {
+        this.seed = settings.getSeed( );
+        this.latencyModel = settings.getGpsUtil( ).toModel( );
+        this.clock = clock;
+        this.catalog = List.copyOf( catalog );
+    }
+
+
+    @Override
+    public VisitedLocation getUserLocation( UUID userId )
+    {
+        clock.sleep( latencyModel.nextLatencyNanos( SeededRandoms.of( seed, LATENCY_KEY, calls.getAndIncrement( ) ) ) );
+
+        long userKey = SeededRandoms.key( userId );
+        long call = userCalls.computeIfAbsent( userId, id -> new AtomicLong( ) ).getAndIncrement( );
+        SplittableRandom random = SeededRandoms.of( seed, userKey, call );
+
+        Location location;
+        if ( !catalog.isEmpty( ) && random.nextDouble( ) < ATTRACTION_PROBABILITY )
+        {
+            Attraction attraction = catalog.get( random.nextInt( catalog.size( ) ) );
+            location = new Location( attraction.latitude, attraction.longitude );
+        }
+        else
+        {
+            SplittableRandom homeRandom = SeededRandoms.of( seed, userKey );
+            double homeLatitude = homeRandom.nextDouble( -80, 80 );
+            double homeLongitude = homeRandom.nextDouble( -179, 179 );
+            location = new Location( homeLatitude + random.nextDouble( -HOME_RADIUS_DEGREES, HOME_RADIUS_DEGREES ),
+                    homeLongitude + random.nextDouble( -HOME_RADIUS_DEGREES, HOME_RADIUS_DEGREES ) );
+        }
+        return new VisitedLocation( userId, location, new Date( clock.currentTimeMillis( ) ) );
+    }
+
+
+    @Override
+    public List<Attraction> getAttractions( )
+    {
+        return catalog;
+    }
+}
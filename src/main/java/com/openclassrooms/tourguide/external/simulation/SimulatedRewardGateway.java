@@ -0,0 +1,48 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openclassrooms.tourguide.external.RewardGateway;
+import gpsUtil.location.Attraction;
+
+/**
+ * Simulated {@link RewardGateway}, granting between 1 and 1000 points derived from the seed, the attraction and the
+ * user. Catalog attractions are identified by their name, whose id changes each time the catalog is loaded.
+ */
+public class SimulatedRewardGateway implements RewardGateway
+{
+    private static final long LATENCY_KEY = 2;
+
+    private final long seed;
+    private final LatencyModel latencyModel;
+    private final SimulationClock clock;
+    private final Map<UUID, Long> attractionKeys = new HashMap<>( );
+
+    private final AtomicLong calls = new AtomicLong( );
+
+
+    public SimulatedRewardGateway( SimulationSettings settings, SimulationClock clock, List<Attraction> catalog )
+    {
+        this.seed = settings.getSeed( );
+        this.latencyModel = settings.getRewardCentral( ).toModel( );
+        this.clock = clock;
+        for ( Attraction attraction : catalog )
+        {
+            attractionKeys.put( attraction.attractionId, (long) attraction.attractionName.hashCode( ) );
+        }
+    }
+
+
+    @Override
+    public int getAttractionRewardPoints( UUID attractionId, UUID userId )
+    {
+        clock.sleep( latencyModel.nextLatencyNanos( SeededRandoms.of( seed, LATENCY_KEY, calls.getAndIncrement( ) ) ) );
+
+        long attractionKey = attractionKeys.getOrDefault( attractionId, SeededRandoms.key( attractionId ) );
+        return SeededRandoms.of( seed, attractionKey, SeededRandoms.key( userId ) ).nextInt( 1, 1001 );
+    }
+}
@@ -0,0 +1,58 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.openclassrooms.tourguide.external.TripPricerGateway;
+import tripPricer.Provider;
+
+/**
+ * Simulated {@link TripPricerGateway}, quoting five providers whose prices are derived from the seed and the request,
+ * then discounted by the reward points.
+ */
+public class SimulatedTripPricerGateway implements TripPricerGateway
+{
+    private static final long LATENCY_KEY = 3;
+    private static final int  PROVIDERS   = 5;
+    private static final List<String> PROVIDER_NAMES = List.of( "Holiday Travels", "Enterprize Ventures Limited",
+            "Sunny Days", "FlyAway Trips", "United Partners Vacations", "Dream Trips", "Live Free",
+            "Dancing Waves Cruselines and Partners", "AdventureCo", "Cure-Your-Blues" );
+
+    private final long seed;
+    private final LatencyModel latencyModel;
+    private final SimulationClock clock;
+
+    private final AtomicLong calls = new AtomicLong( );
+
+
+    public SimulatedTripPricerGateway( SimulationSettings settings, SimulationClock clock )
+    {
+        this.seed = settings.getSeed( );
+        this.latencyModel = settings.getTripPricer( ).toModel( );
+        this.clock = clock;
+    }
+
+
+    @Override
+    public List<Provider> getPrice( String apiKey, UUID attractionId, int adults, int children, int nightsStay, int rewardsPoints )
+    {
+        clock.sleep( latencyModel.nextLatencyNanos( SeededRandoms.of( seed, LATENCY_KEY, calls.getAndIncrement( ) ) ) );
+
+        SplittableRandom random = SeededRandoms.of( seed, SeededRandoms.key( attractionId ), adults, children, nightsStay );
+        int firstProvider = random.nextInt( PROVIDER_NAMES.size( ) );
+        List<Provider> providers = new ArrayList<>( PROVIDERS );
+        for ( int i = 0; i < PROVIDERS; i++ )
+        {
+            String name = PROVIDER_NAMES.get( ( firstProvider + i ) % PROVIDER_NAMES.size( ) );
+            double nightlyPrice = random.nextInt( 100, 700 ) * ( adults + children / 2.0 );
+            double price = Math.max( 0, nightlyPrice * nightsStay - rewardsPoints );
+            UUID tripId = UUID.nameUUIDFromBytes( ( seed + ":" + attractionId + ":" + name ).getBytes( StandardCharsets.UTF_8 ) );
+            providers.add( new Provider( tripId, name, price ) );
+        }
+        return providers;
+    }
+}
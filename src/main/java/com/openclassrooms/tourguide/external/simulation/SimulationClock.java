@@ -0,0 +1,50 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time source of the simulated gateways: either the system clock, where simulated latencies are actually waited for,
+ * or a {@link VirtualClock}, where they only move the clock forward.
+ */
+public interface SimulationClock
+{
+    long currentTimeMillis( );
+
+    /**
+     * Lets the given simulated latency elapse.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void sleep( long nanos );
+
+
+    static SimulationClock system( )
+    {
+        return new SimulationClock( )
+        {
+            @Override
+            public long currentTimeMillis( )
+            {
+                return System.currentTimeMillis( );
+            }
+
+            @Override
+            public void sleep( long nanos )
+            {
+                long deadline = System.nanoTime( ) + nanos;
+                long remaining = nanos;
+                while ( remaining > 0 && !Thread.currentThread( ).isInterrupted( ) )
+                {
+                    LockSupport.parkNanos( remaining );
+                    remaining = deadline - System.nanoTime( );
+                }
+            }
+        };
+    }
+
+    static SimulationClock virtual( long startTimeMillis )
+    {
+        return new VirtualClock( TimeUnit.MILLISECONDS.toNanos( startTimeMillis ) );
+    }
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import lombok.Data;
+
+/**
+ * Settings of the simulated gateways, bound to the {@code tourguide.simulation} properties.
+ */
+@Data
+public class SimulationSettings
+{
+    // Same seed, same users' locations, reward points and trip prices
+    private long            seed          = 42;
+    private boolean         virtualClock  = false;
+    private LatencySettings gpsUtil       = new LatencySettings( );
+    private LatencySettings rewardCentral = new LatencySettings( );
+    private LatencySettings tripPricer    = new LatencySettings( );
+}
@@ -0,0 +1,43 @@
+package com.openclassrooms.tourguide.external.simulation;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SimulationClock} that never blocks: simulated latencies, and explicit {@link #advance(Duration)} calls,
+ * move its time forward instead. Concurrent latencies add up, so the elapsed virtual time is the total latency
+ * the simulated dependencies would have cost.
+ */
+public class VirtualClock implements SimulationClock
+{
+    private final long startNanos;
+    private final AtomicLong elapsedNanos = new AtomicLong( );
+
+    VirtualClock( long startNanos )
+    {
+        this.startNanos = startNanos;
+    }
+
+    @Override
+    public long currentTimeMillis( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( startNanos + elapsedNanos.get( ) );
+    }
+
+    @Override
+    public void sleep( long nanos )
+    {
+        elapsedNanos.addAndGet( nanos );
+    }
+
+    public void advance( Duration duration )
+    {
+        elapsedNanos.addAndGet( duration.toNanos( ) );
+    }
+
+    public Duration getElapsed( )
+    {
+        return Duration.ofNanos( elapsedNanos.get( ) );
+    }
+}
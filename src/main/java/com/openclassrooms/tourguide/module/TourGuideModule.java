@@ -1,27 +1,163 @@
 package com.openclassrooms.tourguide.module;
 
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.external.LibraryTripPricerGateway;
+import com.openclassrooms.tourguide.external.RewardGateway;
+import com.openclassrooms.tourguide.external.TripPricerGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedRewardGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedTripPricerGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulationClock;
+import com.openclassrooms.tourguide.external.simulation.SimulationSettings;
+import com.openclassrooms.tourguide.service.bulk.UserImportSettings;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.call.LoadSheddingSettings;
+import com.openclassrooms.tourguide.service.feed.LiveFeedSettings;
+import com.openclassrooms.tourguide.service.flight.FlightRecorderSettings;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsSettings;
+import com.openclassrooms.tourguide.service.itinerary.ItinerarySettings;
+import com.openclassrooms.tourguide.service.partition.PartitionSettings;
+import com.openclassrooms.tourguide.service.pipeline.TrackingPipelineSettings;
+import com.openclassrooms.tourguide.service.visit.StayPointSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import gpsUtil.GpsUtil;
-import rewardCentral.RewardCentral;
-import tripPricer.TripPricer;
 
+/**
+ * Wires the external dependencies: the {@code libs/} jars by default, or their seeded simulations when
+ * {@code tourguide.external.mode=simulated}.
+ */
 @Configuration
 public class TourGuideModule
 {
+    private static final String EXTERNAL_MODE = "tourguide.external.mode";
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "library", matchIfMissing = true )
+    public GpsGateway getGpsUtil( )
+    {
+        return new LibraryGpsGateway( );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "library", matchIfMissing = true )
+    public RewardGateway getRewardCentral( )
+    {
+        return new LibraryRewardGateway( );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "library", matchIfMissing = true )
+    public TripPricerGateway getTripPricer( ) { return new LibraryTripPricerGateway( ); }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.simulation" )
+    public SimulationSettings getSimulationSettings( )
+    {
+        return new SimulationSettings( );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "simulated" )
+    public SimulationClock getSimulationClock( SimulationSettings settings )
+    {
+        return settings.isVirtualClock( ) ? SimulationClock.virtual( System.currentTimeMillis( ) ) : SimulationClock.system( );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "simulated" )
+    public GpsGateway getSimulatedGpsUtil( SimulationSettings settings, SimulationClock clock )
+    {
+        // The simulation serves the real attraction catalog
+        return new SimulatedGpsGateway( settings, clock, new GpsUtil( ).getAttractions( ) );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "simulated" )
+    public RewardGateway getSimulatedRewardCentral( SimulationSettings settings, SimulationClock clock, GpsGateway gpsUtil )
+    {
+        return new SimulatedRewardGateway( settings, clock, gpsUtil.getAttractions( ) );
+    }
+
+    @Bean
+    @ConditionalOnProperty( name = EXTERNAL_MODE, havingValue = "simulated" )
+    public TripPricerGateway getSimulatedTripPricer( SimulationSettings settings, SimulationClock clock )
+    {
+        return new SimulatedTripPricerGateway( settings, clock );
+    }
+
     @Bean
-    public GpsUtil getGpsUtil( )
+    @ConfigurationProperties( prefix = "tourguide.tracking.pipeline" )
+    public TrackingPipelineSettings getTrackingPipelineSettings( )
     {
-        return new GpsUtil( );
+        return new TrackingPipelineSettings( );
     }
 
     @Bean
-    public RewardCentral getRewardCentral( )
+    @ConfigurationProperties( prefix = "tourguide.partition" )
+    public PartitionSettings getPartitionSettings( )
     {
-        return new RewardCentral( );
+        return new PartitionSettings( );
     }
 
     @Bean
-    public TripPricer getTripPricer( ) { return new TripPricer( ); }
+    @ConfigurationProperties( prefix = "tourguide.nearby-attractions" )
+    public NearbyAttractionsSettings getNearbyAttractionsSettings( )
+    {
+        return new NearbyAttractionsSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.itinerary" )
+    public ItinerarySettings getItinerarySettings( )
+    {
+        return new ItinerarySettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.flight-recorder" )
+    public FlightRecorderSettings getFlightRecorderSettings( )
+    {
+        return new FlightRecorderSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.stay-points" )
+    public StayPointSettings getStayPointSettings( )
+    {
+        return new StayPointSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.user-import" )
+    public UserImportSettings getUserImportSettings( )
+    {
+        return new UserImportSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.live-feed" )
+    public LiveFeedSettings getLiveFeedSettings( )
+    {
+        return new LiveFeedSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.load-shedding" )
+    public LoadSheddingSettings getLoadSheddingSettings( )
+    {
+        return new LoadSheddingSettings( );
+    }
+
+    @Bean
+    @ConfigurationProperties( prefix = "tourguide.calls" )
+    public ExternalCallSettings getExternalCallSettings( )
+    {
+        return new ExternalCallSettings( );
+    }
 }
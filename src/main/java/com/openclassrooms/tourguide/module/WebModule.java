@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.module;
+
+import com.openclassrooms.tourguide.controller.PartitionRoutingInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebModule implements WebMvcConfigurer
+{
+    private final PartitionRoutingInterceptor partitionRoutingInterceptor;
+
+    @Override
+    public void addInterceptors( InterceptorRegistry registry )
+    {
+        registry.addInterceptor( partitionRoutingInterceptor );
+    }
+}
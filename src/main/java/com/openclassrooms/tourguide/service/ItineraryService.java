@@ -0,0 +1,167 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import com.openclassrooms.tourguide.domain.dto.ItineraryDTO;
+import com.openclassrooms.tourguide.domain.dto.ItineraryStopDTO;
+import com.openclassrooms.tourguide.service.geo.AttractionDistanceMatrix;
+import com.openclassrooms.tourguide.service.itinerary.ItineraryPlanner;
+import com.openclassrooms.tourguide.service.itinerary.ItinerarySettings;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code ItineraryService} class plans the order in which a user visits several attractions from their current
+ * location, and shows the reward points of each stop.
+ *
+ * <p>Planning reads the distances between attractions from the {@link AttractionDistanceMatrix} of the catalog,
+ * computed once per catalog, so that a request only computes the distances from the user to the attractions. The
+ * order is found by the {@link ItineraryPlanner} within the configured time budget, while the reward points of the
+ * stops are looked up concurrently.</p>
+ */
+@Service
+public class ItineraryService
+{
+    private final LocationService locationService;
+    @Getter
+    private final ItinerarySettings settings;
+
+
+    public ItineraryService( LocationService locationService )
+    {
+        this( locationService, new ItinerarySettings( ) );
+    }
+
+
+    @Autowired
+    public ItineraryService( LocationService locationService, ItinerarySettings settings )
+    {
+        this.locationService = locationService;
+        this.settings = settings;
+    }
+
+
+    /**
+     * Plans an itinerary through attractions, starting from the user's location. A stop whose reward points cannot
+     * be looked up is returned without them, and the stop and the itinerary are flagged as degraded.
+     *
+     * @param visitedLocation the user's location
+     * @param attractionNames the names of the attractions to visit, or an empty list to visit the closest ones
+     * @param stops           the number of closest attractions to visit, when no attraction is named
+     * @return the itinerary, stops in visiting order
+     * @throws IllegalArgumentException if an attraction is unknown, or the number of stops is not positive or
+     *                                  exceeds the configured maximum
+     */
+    public ItineraryDTO planItinerary( VisitedLocation visitedLocation, List<String> attractionNames, int stops )
+    {
+        AttractionDistanceMatrix matrix = locationService.getNearbyAttractionsCache( ).getDistanceMatrix( );
+        int[] stopIndexes = attractionNames == null || attractionNames.isEmpty( )
+                ? closestStops( matrix, visitedLocation, stops )
+                : namedStops( matrix, attractionNames );
+        double[] fromStart = IntStream.of( stopIndexes )
+                .mapToDouble( index -> locationService.getDistance( visitedLocation.location, matrix.getAttraction( index ) ) )
+                .toArray( );
+
+        // Looked up while the tour is planned
+        List<CompletableFuture<Integer>> rewardPoints = IntStream.of( stopIndexes )
+                .mapToObj( index -> lookupRewardPoints( matrix.getAttraction( index ), visitedLocation ) )
+                .toList( );
+        ItineraryPlanner.Route route = ItineraryPlanner.plan( stopIndexes, fromStart, matrix,
+                System.nanoTime( ) + settings.getTimeBudget( ).toNanos( ) );
+
+        List<ItineraryStopDTO> itineraryStops = new ArrayList<>( );
+        double cumulativeDistance = 0;
+        int totalRewardPoints = 0;
+        boolean degraded = false;
+        int previous = -1;
+        for ( int stop : route.order( ) )
+        {
+            Attraction attraction = matrix.getAttraction( stopIndexes[ stop ] );
+            double legDistance = previous < 0 ? fromStart[ stop ] : matrix.getDistance( stopIndexes[ previous ], stopIndexes[ stop ] );
+            cumulativeDistance += legDistance;
+            ItineraryStopDTO itineraryStop = new ItineraryStopDTO( );
+            itineraryStop.setOrder( itineraryStops.size( ) + 1 );
+            itineraryStop.setAttractionName( attraction.attractionName );
+            itineraryStop.setAttractionLocation( attraction );
+            itineraryStop.setLegDistanceInMiles( legDistance );
+            itineraryStop.setCumulativeDistanceInMiles( cumulativeDistance );
+            Integer stopRewardPoints = rewardPoints.get( stop ).join( );
+            if ( stopRewardPoints == null )
+            {
+                itineraryStop.setDegraded( true );
+                degraded = true;
+            } else
+            {
+                itineraryStop.setRewardPoints( stopRewardPoints );
+                totalRewardPoints += stopRewardPoints;
+            }
+            itineraryStops.add( itineraryStop );
+            previous = stop;
+        }
+
+        ItineraryDTO itinerary = new ItineraryDTO( );
+        itinerary.setUserLocation( visitedLocation.location );
+        itinerary.setStops( itineraryStops );
+        itinerary.setTotalDistanceInMiles( cumulativeDistance );
+        itinerary.setTotalRewardPoints( totalRewardPoints );
+        itinerary.setDegraded( degraded );
+        itinerary.setConverged( route.converged( ) );
+        return itinerary;
+    }
+
+
+    private int[] closestStops( AttractionDistanceMatrix matrix, VisitedLocation visitedLocation, int stops )
+    {
+        checkStops( stops );
+        double[] distances = IntStream.range( 0, matrix.size( ) )
+                .mapToDouble( index -> locationService.getDistance( visitedLocation.location, matrix.getAttraction( index ) ) )
+                .toArray( );
+        return IntStream.range( 0, matrix.size( ) )
+                .boxed( )
+                .sorted( Comparator.comparingDouble( index -> distances[ index ] ) )
+                .limit( stops )
+                .mapToInt( Integer::intValue )
+                .toArray( );
+    }
+
+    private int[] namedStops( AttractionDistanceMatrix matrix, List<String> attractionNames )
+    {
+        Set<Integer> indexes = new LinkedHashSet<>( );
+        for ( String attractionName : attractionNames )
+        {
+            int index = matrix.indexOf( attractionName );
+            if ( index < 0 )
+            {
+                throw new IllegalArgumentException( "Unknown attraction " + attractionName );
+            }
+            indexes.add( index );
+        }
+        checkStops( indexes.size( ) );
+        return indexes.stream( ).mapToInt( Integer::intValue ).toArray( );
+    }
+
+    private void checkStops( int stops )
+    {
+        if ( stops < 1 || stops > settings.getMaxStops( ) )
+        {
+            throw new IllegalArgumentException( "An itinerary has from 1 to " + settings.getMaxStops( ) + " stops, not " + stops );
+        }
+    }
+
+    // Bounded by the rewardCentral concurrency limit, as the other lookups; a failed lookup completes with null
+    private CompletableFuture<Integer> lookupRewardPoints( Attraction attraction, VisitedLocation visitedLocation )
+    {
+        return locationService.getRewardCentralLimiter( ).callAsync( ( ) -> locationService.getRewardCentralCaller( ).callAsync(
+                        ( ) -> locationService.getGetRewardCentral( ).getAttractionRewardPoints( attraction.attractionId, visitedLocation.userId ) ) )
+                .exceptionally( failure -> null );
+    }
+}
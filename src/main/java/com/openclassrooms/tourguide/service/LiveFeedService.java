@@ -0,0 +1,181 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.service.feed.FeedSink;
+import com.openclassrooms.tourguide.service.feed.FeedSubscription;
+import com.openclassrooms.tourguide.service.feed.LiveFeedSettings;
+import com.openclassrooms.tourguide.service.feed.LocationListener;
+import com.openclassrooms.tourguide.service.reward.RewardListener;
+import gpsUtil.location.VisitedLocation;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code LiveFeedService} class pushes the users' new locations and rewards to the clients subscribed to them,
+ * so that dashboards do not have to poll each user.
+ *
+ * <p>The service listens to the locations tracked by the {@link UserService} and to the rewards settled by the
+ * {@link RewardsService}, and fans them out to the {@link FeedSubscription}s following the user. Fanning out only
+ * merges the change into the pending update of each subscription: the tracking threads never wait for a client,
+ * the updates being sent by a pool of delivery threads.</p>
+ *
+ * <p>A watchdog drops the subscriptions whose send has been stalled for longer than the send timeout. Their
+ * delivery thread may stay blocked until the send returns, so the pool is grown by one thread meanwhile, and the
+ * stalled clients never hold every delivery thread.</p>
+ */
+@Service
+public class LiveFeedService implements LocationListener, RewardListener
+{
+    @Getter
+    private final LiveFeedSettings settings;
+    private final CopyOnWriteArrayList<FeedSubscription> subscriptions = new CopyOnWriteArrayList<>( );
+    private final ThreadPoolExecutor deliveryExecutor;
+    private final ScheduledThreadPoolExecutor watchdog;
+    // Dropped subscriptions whose stalled send has not returned yet, each one holding a delivery thread
+    private final Set<FeedSubscription> stalledSubscriptions = ConcurrentHashMap.newKeySet( );
+
+
+    public LiveFeedService( UserService userService, RewardsService rewardsService )
+    {
+        this( userService, rewardsService, new LiveFeedSettings( ) );
+    }
+
+
+    @Autowired
+    public LiveFeedService( UserService userService, RewardsService rewardsService, LiveFeedSettings settings )
+    {
+        this.settings = settings;
+
+        AtomicInteger deliveryCount = new AtomicInteger( );
+        this.deliveryExecutor = new ThreadPoolExecutor( settings.getDeliveryThreads( ), settings.getDeliveryThreads( ),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>( ), runnable -> {
+                    Thread thread = new Thread( runnable, "feed-delivery-" + deliveryCount.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        this.deliveryExecutor.allowCoreThreadTimeOut( true );
+
+        this.watchdog = new ScheduledThreadPoolExecutor( 1, runnable -> {
+            Thread thread = new Thread( runnable, "feed-watchdog" );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        long periodMillis = Math.max( 1, settings.getSendTimeout( ).toMillis( ) / 2 );
+        this.watchdog.scheduleWithFixedDelay( this::dropStalledSubscriptions, periodMillis, periodMillis, TimeUnit.MILLISECONDS );
+
+        userService.addLocationListener( this );
+        rewardsService.addRewardListener( this );
+    }
+
+
+    /**
+     * Subscribes a client to the changes of some users.
+     *
+     * @param userIds the users to follow, or {@code null} to follow all users
+     * @param sink    the client, sent one update at a time
+     * @return the subscription, to be closed once the client is gone
+     * @throws IllegalStateException if the maximum number of subscriptions is reached
+     */
+    public FeedSubscription subscribe( Set<UUID> userIds, FeedSink sink )
+    {
+        FeedSubscription subscription = new FeedSubscription( userIds, sink, deliveryExecutor, subscriptions::remove,
+                settings.getMaxUpdatesPerTurn( ) );
+        // Checked then added without a lock: concurrent subscriptions may exceed the maximum by a few
+        if ( subscriptions.size( ) >= settings.getMaxSubscribers( ) )
+        {
+            throw new IllegalStateException( "Too many feed subscriptions, at most " + settings.getMaxSubscribers( ) );
+        }
+        subscriptions.add( subscription );
+        return subscription;
+    }
+
+
+    /**
+     * @return the number of open subscriptions
+     */
+    public int getSubscriptionCount( )
+    {
+        return subscriptions.size( );
+    }
+
+
+    /**
+     * Stops the delivery threads and the watchdog, once the application context closes.
+     */
+    @PreDestroy
+    public void shutdown( )
+    {
+        watchdog.shutdownNow( );
+        deliveryExecutor.shutdownNow( );
+    }
+
+
+    @Override
+    public void onLocationRecorded( User user, VisitedLocation visitedLocation )
+    {
+        for ( FeedSubscription subscription : subscriptions )
+        {
+            subscription.offerLocation( user, visitedLocation );
+        }
+    }
+
+
+    @Override
+    public void onRewardSettled( User user, UserReward reward, int cumulativeRewardPoints )
+    {
+        for ( FeedSubscription subscription : subscriptions )
+        {
+            subscription.offerReward( user, reward, cumulativeRewardPoints );
+        }
+    }
+
+
+    private void dropStalledSubscriptions( )
+    {
+        long timeoutNanos = settings.getSendTimeout( ).toNanos( );
+        for ( FeedSubscription subscription : subscriptions )
+        {
+            if ( subscription.abortIfStalled( timeoutNanos ) )
+            {
+                stalledSubscriptions.add( subscription );
+                resizeDeliveryPool( 1 );
+            }
+        }
+        for ( FeedSubscription subscription : stalledSubscriptions )
+        {
+            if ( !subscription.isSending( ) && stalledSubscriptions.remove( subscription ) )
+            {
+                resizeDeliveryPool( -1 );
+            }
+        }
+    }
+
+
+    private synchronized void resizeDeliveryPool( int delta )
+    {
+        int size = deliveryExecutor.getCorePoolSize( ) + delta;
+        // The core size may never exceed the maximum size
+        if ( delta > 0 )
+        {
+            deliveryExecutor.setMaximumPoolSize( size );
+            deliveryExecutor.setCorePoolSize( size );
+        } else
+        {
+            deliveryExecutor.setCorePoolSize( size );
+            deliveryExecutor.setMaximumPoolSize( size );
+        }
+    }
+}
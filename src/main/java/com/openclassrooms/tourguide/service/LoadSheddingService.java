@@ -0,0 +1,52 @@
+package com.openclassrooms.tourguide.service;
+
+import java.util.List;
+
+import com.openclassrooms.tourguide.domain.dto.OverloadGuardStatsDTO;
+import com.openclassrooms.tourguide.service.call.LoadSheddingSettings;
+import com.openclassrooms.tourguide.service.call.OverloadGuard;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code LoadSheddingService} class holds the {@link OverloadGuard}s of the endpoints depending on slow external
+ * libraries: the nearby attractions, whose reward points are looked up from rewardCentral, and the trip deals,
+ * priced by tripPricer. Under pressure, the nearby attractions are served with the reward points already known to
+ * the user, and the trip deals with the last ones priced; beyond their limit, requests are rejected at once.
+ */
+@Service
+public class LoadSheddingService
+{
+    @Getter
+    private final OverloadGuard nearbyAttractionsGuard;
+    @Getter
+    private final OverloadGuard tripDealsGuard;
+
+
+    public LoadSheddingService( LocationService locationService )
+    {
+        this( locationService, new LoadSheddingSettings( ) );
+    }
+
+
+    @Autowired
+    public LoadSheddingService( LocationService locationService, LoadSheddingSettings settings )
+    {
+        this.nearbyAttractionsGuard = new OverloadGuard( "nearbyAttractions", settings.getNearbyAttractions( ),
+                locationService.getRewardCentralLimiter( )::isSaturated );
+        // The trip deals are priced synchronously, outside of any concurrency limiter
+        this.tripDealsGuard = new OverloadGuard( "tripDeals", settings.getTripDeals( ), ( ) -> false );
+    }
+
+
+    /**
+     * Retrieves the load and the decisions of every guard.
+     *
+     * @return the statistics of the guards
+     */
+    public List<OverloadGuardStatsDTO> getStats( )
+    {
+        return List.of( nearbyAttractionsGuard.getStats( ), tripDealsGuard.getStats( ) );
+    }
+}
@@ -1,26 +1,46 @@
 package com.openclassrooms.tourguide.service;
 
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.AttractionInRangeDTO;
 import com.openclassrooms.tourguide.domain.dto.ClosestAttractionsDTO;
-import gpsUtil.GpsUtil;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.RewardGateway;
+import com.openclassrooms.tourguide.service.call.AdaptiveConcurrencyLimiter;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.call.HedgedCaller;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsCache;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsSettings;
+import com.openclassrooms.tourguide.service.geo.ProximitySettings;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import rewardCentral.RewardCentral;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * The {@code LocationService} class provides functionality for managing proximity and distance calculations
- * between user locations and attractions. It defines a proximity buffer to determine if a user is within range
- * of an attraction and retrieves nearby attractions based on user locations.
+ * between user locations and attractions. It holds the {@link ProximitySettings} determining if a user is within
+ * range of an attraction and retrieves nearby attractions based on user locations, either within the global range
+ * or within the {@code attractionProximity} of each user's preferences.
+ *
+ * <p>The proximity settings are an immutable snapshot swapped atomically, so that changing them never races with
+ * an in-flight reward calculation.</p>
  *
  * <p>This service integrates with external utilities:
  * <ul>
- *     <li>{@code GpsUtil} - retrieves known attractions</li>
- *     <li>{@code RewardCentral} - calculates reward points for visiting attractions</li>
+ *     <li>{@link GpsGateway} - retrieves known attractions</li>
+ *     <li>{@link RewardGateway} - calculates reward points for visiting attractions, through a {@link HedgedCaller}
+ *     shared with the {@code RewardsService}, as is the {@link AdaptiveConcurrencyLimiter} bounding the reward
+ *     calculations' and nearby attractions' calls in flight</li>
  * </ul>
  */
 @Data
@@ -28,15 +48,104 @@ import java.util.stream.Collectors;
 public class LocationService
 {
     private static final double STATUTE_MILES_PER_NAUTICAL_MILE = 1.15077945;
-    private final RewardCentral getRewardCentral;
+    private static final int    CLOSEST_ATTRACTIONS             = 5;
+    private final RewardGateway getRewardCentral;
 
     // Proximity buffers and ranges
-    private int defaultProximityBuffer 	 = 10;
-    private int proximityBuffer 		 = defaultProximityBuffer;
-    private int attractionProximityRange = 200;
+    @Getter( AccessLevel.NONE )
+    @Setter( AccessLevel.NONE )
+    private final AtomicReference<ProximitySettings> proximitySettings = new AtomicReference<>( ProximitySettings.DEFAULT );
 
     // External services for GPS and rewards management
-    private final GpsUtil gpsUtil;
+    private final GpsGateway gpsUtil;
+    private final HedgedCaller rewardCentralCaller;
+    private final AdaptiveConcurrencyLimiter rewardCentralLimiter;
+    private final NearbyAttractionsSettings nearbyAttractionsSettings;
+    private final NearbyAttractionsCache nearbyAttractionsCache;
+
+
+    public LocationService( RewardGateway getRewardCentral, GpsGateway gpsUtil )
+    {
+        this( getRewardCentral, gpsUtil, new ExternalCallSettings( ), new NearbyAttractionsSettings( ) );
+    }
+
+
+    @Autowired
+    public LocationService( RewardGateway getRewardCentral, GpsGateway gpsUtil, ExternalCallSettings externalCallSettings,
+                            NearbyAttractionsSettings nearbyAttractionsSettings )
+    {
+        this.getRewardCentral = getRewardCentral;
+        this.gpsUtil = gpsUtil;
+        this.rewardCentralCaller = new HedgedCaller( "rewardCentral", externalCallSettings.getRewardCentral( ) );
+        this.rewardCentralLimiter = new AdaptiveConcurrencyLimiter( "rewardCentral", externalCallSettings.getRewardCentralConcurrency( ) );
+        this.nearbyAttractionsSettings = nearbyAttractionsSettings;
+        this.nearbyAttractionsCache = new NearbyAttractionsCache( gpsUtil::getAttractions, this::getDistance,
+                nearbyAttractionsSettings, CLOSEST_ATTRACTIONS );
+    }
+
+
+    /**
+     * Retrieves the current proximity settings. Callers needing several radii should read the snapshot once.
+     *
+     * @return the current {@link ProximitySettings}
+     */
+    public ProximitySettings getProximitySettings( )
+    {
+        return proximitySettings.get( );
+    }
+
+
+    /**
+     * Replaces the proximity settings with a new snapshot.
+     *
+     * @param settings the new {@link ProximitySettings}
+     */
+    public void setProximitySettings( ProximitySettings settings )
+    {
+        proximitySettings.set( Objects.requireNonNull( settings ) );
+    }
+
+
+    /**
+     * Atomically replaces the proximity settings with a modified copy of the current ones.
+     *
+     * @param update the function deriving the new settings from the current ones
+     * @return the new {@link ProximitySettings}
+     */
+    public ProximitySettings updateProximitySettings( UnaryOperator<ProximitySettings> update )
+    {
+        return proximitySettings.updateAndGet( update );
+    }
+
+
+    public int getProximityBuffer( )
+    {
+        return proximitySettings.get( ).getProximityBuffer( );
+    }
+
+
+    public void setProximityBuffer( int proximityBuffer )
+    {
+        updateProximitySettings( settings -> settings.withProximityBuffer( proximityBuffer ) );
+    }
+
+
+    public int getDefaultProximityBuffer( )
+    {
+        return ProximitySettings.DEFAULT.getProximityBuffer( );
+    }
+
+
+    public int getAttractionProximityRange( )
+    {
+        return proximitySettings.get( ).getAttractionProximityRange( );
+    }
+
+
+    public void setAttractionProximityRange( int attractionProximityRange )
+    {
+        updateProximitySettings( settings -> settings.withAttractionProximityRange( attractionProximityRange ) );
+    }
 
 
     /**
@@ -47,7 +156,7 @@ public class LocationService
      */
     public void setDefaultProximityBuffer( )
     {
-        proximityBuffer = defaultProximityBuffer;
+        setProximityBuffer( getDefaultProximityBuffer( ) );
     }
 
 
@@ -62,7 +171,7 @@ public class LocationService
      */
     public boolean isWithinAttractionProximity( Attraction attraction, Location location )
     {
-        return !( getDistance( attraction, location ) > attractionProximityRange );
+        return !( getDistance( attraction, location ) > getAttractionProximityRange( ) );
     }
 
 
@@ -76,7 +185,7 @@ public class LocationService
     boolean nearAttraction( VisitedLocation visitedLocation, Attraction attraction )
     {
         // returns True if the attraction is closer than 10 miles (included) from the visited location
-        return !( getDistance( attraction, visitedLocation.location ) > proximityBuffer );
+        return !( getDistance( attraction, visitedLocation.location ) > getProximityBuffer( ) );
     }
 
 
@@ -84,38 +193,105 @@ public class LocationService
      * Retrieves a list of attractions near the specified location based on proximity.
      *
      * @param visitedLocation the location from which to search for nearby attractions
-     * @return a list of attractions near the specified location
+     * @return a list of attractions near the specified location, by increasing distance
      */
     public List<Attraction> getNearByAttractions( VisitedLocation visitedLocation )
     {
-        List<Attraction> nearbyAttractions = new ArrayList<>( );
+        return nearbyAttractionsCache.getAttractionsWithin( visitedLocation.location, getAttractionProximityRange( ) ).stream( )
+                .map( Map.Entry::getKey )
+                .toList( );
+    }
+
+
+    /**
+     * Finds an attraction of the catalog by its name.
+     *
+     * @param attractionName the name of the attraction
+     * @return the attraction, empty if the catalog has none of that name
+     */
+    public Optional<Attraction> findAttraction( String attractionName )
+    {
+        return nearbyAttractionsCache.getAttractions( ).stream( )
+                .filter( attraction -> attraction.attractionName.equals( attractionName ) )
+                .findFirst( );
+    }
 
-        for ( Attraction attraction : gpsUtil.getAttractions( ) )
-        {
-            if ( isWithinAttractionProximity( attraction, visitedLocation.location ) )
-            {
-                nearbyAttractions.add( attraction );
-            }
-        }
 
-        return nearbyAttractions;
+    /**
+     * Retrieves the attractions within the {@code attractionProximity} of the user's preferences.
+     *
+     * @param user            the user whose preferred radius applies
+     * @param visitedLocation the location from which to search for attractions
+     * @return the attractions within the user's preferred radius, by increasing distance
+     */
+    public List<AttractionInRangeDTO> getAttractionsInUserProximity( User user, VisitedLocation visitedLocation )
+    {
+        int radius = user.getUserPreferences( ).getAttractionProximity( );
+        return nearbyAttractionsCache.getAttractionsWithin( visitedLocation.location, radius ).stream( )
+                .map( entry -> {
+                    AttractionInRangeDTO attractionDTO = new AttractionInRangeDTO( );
+                    attractionDTO.setAttractionName( entry.getKey( ).attractionName );
+                    attractionDTO.setAttractionLocation( entry.getKey( ) );
+                    attractionDTO.setUserDistanceInMilesToAttraction( entry.getValue( ) );
+                    return attractionDTO;
+                } )
+                .toList( );
     }
 
 
     /**
      * Retrieves the five tourist attractions closest to the user, irrespective of distance.
+     * The reward points of the five attractions are looked up concurrently, within the rewardCentral concurrency
+     * limit; an attraction whose points cannot be looked up is returned without them, flagged as degraded.
+     *
+     * <p>Unless disabled, the attractions come from the {@link NearbyAttractionsCache}, which only computes the
+     * distances to the few attractions that can be the closest from the user's grid cell.</p>
      *
      * @param visitedLocation the location from which to search for nearby attractions
      * @return a list of the five closest attractions to the specified location
      */
     public List<ClosestAttractionsDTO> getFiveClosestAttractions( VisitedLocation visitedLocation )
     {
-        return gpsUtil.getAttractions( ).stream( )
-                .map( attraction -> Map.entry( attraction, getDistance( attraction, visitedLocation.location ) ) )
-                .sorted( Map.Entry.comparingByValue( ) )
-                .limit( 5 )
+        List<CompletableFuture<ClosestAttractionsDTO>> attractionDTOs = getClosestAttractions( visitedLocation.location ).stream( )
                 .map( entry -> createClosestAttractionsDTO( entry.getKey( ), entry.getValue( ), visitedLocation ) )
-                .collect( Collectors.toList( ) );
+                .toList( );
+        return attractionDTOs.stream( ).map( CompletableFuture::join ).toList( );
+    }
+
+
+    /**
+     * Retrieves the five tourist attractions closest to the user without looking up their reward points, for when
+     * rewardCentral is overloaded. The points are those of the user's rewards for these attractions, and omitted
+     * for the attractions the user was not rewarded for yet; the attractions are flagged as degraded.
+     *
+     * @param user            the user, whose rewards hold the known points
+     * @param visitedLocation the location from which to search for nearby attractions
+     * @return a list of the five closest attractions to the specified location
+     */
+    public List<ClosestAttractionsDTO> getFiveClosestAttractionsWithKnownPoints( User user, VisitedLocation visitedLocation )
+    {
+        Map<String, Integer> knownPoints = new HashMap<>( );
+        user.getUserRewards( ).forEach( reward -> knownPoints.put( reward.attraction.attractionName, reward.getRewardPoints( ) ) );
+        return getClosestAttractions( visitedLocation.location ).stream( )
+                .map( entry -> {
+                    ClosestAttractionsDTO attractionDTO = newClosestAttractionsDTO( entry.getKey( ), entry.getValue( ), visitedLocation );
+                    attractionDTO.setRewardPoints( knownPoints.get( entry.getKey( ).attractionName ) );
+                    attractionDTO.setDegraded( true );
+                    return attractionDTO;
+                } )
+                .toList( );
+    }
+
+
+    private List<Map.Entry<Attraction, Double>> getClosestAttractions( Location location )
+    {
+        return nearbyAttractionsSettings.isCacheEnabled( )
+                ? nearbyAttractionsCache.getClosestAttractions( location )
+                : gpsUtil.getAttractions( ).stream( )
+                        .map( attraction -> Map.entry( attraction, getDistance( attraction, location ) ) )
+                        .sorted( Map.Entry.comparingByValue( ) )
+                        .limit( CLOSEST_ATTRACTIONS )
+                        .toList( );
     }
 
 
@@ -125,16 +301,34 @@ public class LocationService
      * @param attraction      the attraction
      * @param distance        the distance from the user to the attraction
      * @param visitedLocation the user's visited location
-     * @return a populated {@link ClosestAttractionsDTO}
+     * @return a future completed with the populated {@link ClosestAttractionsDTO} once its reward points are known,
+     *         or without them if the lookup failed
      */
-    private ClosestAttractionsDTO createClosestAttractionsDTO( Attraction attraction, Double distance, VisitedLocation visitedLocation )
+    private CompletableFuture<ClosestAttractionsDTO> createClosestAttractionsDTO( Attraction attraction, Double distance, VisitedLocation visitedLocation )
+    {
+        ClosestAttractionsDTO attractionDTO = newClosestAttractionsDTO( attraction, distance, visitedLocation );
+        return rewardCentralLimiter.callAsync( ( ) -> rewardCentralCaller.callAsync(
+                        ( ) -> getRewardCentral.getAttractionRewardPoints( attraction.attractionId, visitedLocation.userId ) ) )
+                .handle( ( rewardPoints, failure ) -> {
+                    if ( failure != null )
+                    {
+                        attractionDTO.setDegraded( true );
+                    } else
+                    {
+                        attractionDTO.setRewardPoints( rewardPoints );
+                    }
+                    return attractionDTO;
+                } );
+    }
+
+
+    private ClosestAttractionsDTO newClosestAttractionsDTO( Attraction attraction, Double distance, VisitedLocation visitedLocation )
     {
         ClosestAttractionsDTO attractionDTO = new ClosestAttractionsDTO( );
         attractionDTO.setAttractionLocation( attraction );
         attractionDTO.setAttractionName( attraction.attractionName );
         attractionDTO.setUserLocation( visitedLocation.location );
         attractionDTO.setUserDistanceInMilesToAttraction( distance );
-        attractionDTO.setRewardPoints( getRewardCentral.getAttractionRewardPoints( attraction.attractionId, visitedLocation.userId ) );
         return attractionDTO;
     }
 
@@ -1,79 +1,155 @@
 package com.openclassrooms.tourguide.service;
 
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
-import lombok.RequiredArgsConstructor;
+import com.openclassrooms.tourguide.service.call.AdaptiveConcurrencyLimiter;
+import com.openclassrooms.tourguide.service.call.HedgedCaller;
+import com.openclassrooms.tourguide.service.flight.RewardEvaluationEvent;
+import com.openclassrooms.tourguide.service.geofence.GeofenceEngine;
+import com.openclassrooms.tourguide.service.geofence.GeofenceEvent;
+import com.openclassrooms.tourguide.service.reward.RewardAnalytics;
+import com.openclassrooms.tourguide.service.reward.RewardListener;
+import com.openclassrooms.tourguide.service.serial.KeyedSerialExecutor;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import gpsUtil.GpsUtil;
 import gpsUtil.location.Attraction;
-import gpsUtil.location.VisitedLocation;
-import rewardCentral.RewardCentral;
 import com.openclassrooms.tourguide.domain.User;
 import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.RewardGateway;
 
 /**
  * The {@code RewardsService} class provides functionality for calculating and assigning rewards to users based on
- * their visits to attractions. It compares users' visited locations with known attractions, determines proximity,
- * and calculates reward points when a visit qualifies.
+ * their visits to attractions. Users' visited locations are fed to a {@link GeofenceEngine}, and a reward is created
+ * the first time a user enters the fence of an attraction. Settled rewards are published to {@link RewardListener}s,
+ * among which the {@link RewardAnalytics} maintaining the leaderboard and the reward statistics.
+ *
+ * <p>Every change to a user's locations, rewards or trip deals goes through the {@link KeyedSerialExecutor} of this
+ * service, keyed by user id: the changes to a user are applied one at a time and in order, while different users are
+ * processed in parallel.</p>
  *
  * <p>This service integrates the following external utilities:
  * <ul>
- *     <li>{@code GpsUtil} - retrieves attraction data for reward calculation</li>
- *     <li>{@code RewardCentral} - calculates the reward points for visiting attractions</li>
+ *     <li>{@link GpsGateway} - retrieves attraction data for reward calculation</li>
+ *     <li>{@link RewardGateway} - calculates the reward points for visiting attractions, through the
+ *     {@link HedgedCaller} and the {@link AdaptiveConcurrencyLimiter} of the {@code LocationService}</li>
  *     <li>{@code LocationService} - determines proximity between users' locations and attractions</li>
  * </ul>
  */
 @Service
-@RequiredArgsConstructor
 public class RewardsService
 {
+    // Enough stripes for users to rarely share one
+    private static final int USER_STRIPES = 4096;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private Logger logger = LoggerFactory.getLogger( RewardsService.class );
+
     // External services for GPS and rewards management
-    private final GpsUtil gpsUtil;
-    private final RewardCentral rewardsCentral;
+    private final GpsGateway gpsUtil;
+    private final RewardGateway rewardsCentral;
 
+    @Getter
     private final LocationService locationService;
-    ExecutorService executorService = Executors.newCachedThreadPool( );
+    @Getter
+    private final GeofenceEngine geofenceEngine;
+    @Getter
+    private final RewardAnalytics rewardAnalytics = new RewardAnalytics( );
+    // Runs the drains of the user executor, shut down with this service
+    private final ForkJoinPool userPool = new ForkJoinPool( Runtime.getRuntime( ).availableProcessors( ) );
+    @Getter
+    private final KeyedSerialExecutor<UUID> userExecutor = new KeyedSerialExecutor<>( USER_STRIPES, userPool );
+    private final List<RewardListener> rewardListeners = new CopyOnWriteArrayList<>( );
+    private final HedgedCaller rewardCentralCaller;
+    private final AdaptiveConcurrencyLimiter rewardCentralLimiter;
+
+
+    public RewardsService( GpsGateway gpsUtil, RewardGateway rewardsCentral, LocationService locationService )
+    {
+        this.gpsUtil = gpsUtil;
+        this.rewardsCentral = rewardsCentral;
+        this.locationService = locationService;
+        this.rewardCentralCaller = locationService.getRewardCentralCaller( );
+        this.rewardCentralLimiter = locationService.getRewardCentralLimiter( );
+        this.geofenceEngine = new GeofenceEngine( gpsUtil, locationService );
+        geofenceEngine.addListener( this::onGeofenceEvent );
+        addRewardListener( rewardAnalytics );
+    }
+
 
     /**
-     * Calculates rewards for a given user by comparing the user's new visited location with known attractions.
+     * Registers a listener notified of every reward once its points are settled.
+     *
+     * @param listener the listener to register
+     */
+    public void addRewardListener( RewardListener listener )
+    {
+        rewardListeners.add( listener );
+    }
+
+
+    /**
+     * Calculates rewards for a given user by evaluating the user's new visited locations against attraction fences.
      *
      * <p>If a user has visited an attraction within the proximity range and has not already been rewarded
-     * for that attraction, this method calculates and assigns reward points.</p>
+     * for that attraction, a reward is created when the geofence entry event is received. The evaluation is
+     * serialized with the other changes to the user, and awaited. It is recorded as a {@link RewardEvaluationEvent}.</p>
      *
      * @param user the {@link User} for whom rewards are to be calculated
      */
     public void calculateRewards( User user )
     {
-        List<VisitedLocation> visitedLocations = user.getVisitedLocations( );
-        List<Attraction> attractions = gpsUtil.getAttractions( );
-
-        // Get the current user rewards
-        CopyOnWriteArrayList<UserReward> originalUserRewardsList = new CopyOnWriteArrayList<>( user.getUserRewards( ) );
-
-        visitedLocations.forEach( visitedLocation ->
-            attractions.forEach( attraction -> {
-                // Check if there's no existing reward for the attraction
-                boolean noExistingRewards = originalUserRewardsList.stream( )
-                        .noneMatch( r -> r.attraction.attractionName.equals( attraction.attractionName ) );
-
-                // If no reward exists and the attraction is near the visited location
-                if ( noExistingRewards && locationService.nearAttraction( visitedLocation, attraction ) ) {
-                    // Add new reward
-                    UserReward reward = new UserReward( visitedLocation, attraction );
-                    calculateRewardPoints( attraction, user, reward );
-                    originalUserRewardsList.add( reward );
-                }
-            } )
-        );
-        user.setUserRewards( originalUserRewardsList );
+        userExecutor.run( user.getUserId( ), ( ) -> {
+            RewardEvaluationEvent event = new RewardEvaluationEvent( );
+            event.begin( );
+            int rewards = user.getUserRewards( ).size( );
+            GeofenceEngine.Evaluation evaluation = geofenceEngine.evaluate( user );
+            event.end( );
+            if ( event.shouldCommit( ) )
+            {
+                event.userId = user.getUserId( ).toString( );
+                event.locationsScanned = evaluation.locations( );
+                event.attractionsScanned = evaluation.fencesTested( );
+                event.rewardsCreated = user.getUserRewards( ).size( ) - rewards;
+                event.commit( );
+            }
+        } );
+    }
+
+
+    /**
+     * Creates a reward the first time a user enters the fence of an attraction.
+     *
+     * @param event the geofence event emitted by the {@link GeofenceEngine}
+     */
+    private void onGeofenceEvent( GeofenceEvent event )
+    {
+        User user = event.getUser( );
+        Attraction attraction = event.getAttraction( );
+        if ( event.getType( ) == GeofenceEvent.Type.ENTER && !user.hasRewardFor( attraction.attractionName ) )
+        {
+            UserReward reward = new UserReward( event.getVisitedLocation( ), attraction );
+            // Added before its points are looked up, so that they are counted once they settle
+            user.addUserReward( reward );
+            calculateRewardPoints( attraction, user, reward );
+        }
     }
 
 
     /**
      * Retrieves the reward points for visiting a specified attraction and assigns them to a reward.
-     * The points are asynchronously fetched from {@code RewardCentral}.
+     * The points are asynchronously fetched from the {@link RewardGateway}, with a deadline and hedging, once a slot
+     * of the rewardCentral concurrency limit is available, and the lookup is registered on the user until it settles,
+     * see {@link User#getRewardsSettled( )}. When the lookup fails, the reward is removed, to be granted again the
+     * next time the user is evaluated inside the attraction's fence.
      *
      * @param attraction the {@link Attraction} for which to retrieve reward points
      * @param user       the {@link User} who visited the attraction
@@ -81,7 +157,66 @@ public class RewardsService
      */
     public void calculateRewardPoints( Attraction attraction, User user, UserReward reward )
     {
-        CompletableFuture.supplyAsync( () -> rewardsCentral.getAttractionRewardPoints( attraction.attractionId, user.getUserId( ) ), executorService )
-                .thenAccept( reward::setRewardPoints );
+        user.beginRewardLookup( );
+        rewardCentralLimiter.callAsync( ( ) -> rewardCentralCaller.callAsync(
+                        ( ) -> rewardsCentral.getAttractionRewardPoints( attraction.attractionId, user.getUserId( ) ) ) )
+                .whenComplete( ( rewardPoints, failure ) -> {
+                    try
+                    {
+                        if ( failure != null )
+                        {
+                            logger.error( "Failed to get the reward points of {} for user {}, to be retried", attraction.attractionName,
+                                    user.getUserName( ), failure );
+                            // Removed before the fence entry is forgotten, so that the next entry grants it again
+                            user.removeUserReward( reward );
+                            geofenceEngine.forgetEntry( user, attraction.attractionName );
+                            return;
+                        }
+                        int cumulativeRewardPoints = user.settleRewardLookup( reward, rewardPoints );
+                        publish( user, reward, cumulativeRewardPoints );
+                    } finally
+                    {
+                        // Only once published, so that awaiting the settlement also awaits the listeners
+                        user.endRewardLookup( );
+                    }
+                } );
+    }
+
+
+    /**
+     * Shuts down the pool running the changes to the users, once the application context closes. The changes
+     * already submitted are given a few seconds to complete.
+     */
+    @PreDestroy
+    public void shutdown( )
+    {
+        userPool.shutdown( );
+        try
+        {
+            if ( !userPool.awaitTermination( SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS ) )
+            {
+                logger.warn( "Changes to users still running after {} s, abandoned", SHUTDOWN_TIMEOUT_SECONDS );
+                userPool.shutdownNow( );
+            }
+        } catch ( InterruptedException e )
+        {
+            userPool.shutdownNow( );
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+
+    private void publish( User user, UserReward reward, int cumulativeRewardPoints )
+    {
+        for ( RewardListener listener : rewardListeners )
+        {
+            try
+            {
+                listener.onRewardSettled( user, reward, cumulativeRewardPoints );
+            } catch ( RuntimeException e )
+            {
+                logger.error( "Reward listener failed on {} of user {}", reward.attraction.attractionName, user.getUserName( ), e );
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,355 @@
+package com.openclassrooms.tourguide.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.UserImportRecordDTO;
+import com.openclassrooms.tourguide.domain.dto.UserImportReportDTO;
+import com.openclassrooms.tourguide.service.bulk.CsvLine;
+import com.openclassrooms.tourguide.service.bulk.UserImportFormat;
+import com.openclassrooms.tourguide.service.bulk.UserImportSettings;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code UserImportService} class adds users in bulk from a stream of records, one per line.
+ *
+ * <p>The stream is read line by line and never held as a whole: lines are gathered in batches which are parsed,
+ * validated and inserted by a pool of import workers, while the next lines are read. The batches in flight are
+ * bounded, so that reading waits for the workers rather than buffering the stream. Users are inserted one by one
+ * through {@link UserService#addUser(User)}, which keeps the first user of a name: a record whose user name is
+ * already known, or is repeated within the import, is counted as a duplicate.</p>
+ */
+@Service
+public class UserImportService
+{
+    private static final Logger logger = LoggerFactory.getLogger( UserImportService.class );
+
+    private final UserService userService;
+    private final ObjectReader recordReader;
+    @Getter
+    private final UserImportSettings settings;
+    private final ThreadPoolExecutor importWorkers;
+
+
+    public UserImportService( UserService userService, ObjectMapper objectMapper )
+    {
+        this( userService, objectMapper, new UserImportSettings( ) );
+    }
+
+
+    @Autowired
+    public UserImportService( UserService userService, ObjectMapper objectMapper, UserImportSettings settings )
+    {
+        this.userService = userService;
+        this.recordReader = objectMapper.readerFor( UserImportRecordDTO.class );
+        this.settings = settings;
+
+        AtomicInteger workerCount = new AtomicInteger( );
+        this.importWorkers = new ThreadPoolExecutor( settings.getParallelism( ), settings.getParallelism( ),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>( ), runnable -> {
+                    Thread thread = new Thread( runnable, "user-import-" + workerCount.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        this.importWorkers.allowCoreThreadTimeOut( true );
+    }
+
+
+    /**
+     * Imports the users of a stream of records. Records are imported as they are read, the ones read before a
+     * failure to read the stream staying imported.
+     *
+     * @param input  the records, UTF-8 encoded
+     * @param format the format of the records
+     * @param track  whether the location of the imported users is tracked right away
+     * @return the number of records imported, duplicated and rejected, with the reasons of some of the rejections
+     * @throws IOException              if the stream cannot be read
+     * @throws IllegalArgumentException if the CSV header does not name a userName column
+     */
+    public UserImportReportDTO importUsers( InputStream input, UserImportFormat format, boolean track ) throws IOException
+    {
+        long start = System.nanoTime( );
+        BufferedReader reader = new BufferedReader( new InputStreamReader( input, StandardCharsets.UTF_8 ) );
+        Import userImport = new Import( track, new Semaphore( settings.getParallelism( ) * 2 ) );
+        Function<String, UserImportRecordDTO> parser = format == UserImportFormat.CSV ? csvParser( reader, userImport ) : this::parseJson;
+
+        List<Line> batch = new ArrayList<>( settings.getBatchSize( ) );
+        try
+        {
+            String text;
+            while ( ( text = reader.readLine( ) ) != null )
+            {
+                long lineNumber = userImport.lines( ).incrementAndGet( );
+                if ( text.isBlank( ) )
+                {
+                    continue;
+                }
+                batch.add( new Line( lineNumber, text ) );
+                if ( batch.size( ) == settings.getBatchSize( ) )
+                {
+                    submit( userImport, batch, parser );
+                    batch = new ArrayList<>( settings.getBatchSize( ) );
+                }
+            }
+            if ( !batch.isEmpty( ) )
+            {
+                submit( userImport, batch, parser );
+            }
+        } finally
+        {
+            // Waits for the batches in flight
+            userImport.batches( ).acquireUninterruptibly( settings.getParallelism( ) * 2 );
+        }
+
+        int handedOff = userImport.remoteUsers( ).sum( ) > 0 ? userService.handOffUsers( ) : 0;
+        long elapsedNanos = System.nanoTime( ) - start;
+
+        UserImportReportDTO report = new UserImportReportDTO( );
+        report.setFormat( format.name( ) );
+        report.setRecords( userImport.imported( ).sum( ) + userImport.duplicates( ).sum( ) + userImport.rejected( ).sum( ) );
+        report.setImported( userImport.imported( ).sum( ) );
+        report.setDuplicates( userImport.duplicates( ).sum( ) );
+        report.setRejected( userImport.rejected( ).sum( ) );
+        report.setHandedOff( handedOff );
+        report.setTrackingEnqueued( userImport.trackingEnqueued( ).sum( ) );
+        report.setTrackingSkipped( userImport.trackingSkipped( ).sum( ) );
+        report.setElapsedMillis( TimeUnit.NANOSECONDS.toMillis( elapsedNanos ) );
+        report.setRecordsPerSecond( elapsedNanos == 0 ? 0 : report.getRecords( ) * 1e9 / elapsedNanos );
+        report.setErrors( userImport.errors( ).stream( )
+                .sorted( Comparator.comparingLong( Rejection::line ) )
+                .map( rejection -> "line " + rejection.line( ) + ": " + rejection.reason( ) )
+                .toList( ) );
+        logger.info( "Imported {} of {} {} records in {} ms, {} duplicates, {} rejected, {} not tracked", report.getImported( ),
+                report.getRecords( ), format, report.getElapsedMillis( ), report.getDuplicates( ), report.getRejected( ),
+                report.getTrackingSkipped( ) );
+        return report;
+    }
+
+
+    private void submit( Import userImport, List<Line> batch, Function<String, UserImportRecordDTO> parser )
+    {
+        userImport.batches( ).acquireUninterruptibly( );
+        importWorkers.execute( ( ) -> {
+            try
+            {
+                batch.forEach( line -> importLine( userImport, line, parser ) );
+            } finally
+            {
+                userImport.batches( ).release( );
+            }
+        } );
+    }
+
+
+    private void importLine( Import userImport, Line line, Function<String, UserImportRecordDTO> parser )
+    {
+        User user;
+        try
+        {
+            user = toUser( parser.apply( line.text( ) ) );
+        } catch ( IllegalArgumentException e )
+        {
+            reject( userImport, line.number( ), e.getMessage( ) );
+            return;
+        } catch ( RuntimeException e )
+        {
+            // Any other failure only loses its own record, not the rest of the batch
+            logger.warn( "Failed to import line {}", line.number( ), e );
+            reject( userImport, line.number( ), e.toString( ) );
+            return;
+        }
+
+        try
+        {
+            if ( !userService.addUser( user ) )
+            {
+                userImport.duplicates( ).increment( );
+                return;
+            }
+        } catch ( RuntimeException e )
+        {
+            logger.warn( "Failed to add the user of line {}", line.number( ), e );
+            reject( userImport, line.number( ), e.toString( ) );
+            return;
+        }
+        userImport.imported( ).increment( );
+        if ( !userService.getPartitionService( ).isLocal( user.getUserId( ) ) )
+        {
+            userImport.remoteUsers( ).increment( );
+        } else if ( userImport.track( ) )
+        {
+            if ( userService.offerParallelizedTracking( user, settings.getMaxTrackingBacklog( ) ) )
+            {
+                userImport.trackingEnqueued( ).increment( );
+            } else
+            {
+                userImport.trackingSkipped( ).increment( );
+            }
+        }
+    }
+
+
+    private User toUser( UserImportRecordDTO record )
+    {
+        if ( record == null || record.getUserName( ) == null || record.getUserName( ).isBlank( ) )
+        {
+            throw new IllegalArgumentException( "userName is required" );
+        }
+        if ( ( record.getLatitude( ) == null ) != ( record.getLongitude( ) == null ) )
+        {
+            throw new IllegalArgumentException( "latitude and longitude go together" );
+        }
+        // NaN compares false to everything, so it is rejected explicitly
+        if ( record.getLatitude( ) != null && ( !Double.isFinite( record.getLatitude( ) ) || !Double.isFinite( record.getLongitude( ) )
+                || Math.abs( record.getLatitude( ) ) > 90 || Math.abs( record.getLongitude( ) ) > 180 ) )
+        {
+            throw new IllegalArgumentException( "invalid location " + record.getLatitude( ) + ", " + record.getLongitude( ) );
+        }
+
+        String userName = record.getUserName( ).trim( );
+        User user = new User( User.nameBasedId( userName ), userName, record.getPhoneNumber( ), record.getEmailAddress( ) );
+        if ( record.getLatitude( ) != null )
+        {
+            user.addToVisitedLocations( new VisitedLocation( user.getUserId( ),
+                    new Location( record.getLatitude( ), record.getLongitude( ) ), new Date( ) ) );
+        }
+        return user;
+    }
+
+
+    private UserImportRecordDTO parseJson( String text )
+    {
+        try
+        {
+            return recordReader.readValue( text );
+        } catch ( JsonProcessingException e )
+        {
+            throw new IllegalArgumentException( "invalid JSON record, " + e.getOriginalMessage( ) );
+        }
+    }
+
+
+    /**
+     * Reads the CSV header, and returns the parser of the lines below it.
+     */
+    private Function<String, UserImportRecordDTO> csvParser( BufferedReader reader, Import userImport ) throws IOException
+    {
+        String header;
+        do
+        {
+            header = reader.readLine( );
+            userImport.lines( ).incrementAndGet( );
+        } while ( header != null && header.isBlank( ) );
+        if ( header == null )
+        {
+            throw new IllegalArgumentException( "The CSV header is missing" );
+        }
+        List<String> columns = CsvLine.split( header ).stream( ).map( String::trim ).toList( );
+        if ( !columns.contains( "userName" ) )
+        {
+            throw new IllegalArgumentException( "The CSV header does not name a userName column" );
+        }
+
+        return text -> {
+            List<String> fields = CsvLine.split( text );
+            if ( fields.size( ) != columns.size( ) )
+            {
+                throw new IllegalArgumentException( fields.size( ) + " fields, " + columns.size( ) + " expected" );
+            }
+            Map<String, String> values = IntStream.range( 0, columns.size( ) ).boxed( )
+                    .filter( i -> !fields.get( i ).isEmpty( ) )
+                    .collect( Collectors.toMap( columns::get, fields::get, ( first, second ) -> first ) );
+            return toRecord( values );
+        };
+    }
+
+
+    private static UserImportRecordDTO toRecord( Map<String, String> values )
+    {
+        UserImportRecordDTO record = new UserImportRecordDTO( );
+        record.setUserName( values.get( "userName" ) );
+        record.setPhoneNumber( values.get( "phoneNumber" ) );
+        record.setEmailAddress( values.get( "emailAddress" ) );
+        record.setLatitude( parseCoordinate( values.get( "latitude" ) ) );
+        record.setLongitude( parseCoordinate( values.get( "longitude" ) ) );
+        return record;
+    }
+
+
+    private static Double parseCoordinate( String value )
+    {
+        try
+        {
+            return value == null ? null : Double.valueOf( value.trim( ) );
+        } catch ( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( "invalid coordinate " + value );
+        }
+    }
+
+
+    private void reject( Import userImport, long line, String reason )
+    {
+        userImport.rejected( ).increment( );
+        if ( userImport.reportedErrors( ).incrementAndGet( ) <= settings.getReportedErrors( ) )
+        {
+            userImport.errors( ).add( new Rejection( line, reason ) );
+        }
+    }
+
+
+    /**
+     * Progress of an import, shared by the workers importing its batches.
+     */
+    private record Import( boolean track, Semaphore batches, AtomicLong lines,
+                           LongAdder imported, LongAdder duplicates, LongAdder rejected, LongAdder remoteUsers,
+                           LongAdder trackingEnqueued, LongAdder trackingSkipped, AtomicInteger reportedErrors,
+                           Queue<Rejection> errors )
+    {
+        Import( boolean track, Semaphore batches )
+        {
+            this( track, batches, new AtomicLong( ), new LongAdder( ), new LongAdder( ), new LongAdder( ),
+                    new LongAdder( ), new LongAdder( ), new LongAdder( ), new AtomicInteger( ), new ConcurrentLinkedQueue<>( ) );
+        }
+    }
+
+
+    private record Line( long number, String text )
+    {
+    }
+
+
+    private record Rejection( long line, String reason )
+    {
+    }
+}
@@ -1,22 +1,56 @@
 package com.openclassrooms.tourguide.service;
 
-import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.DailyVisitsDTO;
+import com.openclassrooms.tourguide.domain.dto.LocationHistoryPageDTO;
+import com.openclassrooms.tourguide.domain.dto.PipelineStageStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.TripDealOfferDTO;
+import com.openclassrooms.tourguide.domain.dto.TripDealScenariosDTO;
+import com.openclassrooms.tourguide.domain.dto.UserTransferDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryTripPricerGateway;
+import com.openclassrooms.tourguide.external.TripPricerGateway;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.call.AdaptiveConcurrencyLimiter;
+import com.openclassrooms.tourguide.service.call.HedgedCaller;
+import com.openclassrooms.tourguide.service.feed.LocationListener;
+import com.openclassrooms.tourguide.service.flight.LocationTrackedEvent;
+import com.openclassrooms.tourguide.service.geo.UserLocationIndex;
+import com.openclassrooms.tourguide.service.history.LocationHistory;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import com.openclassrooms.tourguide.service.partition.PartitionSettings;
+import com.openclassrooms.tourguide.service.partition.UserHandoffClient;
+import com.openclassrooms.tourguide.service.partition.UserTransfers;
+import com.openclassrooms.tourguide.service.pipeline.TrackingPipeline;
+import com.openclassrooms.tourguide.service.pipeline.TrackingPipelineSettings;
 import com.openclassrooms.tourguide.service.test.TestingService;
+import com.openclassrooms.tourguide.service.visit.StayPointDetector;
+import com.openclassrooms.tourguide.service.visit.StayPointSettings;
+import com.openclassrooms.tourguide.testUtils.AdaptiveTrackingPolicy;
 import com.openclassrooms.tourguide.testUtils.Tracker;
 import com.openclassrooms.tourguide.domain.User;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
-import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import tripPricer.Provider;
-import tripPricer.TripPricer;
 
 import static com.openclassrooms.tourguide.service.test.TestingService.tripPricerApiKey;
 
@@ -29,7 +63,8 @@ import static com.openclassrooms.tourguide.service.test.TestingService.tripPrice
  *
  * <p>This service utilizes the following dependencies:
  * <ul>
- *     <li>{@code GpsUtil} - used for obtaining user location data</li>
+ *     <li>{@link GpsGateway} - used for obtaining user location data, through a {@link HedgedCaller} whose calls
+ *     in flight are bounded by an {@link AdaptiveConcurrencyLimiter}</li>
  *     <li>{@code RewardsService} - used to calculate user rewards based on location</li>
  *     <li>{@code TestingService} - provides testing utilities and manages an internal user map</li>
  *     <li>{@code Tracker} - continuously monitors user location updates</li>
@@ -38,33 +73,116 @@ import static com.openclassrooms.tourguide.service.test.TestingService.tripPrice
 @Service
 public class UserService
 {
+    // Bounds the fan-out of a single multi-scenario pricing request
+    public static final int MAX_TRIP_SCENARIOS = 32;
+    // Bounds the size of a location history response
+    public static final int MAX_LOCATION_HISTORY_PAGE = 1000;
+    private static final Duration PIPELINE_SHUTDOWN_TIMEOUT = Duration.ofSeconds( 5 );
+    private static final double USER_INDEX_CELL_SIZE_MILES = 10;
+
     private Logger logger = LoggerFactory.getLogger( UserService.class );
-    ExecutorService executorService = Executors.newCachedThreadPool( );
 
     // Imported lib objects
-    private final TripPricer tripPricer = new TripPricer( );
-    private final GpsUtil gpsUtil;
+    private final TripPricerGateway tripPricer;
+    private final HedgedCaller tripPricerCaller;
+    private final GpsGateway gpsUtil;
+    private final HedgedCaller gpsUtilCaller;
+    @Getter
+    private final AdaptiveConcurrencyLimiter gpsUtilLimiter;
+    // Longest wait for a user's reward point lookups before pricing trips: a lookup never outlives its deadline
+    private final Duration rewardsSettlementTimeout;
     private final RewardsService rewardsService;
 
     private final TestingService testingService;
+    @Getter
+    private final PartitionService partitionService;
+    private final UserHandoffClient handoffClient;
     public final Tracker tracker;
+    private final TrackingPipeline trackingPipeline;
+    @Getter
+    private final UserLocationIndex userLocationIndex;
+    @Getter
+    private final StayPointDetector stayPointDetector;
+    private final List<LocationListener> locationListeners = new CopyOnWriteArrayList<>( );
 
     boolean testMode = true;
 
 
     /**
-     * Constructs a new {@code UserService} with the provided {@code GpsUtil} and {@code RewardsService}.
-     * If test mode is enabled, it initializes internal users for testing purposes.
+     * Constructs a new {@code UserService} with the provided {@code GpsGateway} and {@code RewardsService},
+     * the {@code tripPricer} library and a tracking pipeline sized with the default settings.
+     *
+     * @param gpsUtil gpsUtil service
+     * @param rewardsService rewardService service
+     * @param testingService testingService service
+     */
+    public UserService( GpsGateway gpsUtil, RewardsService rewardsService, TestingService testingService )
+    {
+        this( gpsUtil, new LibraryTripPricerGateway( ), rewardsService, testingService,
+              new PartitionService( new PartitionSettings( ) ), new TrackingPipelineSettings( ), new ExternalCallSettings( ) );
+    }
+
+
+    /**
+     * Constructs a new {@code UserService} with the provided {@code GpsGateway} and {@code RewardsService}.
+     * If test mode is enabled, it initializes internal users for testing purposes, keeping only those of this
+     * node's partition when partitioning is enabled.
+     *
+     * @param gpsUtil gpsUtil service
+     * @param tripPricer tripPricer service
+     * @param rewardsService rewardService service
+     * @param testingService testingService service
+     * @param partitionService owner of each user when users are partitioned across nodes
+     * @param pipelineSettings sizing of the tracking pipeline stages
+     * @param externalCallSettings deadline, hedging and concurrency limit policy of the calls to gpsUtil
+     */
+    public UserService( GpsGateway gpsUtil, TripPricerGateway tripPricer, RewardsService rewardsService,
+                        TestingService testingService, PartitionService partitionService,
+                        TrackingPipelineSettings pipelineSettings, ExternalCallSettings externalCallSettings )
+    {
+        this( gpsUtil, tripPricer, rewardsService, testingService, partitionService, pipelineSettings, externalCallSettings,
+              new StayPointSettings( ) );
+    }
+
+
+    /**
+     * Constructs a new {@code UserService} with the provided {@code GpsGateway} and {@code RewardsService}.
+     * If test mode is enabled, it initializes internal users for testing purposes, keeping only those of this
+     * node's partition when partitioning is enabled.
      *
      * @param gpsUtil gpsUtil service
+     * @param tripPricer tripPricer service
      * @param rewardsService rewardService service
      * @param testingService testingService service
+     * @param partitionService owner of each user when users are partitioned across nodes
+     * @param pipelineSettings sizing of the tracking pipeline stages
+     * @param externalCallSettings deadline, hedging and concurrency limit policy of the calls to gpsUtil
+     * @param stayPointSettings radius, dwell time and retention of the users' visits
      */
-    public UserService( GpsUtil gpsUtil, RewardsService rewardsService, TestingService testingService )
+    @Autowired
+    public UserService( GpsGateway gpsUtil, TripPricerGateway tripPricer, RewardsService rewardsService,
+                        TestingService testingService, PartitionService partitionService,
+                        TrackingPipelineSettings pipelineSettings, ExternalCallSettings externalCallSettings,
+                        StayPointSettings stayPointSettings )
     {
         this.gpsUtil = gpsUtil;
+        this.tripPricer = tripPricer;
+        this.tripPricerCaller = new HedgedCaller( "tripPricer", externalCallSettings.getTripPricer( ) );
+        this.gpsUtilCaller = new HedgedCaller( "gpsUtil", externalCallSettings.getGpsUtil( ) );
+        this.gpsUtilLimiter = new AdaptiveConcurrencyLimiter( "gpsUtil", externalCallSettings.getGpsUtilConcurrency( ) );
+        this.rewardsSettlementTimeout = externalCallSettings.getRewardCentral( ).getDeadline( );
         this.rewardsService = rewardsService;
         this.testingService = testingService;
+        this.partitionService = partitionService;
+        this.handoffClient = new UserHandoffClient( partitionService.getSettings( ).getHandoffTimeout( ),
+                partitionService.getSettings( ).getSecret( ) );
+        this.trackingPipeline = new TrackingPipeline( this::fetchUserLocation, this::recordLocation, rewardsService, pipelineSettings );
+        this.userLocationIndex = new UserLocationIndex( USER_INDEX_CELL_SIZE_MILES, rewardsService.getLocationService( )::getDistance );
+        LocationService locationService = rewardsService.getLocationService( );
+        this.stayPointDetector = new StayPointDetector( stayPointSettings, locationService::getDistance, location -> {
+            List<Map.Entry<Attraction, Double>> closest = locationService.getNearbyAttractionsCache( ).getClosestAttractions( location );
+            return closest.isEmpty( ) ? null : closest.get( 0 );
+        } );
         Locale.setDefault( Locale.US );
 
         if ( testMode )
@@ -72,10 +190,12 @@ public class UserService
             logger.info( "TestMode enabled" );
             logger.info( "Initializing users" );
             testingService.initializeInternalUsers( );
-            logger.info( "Finished initializing users" );
+            testingService.internalUserMap.values( ).removeIf( user -> !partitionService.isLocal( user.getUserId( ) ) );
+            logger.info( "Finished initializing users, {} owned by this node", testingService.internalUserMap.size( ) );
+            testingService.internalUserMap.values( ).forEach( this::indexLastLocation );
         }
-        tracker = new Tracker( this );
-        addShutDownHook( );
+        partitionService.addListener( ring -> handOffUsers( ) );
+        tracker = new Tracker( this, new AdaptiveTrackingPolicy( rewardsService.getLocationService( ) ) );
     }
 
 
@@ -102,17 +222,92 @@ public class UserService
     }
 
 
+    /**
+     * Retrieves the users of this node's partition, all users when partitioning is disabled.
+     *
+     * @return a list of the users owned by this node
+     */
+    public List<User> getOwnedUsers( )
+    {
+        return testingService.internalUserMap.values( ).stream( )
+                .filter( user -> partitionService.isLocal( user.getUserId( ) ) )
+                .toList( );
+    }
+
+
+    /**
+     * Adds the users handed off by another node. Users already known are kept as they are.
+     *
+     * @param transfers the users to add
+     * @return the number of users added
+     */
+    public int acceptUsers( List<UserTransferDTO> transfers )
+    {
+        int accepted = 0;
+        for ( UserTransferDTO transfer : transfers )
+        {
+            User user = UserTransfers.toUser( transfer );
+            if ( testingService.internalUserMap.putIfAbsent( transfer.getUserName( ), user ) == null )
+            {
+                indexLastLocation( user );
+                accepted++;
+            }
+        }
+        logger.info( "Accepted {} of {} handed off users", accepted, transfers.size( ) );
+        return accepted;
+    }
+
+
+    /**
+     * Hands off the users this node no longer owns to their owners, then forgets them. Users whose owner cannot be
+     * reached are kept, and handed off again at the next membership change.
+     *
+     * @return the number of users handed off
+     */
+    public int handOffUsers( )
+    {
+        Map<String, List<User>> usersByOwner = testingService.internalUserMap.values( ).stream( )
+                .filter( user -> !partitionService.isLocal( user.getUserId( ) ) )
+                .collect( Collectors.groupingBy( user -> partitionService.getOwner( user.getUserId( ) ) ) );
+
+        int handedOff = 0;
+        for ( Map.Entry<String, List<User>> owner : usersByOwner.entrySet( ) )
+        {
+            try
+            {
+                handoffClient.transfer( owner.getKey( ), owner.getValue( ).stream( ).map( UserTransfers::toTransfer ).toList( ) );
+                owner.getValue( ).forEach( user -> {
+                    if ( testingService.internalUserMap.remove( user.getUserName( ), user ) )
+                    {
+                        userLocationIndex.remove( user.getUserId( ) );
+                        stayPointDetector.remove( user.getUserId( ) );
+                    }
+                } );
+                handedOff += owner.getValue( ).size( );
+            } catch ( IOException e )
+            {
+                logger.error( "Failed to hand off {} users to {}", owner.getValue( ).size( ), owner.getKey( ), e );
+            }
+        }
+        logger.info( "Handed off {} users", handedOff );
+        return handedOff;
+    }
+
+
     /**
      * Adds a new user to the internal user map if the user does not already exist.
      *
      * @param user the user to be added
+     * @return {@code true} if the user was added, {@code false} if a user of the same name already existed
      */
-    public void addUser( User user )
+    public boolean addUser( User user )
     {
-        if ( !testingService.internalUserMap.containsKey( user.getUserName( ) ) )
+        if ( testingService.internalUserMap.putIfAbsent( user.getUserName( ), user ) == null )
         {
-            testingService.internalUserMap.put( user.getUserName( ), user );
+            indexLastLocation( user );
+            return true;
         }
+        return false;
     }
 
 
@@ -128,65 +323,370 @@ public class UserService
         return ( !user.getVisitedLocations( ).isEmpty( ) ) ? user.getLastVisitedLocation( ) : trackUserLocation( user );
     }
 
+    /**
+     * Retrieves the visits of the user that started on a given day, detected by the {@link StayPointDetector}.
+     *
+     * @param user the user whose visits are to be retrieved
+     * @param date the day of arrival, in UTC
+     * @return the visits of the day, in arrival order, and their totals
+     */
+    public DailyVisitsDTO getVisits( User user, LocalDate date )
+    {
+        return stayPointDetector.getVisits( user.getUserId( ), date );
+    }
+
+
+    /**
+     * Retrieves a page of the user's visited locations within a time range, in time order.
+     *
+     * @param user   the user whose visited locations are to be retrieved
+     * @param from   the time of the earliest location, inclusive, or {@code null}
+     * @param to     the time after the latest location, exclusive, or {@code null}
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit  the maximum number of locations, capped to {@link #MAX_LOCATION_HISTORY_PAGE}
+     * @return the page, with the cursor of the next one unless it is the last one
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+     */
+    public LocationHistoryPageDTO getLocationHistory( User user, Date from, Date to, String cursor, int limit )
+    {
+        return LocationHistory.page( user.getVisitedLocations( ), from, to, cursor, Math.min( limit, MAX_LOCATION_HISTORY_PAGE ) );
+    }
+
 
     /**
      * Tracks the user's location using the GPS utility service, updates the user's visited locations,
-     * and calculates rewards based on the new location.
+     * and calculates rewards based on the new location. The location is added and the rewards are calculated in a
+     * single task of the user's serial executor, so that no other change to the user interleaves. The tracking is
+     * recorded as a {@link LocationTrackedEvent}.
      *
      * @param user the user whose location is to be tracked
      * @return the user's tracked location
      */
     public VisitedLocation trackUserLocation( User user )
     {
-        VisitedLocation visitedLocation = gpsUtil.getUserLocation( user.getUserId( ) );
-        user.addToVisitedLocations( visitedLocation );
-        rewardsService.calculateRewards( user );
+        LocationTrackedEvent event = new LocationTrackedEvent( );
+        event.begin( );
+        long fetchStart = System.nanoTime( );
+        VisitedLocation visitedLocation = fetchUserLocation( user.getUserId( ) );
+        long fetchNanos = System.nanoTime( ) - fetchStart;
+        rewardsService.getUserExecutor( ).run( user.getUserId( ), ( ) -> {
+            recordLocation( user, visitedLocation );
+            rewardsService.calculateRewards( user );
+        } );
+        event.end( );
+        if ( event.shouldCommit( ) )
+        {
+            event.userId = user.getUserId( ).toString( );
+            event.latitude = visitedLocation.location.latitude;
+            event.longitude = visitedLocation.location.longitude;
+            event.fetchNanos = fetchNanos;
+            event.commit( );
+        }
 
         return visitedLocation;
     }
 
 
+    /**
+     * Registers a listener notified of every location recorded for a user.
+     *
+     * @param listener the listener to register
+     */
+    public void addLocationListener( LocationListener listener )
+    {
+        locationListeners.add( listener );
+    }
+
+
+    /**
+     * Adds a location to the user's visited locations, moves the user to it in the {@link UserLocationIndex},
+     * passes it to the {@link StayPointDetector} and publishes it to the {@link LocationListener}s, as a task of the
+     * user's serial executor.
+     *
+     * @param user            the user
+     * @param visitedLocation the user's new location
+     */
+    private void recordLocation( User user, VisitedLocation visitedLocation )
+    {
+        rewardsService.getUserExecutor( ).run( user.getUserId( ), ( ) -> {
+            user.addToVisitedLocations( visitedLocation );
+            // A late location, inserted before later ones, does not move the user
+            if ( user.getLastVisitedLocation( ) == visitedLocation )
+            {
+                userLocationIndex.update( user, visitedLocation.location );
+            }
+            stayPointDetector.observe( user, visitedLocation );
+            for ( LocationListener listener : locationListeners )
+            {
+                try
+                {
+                    listener.onLocationRecorded( user, visitedLocation );
+                } catch ( RuntimeException e )
+                {
+                    logger.error( "Location listener failed on user {}", user.getUserName( ), e );
+                }
+            }
+        } );
+    }
+
+
+    private void indexLastLocation( User user )
+    {
+        if ( !user.getVisitedLocations( ).isEmpty( ) )
+        {
+            userLocationIndex.update( user, user.getLastVisitedLocation( ).location );
+        }
+    }
+
+
+    /**
+     * Fetches the current location of a user from the GPS utility service, with a deadline and hedging.
+     * The call waits for a slot of the gpsUtil concurrency limit, which adapts to the latency of gpsUtil.
+     *
+     * @param userId the id of the user to locate
+     * @return the user's current location
+     */
+    private VisitedLocation fetchUserLocation( UUID userId )
+    {
+        return gpsUtilLimiter.call( ( ) -> gpsUtilCaller.call( ( ) -> gpsUtil.getUserLocation( userId ) ) );
+    }
+
+
     /**
      * Tracks the user's location in parallel, updating visited locations and calculating rewards.
+     * The user goes through the {@link TrackingPipeline}: the location is fetched by a location fetcher,
+     * and the rewards are calculated later on by a reward worker.
      *
      * @param user the user whose location is to be tracked
      */
     public void parallelizedTrackUserLocation( User user )
     {
-        CompletableFuture.supplyAsync( () -> gpsUtil.getUserLocation( user.getUserId( ) ), executorService )
-                .thenAccept( location -> {
-                user.addToVisitedLocations( location );
-                rewardsService.calculateRewards( user );
-            } );
+        trackingPipeline.submit( user );
+    }
+
+
+    /**
+     * Tracks the user's location in parallel as {@link #parallelizedTrackUserLocation(User)} does, unless the
+     * location fetchers already have a backlog of {@code maxBacklog} users.
+     *
+     * @param user       the user whose location is to be tracked
+     * @param maxBacklog the backlog of the location fetchers above which the user is not tracked
+     * @return {@code true} if the user was submitted to the tracking pipeline
+     */
+    public boolean offerParallelizedTracking( User user, int maxBacklog )
+    {
+        return trackingPipeline.offer( user, maxBacklog );
+    }
+
+
+    /**
+     * Waits until every user submitted to {@link #parallelizedTrackUserLocation(User)} has been tracked
+     * and rewarded.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return {@code true} if the tracking pipeline is idle, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean awaitParallelizedTracking( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        return trackingPipeline.awaitIdle( timeout, unit );
+    }
+
+
+    /**
+     * Retrieves the statistics of each stage of the tracking pipeline.
+     *
+     * @return the queue depth, in-flight count and throughput of the location and rewards stages
+     */
+    public List<PipelineStageStatsDTO> getTrackingPipelineStats( )
+    {
+        return trackingPipeline.getStats( );
+    }
+
+
+    /**
+     * Retrieves the trip deals last priced for the user, without pricing them again, for when tripPricer is
+     * overloaded.
+     *
+     * @param user the user for whom the trip deals are to be retrieved
+     * @return the trip deals last priced for the user, empty if none were priced yet
+     */
+    public List<Provider> getLastTripDeals( User user )
+    {
+        return user.getTripDeals( );
     }
 
 
     /**
      * Retrieves a list of trip deals for the specified user based on their reward points
-     * and user preferences.
+     * and user preferences. The reward point lookups still running are awaited first, within the
+     * reward central deadline, and the points are then read from the user's cumulative total.
      *
      * @param user the user for whom the trip deals are to be retrieved
      * @return a list of trip deals available to the user
      */
     public List<Provider> getTripDeals( User user )
     {
-        int cumulatativeRewardPoints = user.getUserRewards( ).stream( ).mapToInt( UserReward::getRewardPoints ).sum( );
+        awaitRewardsSettled( user );
+        int cumulatativeRewardPoints = user.getCumulativeRewardPoints( );
 
         List<Provider> providers = tripPricer.getPrice( tripPricerApiKey, user.getUserId( ),
                 user.getUserPreferences( ).getNumberOfAdults( ), user.getUserPreferences( ).getNumberOfChildren( ),
                 user.getUserPreferences( ).getTripDuration( ), cumulatativeRewardPoints );
 
-        user.setTripDeals( providers );
+        rewardsService.getUserExecutor( ).run( user.getUserId( ), ( ) -> user.setTripDeals( providers ) );
 
         return providers;
     }
 
 
     /**
-     * Adds a shutdown hook to ensure the tracker stops tracking when the JVM shuts down.
+     * Prices trips for every combination of the given trip durations and party sizes at once, and retrieves the
+     * cheapest offers across them, each labelled with its scenario. The scenarios share the tripPricer deadline:
+     * those not priced by then are reported as unpriced, and the offers of the others are returned as a partial
+     * result.
+     *
+     * @param user          the user for whom the trips are priced
+     * @param tripDurations the trip durations to compare, the user's preferred one if empty
+     * @param adults        the numbers of adults to compare, the user's preferred one if empty
+     * @param children      the numbers of children to compare, the user's preferred one if empty
+     * @param top           the number of offers to retrieve
+     * @return the cheapest offers, by increasing price, and the pricing status of the scenarios
+     * @throws IllegalArgumentException if the combinations exceed {@link #MAX_TRIP_SCENARIOS}
      */
-    private void addShutDownHook( )
+    public TripDealScenariosDTO getTripDealScenarios( User user, List<Integer> tripDurations, List<Integer> adults,
+                                                      List<Integer> children, int top )
     {
-        Runtime.getRuntime( ).addShutdownHook( new Thread( tracker::stopTracking ) );
+        List<Integer> scenarioTripDurations = orPreferred( tripDurations, user.getUserPreferences( ).getTripDuration( ) );
+        List<Integer> scenarioAdults = orPreferred( adults, user.getUserPreferences( ).getNumberOfAdults( ) );
+        List<Integer> scenarioChildren = orPreferred( children, user.getUserPreferences( ).getNumberOfChildren( ) );
+        // Checked before the combinations are built, so that a huge request costs nothing
+        long requestedScenarios;
+        try
+        {
+            requestedScenarios = Math.multiplyExact( Math.multiplyExact( (long) scenarioTripDurations.size( ),
+                    scenarioAdults.size( ) ), scenarioChildren.size( ) );
+        } catch ( ArithmeticException e )
+        {
+            requestedScenarios = Long.MAX_VALUE;
+        }
+        if ( requestedScenarios > MAX_TRIP_SCENARIOS )
+        {
+            throw new IllegalArgumentException( requestedScenarios + " trip scenarios requested, at most "
+                    + MAX_TRIP_SCENARIOS + " allowed" );
+        }
+
+        List<TripScenario> scenarios = new ArrayList<>( );
+        for ( int tripDuration : scenarioTripDurations )
+        {
+            for ( int numberOfAdults : scenarioAdults )
+            {
+                for ( int numberOfChildren : scenarioChildren )
+                {
+                    scenarios.add( new TripScenario( tripDuration, numberOfAdults, numberOfChildren ) );
+                }
+            }
+        }
+
+        awaitRewardsSettled( user );
+        int cumulativeRewardPoints = user.getCumulativeRewardPoints( );
+        // All started now with the same deadline, the calls are all complete or failed once it elapsed
+        List<CompletableFuture<List<Provider>>> prices = scenarios.stream( )
+                .map( scenario -> tripPricerCaller.callAsync( ( ) -> tripPricer.getPrice( tripPricerApiKey, user.getUserId( ),
+                        scenario.adults( ), scenario.children( ), scenario.tripDuration( ), cumulativeRewardPoints ) ) )
+                .toList( );
+
+        List<TripDealOfferDTO> offers = new ArrayList<>( );
+        List<String> unpricedScenarios = new ArrayList<>( );
+        for ( int i = 0; i < scenarios.size( ); i++ )
+        {
+            TripScenario scenario = scenarios.get( i );
+            try
+            {
+                prices.get( i ).join( ).forEach( provider -> offers.add( scenario.toOffer( provider ) ) );
+            } catch ( CompletionException | CancellationException e )
+            {
+                logger.warn( "Trip scenario {} of user {} not priced: {}", scenario.label( ), user.getUserName( ), e.getMessage( ) );
+                unpricedScenarios.add( scenario.label( ) );
+            }
+        }
+
+        TripDealScenariosDTO result = new TripDealScenariosDTO( );
+        result.setOffers( offers.stream( )
+                .sorted( Comparator.comparingDouble( TripDealOfferDTO::getPrice ) )
+                .limit( top )
+                .toList( ) );
+        result.setScenarios( scenarios.size( ) );
+        result.setPricedScenarios( scenarios.size( ) - unpricedScenarios.size( ) );
+        result.setUnpricedScenarios( unpricedScenarios );
+        result.setPartial( !unpricedScenarios.isEmpty( ) );
+        return result;
+    }
+
+
+    private static List<Integer> orPreferred( List<Integer> values, int preferred )
+    {
+        return values == null || values.isEmpty( ) ? List.of( preferred ) : values.stream( ).distinct( ).toList( );
+    }
+
+
+    private record TripScenario( int tripDuration, int adults, int children )
+    {
+        String label( )
+        {
+            return tripDuration + " nights, " + adults + " adults, " + children + " children";
+        }
+
+        TripDealOfferDTO toOffer( Provider provider )
+        {
+            TripDealOfferDTO offer = new TripDealOfferDTO( );
+            offer.setScenario( label( ) );
+            offer.setTripDuration( tripDuration );
+            offer.setNumberOfAdults( adults );
+            offer.setNumberOfChildren( children );
+            offer.setProviderName( provider.name );
+            offer.setPrice( provider.price );
+            offer.setTripId( provider.tripId );
+            return offer;
+        }
+    }
+
+
+    private void awaitRewardsSettled( User user )
+    {
+        try
+        {
+            user.getRewardsSettled( ).get( rewardsSettlementTimeout.toMillis( ), TimeUnit.MILLISECONDS );
+        } catch ( TimeoutException e )
+        {
+            logger.warn( "Reward points of user {} not settled within {} ms, pricing trips with the points known so far",
+                    user.getUserName( ), rewardsSettlementTimeout.toMillis( ) );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        } catch ( ExecutionException e )
+        {
+            // Lookups settle the future normally, even when they fail
+            throw new IllegalStateException( e.getCause( ) );
+        }
+    }
+
+
+    /**
+     * Stops the tracker and the tracking pipeline, once the application context closes. The reward workers are
+     * given a few seconds to process the locations already fetched.
+     */
+    @PreDestroy
+    public void shutdown( )
+    {
+        tracker.stopTracking( );
+        try
+        {
+            trackingPipeline.shutdown( PIPELINE_SHUTDOWN_TIMEOUT.toSeconds( ), TimeUnit.SECONDS );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
     }
 }
@@ -0,0 +1,74 @@
+package com.openclassrooms.tourguide.service.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a CSV line into its fields. Fields may be quoted with double quotes, a doubled quote standing for a quote
+ * within a quoted field. Quoted fields cannot span several lines.
+ */
+public final class CsvLine
+{
+    private CsvLine( )
+    {
+    }
+
+
+    /**
+     * Splits a line into its fields.
+     *
+     * @param line the line, without its line terminator
+     * @return the fields of the line, unquoted
+     * @throws IllegalArgumentException if a quoted field is not closed, or is followed by anything but a comma
+     */
+    public static List<String> split( String line )
+    {
+        List<String> fields = new ArrayList<>( );
+        StringBuilder field = new StringBuilder( );
+        int i = 0;
+        while ( true )
+        {
+            if ( i < line.length( ) && line.charAt( i ) == '"' )
+            {
+                i++;
+                while ( true )
+                {
+                    if ( i >= line.length( ) )
+                    {
+                        throw new IllegalArgumentException( "Unterminated quoted field" );
+                    }
+                    char c = line.charAt( i++ );
+                    if ( c == '"' )
+                    {
+                        if ( i < line.length( ) && line.charAt( i ) == '"' )
+                        {
+                            field.append( '"' );
+                            i++;
+                            continue;
+                        }
+                        break;
+                    }
+                    field.append( c );
+                }
+                if ( i < line.length( ) && line.charAt( i ) != ',' )
+                {
+                    throw new IllegalArgumentException( "Unexpected character after quoted field at column " + ( i + 1 ) );
+                }
+            } else
+            {
+                int end = line.indexOf( ',', i );
+                end = end < 0 ? line.length( ) : end;
+                field.append( line, i, end );
+                i = end;
+            }
+            fields.add( field.toString( ) );
+            field.setLength( 0 );
+            if ( i >= line.length( ) )
+            {
+                return fields;
+            }
+            // Skips the comma
+            i++;
+        }
+    }
+}
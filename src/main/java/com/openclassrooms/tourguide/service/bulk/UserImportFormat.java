@@ -0,0 +1,34 @@
+package com.openclassrooms.tourguide.service.bulk;
+
+import java.util.Locale;
+
+/**
+ * Formats of a bulk user import, one record per line.
+ */
+public enum UserImportFormat
+{
+    // One JSON object per line, as a UserImportRecordDTO
+    NDJSON,
+    // A header line naming the columns, userName being required, then one record per line
+    CSV;
+
+
+    /**
+     * Retrieves the format of a content type.
+     *
+     * @param contentType the content type of the import, parameters included
+     * @return the format
+     * @throws IllegalArgumentException if the content type is neither NDJSON nor CSV
+     */
+    public static UserImportFormat fromContentType( String contentType )
+    {
+        String mediaType = contentType == null ? "" : contentType.split( ";" )[ 0 ].trim( ).toLowerCase( Locale.ROOT );
+        return switch ( mediaType )
+        {
+            case "application/x-ndjson", "application/jsonl" -> NDJSON;
+            case "text/csv" -> CSV;
+            default -> throw new IllegalArgumentException( "Unsupported import content type " + contentType
+                    + ", application/x-ndjson or text/csv expected" );
+        };
+    }
+}
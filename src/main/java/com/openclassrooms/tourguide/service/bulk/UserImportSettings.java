@@ -0,0 +1,19 @@
+package com.openclassrooms.tourguide.service.bulk;
+
+import lombok.Data;
+
+/**
+ * Settings of the bulk user imports, bound to the {@code tourguide.user-import} properties.
+ */
+@Data
+public class UserImportSettings
+{
+    // Records parsed and inserted by a single task
+    private int batchSize      = 1000;
+    // Threads building and inserting the batches; the batches in flight are bounded to twice as many
+    private int parallelism    = Runtime.getRuntime( ).availableProcessors( );
+    // Rejections reported with their reason, the others being only counted
+    private int reportedErrors = 100;
+    // Backlog of the location fetchers above which imported users are not tracked, but reported as skipped
+    private int maxTrackingBacklog = 10000;
+}
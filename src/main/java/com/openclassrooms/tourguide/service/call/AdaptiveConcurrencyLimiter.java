@@ -0,0 +1,384 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import com.openclassrooms.tourguide.domain.dto.ConcurrencyLimitStatsDTO;
+import lombok.Getter;
+
+/**
+ * The {@code AdaptiveConcurrencyLimiter} class bounds the number of calls in flight to an external dependency, and
+ * adapts that bound to what the dependency sustains, instead of relying on the size of a thread pool.
+ *
+ * <p>The latency of every call is measured and averaged over the last few calls. The baseline latency is the lowest
+ * recent latency of the last one to two {@code baselineWindow}s, so that it approximates the latency of the
+ * dependency when not loaded, while still following a lasting change of that latency. While the recent latency holds close to the baseline, the dependency is
+ * not saturated and the limit grows; once it inflates, calls are queuing in the dependency and the limit is
+ * reduced:</p>
+ * <ul>
+ *     <li>{@code AIMD} adds one slot per round trip of a full limit of calls, and multiplies the limit by
+ *     {@code backoffRatio} at most once per latency when the recent latency exceeds {@code tolerance} times the
+ *     baseline</li>
+ *     <li>{@code GRADIENT} scales the limit by {@code tolerance * baseline / recent latency}, capped to 1, and adds
+ *     the square root of the limit as headroom to probe for more capacity, once per latency; changes are
+ *     smoothed</li>
+ * </ul>
+ * <p>With both algorithms, a failed call backs off the limit. The limit does not grow while less than half of it is
+ * used, so that a caller not loading the dependency does not inflate it.</p>
+ *
+ * <p>Synchronous calls over the limit wait for a slot up to {@code maxWait}, asynchronous calls are queued up to
+ * {@code maxQueued}; beyond, calls are rejected with a {@link ConcurrencyLimitExceededException}.</p>
+ */
+public class AdaptiveConcurrencyLimiter
+{
+    // Weight of each call in the recent latency
+    private static final double RECENT_LATENCY_WEIGHT = 0.1;
+
+    @Getter
+    private final String dependency;
+    private final ConcurrencyLimitSettings settings;
+
+    private final ReentrantLock lock = new ReentrantLock( );
+    private final Condition slotReleased = lock.newCondition( );
+    private final Deque<Runnable> queuedCalls = new ArrayDeque<>( );
+
+    // Guarded by the lock
+    private double limit;
+    private int inFlight;
+    private int waitingThreads;
+    private double recentLatencyNanos = -1;
+    private double currentWindowMinNanos  = Double.MAX_VALUE;
+    private double previousWindowMinNanos = Double.MAX_VALUE;
+    private long windowStart = System.nanoTime( );
+    private long lastBackoff = System.nanoTime( );
+    private long lastGradientUpdate = System.nanoTime( );
+
+    private final LongAdder completed = new LongAdder( );
+    private final LongAdder failed    = new LongAdder( );
+    private final LongAdder rejected  = new LongAdder( );
+
+
+    public AdaptiveConcurrencyLimiter( String dependency, ConcurrencyLimitSettings settings )
+    {
+        this.dependency = dependency;
+        this.settings = settings;
+        this.limit = clamp( settings.getInitialLimit( ), settings.getMinLimit( ), settings.getMaxLimit( ) );
+    }
+
+
+    /**
+     * Calls the dependency once a slot is available, waiting for one up to {@code maxWait}.
+     *
+     * @param supplier the call to the dependency
+     * @param <T>      the type of the result
+     * @return the result of the call
+     * @throws ConcurrencyLimitExceededException if no slot was released in time
+     */
+    public <T> T call( Supplier<T> supplier )
+    {
+        if ( !settings.isEnabled( ) )
+        {
+            return supplier.get( );
+        }
+        acquire( );
+        long start = System.nanoTime( );
+        boolean succeeded = false;
+        try
+        {
+            T result = supplier.get( );
+            succeeded = true;
+            return result;
+        } finally
+        {
+            release( System.nanoTime( ) - start, succeeded );
+        }
+    }
+
+
+    /**
+     * Calls the dependency asynchronously once a slot is available. The caller never waits: calls over the limit
+     * are queued and started as slots are released.
+     *
+     * @param supplier the asynchronous call to the dependency
+     * @param <T>      the type of the result
+     * @return a future completed by the call, or failed with a {@link ConcurrencyLimitExceededException} if the
+     *         queue was full
+     */
+    public <T> CompletableFuture<T> callAsync( Supplier<CompletableFuture<T>> supplier )
+    {
+        if ( !settings.isEnabled( ) )
+        {
+            return supplier.get( );
+        }
+        CompletableFuture<T> result = new CompletableFuture<>( );
+        Runnable launch = ( ) -> launch( supplier, result );
+
+        lock.lock( );
+        try
+        {
+            if ( inFlight < getLimitLocked( ) )
+            {
+                inFlight++;
+            }
+            else if ( queuedCalls.size( ) < settings.getMaxQueued( ) )
+            {
+                queuedCalls.add( launch );
+                return result;
+            }
+            else
+            {
+                rejected.increment( );
+                return CompletableFuture.failedFuture( new ConcurrencyLimitExceededException( dependency, getLimitLocked( ) ) );
+            }
+        } finally
+        {
+            lock.unlock( );
+        }
+        launch.run( );
+        return result;
+    }
+
+
+    public int getLimit( )
+    {
+        lock.lock( );
+        try
+        {
+            return getLimitLocked( );
+        } finally
+        {
+            lock.unlock( );
+        }
+    }
+
+
+    /**
+     * Tells whether calls are waiting for a slot, the dependency being used up to the limit.
+     *
+     * @return {@code true} if calls are waiting or queued
+     */
+    public boolean isSaturated( )
+    {
+        lock.lock( );
+        try
+        {
+            return waitingThreads + queuedCalls.size( ) > 0;
+        } finally
+        {
+            lock.unlock( );
+        }
+    }
+
+
+    /**
+     * Retrieves the current limit, usage and latencies of the limiter.
+     *
+     * @return the statistics of the limiter
+     */
+    public ConcurrencyLimitStatsDTO getStats( )
+    {
+        ConcurrencyLimitStatsDTO stats = new ConcurrencyLimitStatsDTO( );
+        stats.setDependency( dependency );
+        stats.setAlgorithm( settings.isEnabled( ) ? settings.getAlgorithm( ).name( ) : "NONE" );
+        lock.lock( );
+        try
+        {
+            stats.setLimit( getLimitLocked( ) );
+            stats.setInFlight( inFlight );
+            stats.setWaiting( waitingThreads + queuedCalls.size( ) );
+            stats.setLatencyMillis( Math.max( 0, recentLatencyNanos ) / 1e6 );
+            stats.setBaselineLatencyMillis( recentLatencyNanos < 0 ? 0 : getBaselineLatencyNanos( ) / 1e6 );
+        } finally
+        {
+            lock.unlock( );
+        }
+        stats.setCompleted( completed.sum( ) );
+        stats.setFailed( failed.sum( ) );
+        stats.setRejected( rejected.sum( ) );
+        return stats;
+    }
+
+
+    private void acquire( )
+    {
+        lock.lock( );
+        try
+        {
+            long remaining = settings.getMaxWait( ).toNanos( );
+            waitingThreads++;
+            try
+            {
+                while ( inFlight >= getLimitLocked( ) )
+                {
+                    if ( remaining <= 0 )
+                    {
+                        rejected.increment( );
+                        throw new ConcurrencyLimitExceededException( dependency, getLimitLocked( ) );
+                    }
+                    remaining = slotReleased.awaitNanos( remaining );
+                }
+            } catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new CancellationException( "Interrupted while waiting to call " + dependency );
+            } finally
+            {
+                waitingThreads--;
+            }
+            inFlight++;
+        } finally
+        {
+            lock.unlock( );
+        }
+    }
+
+
+    private <T> void launch( Supplier<CompletableFuture<T>> supplier, CompletableFuture<T> result )
+    {
+        long start = System.nanoTime( );
+        CompletableFuture<T> call;
+        try
+        {
+            call = supplier.get( );
+        } catch ( RuntimeException e )
+        {
+            release( System.nanoTime( ) - start, false );
+            result.completeExceptionally( e );
+            return;
+        }
+        call.whenComplete( ( value, failure ) -> {
+            release( System.nanoTime( ) - start, failure == null );
+            if ( failure == null )
+            {
+                result.complete( value );
+            }
+            else
+            {
+                result.completeExceptionally( failure );
+            }
+        } );
+    }
+
+
+    private void release( long latencyNanos, boolean succeeded )
+    {
+        List<Runnable> launches = new ArrayList<>( );
+        lock.lock( );
+        try
+        {
+            int inFlightAtCompletion = inFlight--;
+            if ( succeeded )
+            {
+                completed.increment( );
+                onLatency( latencyNanos, inFlightAtCompletion );
+            }
+            else
+            {
+                failed.increment( );
+                backOff( );
+            }
+
+            while ( !queuedCalls.isEmpty( ) && inFlight < getLimitLocked( ) )
+            {
+                inFlight++;
+                launches.add( queuedCalls.poll( ) );
+            }
+            // The limit may have grown by more than one slot
+            slotReleased.signalAll( );
+        } finally
+        {
+            lock.unlock( );
+        }
+        launches.forEach( Runnable::run );
+    }
+
+
+    private void onLatency( long latencyNanos, int inFlightAtCompletion )
+    {
+        recentLatencyNanos = recentLatencyNanos < 0
+                ? latencyNanos
+                : recentLatencyNanos + RECENT_LATENCY_WEIGHT * ( latencyNanos - recentLatencyNanos );
+        long now = System.nanoTime( );
+        if ( now - windowStart > settings.getBaselineWindow( ).toNanos( ) )
+        {
+            previousWindowMinNanos = currentWindowMinNanos;
+            currentWindowMinNanos = Double.MAX_VALUE;
+            windowStart = now;
+        }
+        currentWindowMinNanos = Math.min( currentWindowMinNanos, recentLatencyNanos );
+        double baselineLatencyNanos = getBaselineLatencyNanos( );
+
+        boolean inflated = recentLatencyNanos > settings.getTolerance( ) * baselineLatencyNanos;
+        boolean underused = inFlightAtCompletion * 2 < limit;
+        switch ( settings.getAlgorithm( ) )
+        {
+            case AIMD ->
+            {
+                if ( inflated )
+                {
+                    backOff( );
+                }
+                else if ( !underused )
+                {
+                    limit = Math.min( settings.getMaxLimit( ), limit + 1 / limit );
+                }
+            }
+            case GRADIENT ->
+            {
+                // Applied once per latency, so that the limit does not move further before the effect of the last
+                // change on the latency can be observed
+                if ( underused && !inflated || now - lastGradientUpdate < recentLatencyNanos )
+                {
+                    return;
+                }
+                lastGradientUpdate = now;
+                double gradient = clamp( settings.getTolerance( ) * baselineLatencyNanos / recentLatencyNanos, 0.5, 1 );
+                double newLimit = limit * gradient + Math.sqrt( limit );
+                limit = clamp( limit * ( 1 - settings.getSmoothing( ) ) + newLimit * settings.getSmoothing( ),
+                        settings.getMinLimit( ), settings.getMaxLimit( ) );
+            }
+        }
+    }
+
+
+    // Like TCP congestion control, backs off at most once per latency: the calls completing meanwhile were started
+    // before the previous back-off
+    private void backOff( )
+    {
+        long now = System.nanoTime( );
+        long latency = (long) Math.max( recentLatencyNanos, TimeUnit.MILLISECONDS.toNanos( 1 ) );
+        if ( now - lastBackoff < latency )
+        {
+            return;
+        }
+        lastBackoff = now;
+        limit = Math.max( settings.getMinLimit( ), limit * settings.getBackoffRatio( ) );
+    }
+
+
+    private double getBaselineLatencyNanos( )
+    {
+        return Math.min( previousWindowMinNanos, currentWindowMinNanos );
+    }
+
+
+    private int getLimitLocked( )
+    {
+        return (int) limit;
+    }
+
+
+    private static double clamp( double value, double min, double max )
+    {
+        return Math.max( min, Math.min( max, value ) );
+    }
+}
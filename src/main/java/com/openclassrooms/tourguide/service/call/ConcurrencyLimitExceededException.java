@@ -0,0 +1,13 @@
+package com.openclassrooms.tourguide.service.call;
+
+/**
+ * Thrown when a call to an external dependency could not get a slot within the limit of its
+ * {@link AdaptiveConcurrencyLimiter}.
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException
+{
+    public ConcurrencyLimitExceededException( String dependency, int limit )
+    {
+        super( "Call to " + dependency + " rejected, " + limit + " calls already in flight" );
+    }
+}
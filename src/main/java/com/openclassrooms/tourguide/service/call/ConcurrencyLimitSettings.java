@@ -0,0 +1,38 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Policy of an {@link AdaptiveConcurrencyLimiter}, one per external dependency.
+ */
+@Data
+public class ConcurrencyLimitSettings
+{
+    public enum Algorithm
+    {
+        // Additive increase on steady latency, multiplicative decrease on inflated latency or failure
+        AIMD,
+        // Limit scaled by the ratio of the baseline latency to the current one, plus a small probing headroom
+        GRADIENT
+    }
+
+    private boolean   enabled        = true;
+    private Algorithm algorithm      = Algorithm.GRADIENT;
+    private int       initialLimit   = 20;
+    private int       minLimit       = 1;
+    private int       maxLimit       = 1000;
+    // Latency is considered inflated beyond this multiple of the baseline latency
+    private double    tolerance      = 1.5;
+    // Multiplier applied to the limit when backing off
+    private double    backoffRatio   = 0.9;
+    // Weight of each new gradient limit, smoothing the changes
+    private double    smoothing      = 0.2;
+    // Period over which the lowest latency is taken as the baseline latency
+    private Duration  baselineWindow = Duration.ofSeconds( 30 );
+    // Longest time a call waits for a slot before being rejected
+    private Duration  maxWait        = Duration.ofSeconds( 30 );
+    // Asynchronous calls waiting for a slot beyond this number are rejected
+    private int       maxQueued      = 100000;
+}
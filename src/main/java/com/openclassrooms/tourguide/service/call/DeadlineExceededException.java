@@ -0,0 +1,12 @@
+package com.openclassrooms.tourguide.service.call;
+
+/**
+ * Thrown when a call to an external dependency did not complete before its deadline.
+ */
+public class DeadlineExceededException extends RuntimeException
+{
+    public DeadlineExceededException( String dependency, long deadlineInMillis )
+    {
+        super( "Call to " + dependency + " did not complete within " + deadlineInMillis + " ms" );
+    }
+}
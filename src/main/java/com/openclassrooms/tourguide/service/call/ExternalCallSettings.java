@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.service.call;
+
+import lombok.Data;
+
+/**
+ * Call policies of the external libraries, bound to the {@code tourguide.calls} properties.
+ */
+@Data
+public class ExternalCallSettings
+{
+    private HedgingSettings gpsUtil       = new HedgingSettings( );
+    private HedgingSettings rewardCentral = new HedgingSettings( );
+    // Its deadline is shared by the scenarios of a multi-scenario pricing, all started at once
+    private HedgingSettings tripPricer    = new HedgingSettings( );
+
+    private ConcurrencyLimitSettings gpsUtilConcurrency       = new ConcurrencyLimitSettings( );
+    private ConcurrencyLimitSettings rewardCentralConcurrency = new ConcurrencyLimitSettings( );
+}
@@ -0,0 +1,315 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import lombok.Getter;
+
+/**
+ * The {@code HedgedCaller} class wraps the calls made to an external dependency whose latency is highly variable.
+ *
+ * <p>Each call is bounded by a deadline: when it elapses, the call fails with a {@link DeadlineExceededException}
+ * and its attempts are cancelled. Each call may also be hedged: when the first attempt is still running after the
+ * configured percentile of the latencies observed so far (p95 by default), a second identical attempt is fired and
+ * the first result wins. Hedges are limited by a budget, replenished by each call, so that they never add more than
+ * {@code hedgeBudgetRatio} extra load to the dependency.</p>
+ */
+public class HedgedCaller
+{
+    // Hedge tokens are counted in thousandths, and at most this many hedges can be saved up
+    private static final long TOKEN_UNIT = 1000;
+    private static final long MAX_TOKENS = 10 * TOKEN_UNIT;
+
+    @Getter
+    private final String dependency;
+    private final HedgingSettings settings;
+    private final LatencyRecorder latencyRecorder;
+    private final AtomicLong hedgeTokens = new AtomicLong( );
+
+    private final ExecutorService attemptExecutor;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final AtomicLong calls     = new AtomicLong( );
+    private final AtomicLong hedges    = new AtomicLong( );
+    private final AtomicLong hedgeWins = new AtomicLong( );
+    private final AtomicLong timeouts  = new AtomicLong( );
+
+
+    public HedgedCaller( String dependency, HedgingSettings settings )
+    {
+        this.dependency = dependency;
+        this.settings = settings;
+        this.latencyRecorder = new LatencyRecorder( settings.getHedgePercentile( ) );
+        this.attemptExecutor = Executors.newCachedThreadPool( daemonThreads( dependency + "-call-" ) );
+        this.scheduler = new ScheduledThreadPoolExecutor( 1, daemonThreads( dependency + "-hedge-" ) );
+        this.scheduler.setRemoveOnCancelPolicy( true );
+    }
+
+
+    /**
+     * Calls the dependency and waits for the result, within the configured deadline. The first attempt runs on the
+     * calling thread, which is interrupted if a hedge wins or the deadline elapses; only the hedge runs on a pooled
+     * thread.
+     *
+     * @param supplier the call to the dependency, possibly executed twice
+     * @param <T>      the type of the result
+     * @return the result of the first successful attempt
+     * @throws DeadlineExceededException if no attempt completed before the deadline
+     */
+    public <T> T call( Supplier<T> supplier )
+    {
+        HedgedCall<T> call = schedule( new HedgedCall<>( supplier ) );
+        call.runInCaller( );
+        try
+        {
+            // Already done, unless the first attempt failed while a hedge is still running
+            return call.result.get( );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new CancellationException( "Interrupted while calling " + dependency );
+        } catch ( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof RuntimeException runtimeException )
+            {
+                throw runtimeException;
+            }
+            throw new CompletionException( e.getCause( ) );
+        }
+    }
+
+
+    /**
+     * Calls the dependency asynchronously, within the configured deadline.
+     *
+     * @param supplier the call to the dependency, possibly executed twice
+     * @param <T>      the type of the result
+     * @return a future completed by the first successful attempt, or failed when every attempt failed
+     *         or the deadline elapsed
+     */
+    public <T> CompletableFuture<T> callAsync( Supplier<T> supplier )
+    {
+        HedgedCall<T> call = schedule( new HedgedCall<>( supplier ) );
+        call.launch( );
+        return call.result;
+    }
+
+
+    /**
+     * Counts a new call, and schedules its deadline and its hedge.
+     */
+    private <T> HedgedCall<T> schedule( HedgedCall<T> call )
+    {
+        calls.incrementAndGet( );
+        long budget = (long) ( settings.getHedgeBudgetRatio( ) * TOKEN_UNIT );
+        hedgeTokens.getAndUpdate( tokens -> Math.min( MAX_TOKENS, tokens + budget ) );
+
+        long deadlineNanos = settings.getDeadline( ).toNanos( );
+        ScheduledFuture<?> deadline = scheduler.schedule( call::expire, deadlineNanos, TimeUnit.NANOSECONDS );
+        call.result.whenComplete( ( result, failure ) -> deadline.cancel( false ) );
+
+        long hedgeDelayNanos = getHedgeDelayNanos( );
+        if ( hedgeDelayNanos >= 0 && hedgeDelayNanos < deadlineNanos )
+        {
+            ScheduledFuture<?> hedge = scheduler.schedule( call::hedge, hedgeDelayNanos, TimeUnit.NANOSECONDS );
+            call.result.whenComplete( ( result, failure ) -> hedge.cancel( false ) );
+        }
+        return call;
+    }
+
+
+    /**
+     * Retrieves the delay after which a call is hedged.
+     *
+     * @return the delay in nanoseconds, or -1 if calls are not hedged
+     */
+    public long getHedgeDelayNanos( )
+    {
+        if ( !settings.isHedgingEnabled( ) || latencyRecorder.getCount( ) < settings.getMinSamples( ) )
+        {
+            return -1;
+        }
+        return latencyRecorder.getPercentileNanos( );
+    }
+
+
+    public long getCallCount( )
+    {
+        return calls.get( );
+    }
+
+    public long getHedgeCount( )
+    {
+        return hedges.get( );
+    }
+
+    public long getHedgeWinCount( )
+    {
+        return hedgeWins.get( );
+    }
+
+    public long getTimeoutCount( )
+    {
+        return timeouts.get( );
+    }
+
+
+    private boolean tryAcquireHedgeToken( )
+    {
+        while ( true )
+        {
+            long tokens = hedgeTokens.get( );
+            if ( tokens < TOKEN_UNIT )
+            {
+                return false;
+            }
+            if ( hedgeTokens.compareAndSet( tokens, tokens - TOKEN_UNIT ) )
+            {
+                return true;
+            }
+        }
+    }
+
+
+    private static ThreadFactory daemonThreads( String prefix )
+    {
+        AtomicInteger count = new AtomicInteger( );
+        return runnable -> {
+            Thread thread = new Thread( runnable, prefix + count.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+
+    /**
+     * The attempts of a single call, racing to complete its result.
+     */
+    private class HedgedCall<T>
+    {
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> result = new CompletableFuture<>( );
+        private final List<Future<?>> attempts = new CopyOnWriteArrayList<>( );
+        private final AtomicInteger pendingAttempts = new AtomicInteger( );
+        private final AtomicInteger launchedAttempts = new AtomicInteger( );
+        private final long start = System.nanoTime( );
+        // The thread running the first attempt of a synchronous call, guarded by this
+        private Thread caller;
+        private boolean callerInterrupted;
+
+        HedgedCall( Supplier<T> supplier )
+        {
+            this.supplier = supplier;
+        }
+
+        void launch( )
+        {
+            boolean hedged = launchedAttempts.getAndIncrement( ) > 0;
+            pendingAttempts.incrementAndGet( );
+            attempts.add( attemptExecutor.submit( ( ) -> attempt( hedged ) ) );
+        }
+
+        void runInCaller( )
+        {
+            boolean hedged = launchedAttempts.getAndIncrement( ) > 0;
+            pendingAttempts.incrementAndGet( );
+            synchronized ( this )
+            {
+                caller = Thread.currentThread( );
+            }
+            // Stops the attempt once the call is settled otherwise, by a hedge or by the deadline
+            result.whenComplete( ( value, failure ) -> interruptCaller( ) );
+            try
+            {
+                if ( !result.isDone( ) )
+                {
+                    attempt( hedged );
+                }
+            } finally
+            {
+                synchronized ( this )
+                {
+                    caller = null;
+                    if ( callerInterrupted )
+                    {
+                        // The interrupt was only meant to stop the losing attempt
+                        Thread.interrupted( );
+                    }
+                }
+            }
+        }
+
+        private void attempt( boolean hedged )
+        {
+            long attemptStart = System.nanoTime( );
+            try
+            {
+                T value = supplier.get( );
+                latencyRecorder.record( System.nanoTime( ) - attemptStart );
+                if ( result.complete( value ) && hedged )
+                {
+                    hedgeWins.incrementAndGet( );
+                }
+            } catch ( RuntimeException e )
+            {
+                // The call only fails once its last running attempt has failed
+                if ( pendingAttempts.decrementAndGet( ) == 0 )
+                {
+                    result.completeExceptionally( e );
+                }
+                return;
+            }
+            pendingAttempts.decrementAndGet( );
+        }
+
+        void hedge( )
+        {
+            if ( !result.isDone( ) && tryAcquireHedgeToken( ) )
+            {
+                hedges.incrementAndGet( );
+                launch( );
+            }
+        }
+
+        void expire( )
+        {
+            if ( result.isDone( ) )
+            {
+                return;
+            }
+            // Counted before failing the call, so that callers observe it; undone if an attempt won the race
+            timeouts.incrementAndGet( );
+            if ( !result.completeExceptionally( new DeadlineExceededException( dependency, settings.getDeadline( ).toMillis( ) ) ) )
+            {
+                timeouts.decrementAndGet( );
+                return;
+            }
+            // Timed out calls count as slow calls, so that the hedge delay reflects them
+            latencyRecorder.record( System.nanoTime( ) - start );
+            attempts.forEach( attempt -> attempt.cancel( true ) );
+        }
+
+        private synchronized void interruptCaller( )
+        {
+            if ( caller != null && caller != Thread.currentThread( ) )
+            {
+                caller.interrupt( );
+                callerInterrupted = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Deadline and hedging policy of the calls made by a {@link HedgedCaller}.
+ */
+@Data
+public class HedgingSettings
+{
+    // Calls still running after the deadline are cancelled
+    private Duration deadline         = Duration.ofSeconds( 10 );
+    private boolean  hedgingEnabled   = true;
+    // A second attempt is fired once the first one has been running longer than this percentile of past calls
+    private double   hedgePercentile  = 0.95;
+    // Extra attempts allowed per call, e.g. 0.1 lets at most 10% of the calls be hedged
+    private double   hedgeBudgetRatio = 0.1;
+    // No hedging until enough latencies have been observed
+    private int      minSamples       = 20;
+}
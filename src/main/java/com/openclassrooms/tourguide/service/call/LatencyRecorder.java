@@ -0,0 +1,64 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the latest latencies observed for a dependency in a fixed size circular window,
+ * and derives percentiles from them.
+ *
+ * <p>Sorting the window is done at most once every {@code REFRESH_INTERVAL} records; in between,
+ * the last computed percentile is served.</p>
+ */
+class LatencyRecorder
+{
+    private static final int WINDOW_SIZE      = 1024;
+    private static final int REFRESH_INTERVAL = 64;
+
+    private final double percentile;
+    private final AtomicLongArray window = new AtomicLongArray( WINDOW_SIZE );
+    private final AtomicLong recorded    = new AtomicLong( );
+    private volatile long percentileNanos = -1;
+
+
+    LatencyRecorder( double percentile )
+    {
+        this.percentile = percentile;
+    }
+
+    void record( long latencyNanos )
+    {
+        long count = recorded.getAndIncrement( );
+        window.set( (int) ( count % WINDOW_SIZE ), latencyNanos );
+        if ( count % REFRESH_INTERVAL == 0 || count < REFRESH_INTERVAL )
+        {
+            percentileNanos = computePercentile( (int) Math.min( count + 1, WINDOW_SIZE ) );
+        }
+    }
+
+    long getCount( )
+    {
+        return recorded.get( );
+    }
+
+    /**
+     * @return the configured percentile of the recorded latencies in nanoseconds, or -1 if nothing was recorded
+     */
+    long getPercentileNanos( )
+    {
+        return percentileNanos;
+    }
+
+    private long computePercentile( int size )
+    {
+        long[] latencies = new long[ size ];
+        for ( int i = 0; i < size; i++ )
+        {
+            latencies[ i ] = window.get( i );
+        }
+        Arrays.sort( latencies );
+        int rank = (int) Math.ceil( percentile * size ) - 1;
+        return latencies[ Math.max( 0, Math.min( size - 1, rank ) ) ];
+    }
+}
@@ -0,0 +1,14 @@
+package com.openclassrooms.tourguide.service.call;
+
+import lombok.Data;
+
+/**
+ * Overload policies of the endpoints depending on slow external libraries, bound to the
+ * {@code tourguide.load-shedding} properties.
+ */
+@Data
+public class LoadSheddingSettings
+{
+    private OverloadGuardSettings nearbyAttractions = new OverloadGuardSettings( );
+    private OverloadGuardSettings tripDeals         = new OverloadGuardSettings( );
+}
@@ -0,0 +1,170 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import com.openclassrooms.tourguide.domain.dto.OverloadGuardStatsDTO;
+import lombok.Getter;
+
+/**
+ * The {@code OverloadGuard} class sheds the load of an endpoint depending on slow external libraries, rather than
+ * letting its requests pile up threads and inflate the latency of every endpoint.
+ *
+ * <p>Each request is admitted before doing any work. Beyond {@code maxConcurrent} requests in progress, it is
+ * rejected at once with an {@link OverloadedException}. Otherwise it is served degraded, without calling the slow
+ * dependencies, when the endpoint is under pressure:</p>
+ * <ul>
+ *     <li>more than {@code degradeConcurrency} requests are in progress</li>
+ *     <li>the recent latency of the requests served in full exceeds {@code latencyThreshold}</li>
+ *     <li>the calls to the dependency are already waiting for a slot of its {@link AdaptiveConcurrencyLimiter}</li>
+ * </ul>
+ * <p>Degraded requests are fast and say nothing of the dependencies, so only the requests served in full are
+ * measured: those marked {@link Admission#succeeded( ) succeeded}, and those that failed after
+ * {@code latencyThreshold}, e.g. on the deadline of a dependency, a failure that fast saying nothing of it either.
+ * Once no request was measured for {@code latencyWindow}, the recent latency is ignored and requests are served in
+ * full again, probing the dependencies.</p>
+ */
+public class OverloadGuard
+{
+    // Weight of each request in the recent latency
+    private static final double RECENT_LATENCY_WEIGHT = 0.2;
+
+    @Getter
+    private final String endpoint;
+    @Getter
+    private final OverloadGuardSettings settings;
+    private final BooleanSupplier dependencySaturated;
+
+    private final AtomicInteger inFlight = new AtomicInteger( );
+    private final LongAdder served   = new LongAdder( );
+    private final LongAdder degraded = new LongAdder( );
+    private final LongAdder rejected = new LongAdder( );
+
+    // Guarded by this
+    private double recentLatencyNanos = -1;
+    private long lastLatencySample;
+
+
+    /**
+     * @param endpoint            the guarded endpoint, for the statistics and the rejections
+     * @param settings            the overload policy
+     * @param dependencySaturated tells whether the calls to the dependency of the endpoint are waiting for slots
+     */
+    public OverloadGuard( String endpoint, OverloadGuardSettings settings, BooleanSupplier dependencySaturated )
+    {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.dependencySaturated = dependencySaturated;
+    }
+
+
+    /**
+     * Admits a request, to be closed once served.
+     *
+     * @return the admission, telling whether the request is to be served degraded
+     * @throws OverloadedException if too many requests are in progress
+     */
+    public Admission admit( )
+    {
+        if ( !settings.isEnabled( ) )
+        {
+            served.increment( );
+            return new Admission( false, false );
+        }
+        int requests = inFlight.incrementAndGet( );
+        if ( requests > settings.getMaxConcurrent( ) )
+        {
+            inFlight.decrementAndGet( );
+            rejected.increment( );
+            throw new OverloadedException( endpoint + " overloaded, " + settings.getMaxConcurrent( ) + " requests in progress",
+                    settings.getRetryAfter( ) );
+        }
+        boolean degrade = requests > settings.getDegradeConcurrency( )
+                || getRecentLatencyNanos( ) > settings.getLatencyThreshold( ).toNanos( )
+                || dependencySaturated.getAsBoolean( );
+        ( degrade ? degraded : served ).increment( );
+        return new Admission( degrade, true );
+    }
+
+
+    /**
+     * Retrieves the load and the decisions of the guard.
+     *
+     * @return the statistics of the guard
+     */
+    public OverloadGuardStatsDTO getStats( )
+    {
+        OverloadGuardStatsDTO stats = new OverloadGuardStatsDTO( );
+        stats.setEndpoint( endpoint );
+        stats.setInFlight( inFlight.get( ) );
+        stats.setLatencyMillis( Math.max( 0, getRecentLatencyNanos( ) ) / 1e6 );
+        stats.setServed( served.sum( ) );
+        stats.setDegraded( degraded.sum( ) );
+        stats.setRejected( rejected.sum( ) );
+        return stats;
+    }
+
+
+    private synchronized double getRecentLatencyNanos( )
+    {
+        return System.nanoTime( ) - lastLatencySample > settings.getLatencyWindow( ).toNanos( ) ? -1 : recentLatencyNanos;
+    }
+
+
+    private synchronized void recordLatency( long latencyNanos )
+    {
+        long now = System.nanoTime( );
+        boolean stale = recentLatencyNanos < 0 || now - lastLatencySample > settings.getLatencyWindow( ).toNanos( );
+        recentLatencyNanos = stale ? latencyNanos : recentLatencyNanos + RECENT_LATENCY_WEIGHT * ( latencyNanos - recentLatencyNanos );
+        lastLatencySample = now;
+    }
+
+
+    /**
+     * An admitted request, releasing its place once closed. Its latency is measured if it was marked succeeded before
+     * being closed, or if it took longer than the latency threshold anyway.
+     */
+    public class Admission implements AutoCloseable
+    {
+        @Getter
+        private final boolean degraded;
+        private final boolean counted;
+        private final long start = System.nanoTime( );
+        private boolean succeeded;
+        private boolean closed;
+
+
+        private Admission( boolean degraded, boolean counted )
+        {
+            this.degraded = degraded;
+            this.counted = counted;
+        }
+
+
+        /**
+         * Marks the request as served in full, so that its latency counts in the recent latency.
+         */
+        public void succeeded( )
+        {
+            succeeded = true;
+        }
+
+
+        @Override
+        public void close( )
+        {
+            if ( closed || !counted )
+            {
+                return;
+            }
+            closed = true;
+            inFlight.decrementAndGet( );
+            long latencyNanos = System.nanoTime( ) - start;
+            if ( !degraded && ( succeeded || latencyNanos >= settings.getLatencyThreshold( ).toNanos( ) ) )
+            {
+                recordLatency( latencyNanos );
+            }
+        }
+    }
+}
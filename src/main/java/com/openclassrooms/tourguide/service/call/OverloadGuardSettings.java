@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Policy of an {@link OverloadGuard}, one per guarded endpoint.
+ */
+@Data
+public class OverloadGuardSettings
+{
+    private boolean  enabled            = true;
+    // Requests in progress beyond which new ones are rejected
+    private int      maxConcurrent      = 200;
+    // Requests in progress beyond which new ones are served degraded
+    private int      degradeConcurrency = 50;
+    // Recent latency of the full requests beyond which new ones are served degraded
+    private Duration latencyThreshold   = Duration.ofSeconds( 1 );
+    // Age beyond which the recent latency is ignored, so that full requests probe the dependencies again
+    private Duration latencyWindow      = Duration.ofSeconds( 5 );
+    // Delay advised to the rejected clients before retrying
+    private Duration retryAfter         = Duration.ofSeconds( 1 );
+}
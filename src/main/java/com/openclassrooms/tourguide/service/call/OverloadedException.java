@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.service.call;
+
+import java.time.Duration;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a request is rejected by an {@link OverloadGuard}, or cannot be served degraded.
+ */
+public class OverloadedException extends RuntimeException
+{
+    // Delay advised to the client before retrying
+    @Getter
+    private final Duration retryAfter;
+
+
+    public OverloadedException( String message, Duration retryAfter )
+    {
+        super( message );
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.service.feed;
+
+import java.io.IOException;
+
+import com.openclassrooms.tourguide.domain.dto.UserFeedUpdateDTO;
+
+/**
+ * Sends the updates of a {@link FeedSubscription} to its client, one at a time.
+ */
+@FunctionalInterface
+public interface FeedSink
+{
+    /**
+     * @param update the update to send
+     * @throws IOException if the client is gone, which ends the subscription
+     */
+    void send( UserFeedUpdateDTO update ) throws IOException;
+
+    /**
+     * Called once the subscription was dropped because a send stalled, after that send returned.
+     */
+    default void close( )
+    {
+    }
+}
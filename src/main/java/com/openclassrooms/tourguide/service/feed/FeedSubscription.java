@@ -0,0 +1,314 @@
+package com.openclassrooms.tourguide.service.feed;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.UserFeedUpdateDTO;
+import gpsUtil.location.VisitedLocation;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A subscription to the live feed of some users, or of all users.
+ *
+ * <p>Changes are conflated per user: a change to a user whose previous update is not sent yet is merged into it,
+ * the latest location replacing the previous one and the rewards being appended. A subscription thus holds at most
+ * one pending update per user, however slow its client. Offering a change never waits for the client: the pending
+ * updates are sent by a delivery task on the given executor, a single one running at a time per subscription. A
+ * delivery task sends at most {@code maxUpdatesPerTurn} updates, then goes back to the executor's queue, so that a
+ * busy subscription does not keep a delivery thread from the others. A send stalled for too long is abandoned
+ * through {@link #abortIfStalled( long )}.</p>
+ */
+public class FeedSubscription
+{
+    private static final Logger logger = LoggerFactory.getLogger( FeedSubscription.class );
+    private static final int DEFAULT_MAX_UPDATES_PER_TURN = 64;
+
+    // Null for all users
+    private final Set<UUID> userIds;
+    private final FeedSink sink;
+    private final Executor deliveryExecutor;
+    private final Consumer<FeedSubscription> onClose;
+    private final int maxUpdatesPerTurn;
+    private final Map<UUID, UserFeedUpdateDTO> pending = new ConcurrentHashMap<>( );
+    // Users with a pending update, in the order they changed; each user is queued once until sent
+    private final Queue<UUID> changedUsers = new ConcurrentLinkedQueue<>( );
+    private final AtomicBoolean delivering = new AtomicBoolean( );
+    private final AtomicBoolean closed = new AtomicBoolean( );
+    private final LongAdder sent = new LongAdder( );
+    private final LongAdder conflated = new LongAdder( );
+    @Getter
+    private final UUID id = UUID.randomUUID( );
+    // The thread sending an update and when it started, guarded by this
+    private Thread sender;
+    private long sendStartNanos;
+    private boolean stalled;
+
+
+    /**
+     * @param userIds          the users followed, or {@code null} to follow all users
+     * @param sink             the client of the subscription
+     * @param deliveryExecutor the executor sending the updates to the client
+     * @param onClose          called once when the subscription is closed
+     */
+    public FeedSubscription( Set<UUID> userIds, FeedSink sink, Executor deliveryExecutor, Consumer<FeedSubscription> onClose )
+    {
+        this( userIds, sink, deliveryExecutor, onClose, DEFAULT_MAX_UPDATES_PER_TURN );
+    }
+
+
+    /**
+     * @param userIds           the users followed, or {@code null} to follow all users
+     * @param sink              the client of the subscription
+     * @param deliveryExecutor  the executor sending the updates to the client
+     * @param onClose           called once when the subscription is closed
+     * @param maxUpdatesPerTurn the updates sent before the delivery task yields its thread
+     */
+    public FeedSubscription( Set<UUID> userIds, FeedSink sink, Executor deliveryExecutor, Consumer<FeedSubscription> onClose,
+                             int maxUpdatesPerTurn )
+    {
+        this.userIds = userIds == null ? null : Set.copyOf( userIds );
+        this.sink = sink;
+        this.deliveryExecutor = deliveryExecutor;
+        this.onClose = onClose;
+        this.maxUpdatesPerTurn = maxUpdatesPerTurn;
+    }
+
+
+    /**
+     * Offers a new location of a user.
+     *
+     * @param user            the located user
+     * @param visitedLocation the user's new location
+     */
+    public void offerLocation( User user, VisitedLocation visitedLocation )
+    {
+        offer( user, update -> update.setLocation( visitedLocation ) );
+    }
+
+
+    /**
+     * Offers a new reward of a user.
+     *
+     * @param user                   the rewarded user
+     * @param reward                 the reward, with its settled points
+     * @param cumulativeRewardPoints the cumulative points of the user once this reward was counted
+     */
+    public void offerReward( User user, UserReward reward, int cumulativeRewardPoints )
+    {
+        offer( user, update -> {
+            update.getRewards( ).add( reward );
+            // Rewards settle out of order, while the cumulative points only grow
+            if ( update.getCumulativeRewardPoints( ) == null || update.getCumulativeRewardPoints( ) < cumulativeRewardPoints )
+            {
+                update.setCumulativeRewardPoints( cumulativeRewardPoints );
+            }
+        } );
+    }
+
+
+    /**
+     * Closes the subscription, dropping its pending updates.
+     */
+    public void close( )
+    {
+        if ( closed.compareAndSet( false, true ) )
+        {
+            pending.clear( );
+            changedUsers.clear( );
+            onClose.accept( this );
+        }
+    }
+
+
+    public boolean isClosed( )
+    {
+        return closed.get( );
+    }
+
+
+    /**
+     * Closes the subscription if an update has been sending for longer than a timeout, and interrupts the thread
+     * sending it. The sink is closed once that send returns.
+     *
+     * @param timeoutNanos the time a send may take
+     * @return {@code true} if the send stalled and the subscription was closed
+     */
+    public boolean abortIfStalled( long timeoutNanos )
+    {
+        synchronized ( this )
+        {
+            if ( sender == null || stalled || System.nanoTime( ) - sendStartNanos < timeoutNanos )
+            {
+                return false;
+            }
+            stalled = true;
+            sender.interrupt( );
+        }
+        logger.debug( "Feed subscription {} closed: send stalled", id );
+        close( );
+        return true;
+    }
+
+
+    /**
+     * @return {@code true} while an update is being sent
+     */
+    public synchronized boolean isSending( )
+    {
+        return sender != null;
+    }
+
+
+    /**
+     * @return the number of updates sent to the client
+     */
+    public long getSent( )
+    {
+        return sent.sum( );
+    }
+
+
+    /**
+     * @return the number of changes merged into a pending update rather than sent on their own
+     */
+    public long getConflated( )
+    {
+        return conflated.sum( );
+    }
+
+
+    private void offer( User user, Consumer<UserFeedUpdateDTO> change )
+    {
+        UUID userId = user.getUserId( );
+        if ( closed.get( ) || ( userIds != null && !userIds.contains( userId ) ) )
+        {
+            return;
+        }
+
+        boolean[] created = new boolean[ 1 ];
+        pending.compute( userId, ( key, update ) -> {
+            if ( update == null )
+            {
+                update = new UserFeedUpdateDTO( );
+                update.setUserId( userId );
+                update.setUserName( user.getUserName( ) );
+                created[ 0 ] = true;
+            } else
+            {
+                update.setConflated( update.getConflated( ) + 1 );
+                conflated.increment( );
+            }
+            change.accept( update );
+            return update;
+        } );
+        if ( created[ 0 ] )
+        {
+            changedUsers.add( userId );
+            scheduleDelivery( );
+        }
+    }
+
+
+    private void scheduleDelivery( )
+    {
+        if ( delivering.compareAndSet( false, true ) )
+        {
+            try
+            {
+                deliveryExecutor.execute( this::deliver );
+            } catch ( RejectedExecutionException e )
+            {
+                delivering.set( false );
+                close( );
+            }
+        }
+    }
+
+
+    private void deliver( )
+    {
+        int turnUpdates = 0;
+        do
+        {
+            UUID userId;
+            while ( !closed.get( ) && turnUpdates < maxUpdatesPerTurn && ( userId = changedUsers.poll( ) ) != null )
+            {
+                // Removed before sending, so that the changes arriving meanwhile make a new update
+                UserFeedUpdateDTO update = pending.remove( userId );
+                if ( update == null )
+                {
+                    continue;
+                }
+                turnUpdates++;
+                send( update );
+            }
+            if ( !closed.get( ) && turnUpdates >= maxUpdatesPerTurn && !changedUsers.isEmpty( ) )
+            {
+                // Still delivering, from the back of the executor's queue
+                try
+                {
+                    deliveryExecutor.execute( this::deliver );
+                } catch ( RejectedExecutionException e )
+                {
+                    delivering.set( false );
+                    close( );
+                }
+                return;
+            }
+            delivering.set( false );
+            // A user may have been queued after the queue was found empty, but before the flag was cleared
+        } while ( !closed.get( ) && !changedUsers.isEmpty( ) && delivering.compareAndSet( false, true ) );
+    }
+
+
+    private void send( UserFeedUpdateDTO update )
+    {
+        synchronized ( this )
+        {
+            sender = Thread.currentThread( );
+            sendStartNanos = System.nanoTime( );
+        }
+        boolean aborted;
+        try
+        {
+            sink.send( update );
+            sent.increment( );
+        } catch ( IOException | RuntimeException e )
+        {
+            logger.debug( "Feed subscription {} closed: {}", id, e.getMessage( ) );
+            close( );
+        } finally
+        {
+            synchronized ( this )
+            {
+                sender = null;
+                aborted = stalled;
+                if ( stalled )
+                {
+                    // The interrupt was only meant to stop the stalled send
+                    Thread.interrupted( );
+                }
+            }
+        }
+        if ( aborted )
+        {
+            // The watchdog may not have closed the subscription yet, and its client must not outlive it
+            close( );
+            sink.close( );
+        }
+    }
+}
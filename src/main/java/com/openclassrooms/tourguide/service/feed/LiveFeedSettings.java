@@ -0,0 +1,23 @@
+package com.openclassrooms.tourguide.service.feed;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the live location and reward feed, bound to the {@code tourguide.live-feed} properties.
+ */
+@Data
+public class LiveFeedSettings
+{
+    // Subscriptions open at once, further ones being refused
+    private int      maxSubscribers    = 1000;
+    // Threads sending the updates to the subscribers, each one sending to a single subscriber at a time
+    private int      deliveryThreads   = 4;
+    // Lifetime of a subscription, after which the client subscribes again
+    private Duration timeout           = Duration.ofMinutes( 30 );
+    // Updates sent to a subscriber before its delivery thread moves on to the other subscribers
+    private int      maxUpdatesPerTurn = 64;
+    // Time a single send may take before its subscriber is dropped, and its delivery thread replaced
+    private Duration sendTimeout       = Duration.ofSeconds( 10 );
+}
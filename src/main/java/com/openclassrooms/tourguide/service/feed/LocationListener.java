@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.service.feed;
+
+import com.openclassrooms.tourguide.domain.User;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Receives the locations tracked by the {@code UserService}.
+ *
+ * <p>Listeners are called within the serial executor of the user, so the locations of a user are received one at a
+ * time and in order; they must not block.</p>
+ */
+@FunctionalInterface
+public interface LocationListener
+{
+    /**
+     * @param user            the located user
+     * @param visitedLocation the user's new location
+     */
+    void onLocationRecorded( User user, VisitedLocation visitedLocation );
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning a single call to an external library: a hedged call records one event per attempt.
+ */
+@Name( "tourguide.ExternalCall" )
+@Label( "External Call" )
+@Description( "Call to gpsUtil, rewardCentral or tripPricer" )
+@Category( { "TourGuide", "External Calls" } )
+@StackTrace( false )
+public class ExternalCallEvent extends Event
+{
+    @Label( "Library" )
+    public String library;
+
+    @Label( "Operation" )
+    public String operation;
+
+    @Label( "User Id" )
+    public String userId;
+
+    @Label( "Succeeded" )
+    public boolean succeeded;
+
+
+    /**
+     * Calls an external library, recording the call.
+     *
+     * @param library   the name of the library
+     * @param operation the name of the operation called
+     * @param userId    the user the call is made for, or {@code null}
+     * @param call      the call
+     * @param <T>       the type of the result
+     * @return the result of the call
+     */
+    public static <T> T record( String library, String operation, UUID userId, Supplier<T> call )
+    {
+        ExternalCallEvent event = new ExternalCallEvent( );
+        event.begin( );
+        try
+        {
+            T result = call.get( );
+            event.succeeded = true;
+            return result;
+        } finally
+        {
+            event.end( );
+            if ( event.shouldCommit( ) )
+            {
+                event.library = library;
+                event.operation = operation;
+                event.userId = userId != null ? userId.toString( ) : null;
+                event.commit( );
+            }
+        }
+    }
+}
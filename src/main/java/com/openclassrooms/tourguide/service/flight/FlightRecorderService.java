@@ -0,0 +1,135 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.openclassrooms.tourguide.domain.dto.FlightRecordingDumpDTO;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code FlightRecorderService} class keeps a continuous Java Flight Recorder recording of the JDK default events
+ * and of the TourGuide events ({@link TrackerCycleEvent}, {@link LocationTrackedEvent}, {@link RewardEvaluationEvent}
+ * and {@link ExternalCallEvent}), so that a latency spike can be diagnosed after the fact.
+ *
+ * <p>The recording keeps the data of the last {@code maxAge}, within {@code maxSizeBytes}, and is written to disk
+ * only when dumped, e.g. through the {@code flightrecording} actuator endpoint.</p>
+ */
+@Service
+public class FlightRecorderService implements DisposableBean
+{
+    private static final DateTimeFormatter DUMP_NAME = DateTimeFormatter.ofPattern( "'tourguide-'yyyyMMdd-HHmmss-SSS'.jfr'" )
+            .withZone( ZoneOffset.UTC );
+
+    private Logger logger = LoggerFactory.getLogger( FlightRecorderService.class );
+
+    private final FlightRecorderSettings settings;
+    private final Recording recording;
+
+
+    public FlightRecorderService( )
+    {
+        this( new FlightRecorderSettings( ) );
+    }
+
+
+    @Autowired
+    public FlightRecorderService( FlightRecorderSettings settings )
+    {
+        this.settings = settings;
+        this.recording = settings.isEnabled( ) ? startRecording( ) : null;
+    }
+
+
+    public boolean isRecording( )
+    {
+        return recording != null && recording.getState( ) == RecordingState.RUNNING;
+    }
+
+
+    /**
+     * Dumps the data of the continuous recording to a new file of the dump directory.
+     *
+     * @return the file written and the time span it covers
+     * @throws IllegalStateException if the recording is not running
+     */
+    public FlightRecordingDumpDTO dump( )
+    {
+        if ( !isRecording( ) )
+        {
+            throw new IllegalStateException( "The flight recorder is not recording, see tourguide.flight-recorder.enabled" );
+        }
+        try
+        {
+            Path directory = Files.createDirectories( Path.of( settings.getDumpDirectory( ) ) );
+            Path file = directory.resolve( DUMP_NAME.format( Instant.now( ) ) ).toAbsolutePath( );
+            // The copy only holds the data recorded so far, so that the continuous recording is not stopped
+            try ( Recording copy = recording.copy( true ) )
+            {
+                copy.dump( file );
+                FlightRecordingDumpDTO dump = new FlightRecordingDumpDTO( );
+                dump.setPath( file.toString( ) );
+                dump.setSizeBytes( Files.size( file ) );
+                dump.setStartTime( copy.getStartTime( ) );
+                dump.setEndTime( copy.getStopTime( ) );
+                logger.info( "Flight recording dumped to {}", file );
+                return dump;
+            }
+        } catch ( IOException e )
+        {
+            throw new UncheckedIOException( "Failed to dump the flight recording", e );
+        }
+    }
+
+
+    @Override
+    public void destroy( )
+    {
+        if ( recording != null )
+        {
+            recording.close( );
+        }
+    }
+
+
+    private Recording startRecording( )
+    {
+        Map<String, String> eventSettings = new HashMap<>( );
+        try ( Reader reader = new InputStreamReader( new DefaultResourceLoader( ).getResource( settings.getSettings( ) ).getInputStream( ),
+                StandardCharsets.UTF_8 ) )
+        {
+            eventSettings.putAll( Configuration.getConfiguration( "default" ).getSettings( ) );
+            eventSettings.putAll( Configuration.create( reader ).getSettings( ) );
+        } catch ( IOException | ParseException e )
+        {
+            throw new IllegalStateException( "Failed to read the flight recorder settings " + settings.getSettings( ), e );
+        }
+
+        Recording continuous = new Recording( eventSettings );
+        continuous.setName( "tourguide-continuous" );
+        continuous.setToDisk( true );
+        continuous.setMaxAge( settings.getMaxAge( ) );
+        continuous.setMaxSize( settings.getMaxSizeBytes( ) );
+        continuous.start( );
+        logger.info( "Continuous flight recording started, keeping the last {}", settings.getMaxAge( ) );
+        return continuous;
+    }
+}
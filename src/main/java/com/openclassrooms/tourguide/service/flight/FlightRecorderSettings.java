@@ -0,0 +1,20 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the continuous flight recording, bound to the {@code tourguide.flight-recorder} properties.
+ */
+@Data
+public class FlightRecorderSettings
+{
+    private boolean  enabled       = false;
+    // Settings recorded along with the JDK default ones, from the classpath or the file system
+    private String   settings      = "classpath:flight/tourguide.jfc";
+    // Oldest and largest data kept by the recording, older chunks being discarded
+    private Duration maxAge        = Duration.ofMinutes( 30 );
+    private long     maxSizeBytes  = 256L * 1024 * 1024;
+    private String   dumpDirectory = "recordings";
+}
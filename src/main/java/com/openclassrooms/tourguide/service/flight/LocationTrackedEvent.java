@@ -0,0 +1,33 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning the tracking of a user's location: the location fetch, then its recording and the
+ * reward evaluation.
+ */
+@Name( "tourguide.LocationTracked" )
+@Label( "Location Tracked" )
+@Description( "Fetch of a user's location, and evaluation of the rewards it earns" )
+@Category( { "TourGuide", "Tracking" } )
+@StackTrace( false )
+public class LocationTrackedEvent extends Event
+{
+    @Label( "User Id" )
+    public String userId;
+
+    @Label( "Latitude" )
+    public double latitude;
+
+    @Label( "Longitude" )
+    public double longitude;
+
+    @Label( "Fetch Nanos" )
+    @Description( "Part of the duration spent fetching the location" )
+    public long fetchNanos;
+}
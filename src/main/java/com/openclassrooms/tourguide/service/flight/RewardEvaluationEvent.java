@@ -0,0 +1,32 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning the evaluation of a user's new visited locations against the attraction fences.
+ */
+@Name( "tourguide.RewardEvaluation" )
+@Label( "Reward Evaluation" )
+@Description( "Evaluation of a user's new visited locations against the attraction fences" )
+@Category( { "TourGuide", "Rewards" } )
+@StackTrace( false )
+public class RewardEvaluationEvent extends Event
+{
+    @Label( "User Id" )
+    public String userId;
+
+    @Label( "Locations Scanned" )
+    public int locationsScanned;
+
+    @Label( "Attractions Scanned" )
+    @Description( "Attraction fences tested against the locations" )
+    public int attractionsScanned;
+
+    @Label( "Rewards Created" )
+    public int rewardsCreated;
+}
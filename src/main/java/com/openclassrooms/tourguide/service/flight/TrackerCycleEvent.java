@@ -0,0 +1,25 @@
+package com.openclassrooms.tourguide.service.flight;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning a cycle of the {@code Tracker}.
+ */
+@Name( "tourguide.TrackerCycle" )
+@Label( "Tracker Cycle" )
+@Description( "Tracking of the users due in a cycle of the tracker" )
+@Category( { "TourGuide", "Tracking" } )
+@StackTrace( false )
+public class TrackerCycleEvent extends Event
+{
+    @Label( "Owned Users" )
+    public int ownedUsers;
+
+    @Label( "Tracked Users" )
+    public int trackedUsers;
+}
@@ -0,0 +1,86 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable distances between every pair of attractions of a catalog, computed once per catalog.
+ *
+ * <p>Distances are symmetric, so only the upper triangle is stored, packed in a {@code float} array of
+ * {@code n (n - 1) / 2} entries: a float is precise to a few feet over the distances between attractions.</p>
+ */
+public class AttractionDistanceMatrix
+{
+    private final List<Attraction> attractions;
+    private final Map<String, Integer> indexes = new HashMap<>( );
+    private final float[] distances;
+
+
+    public AttractionDistanceMatrix( List<Attraction> attractions, ToDoubleBiFunction<Location, Location> distance )
+    {
+        this.attractions = List.copyOf( attractions );
+        int size = this.attractions.size( );
+        this.distances = new float[ size * ( size - 1 ) / 2 ];
+        for ( int i = 0; i < size; i++ )
+        {
+            indexes.putIfAbsent( this.attractions.get( i ).attractionName, i );
+            for ( int j = i + 1; j < size; j++ )
+            {
+                double miles = distance.applyAsDouble( this.attractions.get( i ), this.attractions.get( j ) );
+                // Attractions at the same place can give NaN, rounding taking the cosine of their angle past 1
+                distances[ offset( i, j ) ] = Double.isNaN( miles ) ? 0 : (float) miles;
+            }
+        }
+    }
+
+
+    public int size( )
+    {
+        return attractions.size( );
+    }
+
+    public Attraction getAttraction( int index )
+    {
+        return attractions.get( index );
+    }
+
+    /**
+     * Retrieves the index of an attraction by name.
+     *
+     * @param attractionName the name of the attraction
+     * @return the index of the attraction, or -1 if the catalog has none of that name
+     */
+    public int indexOf( String attractionName )
+    {
+        return indexes.getOrDefault( attractionName, -1 );
+    }
+
+    /**
+     * Retrieves the distance between two attractions.
+     *
+     * @param i the index of the first attraction
+     * @param j the index of the second attraction
+     * @return the distance in statute miles
+     */
+    public double getDistance( int i, int j )
+    {
+        if ( i == j )
+        {
+            return 0;
+        }
+        return i < j ? distances[ offset( i, j ) ] : distances[ offset( j, i ) ];
+    }
+
+
+    // Row i of the upper triangle starts after the n - 1 + n - 2 + ... + n - i entries of the previous rows
+    private int offset( int i, int j )
+    {
+        int size = attractions.size( );
+        return i * ( 2 * size - i - 1 ) / 2 + j - i - 1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleBiFunction;
+
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * Immutable index of attractions sorted by latitude, answering radius queries without measuring the distance to
+ * every attraction.
+ *
+ * <p>A radius of {@code r} miles spans {@code r / MILES_PER_DEGREE} degrees of latitude, so a binary search delimits
+ * the attractions of the latitude band, whose longitudes are then checked against the widest longitude span of the
+ * band. Only the remaining attractions have their exact distance computed.</p>
+ */
+public class AttractionRangeIndex
+{
+    private final Attraction[] attractions;
+    private final double[] latitudes;
+
+
+    public AttractionRangeIndex( List<Attraction> attractions )
+    {
+        this.attractions = attractions.stream( )
+                .sorted( Comparator.comparingDouble( attraction -> attraction.latitude ) )
+                .toArray( Attraction[]::new );
+        this.latitudes = Arrays.stream( this.attractions ).mapToDouble( attraction -> attraction.latitude ).toArray( );
+    }
+
+
+    /**
+     * Retrieves the attractions within a radius of a location, with their distance.
+     *
+     * @param location    the center of the search
+     * @param radiusMiles the radius of the search in statute miles
+     * @param distance    the distance function, in statute miles
+     * @return the attractions within the radius, by increasing distance
+     */
+    public List<Map.Entry<Attraction, Double>> getAttractionsWithin( Location location, double radiusMiles,
+                                                                     ToDoubleBiFunction<Location, Location> distance )
+    {
+        double latitudeSpan = radiusMiles / GeoGrid.MILES_PER_DEGREE;
+        double farthestLatitude = Math.abs( location.latitude ) + latitudeSpan;
+        double longitudeSpan = farthestLatitude < 90
+                ? latitudeSpan / Math.cos( Math.toRadians( farthestLatitude ) )
+                : Double.POSITIVE_INFINITY;
+
+        List<Map.Entry<Attraction, Double>> within = new ArrayList<>( );
+        for ( int i = lowerBound( location.latitude - latitudeSpan ); i < attractions.length && latitudes[ i ] <= location.latitude + latitudeSpan; i++ )
+        {
+            Attraction attraction = attractions[ i ];
+            if ( longitudeDelta( attraction.longitude, location.longitude ) > longitudeSpan )
+            {
+                continue;
+            }
+            double miles = distance.applyAsDouble( attraction, location );
+            if ( miles <= radiusMiles )
+            {
+                within.add( Map.entry( attraction, miles ) );
+            }
+        }
+        within.sort( Map.Entry.comparingByValue( ) );
+        return within;
+    }
+
+
+    public int size( )
+    {
+        return attractions.length;
+    }
+
+
+    // Index of the first attraction whose latitude is at least the given one
+    private int lowerBound( double latitude )
+    {
+        int low = 0;
+        int high = latitudes.length;
+        while ( low < high )
+        {
+            int middle = ( low + high ) >>> 1;
+            if ( latitudes[ middle ] < latitude )
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    // Difference of two longitudes, wrapping around the antimeridian
+    private static double longitudeDelta( double longitude1, double longitude2 )
+    {
+        double delta = Math.abs( longitude1 - longitude2 ) % 360;
+        return delta > 180 ? 360 - delta : delta;
+    }
+}
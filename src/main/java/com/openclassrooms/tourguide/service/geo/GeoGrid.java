@@ -0,0 +1,176 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gpsUtil.location.Location;
+import lombok.Getter;
+
+/**
+ * The {@code GeoGrid} class splits the earth into square cells of a fixed size in degrees, so that locations can be
+ * bucketed and looked up by cell instead of being compared against every known location.
+ *
+ * <p>Each cell is identified by a {@code long} key packing its row (latitude band) and its column (longitude band).
+ * Columns wrap around the antimeridian.</p>
+ */
+public class GeoGrid
+{
+    // Same earth model as LocationService.getDistance: 60 nautical miles per degree of arc
+    public static final double MILES_PER_DEGREE = 60 * 1.15077945;
+
+    private static final double MIN_CELL_SIZE_IN_DEGREES = 0.01;
+    private static final double MAX_CELL_SIZE_IN_DEGREES = 10;
+
+    @Getter
+    private final double cellSizeInDegrees;
+    private final int rows;
+    private final int columns;
+
+
+    public GeoGrid( double cellSizeInDegrees )
+    {
+        this.cellSizeInDegrees = Math.max( MIN_CELL_SIZE_IN_DEGREES, Math.min( MAX_CELL_SIZE_IN_DEGREES, cellSizeInDegrees ) );
+        this.rows = (int) Math.ceil( 180 / this.cellSizeInDegrees );
+        this.columns = (int) Math.ceil( 360 / this.cellSizeInDegrees );
+    }
+
+
+    /**
+     * Creates a grid whose cells are about the given number of miles high.
+     *
+     * @param cellSizeInMiles the height of a cell in statute miles
+     * @return a new {@link GeoGrid}
+     */
+    public static GeoGrid ofMiles( double cellSizeInMiles )
+    {
+        return new GeoGrid( cellSizeInMiles / MILES_PER_DEGREE );
+    }
+
+
+    /**
+     * Retrieves the key of the cell containing the given location.
+     *
+     * @param location the location to bucket
+     * @return the key of the cell containing the location
+     */
+    public long getCellKey( Location location )
+    {
+        return toKey( getRow( location.latitude ), getColumn( location.longitude ) );
+    }
+
+
+    /**
+     * Retrieves the keys of all the cells intersecting the bounding box of a circle.
+     *
+     * @param center      the center of the circle
+     * @param radiusMiles the radius of the circle in statute miles
+     * @return the keys of the cells that may contain a point of the circle
+     */
+    public List<Long> getCellKeysWithin( Location center, double radiusMiles )
+    {
+        double latitudeSpan = radiusMiles / MILES_PER_DEGREE;
+        int firstRow = getRow( center.latitude - latitudeSpan );
+        int lastRow = getRow( center.latitude + latitudeSpan );
+
+        int firstColumn = 0;
+        int columnCount = columns;
+        double farthestLatitude = Math.abs( center.latitude ) + latitudeSpan;
+        if ( farthestLatitude < 90 )
+        {
+            double longitudeSpan = latitudeSpan / Math.cos( Math.toRadians( farthestLatitude ) );
+            if ( longitudeSpan < 180 )
+            {
+                firstColumn = getColumn( center.longitude - longitudeSpan );
+                columnCount = Math.min( columns, Math.floorMod( getColumn( center.longitude + longitudeSpan ) - firstColumn, columns ) + 1 );
+            }
+        }
+
+        List<Long> cellKeys = new ArrayList<>( ( lastRow - firstRow + 1 ) * columnCount );
+        for ( int row = firstRow; row <= lastRow; row++ )
+        {
+            for ( int i = 0; i < columnCount; i++ )
+            {
+                cellKeys.add( toKey( row, ( firstColumn + i ) % columns ) );
+            }
+        }
+        return cellKeys;
+    }
+
+
+    /**
+     * Counts the cells {@link #getCellKeysWithin(Location, double)} would return, without building them.
+     *
+     * @param center      the center of the circle
+     * @param radiusMiles the radius of the circle in statute miles
+     * @return the number of cells intersecting the bounding box of the circle
+     */
+    public long countCellsWithin( Location center, double radiusMiles )
+    {
+        double latitudeSpan = radiusMiles / MILES_PER_DEGREE;
+        long rowCount = getRow( center.latitude + latitudeSpan ) - getRow( center.latitude - latitudeSpan ) + 1L;
+        double farthestLatitude = Math.abs( center.latitude ) + latitudeSpan;
+        if ( farthestLatitude >= 90 )
+        {
+            return rowCount * columns;
+        }
+        double longitudeSpan = latitudeSpan / Math.cos( Math.toRadians( farthestLatitude ) );
+        return rowCount * Math.min( columns, (long) Math.ceil( 2 * longitudeSpan / cellSizeInDegrees ) + 1 );
+    }
+
+
+    /**
+     * Retrieves the center of a cell.
+     *
+     * @param cellKey the key of the cell
+     * @return the location at the middle of the cell, clamped to the poles
+     */
+    public Location getCellCenter( long cellKey )
+    {
+        double south = getSouth( cellKey );
+        double north = Math.min( 90, south + cellSizeInDegrees );
+        return new Location( ( south + north ) / 2, getWest( cellKey ) + cellSizeInDegrees / 2 );
+    }
+
+
+    /**
+     * Retrieves the four corners of a cell, the points of the cell farthest from its center.
+     *
+     * @param cellKey the key of the cell
+     * @return the south-west, south-east, north-west and north-east corners of the cell
+     */
+    public List<Location> getCellCorners( long cellKey )
+    {
+        double south = getSouth( cellKey );
+        double north = Math.min( 90, south + cellSizeInDegrees );
+        double west = getWest( cellKey );
+        double east = west + cellSizeInDegrees;
+        return List.of( new Location( south, west ), new Location( south, east ),
+                new Location( north, west ), new Location( north, east ) );
+    }
+
+
+    private double getSouth( long cellKey )
+    {
+        return (int) ( cellKey >>> 32 ) * cellSizeInDegrees - 90;
+    }
+
+    private double getWest( long cellKey )
+    {
+        return (int) cellKey * cellSizeInDegrees - 180;
+    }
+
+    private int getRow( double latitude )
+    {
+        return Math.max( 0, Math.min( rows - 1, (int) Math.floor( ( latitude + 90 ) / cellSizeInDegrees ) ) );
+    }
+
+    private int getColumn( double longitude )
+    {
+        return Math.floorMod( (int) Math.floor( ( longitude + 180 ) / cellSizeInDegrees ), columns );
+    }
+
+    private static long toKey( int row, int column )
+    {
+        return ( (long) row << 32 ) | column;
+    }
+}
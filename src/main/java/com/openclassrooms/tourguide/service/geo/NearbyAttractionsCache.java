@@ -0,0 +1,300 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleBiFunction;
+
+import com.openclassrooms.tourguide.domain.dto.NearbyAttractionsCacheStatsDTO;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+
+/**
+ * The {@code NearbyAttractionsCache} class answers "which attractions are closest to this location" by caching, for
+ * each {@link GeoGrid} cell, the few attractions that can be among the closest from anywhere in the cell.
+ *
+ * <p>For a cell of center {@code c} whose corners are at most {@code r} miles away, and {@code D} the distance from
+ * {@code c} to its n-th closest attraction, any location {@code p} of the cell has n attractions within {@code D + r}
+ * (triangle inequality), so its n closest attractions are all within {@code D + 2r} of {@code c}. Those candidates
+ * are cached, and only their exact distances to {@code p} are computed, which gives the same result as a full scan,
+ * including near cell borders.</p>
+ *
+ * <p>Radius queries, which do not depend on cells, are answered by the {@link AttractionRangeIndex} of the catalog,
+ * and the distances between attractions by its {@link AttractionDistanceMatrix}.</p>
+ *
+ * <p>The attraction catalog is snapshotted with a version, reloaded at the configured interval or on
+ * {@link #invalidate( )}; a change of its content increases the version and drops every cached cell.</p>
+ */
+public class NearbyAttractionsCache
+{
+    private final Supplier<List<Attraction>> catalogSource;
+    private final ToDoubleBiFunction<Location, Location> distance;
+    private final NearbyAttractionsSettings settings;
+    private final int resultSize;
+    private final GeoGrid grid;
+
+    private final Map<Long, CellCandidates> cells = new ConcurrentHashMap<>( );
+    private final ReentrantLock catalogLock = new ReentrantLock( );
+    private volatile Catalog catalog;
+    private volatile boolean reloadRequested = false;
+    private volatile VersionedMatrix distanceMatrix;
+
+    private final LongAdder hits       = new LongAdder( );
+    private final LongAdder misses     = new LongAdder( );
+    private final LongAdder hitNanos   = new LongAdder( );
+    private final LongAdder missNanos  = new LongAdder( );
+
+
+    public NearbyAttractionsCache( Supplier<List<Attraction>> catalogSource, ToDoubleBiFunction<Location, Location> distance,
+                                   NearbyAttractionsSettings settings, int resultSize )
+    {
+        this.catalogSource = catalogSource;
+        this.distance = distance;
+        this.settings = settings;
+        this.resultSize = resultSize;
+        this.grid = GeoGrid.ofMiles( settings.getCellSizeMiles( ) );
+    }
+
+
+    /**
+     * Retrieves the attractions closest to a location, with their distance.
+     *
+     * @param location the location to search from
+     * @return the closest attractions, by increasing distance
+     */
+    public List<Map.Entry<Attraction, Double>> getClosestAttractions( Location location )
+    {
+        long start = System.nanoTime( );
+        Catalog current = getCatalog( );
+        long cellKey = grid.getCellKey( location );
+        CellCandidates candidates = cells.get( cellKey );
+        boolean hit = candidates != null && candidates.catalogVersion == current.version;
+        if ( !hit )
+        {
+            candidates = computeCandidates( cellKey, current );
+            evictIfFull( );
+            cells.put( cellKey, candidates );
+        }
+
+        List<Map.Entry<Attraction, Double>> closest = new ArrayList<>( candidates.attractions.size( ) );
+        for ( Attraction attraction : candidates.attractions )
+        {
+            closest.add( Map.entry( attraction, distance.applyAsDouble( attraction, location ) ) );
+        }
+        closest.sort( Map.Entry.comparingByValue( ) );
+        List<Map.Entry<Attraction, Double>> result = closest.subList( 0, Math.min( resultSize, closest.size( ) ) );
+
+        long elapsed = System.nanoTime( ) - start;
+        ( hit ? hits : misses ).increment( );
+        ( hit ? hitNanos : missNanos ).add( elapsed );
+        return result;
+    }
+
+
+    /**
+     * Retrieves the attractions within a radius of a location, with their distance.
+     *
+     * @param location    the center of the search
+     * @param radiusMiles the radius of the search in statute miles
+     * @return the attractions within the radius, by increasing distance
+     */
+    public List<Map.Entry<Attraction, Double>> getAttractionsWithin( Location location, double radiusMiles )
+    {
+        return getCatalog( ).rangeIndex.getAttractionsWithin( location, radiusMiles, distance );
+    }
+
+
+    /**
+     * Retrieves the current snapshot of the attraction catalog.
+     *
+     * @return the attractions of the catalog
+     */
+    public List<Attraction> getAttractions( )
+    {
+        return getCatalog( ).attractions;
+    }
+
+
+    /**
+     * Retrieves the distances between the attractions of the current catalog snapshot. The matrix is computed on
+     * first use, then again only once the catalog changed.
+     *
+     * @return the distance matrix of the catalog
+     */
+    public AttractionDistanceMatrix getDistanceMatrix( )
+    {
+        Catalog current = getCatalog( );
+        VersionedMatrix matrix = distanceMatrix;
+        if ( matrix == null || matrix.catalogVersion( ) < current.version )
+        {
+            synchronized ( this )
+            {
+                matrix = distanceMatrix;
+                if ( matrix == null || matrix.catalogVersion( ) < current.version )
+                {
+                    matrix = new VersionedMatrix( current.version, new AttractionDistanceMatrix( current.attractions, distance ) );
+                    distanceMatrix = matrix;
+                }
+            }
+        }
+        return matrix.matrix( );
+    }
+
+
+    /**
+     * Forces the catalog to be reloaded at the next lookup.
+     */
+    public void invalidate( )
+    {
+        reloadRequested = true;
+    }
+
+
+    public NearbyAttractionsCacheStatsDTO getStats( )
+    {
+        long hitCount = hits.sum( );
+        long missCount = misses.sum( );
+        double averageHitNanos = hitCount == 0 ? 0 : hitNanos.sum( ) / (double) hitCount;
+        double averageMissNanos = missCount == 0 ? 0 : missNanos.sum( ) / (double) missCount;
+        Catalog current = catalog;
+
+        NearbyAttractionsCacheStatsDTO stats = new NearbyAttractionsCacheStatsDTO( );
+        stats.setCatalogVersion( current != null ? current.version : 0 );
+        stats.setCachedCells( cells.size( ) );
+        stats.setHits( hitCount );
+        stats.setMisses( missCount );
+        stats.setHitRate( hitCount + missCount == 0 ? 0 : hitCount / (double) ( hitCount + missCount ) );
+        stats.setAverageHitMicros( averageHitNanos / 1e3 );
+        stats.setAverageMissMicros( averageMissNanos / 1e3 );
+        stats.setEstimatedSavedMillis( Math.max( 0, averageMissNanos - averageHitNanos ) * hitCount / 1e6 );
+        return stats;
+    }
+
+
+    private CellCandidates computeCandidates( long cellKey, Catalog current )
+    {
+        Location center = grid.getCellCenter( cellKey );
+        double cellRadius = grid.getCellCorners( cellKey ).stream( )
+                .mapToDouble( corner -> distance.applyAsDouble( center, corner ) )
+                .max( )
+                .orElse( 0 );
+
+        List<Map.Entry<Attraction, Double>> fromCenter = new ArrayList<>( current.attractions.size( ) );
+        for ( Attraction attraction : current.attractions )
+        {
+            fromCenter.add( Map.entry( attraction, distance.applyAsDouble( attraction, center ) ) );
+        }
+        fromCenter.sort( Map.Entry.comparingByValue( ) );
+        if ( fromCenter.size( ) <= resultSize )
+        {
+            return new CellCandidates( current.version, fromCenter.stream( ).map( Map.Entry::getKey ).toList( ) );
+        }
+
+        double bound = fromCenter.get( resultSize - 1 ).getValue( ) + 2 * cellRadius;
+        List<Attraction> candidates = fromCenter.stream( )
+                .takeWhile( entry -> entry.getValue( ) <= bound )
+                .map( Map.Entry::getKey )
+                .toList( );
+        return new CellCandidates( current.version, candidates );
+    }
+
+
+    private Catalog getCatalog( )
+    {
+        Catalog current = catalog;
+        long now = System.nanoTime( );
+        if ( isFresh( current, now ) )
+        {
+            return current;
+        }
+        // A single thread reloads the catalog, the others keep using the current one meanwhile
+        if ( current != null && !catalogLock.tryLock( ) )
+        {
+            return current;
+        }
+        if ( current == null )
+        {
+            catalogLock.lock( );
+        }
+        try
+        {
+            current = catalog;
+            if ( isFresh( current, now ) )
+            {
+                return current;
+            }
+            reloadRequested = false;
+            List<Attraction> attractions = List.copyOf( catalogSource.get( ) );
+            long fingerprint = fingerprint( attractions );
+            if ( current != null && current.fingerprint == fingerprint )
+            {
+                // Same content: the cells still hold, and their attractions keep being served
+                catalog = new Catalog( current.version, current.attractions, current.rangeIndex, fingerprint, now );
+            }
+            else
+            {
+                catalog = new Catalog( current != null ? current.version + 1 : 1, attractions,
+                        new AttractionRangeIndex( attractions ), fingerprint, now );
+                cells.clear( );
+            }
+            return catalog;
+        } finally
+        {
+            catalogLock.unlock( );
+        }
+    }
+
+
+    private boolean isFresh( Catalog current, long now )
+    {
+        return current != null && !reloadRequested && now - current.loadedAt < settings.getCatalogRefreshInterval( ).toNanos( );
+    }
+
+
+    // Attractions get a new id each time the catalog is loaded, so only their names and locations make its content
+    private static long fingerprint( List<Attraction> attractions )
+    {
+        List<Attraction> sorted = new ArrayList<>( attractions );
+        sorted.sort( Comparator.comparing( attraction -> attraction.attractionName ) );
+        long fingerprint = 1;
+        for ( Attraction attraction : sorted )
+        {
+            fingerprint = 31 * fingerprint + Objects.hash( attraction.attractionName, attraction.latitude, attraction.longitude );
+        }
+        return fingerprint;
+    }
+
+
+    private void evictIfFull( )
+    {
+        Iterator<Long> keys = cells.keySet( ).iterator( );
+        while ( cells.size( ) >= settings.getMaxCachedCells( ) && keys.hasNext( ) )
+        {
+            keys.next( );
+            keys.remove( );
+        }
+    }
+
+
+    private record Catalog( long version, List<Attraction> attractions, AttractionRangeIndex rangeIndex, long fingerprint,
+                            long loadedAt )
+    {
+    }
+
+
+    private record CellCandidates( long catalogVersion, List<Attraction> attractions )
+    {
+    }
+
+
+    private record VersionedMatrix( long catalogVersion, AttractionDistanceMatrix matrix )
+    {
+    }
+}
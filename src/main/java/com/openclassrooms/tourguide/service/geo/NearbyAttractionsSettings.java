@@ -0,0 +1,19 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link NearbyAttractionsCache}, bound to the {@code tourguide.nearby-attractions} properties.
+ */
+@Data
+public class NearbyAttractionsSettings
+{
+    private boolean  cacheEnabled           = true;
+    // Height of the grid cells; smaller cells give fewer candidates per cell, but more cells to compute
+    private double   cellSizeMiles          = 25;
+    private int      maxCachedCells         = 100_000;
+    // The attraction catalog is reloaded at this interval, and the cells computed again if it changed
+    private Duration catalogRefreshInterval = Duration.ofMinutes( 10 );
+}
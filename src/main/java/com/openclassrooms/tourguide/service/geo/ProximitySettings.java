@@ -0,0 +1,22 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import lombok.Value;
+import lombok.With;
+
+/**
+ * Immutable snapshot of the global proximity radii, in statute miles.
+ *
+ * <p>The {@code LocationService} holds the current snapshot in an atomic reference: a change replaces the whole
+ * snapshot, so a calculation that read it once keeps consistent radii until it completes.</p>
+ */
+@Value
+@With
+public class ProximitySettings
+{
+    public static final ProximitySettings DEFAULT = new ProximitySettings( 10, 200 );
+
+    // Radius of the attraction fences, within which a visited location earns a reward
+    int proximityBuffer;
+    // Radius of the nearby attractions search
+    int attractionProximityRange;
+}
@@ -0,0 +1,204 @@
+package com.openclassrooms.tourguide.service.geo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleBiFunction;
+
+import com.openclassrooms.tourguide.domain.User;
+import gpsUtil.location.Location;
+
+/**
+ * The {@code UserLocationIndex} class keeps the latest position of every user bucketed in a {@link GeoGrid}, so that
+ * the users near a location are found by looking at the cells around it instead of at every user.
+ *
+ * <p>A radius query only visits the cells intersecting the circle, or the occupied cells when they are fewer, and a
+ * k-nearest query runs radius queries of doubling radius until k users are found within it. Both cost about the
+ * number of users found rather than the number of users indexed.</p>
+ *
+ * <p>Moving a user adds it to its new cell before removing it from its previous one, and a query reads the latest
+ * position of each user it finds, dropping duplicates. Each cell is updated atomically, and emptied cells are
+ * removed. Updates of a given user are expected to be ordered, e.g. by the user's serial executor.</p>
+ */
+public class UserLocationIndex
+{
+    // Farthest distance between two points of the earth, in the earth model of the distance function
+    private static final double HALF_EARTH_CIRCUMFERENCE_MILES = 180 * GeoGrid.MILES_PER_DEGREE;
+
+    private final GeoGrid grid;
+    private final double cellSizeMiles;
+    private final ToDoubleBiFunction<Location, Location> distance;
+
+    private final Map<UUID, Position> positions = new ConcurrentHashMap<>( );
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>( );
+
+
+    public UserLocationIndex( double cellSizeMiles, ToDoubleBiFunction<Location, Location> distance )
+    {
+        this.grid = GeoGrid.ofMiles( cellSizeMiles );
+        this.cellSizeMiles = cellSizeMiles;
+        this.distance = distance;
+    }
+
+
+    /**
+     * Moves a user to its latest position.
+     *
+     * @param user     the user
+     * @param location the user's latest location
+     */
+    public void update( User user, Location location )
+    {
+        long cellKey = grid.getCellKey( location );
+        Position previous = positions.put( user.getUserId( ), new Position( user, location, cellKey ) );
+        if ( previous == null || previous.cellKey != cellKey )
+        {
+            cells.compute( cellKey, ( key, users ) -> {
+                Set<UUID> cellUsers = users != null ? users : ConcurrentHashMap.newKeySet( );
+                cellUsers.add( user.getUserId( ) );
+                return cellUsers;
+            } );
+            if ( previous != null )
+            {
+                removeFromCell( previous.cellKey, user.getUserId( ) );
+            }
+        }
+    }
+
+
+    /**
+     * Removes a user from the index.
+     *
+     * @param userId the id of the user
+     */
+    public void remove( UUID userId )
+    {
+        Position previous = positions.remove( userId );
+        if ( previous != null )
+        {
+            removeFromCell( previous.cellKey, userId );
+        }
+    }
+
+
+    /**
+     * Retrieves the users whose latest position is within a radius of a location.
+     *
+     * @param center      the center of the search
+     * @param radiusMiles the radius of the search in statute miles, finite and not negative
+     * @return the users within the radius with their indexed position and distance, by increasing distance
+     * @throws IllegalArgumentException if the radius is not finite or is negative
+     */
+    public List<Match> getUsersWithin( Location center, double radiusMiles )
+    {
+        if ( !Double.isFinite( radiusMiles ) || radiusMiles < 0 )
+        {
+            throw new IllegalArgumentException( "radiusMiles must be finite and not negative, was " + radiusMiles );
+        }
+        Collection<Set<UUID>> candidateCells;
+        if ( grid.countCellsWithin( center, radiusMiles ) > cells.size( ) )
+        {
+            candidateCells = cells.values( );
+        }
+        else
+        {
+            candidateCells = new ArrayList<>( );
+            for ( long cellKey : grid.getCellKeysWithin( center, radiusMiles ) )
+            {
+                Set<UUID> users = cells.get( cellKey );
+                if ( users != null )
+                {
+                    candidateCells.add( users );
+                }
+            }
+        }
+
+        Map<UUID, Match> found = new HashMap<>( );
+        for ( Set<UUID> users : candidateCells )
+        {
+            for ( UUID userId : users )
+            {
+                Position position = positions.get( userId );
+                if ( position == null )
+                {
+                    continue;
+                }
+                double miles = distance.applyAsDouble( position.location, center );
+                if ( miles <= radiusMiles )
+                {
+                    found.put( userId, new Match( position.user, position.location, miles ) );
+                }
+            }
+        }
+        List<Match> within = new ArrayList<>( found.values( ) );
+        within.sort( Comparator.comparingDouble( Match::distanceMiles ) );
+        return within;
+    }
+
+
+    /**
+     * Retrieves the k users whose latest position is the closest to a location.
+     *
+     * @param center the center of the search
+     * @param k      the number of users to retrieve, at least 1
+     * @return the k closest users with their indexed position and distance, by increasing distance, fewer if fewer
+     *         users are indexed
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public List<Match> getNearestUsers( Location center, int k )
+    {
+        if ( k < 1 )
+        {
+            throw new IllegalArgumentException( "k must be positive, was " + k );
+        }
+        double radius = cellSizeMiles;
+        while ( true )
+        {
+            // Every user within the radius is found, so the k closest of them are the k closest overall
+            List<Match> within = getUsersWithin( center, radius );
+            if ( within.size( ) >= k || radius >= HALF_EARTH_CIRCUMFERENCE_MILES )
+            {
+                return within.subList( 0, Math.min( k, within.size( ) ) );
+            }
+            radius = Math.min( 2 * radius, HALF_EARTH_CIRCUMFERENCE_MILES );
+        }
+    }
+
+
+    public int size( )
+    {
+        return positions.size( );
+    }
+
+
+    private void removeFromCell( long cellKey, UUID userId )
+    {
+        cells.computeIfPresent( cellKey, ( key, users ) -> {
+            users.remove( userId );
+            return users.isEmpty( ) ? null : users;
+        } );
+    }
+
+
+    private record Position( User user, Location location, long cellKey )
+    {
+    }
+
+
+    /**
+     * A user found by a query.
+     *
+     * @param user          the user
+     * @param location      the user's position, as indexed when the query ran
+     * @param distanceMiles the distance from the position to the center of the query, in statute miles
+     */
+    public record Match( User user, Location location, double distanceMiles )
+    {
+    }
+}
@@ -0,0 +1,306 @@
+package com.openclassrooms.tourguide.service.geofence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.geo.GeoGrid;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code GeofenceEngine} class registers every attraction as a circular fence whose radius is the
+ * {@code LocationService} proximity buffer, and turns users' visited locations into {@link GeofenceEvent}s.
+ *
+ * <p>Fences are indexed in a {@link GeoGrid} whose cells are as large as the fence radius: each fence is stored in
+ * every cell its circle overlaps, so a visited location only has to be tested against the fences of its own cell.
+ * Fences too large to be indexed (e.g. a buffer covering the whole earth) are tested for every location.</p>
+ *
+ * <p>The engine remembers, for each user, how many visited locations were already evaluated and which fences the
+ * user currently is in. Only the new locations are evaluated, and an event is emitted each time a user enters or
+ * exits a fence. The index and the users' states are rebuilt when the proximity buffer changes, and a user's state
+ * when a location is inserted before the locations already evaluated, e.g. imported late: the user's locations are
+ * then evaluated again from the first, the listeners being notified again of the fences entered and exited.</p>
+ */
+public class GeofenceEngine
+{
+    private static final long MAX_INDEXED_CELLS_PER_FENCE = 4096;
+
+    private Logger logger = LoggerFactory.getLogger( GeofenceEngine.class );
+
+    private final GpsGateway gpsUtil;
+    private final LocationService locationService;
+
+    private final List<GeofenceListener> listeners 	   = new CopyOnWriteArrayList<>( );
+    private final Map<UUID, UserFenceState> userStates = new ConcurrentHashMap<>( );
+    private volatile FenceIndex fenceIndex;
+
+
+    public GeofenceEngine( GpsGateway gpsUtil, LocationService locationService )
+    {
+        this.gpsUtil = gpsUtil;
+        this.locationService = locationService;
+    }
+
+
+    /**
+     * Registers a listener notified of every fence entry and exit.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener( GeofenceListener listener )
+    {
+        listeners.add( listener );
+    }
+
+
+    /**
+     * Evaluates the visited locations of a user that were not evaluated yet, in the order they were visited,
+     * and notifies the listeners of each fence the user entered or exited.
+     *
+     * @param user the user whose new visited locations are to be evaluated
+     * @return the number of locations evaluated and of fences tested
+     */
+    public Evaluation evaluate( User user )
+    {
+        FenceIndex index = getFenceIndex( );
+        UserFenceState state = userStates.computeIfAbsent( user.getUserId( ), id -> new UserFenceState( ) );
+
+        synchronized ( state )
+        {
+            List<VisitedLocation> visitedLocations = user.getVisitedLocations( );
+            if ( state.index != index || !state.isEvaluatedPrefixOf( visitedLocations ) )
+            {
+                state.reset( index );
+            }
+            state.applyForgottenEntries( );
+
+            int size = visitedLocations.size( );
+            int fencesTested = 0;
+            for ( int i = state.evaluatedLocations; i < size; i++ )
+            {
+                VisitedLocation visitedLocation = visitedLocations.get( i );
+                fencesTested += evaluate( user, visitedLocation, state, index );
+                state.lastEvaluated = visitedLocation;
+            }
+            Evaluation evaluation = new Evaluation( size - state.evaluatedLocations, fencesTested );
+            state.evaluatedLocations = size;
+            return evaluation;
+        }
+    }
+
+
+    /**
+     * Forgets that a user is inside a fence, so that the next location of the user evaluated inside it emits an
+     * entry again. The entry is forgotten once the location being evaluated, if any, is done with: a listener may
+     * forget the entry it is being notified of.
+     *
+     * @param user           the user
+     * @param attractionName the name of the attraction of the fence
+     */
+    public void forgetEntry( User user, String attractionName )
+    {
+        UserFenceState state = userStates.get( user.getUserId( ) );
+        if ( state != null )
+        {
+            state.forgottenEntries.add( attractionName );
+        }
+    }
+
+
+    /**
+     * Retrieves the attractions whose fence contains the given location.
+     *
+     * @param location the location to test
+     * @return the attractions within the proximity buffer of the location
+     */
+    public List<Attraction> getFencesContaining( Location location )
+    {
+        FenceIndex index = getFenceIndex( );
+        List<Attraction> fences = new ArrayList<>( );
+        for ( Attraction attraction : index.getCandidates( location ) )
+        {
+            if ( locationService.getDistance( attraction, location ) <= index.radius )
+            {
+                fences.add( attraction );
+            }
+        }
+        return fences;
+    }
+
+
+    // Returns the number of fences tested
+    private int evaluate( User user, VisitedLocation visitedLocation, UserFenceState state, FenceIndex index )
+    {
+        Map<String, Attraction> inside = new LinkedHashMap<>( );
+        int fencesTested = 0;
+        for ( Attraction attraction : index.getCandidates( visitedLocation.location ) )
+        {
+            fencesTested++;
+            if ( locationService.getDistance( attraction, visitedLocation.location ) <= index.radius )
+            {
+                inside.put( attraction.attractionName, attraction );
+                if ( !state.inside.containsKey( attraction.attractionName ) )
+                {
+                    publish( new GeofenceEvent( GeofenceEvent.Type.ENTER, user, attraction, visitedLocation ) );
+                }
+            }
+        }
+
+        state.inside.forEach( ( attractionName, attraction ) -> {
+            if ( !inside.containsKey( attractionName ) )
+            {
+                publish( new GeofenceEvent( GeofenceEvent.Type.EXIT, user, attraction, visitedLocation ) );
+            }
+        } );
+        state.inside = inside;
+        state.applyForgottenEntries( );
+        return fencesTested;
+    }
+
+
+    private void publish( GeofenceEvent event )
+    {
+        for ( GeofenceListener listener : listeners )
+        {
+            try
+            {
+                listener.onGeofenceEvent( event );
+            } catch ( RuntimeException e )
+            {
+                logger.error( "Geofence listener failed on {} of {}", event.getType( ), event.getAttraction( ).attractionName, e );
+            }
+        }
+    }
+
+
+    /**
+     * Retrieves the fence index matching the current proximity buffer, building it if needed.
+     */
+    private FenceIndex getFenceIndex( )
+    {
+        FenceIndex index = fenceIndex;
+        int radius = locationService.getProximityBuffer( );
+        if ( index == null || index.radius != radius )
+        {
+            synchronized ( this )
+            {
+                index = fenceIndex;
+                if ( index == null || index.radius != radius )
+                {
+                    index = new FenceIndex( radius, gpsUtil.getAttractions( ) );
+                    fenceIndex = index;
+                    logger.debug( "Geofence index built for {} attractions with a {} miles radius", index.size, radius );
+                }
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Immutable grid of fences for a given radius.
+     */
+    private static class FenceIndex
+    {
+        private final int radius;
+        private final int size;
+        private final GeoGrid grid;
+        private final Map<Long, List<Attraction>> cells = new HashMap<>( );
+        private final List<Attraction> unindexedFences = new ArrayList<>( );
+
+        FenceIndex( int radius, List<Attraction> attractions )
+        {
+            this.radius = radius;
+            this.size = attractions.size( );
+            this.grid = GeoGrid.ofMiles( radius );
+
+            for ( Attraction attraction : attractions )
+            {
+                if ( grid.countCellsWithin( attraction, radius ) > MAX_INDEXED_CELLS_PER_FENCE )
+                {
+                    unindexedFences.add( attraction );
+                    continue;
+                }
+                for ( Long cellKey : grid.getCellKeysWithin( attraction, radius ) )
+                {
+                    cells.computeIfAbsent( cellKey, key -> new ArrayList<>( ) ).add( attraction );
+                }
+            }
+        }
+
+        List<Attraction> getCandidates( Location location )
+        {
+            List<Attraction> cellFences = cells.getOrDefault( grid.getCellKey( location ), List.of( ) );
+            if ( unindexedFences.isEmpty( ) )
+            {
+                return cellFences;
+            }
+            List<Attraction> candidates = new ArrayList<>( cellFences );
+            candidates.addAll( unindexedFences );
+            return candidates;
+        }
+    }
+
+
+    /**
+     * Evaluation progress of a user, guarded by its own monitor.
+     */
+    private static class UserFenceState
+    {
+        private FenceIndex index;
+        private int evaluatedLocations;
+        // The last location evaluated, found at the end of the evaluated ones as long as none was inserted before
+        private VisitedLocation lastEvaluated;
+        private Map<String, Attraction> inside = new LinkedHashMap<>( );
+        // Entries to forget, applied between two locations rather than while one is being evaluated
+        private final Queue<String> forgottenEntries = new ConcurrentLinkedQueue<>( );
+
+        void reset( FenceIndex index )
+        {
+            this.index = index;
+            this.evaluatedLocations = 0;
+            this.lastEvaluated = null;
+            this.inside = new LinkedHashMap<>( );
+        }
+
+        boolean isEvaluatedPrefixOf( List<VisitedLocation> visitedLocations )
+        {
+            return evaluatedLocations == 0 || ( evaluatedLocations <= visitedLocations.size( )
+                    && visitedLocations.get( evaluatedLocations - 1 ) == lastEvaluated );
+        }
+
+        void applyForgottenEntries( )
+        {
+            String attractionName;
+            while ( ( attractionName = forgottenEntries.poll( ) ) != null )
+            {
+                inside.remove( attractionName );
+            }
+        }
+    }
+
+
+    /**
+     * Outcome of the evaluation of a user's new visited locations.
+     *
+     * @param locations    the number of locations evaluated
+     * @param fencesTested the number of fences tested against them
+     */
+    public record Evaluation( int locations, int fencesTested )
+    {
+    }
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.tourguide.service.geofence;
+
+import com.openclassrooms.tourguide.domain.User;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import lombok.Data;
+
+/**
+ * The {@code GeofenceEvent} class describes a user crossing the fence of an attraction.
+ */
+@Data
+public class GeofenceEvent
+{
+    public enum Type
+    {
+        ENTER,
+        EXIT
+    }
+
+    private final Type            type;
+    private final User            user;
+    private final Attraction      attraction;
+    private final VisitedLocation visitedLocation;
+}
@@ -0,0 +1,13 @@
+package com.openclassrooms.tourguide.service.geofence;
+
+/**
+ * Receives the {@link GeofenceEvent}s emitted by the {@link GeofenceEngine}.
+ *
+ * <p>Listeners are called on the thread evaluating the user's locations, one user at a time,
+ * in the order the locations were visited.</p>
+ */
+@FunctionalInterface
+public interface GeofenceListener
+{
+    void onGeofenceEvent( GeofenceEvent event );
+}
@@ -0,0 +1,168 @@
+package com.openclassrooms.tourguide.service.history;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.ListIterator;
+
+import com.openclassrooms.tourguide.domain.dto.LocationHistoryPageDTO;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Reads pages of a user's visited locations within a time range.
+ *
+ * <p>The visited locations are kept in time order, see {@code User.addToVisitedLocations}: the first location of a
+ * page is found by binary search on {@code timeVisited}, then at most a page of locations is read from a snapshot
+ * iterator, without copying the history.</p>
+ *
+ * <p>A cursor is opaque to clients. It holds the time of the last location returned and how many locations of that
+ * time were returned, so that it stays valid while locations are appended, or inserted before it.</p>
+ */
+public final class LocationHistory
+{
+    private static final String CURSOR_PREFIX = "v1:";
+
+    private LocationHistory( )
+    {
+    }
+
+
+    /**
+     * Reads a page of visited locations.
+     *
+     * @param visitedLocations the visited locations, in time order
+     * @param from             the time of the earliest location, inclusive, or {@code null} for the first one
+     * @param to               the time after the latest location, exclusive, or {@code null} for no bound
+     * @param cursor           the cursor returned with the previous page, taking precedence over {@code from},
+     *                         or {@code null} for the first page
+     * @param limit            the maximum number of locations of the page
+     * @return the page, with the cursor of the next one unless it is the last one
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+     */
+    public static LocationHistoryPageDTO page( List<VisitedLocation> visitedLocations, Date from, Date to, String cursor, int limit )
+    {
+        if ( limit < 1 )
+        {
+            throw new IllegalArgumentException( "The page limit must be positive" );
+        }
+        Position start = cursor != null ? decode( cursor ) : new Position( from != null ? from.getTime( ) : Long.MIN_VALUE, 0 );
+        long end = to != null ? to.getTime( ) : Long.MAX_VALUE;
+
+        List<VisitedLocation> locations = new ArrayList<>( Math.min( limit, 64 ) );
+        String nextCursor = null;
+        long lastTime = start.time( );
+        int sameTime = start.skip( );
+        int skipped = 0;
+        ListIterator<VisitedLocation> iterator = iterator( visitedLocations, lowerBound( visitedLocations, start.time( ) ) );
+        while ( iterator.hasNext( ) )
+        {
+            VisitedLocation visitedLocation = iterator.next( );
+            long time = visitedLocation.timeVisited.getTime( );
+            // The index found may precede the start if locations were inserted meanwhile
+            if ( time < start.time( ) || time == start.time( ) && skipped++ < start.skip( ) )
+            {
+                continue;
+            }
+            if ( time >= end )
+            {
+                break;
+            }
+            if ( locations.size( ) == limit )
+            {
+                nextCursor = encode( new Position( lastTime, sameTime ) );
+                break;
+            }
+            sameTime = time == lastTime ? sameTime + 1 : 1;
+            lastTime = time;
+            locations.add( visitedLocation );
+        }
+
+        LocationHistoryPageDTO page = new LocationHistoryPageDTO( );
+        page.setLocations( locations );
+        page.setNextCursor( nextCursor );
+        return page;
+    }
+
+
+    /**
+     * Finds the index of the first location visited at or after a time. The history may grow meanwhile: the index
+     * found then never exceeds the one of that location, as locations are only appended or inserted.
+     */
+    private static int lowerBound( List<VisitedLocation> visitedLocations, long time )
+    {
+        int low = 0;
+        int high = visitedLocations.size( );
+        try
+        {
+            while ( low < high )
+            {
+                int middle = ( low + high ) >>> 1;
+                if ( visitedLocations.get( middle ).timeVisited.getTime( ) < time )
+                {
+                    low = middle + 1;
+                } else
+                {
+                    high = middle;
+                }
+            }
+            return low;
+        } catch ( IndexOutOfBoundsException e )
+        {
+            // Cleared meanwhile
+            return 0;
+        }
+    }
+
+    private static ListIterator<VisitedLocation> iterator( List<VisitedLocation> visitedLocations, int index )
+    {
+        try
+        {
+            return visitedLocations.listIterator( index );
+        } catch ( IndexOutOfBoundsException e )
+        {
+            // Cleared meanwhile
+            return visitedLocations.listIterator( );
+        }
+    }
+
+    private static String encode( Position position )
+    {
+        String value = CURSOR_PREFIX + position.time( ) + ":" + position.skip( );
+        return Base64.getUrlEncoder( ).withoutPadding( ).encodeToString( value.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static Position decode( String cursor )
+    {
+        try
+        {
+            String value = new String( Base64.getUrlDecoder( ).decode( cursor ), StandardCharsets.UTF_8 );
+            if ( value.startsWith( CURSOR_PREFIX ) )
+            {
+                String[] parts = value.substring( CURSOR_PREFIX.length( ) ).split( ":" );
+                if ( parts.length == 2 )
+                {
+                    Position position = new Position( Long.parseLong( parts[ 0 ] ), Integer.parseInt( parts[ 1 ] ) );
+                    if ( position.skip( ) >= 0 )
+                    {
+                        return position;
+                    }
+                }
+            }
+        } catch ( IllegalArgumentException e )
+        {
+            // Reported below, NumberFormatException included
+        }
+        throw new IllegalArgumentException( "Malformed cursor " + cursor );
+    }
+
+
+    /**
+     * Position in the history: the locations visited before the time, and the first {@code skip} ones visited at it,
+     * were already read.
+     */
+    private record Position( long time, int skip )
+    {
+    }
+}
@@ -0,0 +1,147 @@
+package com.openclassrooms.tourguide.service.itinerary;
+
+import com.openclassrooms.tourguide.service.geo.AttractionDistanceMatrix;
+
+/**
+ * Orders the stops of an itinerary starting from the user's location, using the distances of an
+ * {@link AttractionDistanceMatrix}, so that no distance is computed while planning.
+ *
+ * <p>A nearest-neighbour tour is built first, then improved by 2-opt moves: reversing a section of the tour whenever
+ * it shortens it, until no move does or the time budget elapsed. The tour is open: it ends at its last stop rather
+ * than back at the start.</p>
+ */
+public final class ItineraryPlanner
+{
+    private ItineraryPlanner( )
+    {
+    }
+
+
+    /**
+     * Plans the visiting order of stops.
+     *
+     * @param stops          the indexes of the stops in the matrix
+     * @param fromStart      the distances from the start to each stop, indexed like {@code stops}
+     * @param matrix         the distances between the attractions
+     * @param deadlineNanos  the {@link System#nanoTime( )} after which the tour is no longer improved
+     * @return the stops in visiting order, as indexes into {@code stops}, and the length of the tour
+     */
+    public static Route plan( int[] stops, double[] fromStart, AttractionDistanceMatrix matrix, long deadlineNanos )
+    {
+        int[] order = nearestNeighbour( stops, fromStart, matrix );
+        boolean converged = twoOpt( order, stops, fromStart, matrix, deadlineNanos );
+        return new Route( order, length( order, stops, fromStart, matrix ), converged );
+    }
+
+
+    private static int[] nearestNeighbour( int[] stops, double[] fromStart, AttractionDistanceMatrix matrix )
+    {
+        int count = stops.length;
+        int[] order = new int[ count ];
+        boolean[] visited = new boolean[ count ];
+        int current = -1;
+        for ( int position = 0; position < count; position++ )
+        {
+            int nearest = -1;
+            double nearestDistance = Double.POSITIVE_INFINITY;
+            for ( int candidate = 0; candidate < count; candidate++ )
+            {
+                if ( visited[ candidate ] )
+                {
+                    continue;
+                }
+                double distance = current < 0 ? fromStart[ candidate ] : matrix.getDistance( stops[ current ], stops[ candidate ] );
+                if ( distance < nearestDistance )
+                {
+                    nearest = candidate;
+                    nearestDistance = distance;
+                }
+            }
+            visited[ nearest ] = true;
+            order[ position ] = nearest;
+            current = nearest;
+        }
+        return order;
+    }
+
+    /**
+     * Applies improving 2-opt moves until none is left or the deadline passed.
+     *
+     * @return true if no improving move is left
+     */
+    private static boolean twoOpt( int[] order, int[] stops, double[] fromStart, AttractionDistanceMatrix matrix, long deadlineNanos )
+    {
+        int count = order.length;
+        boolean improved = true;
+        while ( improved )
+        {
+            improved = false;
+            for ( int i = 0; i < count - 1; i++ )
+            {
+                if ( System.nanoTime( ) - deadlineNanos > 0 )
+                {
+                    return false;
+                }
+                // Reversing order[i..j] replaces the edges (i - 1, i) and (j, j + 1) by (i - 1, j) and (i, j + 1)
+                double before = i == 0 ? fromStart[ order[ i ] ] : distance( order[ i - 1 ], order[ i ], stops, matrix );
+                for ( int j = i + 1; j < count; j++ )
+                {
+                    double after = i == 0 ? fromStart[ order[ j ] ] : distance( order[ i - 1 ], order[ j ], stops, matrix );
+                    double delta = after - before;
+                    if ( j < count - 1 )
+                    {
+                        delta += distance( order[ i ], order[ j + 1 ], stops, matrix ) - distance( order[ j ], order[ j + 1 ], stops, matrix );
+                    }
+                    if ( delta < -1e-9 )
+                    {
+                        reverse( order, i, j );
+                        before = i == 0 ? fromStart[ order[ i ] ] : distance( order[ i - 1 ], order[ i ], stops, matrix );
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static double length( int[] order, int[] stops, double[] fromStart, AttractionDistanceMatrix matrix )
+    {
+        if ( order.length == 0 )
+        {
+            return 0;
+        }
+        double length = fromStart[ order[ 0 ] ];
+        for ( int position = 1; position < order.length; position++ )
+        {
+            length += distance( order[ position - 1 ], order[ position ], stops, matrix );
+        }
+        return length;
+    }
+
+    private static double distance( int from, int to, int[] stops, AttractionDistanceMatrix matrix )
+    {
+        return matrix.getDistance( stops[ from ], stops[ to ] );
+    }
+
+    private static void reverse( int[] order, int from, int to )
+    {
+        for ( ; from < to; from++, to-- )
+        {
+            int stop = order[ from ];
+            order[ from ] = order[ to ];
+            order[ to ] = stop;
+        }
+    }
+
+
+    /**
+     * A planned tour.
+     *
+     * @param order     the stops in visiting order, as indexes into the planned stops
+     * @param length    the length of the tour from the start, in statute miles
+     * @param converged false if the time budget elapsed before 2-opt found no improving move
+     */
+    public record Route( int[] order, double length, boolean converged )
+    {
+    }
+}
@@ -0,0 +1,16 @@
+package com.openclassrooms.tourguide.service.itinerary;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the itinerary planning, bound to the {@code tourguide.itinerary} properties.
+ */
+@Data
+public class ItinerarySettings
+{
+    // Time spent improving a tour at most; the best tour found so far is returned once it elapsed
+    private Duration timeBudget = Duration.ofMillis( 50 );
+    private int      maxStops   = 100;
+}
@@ -0,0 +1,88 @@
+package com.openclassrooms.tourguide.service.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Immutable consistent hash ring assigning users to nodes.
+ *
+ * <p>Each node is placed at {@code virtualNodes} pseudo-random points of a 64-bit ring, and a user belongs to the node
+ * of the first point following the hash of its id. When a node joins or leaves, only the users between its points
+ * and their predecessors change owner, about {@code 1 / nodes} of them.</p>
+ */
+public class ConsistentHashRing
+{
+    private final Set<String> nodes;
+    private final int virtualNodes;
+    private final NavigableMap<Long, String> points = new TreeMap<>( );
+
+
+    public ConsistentHashRing( Collection<String> nodes, int virtualNodes )
+    {
+        this.nodes = new TreeSet<>( nodes );
+        this.virtualNodes = virtualNodes;
+        for ( String node : this.nodes )
+        {
+            for ( int i = 0; i < virtualNodes; i++ )
+            {
+                UUID point = UUID.nameUUIDFromBytes( ( node + "#" + i ).getBytes( StandardCharsets.UTF_8 ) );
+                points.put( point.getMostSignificantBits( ), node );
+            }
+        }
+    }
+
+
+    /**
+     * Retrieves the node owning a user.
+     *
+     * @param userId the id of the user
+     * @return the base URL of the owning node, or {@code null} if the ring has no node
+     */
+    public String getOwner( UUID userId )
+    {
+        if ( points.isEmpty( ) )
+        {
+            return null;
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry( hash( userId ) );
+        return point != null ? point.getValue( ) : points.firstEntry( ).getValue( );
+    }
+
+
+    public Set<String> getNodes( )
+    {
+        return nodes;
+    }
+
+
+    public ConsistentHashRing with( String node )
+    {
+        Set<String> members = new TreeSet<>( nodes );
+        members.add( node );
+        return new ConsistentHashRing( members, virtualNodes );
+    }
+
+
+    public ConsistentHashRing without( String node )
+    {
+        Set<String> members = new TreeSet<>( nodes );
+        members.remove( node );
+        return new ConsistentHashRing( members, virtualNodes );
+    }
+
+
+    // SplitMix64 finalizer, so that sequential ids are spread over the ring
+    private static long hash( UUID userId )
+    {
+        long z = userId.getMostSignificantBits( ) ^ Long.rotateLeft( userId.getLeastSignificantBits( ), 32 );
+        z = ( z ^ ( z >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+        z = ( z ^ ( z >>> 27 ) ) * 0x94d049bb133111ebL;
+        return z ^ ( z >>> 31 );
+    }
+}
@@ -0,0 +1,10 @@
+package com.openclassrooms.tourguide.service.partition;
+
+/**
+ * Notified by the {@link PartitionService} each time a node joins or leaves, on the thread changing the membership.
+ */
+@FunctionalInterface
+public interface PartitionListener
+{
+    void onMembershipChanged( ConsistentHashRing ring );
+}
@@ -0,0 +1,168 @@
+package com.openclassrooms.tourguide.service.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * The {@code PartitionService} class knows which TourGuide node owns each user, through a {@link ConsistentHashRing}
+ * of the cluster members.
+ *
+ * <p>Partitioning is disabled by default: this node then owns every user. When enabled, the members are the
+ * configured nodes plus this one, and nodes join or leave through {@link #join( String )} and {@link #leave( String )};
+ * there is no discovery, so each member must be told of the change. {@link PartitionListener}s are notified of every
+ * change, to hand off the users this node no longer owns.</p>
+ */
+@Service
+public class PartitionService
+{
+    // Carries the cluster secret on the requests between members
+    public static final String SECRET_HEADER = "X-TourGuide-Cluster-Secret";
+
+    private Logger logger = LoggerFactory.getLogger( PartitionService.class );
+
+    @Getter
+    private final PartitionSettings settings;
+    private final List<PartitionListener> listeners = new CopyOnWriteArrayList<>( );
+    private volatile ConsistentHashRing ring;
+
+
+    public PartitionService( PartitionSettings settings )
+    {
+        this.settings = settings;
+        List<String> members = new ArrayList<>( settings.getMembers( ) );
+        members.add( settings.getSelf( ) );
+        this.ring = new ConsistentHashRing( members, settings.getVirtualNodes( ) );
+    }
+
+
+    public boolean isEnabled( )
+    {
+        return settings.isEnabled( );
+    }
+
+
+    public String getSelf( )
+    {
+        return settings.getSelf( );
+    }
+
+
+    public Set<String> getMembers( )
+    {
+        return ring.getNodes( );
+    }
+
+
+    /**
+     * Tells whether a request comes from a member of the cluster.
+     *
+     * @param secret the cluster secret sent with the request, possibly {@code null}
+     * @return {@code true} if a cluster secret is configured and the request carries it
+     */
+    public boolean isMember( String secret )
+    {
+        String expected = settings.getSecret( );
+        if ( expected == null || expected.isEmpty( ) || secret == null )
+        {
+            return false;
+        }
+        // Compared in constant time, so that response times do not leak the secret
+        return MessageDigest.isEqual( expected.getBytes( StandardCharsets.UTF_8 ), secret.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+
+    /**
+     * Tells whether this node owns a user.
+     *
+     * @param userId the id of the user
+     * @return {@code true} if partitioning is disabled or the user belongs to this node's partition
+     */
+    public boolean isLocal( UUID userId )
+    {
+        return !settings.isEnabled( ) || settings.getSelf( ).equals( ring.getOwner( userId ) );
+    }
+
+
+    /**
+     * Retrieves the node owning a user.
+     *
+     * @param userId the id of the user
+     * @return the base URL of the owning node, this node's one if partitioning is disabled
+     */
+    public String getOwner( UUID userId )
+    {
+        if ( !settings.isEnabled( ) )
+        {
+            return settings.getSelf( );
+        }
+        String owner = ring.getOwner( userId );
+        return owner != null ? owner : settings.getSelf( );
+    }
+
+
+    public void addListener( PartitionListener listener )
+    {
+        listeners.add( listener );
+    }
+
+
+    /**
+     * Adds a node to the cluster.
+     *
+     * @param node the base URL of the node
+     * @return {@code true} if the node was not a member yet
+     */
+    public boolean join( String node )
+    {
+        return changeMembership( node, true );
+    }
+
+
+    /**
+     * Removes a node from the cluster. When this node leaves, it no longer owns any user.
+     *
+     * @param node the base URL of the node
+     * @return {@code true} if the node was a member
+     */
+    public boolean leave( String node )
+    {
+        return changeMembership( node, false );
+    }
+
+
+    private boolean changeMembership( String node, boolean joining )
+    {
+        ConsistentHashRing changed;
+        synchronized ( this )
+        {
+            if ( ring.getNodes( ).contains( node ) == joining )
+            {
+                return false;
+            }
+            changed = joining ? ring.with( node ) : ring.without( node );
+            ring = changed;
+        }
+        logger.info( "Node {} {}, members are now {}", node, joining ? "joined" : "left", changed.getNodes( ) );
+        for ( PartitionListener listener : listeners )
+        {
+            try
+            {
+                listener.onMembershipChanged( changed );
+            } catch ( RuntimeException e )
+            {
+                logger.error( "Partition listener failed after {} {}", node, joining ? "joined" : "left", e );
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.tourguide.service.partition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Settings of the partitioning of users across TourGuide nodes, bound to the {@code tourguide.partition} properties.
+ * Nodes are identified by their base URL.
+ */
+@Data
+public class PartitionSettings
+{
+    private boolean      enabled        = false;
+    // Base URL of this node, as the other nodes reach it
+    private String       self           = "http://localhost:8080";
+    // Base URLs of the other nodes at startup; this node is always a member
+    private List<String> members        = new ArrayList<>( );
+    // Points of each node on the hash ring, the more the evener the partitions
+    private int          virtualNodes   = 128;
+    private Duration     handoffTimeout = Duration.ofSeconds( 30 );
+    // Secret shared by the members, required to change the membership or hand off users; unset, both are refused
+    private String       secret;
+}
@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide.service.partition;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.tourguide.domain.dto.UserTransferDTO;
+
+/**
+ * Sends users to the node now owning them, through its {@code POST /partition/users} endpoint.
+ */
+public class UserHandoffClient
+{
+    public static final String USERS_PATH = "/partition/users";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper( );
+    private final Duration timeout;
+    private final String secret;
+
+
+    public UserHandoffClient( Duration timeout, String secret )
+    {
+        this.timeout = timeout;
+        this.secret = secret;
+        this.httpClient = HttpClient.newBuilder( ).connectTimeout( timeout ).build( );
+    }
+
+
+    /**
+     * Transfers users to a node.
+     *
+     * @param node  the base URL of the receiving node
+     * @param users the users to transfer
+     * @throws IOException if the node could not be reached or rejected the users
+     */
+    public void transfer( String node, List<UserTransferDTO> users ) throws IOException
+    {
+        HttpRequest.Builder request = HttpRequest.newBuilder( URI.create( node + USERS_PATH ) )
+                .timeout( timeout )
+                .header( "Content-Type", "application/json" )
+                .POST( HttpRequest.BodyPublishers.ofByteArray( objectMapper.writeValueAsBytes( users ) ) );
+        if ( secret != null )
+        {
+            request.header( PartitionService.SECRET_HEADER, secret );
+        }
+        try
+        {
+            HttpResponse<String> response = httpClient.send( request.build( ), HttpResponse.BodyHandlers.ofString( ) );
+            if ( response.statusCode( ) >= 300 )
+            {
+                throw new IOException( "Handoff of " + users.size( ) + " users to " + node + " failed with status "
+                        + response.statusCode( ) );
+            }
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IOException( "Interrupted while handing off users to " + node, e );
+        }
+    }
+}
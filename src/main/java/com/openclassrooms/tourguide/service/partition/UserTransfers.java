@@ -0,0 +1,99 @@
+package com.openclassrooms.tourguide.service.partition;
+
+import java.util.List;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.UserTransferDTO;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * Converts users to and from the {@link UserTransferDTO} sent between nodes.
+ *
+ * <p>Trip deals are not transferred, they are priced again on demand. Attractions get a new id on the receiving
+ * node, rewards being identified by attraction name.</p>
+ */
+public final class UserTransfers
+{
+    private UserTransfers( )
+    {
+    }
+
+
+    public static UserTransferDTO toTransfer( User user )
+    {
+        UserTransferDTO transfer = new UserTransferDTO( );
+        transfer.setUserId( user.getUserId( ) );
+        transfer.setUserName( user.getUserName( ) );
+        transfer.setPhoneNumber( user.getPhoneNumber( ) );
+        transfer.setEmailAddress( user.getEmailAddress( ) );
+        transfer.setLatestLocationTimestamp( user.getLatestLocationTimestamp( ) );
+        transfer.setUserPreferences( user.getUserPreferences( ) );
+        transfer.setVisitedLocations( user.getVisitedLocations( ).stream( ).map( UserTransfers::toTransfer ).toList( ) );
+        transfer.setUserRewards( user.getUserRewards( ).stream( ).map( UserTransfers::toTransfer ).toList( ) );
+        return transfer;
+    }
+
+
+    public static User toUser( UserTransferDTO transfer )
+    {
+        User user = new User( transfer.getUserId( ), transfer.getUserName( ), transfer.getPhoneNumber( ), transfer.getEmailAddress( ) );
+        user.setLatestLocationTimestamp( transfer.getLatestLocationTimestamp( ) );
+        if ( transfer.getUserPreferences( ) != null )
+        {
+            user.setUserPreferences( transfer.getUserPreferences( ) );
+        }
+        for ( UserTransferDTO.VisitedLocationDTO visitedLocation : nullToEmpty( transfer.getVisitedLocations( ) ) )
+        {
+            user.addToVisitedLocations( toVisitedLocation( transfer, visitedLocation ) );
+        }
+        for ( UserTransferDTO.UserRewardDTO reward : nullToEmpty( transfer.getUserRewards( ) ) )
+        {
+            Attraction attraction = new Attraction( reward.getAttractionName( ), reward.getCity( ), reward.getState( ),
+                    reward.getLatitude( ), reward.getLongitude( ) );
+            UserReward userReward = new UserReward( toVisitedLocation( transfer, reward.getVisitedLocation( ) ), attraction );
+            userReward.setRewardPoints( reward.getRewardPoints( ) );
+            user.addUserReward( userReward );
+        }
+        return user;
+    }
+
+
+    private static UserTransferDTO.VisitedLocationDTO toTransfer( VisitedLocation visitedLocation )
+    {
+        UserTransferDTO.VisitedLocationDTO transfer = new UserTransferDTO.VisitedLocationDTO( );
+        transfer.setLatitude( visitedLocation.location.latitude );
+        transfer.setLongitude( visitedLocation.location.longitude );
+        transfer.setTimeVisited( visitedLocation.timeVisited );
+        return transfer;
+    }
+
+
+    private static UserTransferDTO.UserRewardDTO toTransfer( UserReward userReward )
+    {
+        UserTransferDTO.UserRewardDTO transfer = new UserTransferDTO.UserRewardDTO( );
+        transfer.setVisitedLocation( toTransfer( userReward.visitedLocation ) );
+        transfer.setAttractionName( userReward.attraction.attractionName );
+        transfer.setCity( userReward.attraction.city );
+        transfer.setState( userReward.attraction.state );
+        transfer.setLatitude( userReward.attraction.latitude );
+        transfer.setLongitude( userReward.attraction.longitude );
+        transfer.setRewardPoints( userReward.getRewardPoints( ) );
+        return transfer;
+    }
+
+
+    private static VisitedLocation toVisitedLocation( UserTransferDTO user, UserTransferDTO.VisitedLocationDTO visitedLocation )
+    {
+        return new VisitedLocation( user.getUserId( ), new Location( visitedLocation.getLatitude( ), visitedLocation.getLongitude( ) ),
+                visitedLocation.getTimeVisited( ) );
+    }
+
+
+    private static <T> List<T> nullToEmpty( List<T> list )
+    {
+        return list != null ? list : List.of( );
+    }
+}
@@ -0,0 +1,151 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@code BoundedRingBuffer} class is a lock-free, fixed capacity queue backed by an array.
+ *
+ * <p>Any number of producers may {@link #offer(Object)} concurrently, and any number of consumers may
+ * {@link #poll()} or {@link #drainTo(List, int)} concurrently. Each slot carries a sequence number telling whether it
+ * is free for the producer of a given position or filled for its consumer, so no lock is ever taken and an element
+ * is only visible once it has been fully published.</p>
+ *
+ * @param <T> the type of the elements
+ */
+public class BoundedRingBuffer<T>
+{
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong( );
+    private final AtomicLong consumerPosition = new AtomicLong( );
+
+
+    /**
+     * Creates a ring buffer able to hold at least the given number of elements.
+     *
+     * @param requestedCapacity the minimal capacity, rounded up to the next power of two
+     */
+    public BoundedRingBuffer( int requestedCapacity )
+    {
+        if ( requestedCapacity < 1 || requestedCapacity > 1 << 30 )
+        {
+            throw new IllegalArgumentException( "Capacity must be between 1 and 2^30: " + requestedCapacity );
+        }
+        this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit( requestedCapacity - 1 ) << 1;
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>( capacity );
+        this.sequences = new AtomicLongArray( capacity );
+        for ( int i = 0; i < capacity; i++ )
+        {
+            sequences.set( i, i );
+        }
+    }
+
+
+    /**
+     * Inserts an element if the buffer is not full.
+     *
+     * @param element the element to insert, not {@code null}
+     * @return {@code true} if the element was inserted, {@code false} if the buffer is full
+     */
+    public boolean offer( T element )
+    {
+        long position = producerPosition.get( );
+        while ( true )
+        {
+            int index = (int) position & mask;
+            long difference = sequences.get( index ) - position;
+            if ( difference == 0 )
+            {
+                if ( producerPosition.compareAndSet( position, position + 1 ) )
+                {
+                    elements.set( index, element );
+                    sequences.set( index, position + 1 );
+                    return true;
+                }
+                position = producerPosition.get( );
+            } else if ( difference < 0 )
+            {
+                return false;
+            } else
+            {
+                position = producerPosition.get( );
+            }
+        }
+    }
+
+
+    /**
+     * Removes the oldest element if the buffer is not empty.
+     *
+     * @return the oldest element, or {@code null} if the buffer is empty
+     */
+    public T poll( )
+    {
+        long position = consumerPosition.get( );
+        while ( true )
+        {
+            int index = (int) position & mask;
+            long difference = sequences.get( index ) - ( position + 1 );
+            if ( difference == 0 )
+            {
+                if ( consumerPosition.compareAndSet( position, position + 1 ) )
+                {
+                    T element = elements.getAndSet( index, null );
+                    sequences.set( index, position + capacity );
+                    return element;
+                }
+                position = consumerPosition.get( );
+            } else if ( difference < 0 )
+            {
+                return null;
+            } else
+            {
+                position = consumerPosition.get( );
+            }
+        }
+    }
+
+
+    /**
+     * Removes up to {@code maxElements} elements and adds them to the given list, oldest first.
+     *
+     * @param sink        the list receiving the elements
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of elements removed
+     */
+    public int drainTo( List<? super T> sink, int maxElements )
+    {
+        int drained = 0;
+        T element;
+        while ( drained < maxElements && ( element = poll( ) ) != null )
+        {
+            sink.add( element );
+            drained++;
+        }
+        return drained;
+    }
+
+
+    /**
+     * Retrieves an estimate of the number of elements in the buffer.
+     *
+     * @return the number of published elements not consumed yet
+     */
+    public int size( )
+    {
+        long size = producerPosition.get( ) - consumerPosition.get( );
+        return (int) Math.max( 0, Math.min( capacity, size ) );
+    }
+
+
+    public int capacity( )
+    {
+        return capacity;
+    }
+}
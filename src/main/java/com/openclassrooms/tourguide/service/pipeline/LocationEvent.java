@@ -0,0 +1,15 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import com.openclassrooms.tourguide.domain.User;
+import gpsUtil.location.VisitedLocation;
+import lombok.Data;
+
+/**
+ * A location fetched for a user, published by the location stage of the {@link TrackingPipeline}.
+ */
+@Data
+public class LocationEvent
+{
+    private final User            user;
+    private final VisitedLocation visitedLocation;
+}
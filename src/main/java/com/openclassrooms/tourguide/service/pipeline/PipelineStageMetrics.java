@@ -0,0 +1,66 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.openclassrooms.tourguide.domain.dto.PipelineStageStatsDTO;
+
+/**
+ * Counts the items submitted to and completed by a pipeline stage.
+ *
+ * <p>The throughput is the completion rate between two reads of the statistics, sampled at most once per second.</p>
+ */
+class PipelineStageMetrics
+{
+    private static final long SAMPLING_PERIOD = TimeUnit.SECONDS.toNanos( 1 );
+
+    private final String    stage;
+    private final LongAdder submitted = new LongAdder( );
+    private final LongAdder completed = new LongAdder( );
+
+    private long   sampleTime  = System.nanoTime( );
+    private long   sampleCount = 0;
+    private double throughput  = 0;
+
+
+    PipelineStageMetrics( String stage )
+    {
+        this.stage = stage;
+    }
+
+    void onSubmitted( )
+    {
+        submitted.increment( );
+    }
+
+    void onCompleted( int count )
+    {
+        completed.add( count );
+    }
+
+    long getInFlight( )
+    {
+        return Math.max( 0, submitted.sum( ) - completed.sum( ) );
+    }
+
+    synchronized PipelineStageStatsDTO getStats( int queueDepth )
+    {
+        long now = System.nanoTime( );
+        long completedCount = completed.sum( );
+        if ( now - sampleTime >= SAMPLING_PERIOD )
+        {
+            throughput = ( completedCount - sampleCount ) * (double) TimeUnit.SECONDS.toNanos( 1 ) / ( now - sampleTime );
+            sampleTime = now;
+            sampleCount = completedCount;
+        }
+
+        PipelineStageStatsDTO stats = new PipelineStageStatsDTO( );
+        stats.setStage( stage );
+        stats.setQueueDepth( queueDepth );
+        stats.setSubmitted( submitted.sum( ) );
+        stats.setCompleted( completedCount );
+        stats.setInFlight( getInFlight( ) );
+        stats.setThroughputPerSecond( throughput );
+        return stats;
+    }
+}
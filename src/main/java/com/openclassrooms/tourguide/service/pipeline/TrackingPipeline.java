@@ -0,0 +1,256 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.PipelineStageStatsDTO;
+import com.openclassrooms.tourguide.service.RewardsService;
+import gpsUtil.location.VisitedLocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code TrackingPipeline} class tracks users in two independently sized stages:
+ * <ol>
+ *     <li>location fetchers get the user's location from the location provider, hand it to the location recorder
+ *     and publish a {@link LocationEvent} into a {@link BoundedRingBuffer}</li>
+ *     <li>reward workers drain the ring buffer in batches and calculate the rewards of each user of the batch once,
+ *     whatever the number of locations it received</li>
+ * </ol>
+ *
+ * <p>A slow reward calculation therefore never holds a location fetcher, unless the ring buffer is full, in which
+ * case the fetchers wait for room according to the configured {@link WaitStrategy}.</p>
+ */
+public class TrackingPipeline
+{
+    private Logger logger = LoggerFactory.getLogger( TrackingPipeline.class );
+
+    private final Function<UUID, VisitedLocation> locationProvider;
+    private final BiConsumer<User, VisitedLocation> locationRecorder;
+    private final RewardsService rewardsService;
+    private final TrackingPipelineSettings settings;
+
+    private final ThreadPoolExecutor locationFetchers;
+    private final BoundedRingBuffer<LocationEvent> rewardQueue;
+    private final List<Thread> rewardWorkers = new ArrayList<>( );
+
+    private final PipelineStageMetrics locationStage = new PipelineStageMetrics( "location" );
+    private final PipelineStageMetrics rewardStage   = new PipelineStageMetrics( "rewards" );
+
+    private volatile boolean running        = true;
+    private volatile boolean workersStarted = false;
+
+
+    public TrackingPipeline( Function<UUID, VisitedLocation> locationProvider, BiConsumer<User, VisitedLocation> locationRecorder,
+                             RewardsService rewardsService, TrackingPipelineSettings settings )
+    {
+        this.locationProvider = locationProvider;
+        this.locationRecorder = locationRecorder;
+        this.rewardsService = rewardsService;
+        this.settings = settings;
+        this.rewardQueue = new BoundedRingBuffer<>( settings.getRingBufferCapacity( ) );
+
+        AtomicInteger fetcherCount = new AtomicInteger( );
+        this.locationFetchers = new ThreadPoolExecutor( settings.getLocationFetchers( ), settings.getLocationFetchers( ),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>( ), runnable -> {
+                    Thread thread = new Thread( runnable, "location-fetcher-" + fetcherCount.incrementAndGet( ) );
+                    thread.setDaemon( true );
+                    return thread;
+                } );
+        this.locationFetchers.allowCoreThreadTimeOut( true );
+    }
+
+
+    /**
+     * Submits a user to the pipeline: its location is fetched asynchronously, then its rewards are calculated.
+     *
+     * @param user the user to track
+     */
+    public void submit( User user )
+    {
+        startRewardWorkers( );
+        locationStage.onSubmitted( );
+        locationFetchers.execute( ( ) -> {
+            try
+            {
+                VisitedLocation visitedLocation = locationProvider.apply( user.getUserId( ) );
+                locationRecorder.accept( user, visitedLocation );
+                publish( new LocationEvent( user, visitedLocation ) );
+            } catch ( RuntimeException e )
+            {
+                logger.error( "Failed to track location of user {}", user.getUserName( ), e );
+            } finally
+            {
+                locationStage.onCompleted( 1 );
+            }
+        } );
+    }
+
+
+    /**
+     * Submits a user to the pipeline unless too many users are already waiting for their location, so that a bulk
+     * producer cannot grow the queue of the location fetchers without bound.
+     *
+     * @param user       the user to track
+     * @param maxBacklog the number of users waiting for or fetching their location above which the user is refused
+     * @return {@code true} if the user was submitted
+     */
+    public boolean offer( User user, int maxBacklog )
+    {
+        if ( locationStage.getInFlight( ) >= maxBacklog )
+        {
+            return false;
+        }
+        submit( user );
+        return true;
+    }
+
+
+    /**
+     * Waits until every submitted user went through both stages.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return {@code true} if the pipeline is idle, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean awaitIdle( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        long deadline = System.nanoTime( ) + unit.toNanos( timeout );
+        while ( locationStage.getInFlight( ) > 0 || rewardStage.getInFlight( ) > 0 )
+        {
+            if ( System.nanoTime( ) >= deadline )
+            {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep( 10 );
+        }
+        return true;
+    }
+
+
+    /**
+     * Retrieves the queue depth, in-flight count and throughput of each stage.
+     *
+     * @return the statistics of the location stage followed by those of the rewards stage
+     */
+    public List<PipelineStageStatsDTO> getStats( )
+    {
+        return List.of( locationStage.getStats( locationFetchers.getQueue( ).size( ) ),
+                rewardStage.getStats( rewardQueue.size( ) ) );
+    }
+
+
+    /**
+     * Stops both stages. Events still in the ring buffer are processed before the reward workers exit, within the
+     * given timeout; the workers still running then are interrupted.
+     *
+     * @param timeout the maximum time to wait for the reward workers to drain the ring buffer
+     * @param unit    the unit of the timeout
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void shutdown( long timeout, TimeUnit unit ) throws InterruptedException
+    {
+        List<Thread> workers;
+        synchronized ( rewardWorkers )
+        {
+            running = false;
+            workers = List.copyOf( rewardWorkers );
+        }
+        locationFetchers.shutdownNow( );
+
+        long deadline = System.nanoTime( ) + unit.toNanos( timeout );
+        for ( Thread worker : workers )
+        {
+            worker.join( Math.max( 1, TimeUnit.NANOSECONDS.toMillis( deadline - System.nanoTime( ) ) ) );
+            if ( worker.isAlive( ) )
+            {
+                worker.interrupt( );
+            }
+        }
+    }
+
+
+    private void publish( LocationEvent event )
+    {
+        rewardStage.onSubmitted( );
+        int attempt = 0;
+        while ( !rewardQueue.offer( event ) )
+        {
+            if ( !running )
+            {
+                rewardStage.onCompleted( 1 );
+                return;
+            }
+            settings.getWaitStrategy( ).idle( attempt++ );
+        }
+    }
+
+
+    private void startRewardWorkers( )
+    {
+        if ( workersStarted )
+        {
+            return;
+        }
+        synchronized ( rewardWorkers )
+        {
+            if ( !running )
+            {
+                return;
+            }
+            for ( int i = rewardWorkers.size( ); i < settings.getRewardWorkers( ); i++ )
+            {
+                Thread worker = new Thread( this::drainRewardQueue, "reward-worker-" + ( i + 1 ) );
+                worker.setDaemon( true );
+                worker.start( );
+                rewardWorkers.add( worker );
+            }
+            workersStarted = true;
+        }
+    }
+
+
+    private void drainRewardQueue( )
+    {
+        List<LocationEvent> batch = new ArrayList<>( settings.getBatchSize( ) );
+        int attempt = 0;
+        // Interrupted when the pipeline is shut down without having drained the ring buffer in time
+        while ( ( running || rewardQueue.size( ) > 0 ) && !Thread.currentThread( ).isInterrupted( ) )
+        {
+            if ( rewardQueue.drainTo( batch, settings.getBatchSize( ) ) == 0 )
+            {
+                settings.getWaitStrategy( ).idle( attempt++ );
+                continue;
+            }
+            attempt = 0;
+
+            // The rewards engine evaluates every new location of a user at once
+            Set<User> users = Collections.newSetFromMap( new IdentityHashMap<>( ) );
+            batch.forEach( event -> users.add( event.getUser( ) ) );
+            for ( User user : users )
+            {
+                try
+                {
+                    rewardsService.calculateRewards( user );
+                } catch ( RuntimeException e )
+                {
+                    logger.error( "Failed to calculate rewards of user {}", user.getUserName( ), e );
+                }
+            }
+            rewardStage.onCompleted( batch.size( ) );
+            batch.clear( );
+        }
+    }
+}
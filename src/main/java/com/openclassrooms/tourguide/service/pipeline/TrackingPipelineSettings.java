@@ -0,0 +1,18 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import lombok.Data;
+
+/**
+ * Sizing of the {@link TrackingPipeline} stages, bound to the {@code tourguide.tracking.pipeline} properties.
+ */
+@Data
+public class TrackingPipelineSettings
+{
+    // Threads fetching users' locations from gpsUtil
+    private int          locationFetchers   = 256;
+    // Threads draining the ring buffer to calculate rewards
+    private int          rewardWorkers      = 4;
+    private int          ringBufferCapacity = 65536;
+    private int          batchSize          = 256;
+    private WaitStrategy waitStrategy       = WaitStrategy.SLEEPING;
+}
@@ -0,0 +1,74 @@
+package com.openclassrooms.tourguide.service.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tells a pipeline thread how to wait when it cannot make progress: a producer facing a full ring buffer,
+ * or a consumer facing an empty one. The trade-off is between reaction time and CPU burnt while idle.
+ */
+public enum WaitStrategy
+{
+    /**
+     * Spins on the CPU: lowest latency, but keeps one core busy per waiting thread.
+     */
+    BUSY_SPIN
+    {
+        @Override
+        public void idle( int attempt )
+        {
+            Thread.onSpinWait( );
+        }
+    },
+
+    /**
+     * Spins briefly, then yields the CPU to other threads.
+     */
+    YIELDING
+    {
+        @Override
+        public void idle( int attempt )
+        {
+            if ( attempt < SPIN_ATTEMPTS )
+            {
+                Thread.onSpinWait( );
+            } else
+            {
+                Thread.yield( );
+            }
+        }
+    },
+
+    /**
+     * Spins, yields, then parks the thread for an increasing delay capped to one millisecond.
+     */
+    SLEEPING
+    {
+        @Override
+        public void idle( int attempt )
+        {
+            if ( attempt < SPIN_ATTEMPTS )
+            {
+                Thread.onSpinWait( );
+            } else if ( attempt < SPIN_ATTEMPTS + YIELD_ATTEMPTS )
+            {
+                Thread.yield( );
+            } else
+            {
+                int parks = Math.min( attempt - SPIN_ATTEMPTS - YIELD_ATTEMPTS, 10 );
+                LockSupport.parkNanos( Math.min( MAX_PARK_NANOS, 1000L << parks ) );
+            }
+        }
+    };
+
+    private static final int  SPIN_ATTEMPTS  = 100;
+    private static final int  YIELD_ATTEMPTS = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+    /**
+     * Waits once before the caller retries.
+     *
+     * @param attempt the number of consecutive unsuccessful attempts so far, starting at 0
+     */
+    public abstract void idle( int attempt );
+}
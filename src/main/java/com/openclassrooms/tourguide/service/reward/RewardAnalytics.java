@@ -0,0 +1,155 @@
+package com.openclassrooms.tourguide.service.reward;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.AttractionRewardStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.LeaderboardEntryDTO;
+import com.openclassrooms.tourguide.domain.dto.RewardStatsDTO;
+
+/**
+ * The {@code RewardAnalytics} class maintains the reward leaderboard and the population-wide reward statistics
+ * as rewards settle, so that reading them never scans the users' rewards.
+ *
+ * <ul>
+ *     <li>the leaderboard is a skip list ordered by cumulative points: a user's entry is replaced in O(log n) each
+ *     time its points grow, and the top k users are read in O(k)</li>
+ *     <li>rewards and points are counted per attraction, and users per range of cumulative points, in striped
+ *     {@link LongAdder}s that concurrent reward lookups update without contending</li>
+ * </ul>
+ */
+public class RewardAnalytics implements RewardListener
+{
+    public static final int POINTS_BUCKET_WIDTH = 1000;
+    // Largest leaderboard served at once
+    public static final int MAX_LEADERBOARD_SIZE = 1000;
+
+    private static final Comparator<LeaderboardEntry> RANKING = Comparator
+            .comparingInt( LeaderboardEntry::rewardPoints ).reversed( )
+            .thenComparing( LeaderboardEntry::userId );
+
+    private final ConcurrentSkipListSet<LeaderboardEntry> leaderboard = new ConcurrentSkipListSet<>( RANKING );
+    private final Map<UUID, LeaderboardEntry> userEntries = new ConcurrentHashMap<>( );
+
+    private final Map<String, AttractionCounters> attractionCounters = new ConcurrentHashMap<>( );
+    private final Map<Integer, LongAdder> pointsBuckets = new ConcurrentHashMap<>( );
+    private final LongAdder totalRewards      = new LongAdder( );
+    private final LongAdder totalRewardPoints = new LongAdder( );
+
+
+    @Override
+    public void onRewardSettled( User user, UserReward reward, int cumulativeRewardPoints )
+    {
+        totalRewards.increment( );
+        totalRewardPoints.add( reward.getRewardPoints( ) );
+        AttractionCounters counters = attractionCounters.computeIfAbsent( reward.attraction.attractionName,
+                attractionName -> new AttractionCounters( ) );
+        counters.rewards.increment( );
+        counters.rewardPoints.add( reward.getRewardPoints( ) );
+
+        // Atomic per user: settlements received out of order never lower its entry
+        userEntries.compute( user.getUserId( ), ( userId, entry ) -> {
+            if ( entry != null && entry.rewardPoints( ) >= cumulativeRewardPoints )
+            {
+                return entry;
+            }
+            if ( entry != null )
+            {
+                leaderboard.remove( entry );
+                getPointsBucket( entry.rewardPoints( ) ).decrement( );
+            }
+            LeaderboardEntry updated = new LeaderboardEntry( userId, user.getUserName( ), cumulativeRewardPoints );
+            leaderboard.add( updated );
+            getPointsBucket( cumulativeRewardPoints ).increment( );
+            return updated;
+        } );
+    }
+
+
+    /**
+     * Retrieves the users with the most reward points.
+     *
+     * @param count the number of users to retrieve
+     * @return at most {@code count} users, by decreasing points
+     */
+    public List<LeaderboardEntryDTO> getLeaderboard( int count )
+    {
+        List<LeaderboardEntryDTO> entries = new ArrayList<>( Math.min( count, 1024 ) );
+        Iterator<LeaderboardEntry> iterator = leaderboard.iterator( );
+        while ( entries.size( ) < count && iterator.hasNext( ) )
+        {
+            LeaderboardEntry entry = iterator.next( );
+            LeaderboardEntryDTO entryDTO = new LeaderboardEntryDTO( );
+            entryDTO.setRank( entries.size( ) + 1 );
+            entryDTO.setUserName( entry.userName( ) );
+            entryDTO.setRewardPoints( entry.rewardPoints( ) );
+            entries.add( entryDTO );
+        }
+        return entries;
+    }
+
+
+    /**
+     * Retrieves the reward statistics of every user.
+     *
+     * @return the totals, the totals per attraction and the distribution of the users' cumulative points
+     */
+    public RewardStatsDTO getStats( )
+    {
+        List<AttractionRewardStatsDTO> attractions = new ArrayList<>( );
+        attractionCounters.forEach( ( attractionName, counters ) -> {
+            AttractionRewardStatsDTO attractionDTO = new AttractionRewardStatsDTO( );
+            attractionDTO.setAttractionName( attractionName );
+            attractionDTO.setRewards( counters.rewards.sum( ) );
+            attractionDTO.setRewardPoints( counters.rewardPoints.sum( ) );
+            attractions.add( attractionDTO );
+        } );
+        attractions.sort( Comparator.comparing( AttractionRewardStatsDTO::getAttractionName ) );
+
+        SortedMap<Integer, Long> distribution = new TreeMap<>( );
+        pointsBuckets.forEach( ( bucket, users ) -> {
+            long count = users.sum( );
+            if ( count > 0 )
+            {
+                distribution.put( bucket * POINTS_BUCKET_WIDTH, count );
+            }
+        } );
+
+        RewardStatsDTO stats = new RewardStatsDTO( );
+        stats.setTotalRewards( totalRewards.sum( ) );
+        stats.setTotalRewardPoints( totalRewardPoints.sum( ) );
+        stats.setRewardedUsers( userEntries.size( ) );
+        stats.setAttractions( attractions );
+        stats.setPointsDistribution( distribution );
+        return stats;
+    }
+
+
+    private LongAdder getPointsBucket( int rewardPoints )
+    {
+        return pointsBuckets.computeIfAbsent( rewardPoints / POINTS_BUCKET_WIDTH, bucket -> new LongAdder( ) );
+    }
+
+
+    private record LeaderboardEntry( UUID userId, String userName, int rewardPoints )
+    {
+    }
+
+
+    private static class AttractionCounters
+    {
+        private final LongAdder rewards      = new LongAdder( );
+        private final LongAdder rewardPoints = new LongAdder( );
+    }
+}
@@ -0,0 +1,21 @@
+package com.openclassrooms.tourguide.service.reward;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+
+/**
+ * Receives the rewards created by the {@code RewardsService}, once their points are settled.
+ *
+ * <p>Listeners are called on the thread completing the reward point lookup, so the rewards of a user may be
+ * received concurrently and out of order; the cumulative points of the user only ever grow.</p>
+ */
+@FunctionalInterface
+public interface RewardListener
+{
+    /**
+     * @param user                   the rewarded user
+     * @param reward                 the reward, with its settled points
+     * @param cumulativeRewardPoints the cumulative points of the user once this reward was counted
+     */
+    void onRewardSettled( User user, UserReward reward, int cumulativeRewardPoints );
+}
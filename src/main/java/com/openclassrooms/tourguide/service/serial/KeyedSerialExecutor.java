@@ -0,0 +1,250 @@
+package com.openclassrooms.tourguide.service.serial;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code KeyedSerialExecutor} class runs tasks one at a time per key, in submission order, while tasks of
+ * different keys run in parallel: each key behaves like an actor processing its mailbox.
+ *
+ * <p>Keys are hashed onto a fixed number of stripes, each holding a lock-free queue of tasks and a flag telling
+ * whether a drain of the queue is scheduled on the underlying executor. Submitting a task only enqueues it and,
+ * if the stripe was idle, schedules a drain; no lock is ever taken. Two keys sharing a stripe are serialized
+ * together, which keeps the memory bounded whatever the number of keys.</p>
+ *
+ * <p>A drain runs at most {@code MAX_TASKS_PER_DRAIN} tasks before yielding its thread to the other stripes. A task
+ * may submit to or call its own stripe: calls are then run inline, so that a task never waits for itself.</p>
+ *
+ * @param <K> the type of the keys
+ */
+public class KeyedSerialExecutor<K>
+{
+    private static final int MAX_TASKS_PER_DRAIN = 64;
+
+    private Logger logger = LoggerFactory.getLogger( KeyedSerialExecutor.class );
+
+    private final Stripe[] stripes;
+    private final Executor executor;
+    private final ThreadLocal<Stripe> drainingStripe = new ThreadLocal<>( );
+
+
+    /**
+     * @param stripes  the number of stripes, rounded up to a power of two
+     * @param executor the executor running the drains of the stripes
+     */
+    public KeyedSerialExecutor( int stripes, Executor executor )
+    {
+        int size = Integer.highestOneBit( Math.max( 1, stripes - 1 ) ) << 1;
+        this.stripes = new Stripe[ size ];
+        for ( int i = 0; i < size; i++ )
+        {
+            this.stripes[ i ] = new Stripe( );
+        }
+        this.executor = executor;
+    }
+
+
+    /**
+     * Submits a task to run after every task previously submitted for the same key.
+     *
+     * @param key  the key the task is serialized on
+     * @param task the task to run
+     * @param <T>  the type of the result
+     * @return a future completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submit( K key, Supplier<T> task )
+    {
+        CompletableFuture<T> result = new CompletableFuture<>( );
+        enqueue( getStripe( key ), ( ) -> {
+            try
+            {
+                result.complete( task.get( ) );
+            } catch ( Throwable e )
+            {
+                result.completeExceptionally( e );
+            }
+        } );
+        return result;
+    }
+
+
+    /**
+     * Submits a task to run after every task previously submitted for the same key, without waiting for it.
+     *
+     * @param key  the key the task is serialized on
+     * @param task the task to run
+     */
+    public void execute( K key, Runnable task )
+    {
+        enqueue( getStripe( key ), task );
+    }
+
+
+    /**
+     * Runs a task after every task previously submitted for the same key, and waits for its result.
+     * Called from a task of the same stripe, the task runs at once.
+     *
+     * @param key  the key the task is serialized on
+     * @param task the task to run
+     * @param <T>  the type of the result
+     * @return the result of the task
+     */
+    public <T> T call( K key, Supplier<T> task )
+    {
+        Stripe stripe = getStripe( key );
+        if ( drainingStripe.get( ) == stripe )
+        {
+            return task.get( );
+        }
+        try
+        {
+            return submit( key, task ).get( );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new CancellationException( "Interrupted while waiting for a task of " + key );
+        } catch ( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof RuntimeException runtimeException )
+            {
+                throw runtimeException;
+            }
+            if ( e.getCause( ) instanceof Error error )
+            {
+                throw error;
+            }
+            throw new CompletionException( e.getCause( ) );
+        }
+    }
+
+
+    /**
+     * Runs a task after every task previously submitted for the same key, and waits for it to complete.
+     *
+     * @param key  the key the task is serialized on
+     * @param task the task to run
+     */
+    public void run( K key, Runnable task )
+    {
+        call( key, ( ) -> {
+            task.run( );
+            return null;
+        } );
+    }
+
+
+    /**
+     * Retrieves the number of tasks waiting to run, across every key.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueuedTasks( )
+    {
+        int queued = 0;
+        for ( Stripe stripe : stripes )
+        {
+            queued += stripe.tasks.size( );
+        }
+        return queued;
+    }
+
+
+    private Stripe getStripe( K key )
+    {
+        int hash = key.hashCode( );
+        return stripes[ ( hash ^ ( hash >>> 16 ) ) & ( stripes.length - 1 ) ];
+    }
+
+
+    private void enqueue( Stripe stripe, Runnable task )
+    {
+        stripe.tasks.add( task );
+        try
+        {
+            scheduleIfIdle( stripe );
+        } catch ( RejectedExecutionException e )
+        {
+            // The task will never run, so it is not left behind for a later drain either
+            stripe.tasks.remove( task );
+            throw e;
+        }
+    }
+
+
+    /**
+     * Schedules a drain of the stripe unless one is already scheduled.
+     *
+     * @throws RejectedExecutionException if the executor rejects the drain, the stripe being left idle
+     */
+    private void scheduleIfIdle( Stripe stripe )
+    {
+        if ( stripe.scheduled.compareAndSet( false, true ) )
+        {
+            try
+            {
+                executor.execute( ( ) -> drain( stripe ) );
+            } catch ( RejectedExecutionException e )
+            {
+                // Otherwise the stripe would look scheduled forever, and its keys would never run again
+                stripe.scheduled.set( false );
+                throw e;
+            }
+        }
+    }
+
+
+    private void drain( Stripe stripe )
+    {
+        drainingStripe.set( stripe );
+        try
+        {
+            Runnable task;
+            for ( int i = 0; i < MAX_TASKS_PER_DRAIN && ( task = stripe.tasks.poll( ) ) != null; i++ )
+            {
+                try
+                {
+                    task.run( );
+                } catch ( Throwable e )
+                {
+                    logger.error( "Serial task failed", e );
+                }
+            }
+        } finally
+        {
+            drainingStripe.remove( );
+            stripe.scheduled.set( false );
+        }
+        // A task enqueued after the last poll saw the stripe still scheduled, so it is scheduled again here
+        if ( !stripe.tasks.isEmpty( ) )
+        {
+            try
+            {
+                scheduleIfIdle( stripe );
+            } catch ( RejectedExecutionException e )
+            {
+                logger.warn( "Serial tasks left queued, the executor being shut down", e );
+            }
+        }
+    }
+
+
+    /**
+     * Mailbox of the keys hashed onto it.
+     */
+    private static class Stripe
+    {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>( );
+        private final AtomicBoolean scheduled = new AtomicBoolean( );
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
 @Service
@@ -28,7 +29,7 @@ public class TestingService
     public static final String tripPricerApiKey = "test-server-api-key";
     // Database connection will be used for external users, but for testing purposes
     // internal users are provided and stored in memory
-    public final Map<String, User> internalUserMap = new HashMap<>( );
+    public final Map<String, User> internalUserMap = new ConcurrentHashMap<>( );
 
     /**
      * Initializes internal test users for testing purposes.
@@ -41,7 +42,8 @@ public class TestingService
             String userName = "internalUser" + i;
             String phone = "000";
             String email = userName + "@tourGuide.com";
-            User user = new User( UUID.randomUUID( ), userName, phone, email );
+            // Name-based ids, so that runs and partitioned nodes generate the same users
+            User user = new User( User.nameBasedId( userName ), userName, phone, email );
             generateUserLocationHistory( user );
 
             internalUserMap.put( userName, user );
@@ -0,0 +1,237 @@
+package com.openclassrooms.tourguide.service.visit;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleBiFunction;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.DailyVisitsDTO;
+import com.openclassrooms.tourguide.domain.dto.VisitDTO;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * The {@code StayPointDetector} class turns users' visited locations into visits, as they are recorded.
+ *
+ * <p>Consecutive locations within {@code radiusMiles} of the first one of a group are grouped: once the next location
+ * leaves the radius, the group makes a visit if the user stayed at least {@code minDwell} in it, and a new group
+ * starts. A visit is located at the center of its locations and linked to the attraction nearest to it.</p>
+ *
+ * <p>Visits are kept per user and per day of arrival, in UTC, so that the visits of a day are answered without
+ * reading the user's locations. A user's state is built from their visited locations when first observed, then each
+ * new location is processed once; a location older than the last processed one, e.g. imported late, is ignored.</p>
+ *
+ * <p>Observations must be serialized per user, e.g. by the user's serial executor; queries may run concurrently.</p>
+ */
+public class StayPointDetector
+{
+    private final StayPointSettings settings;
+    private final ToDoubleBiFunction<Location, Location> distance;
+    private final Function<Location, Map.Entry<Attraction, Double>> nearestAttraction;
+
+    private final Map<UUID, UserVisits> users = new ConcurrentHashMap<>( );
+
+
+    /**
+     * @param settings          the radius, dwell time and retention of the visits
+     * @param distance          the distance function, in statute miles
+     * @param nearestAttraction the attraction nearest to a location with its distance, or {@code null} if none
+     */
+    public StayPointDetector( StayPointSettings settings, ToDoubleBiFunction<Location, Location> distance,
+                              Function<Location, Map.Entry<Attraction, Double>> nearestAttraction )
+    {
+        this.settings = settings;
+        this.distance = distance;
+        this.nearestAttraction = nearestAttraction;
+    }
+
+
+    /**
+     * Processes a location just added to the user's visited locations. The first observation of a user processes
+     * all their visited locations.
+     *
+     * @param user            the user
+     * @param visitedLocation the location added
+     */
+    public void observe( User user, VisitedLocation visitedLocation )
+    {
+        UserVisits visits = users.get( user.getUserId( ) );
+        if ( visits == null )
+        {
+            UserVisits replayed = new UserVisits( );
+            synchronized ( replayed )
+            {
+                user.getVisitedLocations( ).forEach( location -> add( replayed, location ) );
+            }
+            users.put( user.getUserId( ), replayed );
+            return;
+        }
+        synchronized ( visits )
+        {
+            add( visits, visitedLocation );
+        }
+    }
+
+
+    /**
+     * Forgets a user, e.g. handed off to another node.
+     *
+     * @param userId the id of the user
+     */
+    public void remove( UUID userId )
+    {
+        users.remove( userId );
+    }
+
+
+    /**
+     * Retrieves the visits of a user that started on a given day, including the ongoing one.
+     *
+     * @param userId the id of the user
+     * @param date   the day of arrival, in UTC
+     * @return the visits of the day, in arrival order, and their totals
+     */
+    public DailyVisitsDTO getVisits( UUID userId, LocalDate date )
+    {
+        List<VisitDTO> dayVisits = new ArrayList<>( );
+        UserVisits visits = users.get( userId );
+        if ( visits != null )
+        {
+            synchronized ( visits )
+            {
+                visits.days.getOrDefault( date, List.of( ) ).forEach( visit -> dayVisits.add( toVisit( visit, false ) ) );
+                Group current = visits.current;
+                if ( current != null && isVisit( current ) && dayOf( current.arrival ).equals( date ) )
+                {
+                    dayVisits.add( toVisit( current.toVisit( ), true ) );
+                }
+            }
+        }
+
+        DailyVisitsDTO daily = new DailyVisitsDTO( );
+        daily.setDate( date );
+        daily.setVisits( dayVisits );
+        daily.setTotalDwellMinutes( dayVisits.stream( ).mapToLong( VisitDTO::getDwellMinutes ).sum( ) );
+        daily.setDistinctAttractions( (int) dayVisits.stream( ).map( VisitDTO::getAttractionName ).distinct( ).count( ) );
+        return daily;
+    }
+
+
+    private void add( UserVisits visits, VisitedLocation visitedLocation )
+    {
+        long time = visitedLocation.timeVisited.getTime( );
+        if ( time < visits.lastTime )
+        {
+            return;
+        }
+        visits.lastTime = time;
+
+        Group current = visits.current;
+        if ( current != null && distance.applyAsDouble( current.anchor, visitedLocation.location ) <= settings.getRadiusMiles( ) )
+        {
+            current.add( visitedLocation.location, time );
+            return;
+        }
+        if ( current != null && isVisit( current ) )
+        {
+            Visit visit = current.toVisit( );
+            LocalDate day = dayOf( visit.arrival( ) );
+            visits.days.computeIfAbsent( day, d -> new ArrayList<>( ) ).add( visit );
+            visits.days.headMap( day.minusDays( settings.getRetainedDays( ) ) ).clear( );
+        }
+        visits.current = new Group( visitedLocation.location, time );
+    }
+
+    private boolean isVisit( Group group )
+    {
+        return group.departure - group.arrival >= settings.getMinDwell( ).toMillis( );
+    }
+
+    private VisitDTO toVisit( Visit visit, boolean ongoing )
+    {
+        VisitDTO visitDTO = new VisitDTO( );
+        visitDTO.setLocation( visit.location( ) );
+        visitDTO.setArrival( new Date( visit.arrival( ) ) );
+        visitDTO.setDeparture( new Date( visit.departure( ) ) );
+        visitDTO.setDwellMinutes( TimeUnit.MILLISECONDS.toMinutes( visit.departure( ) - visit.arrival( ) ) );
+        visitDTO.setLocations( visit.locations( ) );
+        visitDTO.setOngoing( ongoing );
+        if ( visit.attraction( ) != null )
+        {
+            visitDTO.setAttractionName( visit.attraction( ).getKey( ).attractionName );
+            visitDTO.setAttractionDistanceInMiles( visit.attraction( ).getValue( ) );
+        }
+        return visitDTO;
+    }
+
+    private static LocalDate dayOf( long time )
+    {
+        return LocalDate.ofInstant( Instant.ofEpochMilli( time ), ZoneOffset.UTC );
+    }
+
+
+    /**
+     * Visits and ongoing group of locations of a user, guarded by its own monitor.
+     */
+    private static class UserVisits
+    {
+        private final TreeMap<LocalDate, List<Visit>> days = new TreeMap<>( );
+        private Group current;
+        private long lastTime = Long.MIN_VALUE;
+    }
+
+
+    /**
+     * Consecutive locations within the radius of the first one. Longitudes are summed relative to the first one,
+     * so that the center of a group across the antimeridian is not averaged to the other side of the earth.
+     */
+    private class Group
+    {
+        private final Location anchor;
+        private final long arrival;
+        private long departure;
+        private int locations = 1;
+        private double latitudeSum;
+        private double longitudeOffsetSum;
+
+        Group( Location anchor, long arrival )
+        {
+            this.anchor = anchor;
+            this.arrival = arrival;
+            this.departure = arrival;
+            this.latitudeSum = anchor.latitude;
+        }
+
+        void add( Location location, long time )
+        {
+            locations++;
+            departure = time;
+            latitudeSum += location.latitude;
+            longitudeOffsetSum += Math.IEEEremainder( location.longitude - anchor.longitude, 360 );
+        }
+
+        // The attraction of a visit is looked up once it ends, and on each query while it is ongoing
+        Visit toVisit( )
+        {
+            double longitude = Math.IEEEremainder( anchor.longitude + longitudeOffsetSum / locations, 360 );
+            Location center = new Location( latitudeSum / locations, longitude );
+            return new Visit( center, arrival, departure, locations, nearestAttraction.apply( center ) );
+        }
+    }
+
+
+    private record Visit( Location location, long arrival, long departure, int locations, Map.Entry<Attraction, Double> attraction )
+    {
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.tourguide.service.visit;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+/**
+ * Settings of the {@link StayPointDetector}, bound to the {@code tourguide.stay-points} properties.
+ */
+@Data
+public class StayPointSettings
+{
+    // Consecutive locations within this distance of the first one of a visit belong to it
+    private double   radiusMiles  = 0.125;
+    // Shortest time spent within the radius to make a visit
+    private Duration minDwell     = Duration.ofMinutes( 20 );
+    // Days of visits kept per user, older days being dropped
+    private int      retainedDays = 30;
+}
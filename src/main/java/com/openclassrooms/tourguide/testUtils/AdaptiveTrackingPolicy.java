@@ -0,0 +1,137 @@
+package com.openclassrooms.tourguide.testUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.service.LocationService;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+
+/**
+ * The {@code AdaptiveTrackingPolicy} class decides when each user should next be polled by the {@link Tracker}.
+ * The delay is derived from the user's two most recent visited locations (displacement and speed) and from the
+ * distance separating the user from the closest attraction fence, i.e. an attraction widened by the
+ * {@code LocationService} proximity buffer.
+ *
+ * <p>Stationary users far from any attraction are polled rarely, while users moving towards a fence are polled
+ * often enough to be sampled inside it before they leave it again.</p>
+ */
+public class AdaptiveTrackingPolicy
+{
+    public static final long MIN_POLLING_INTERVAL     = TimeUnit.MINUTES.toSeconds( 1 );
+    public static final long DEFAULT_POLLING_INTERVAL = TimeUnit.MINUTES.toSeconds( 5 );
+    public static final long MAX_POLLING_INTERVAL     = TimeUnit.MINUTES.toSeconds( 30 );
+
+    // Below this speed a user is considered stationary, above the other one the displacement is a GPS jump
+    private static final double STATIONARY_SPEED_MPH    = 0.5;
+    private static final double MAX_PLAUSIBLE_SPEED_MPH = 600;
+
+    private final LocationService locationService;
+    private final Map<UUID, Long> nextPollTimes = new ConcurrentHashMap<>( );
+    private volatile List<Attraction> attractions;
+
+
+    public AdaptiveTrackingPolicy( LocationService locationService )
+    {
+        this.locationService = locationService;
+    }
+
+
+    /**
+     * Checks whether the given user must be polled at the given time.
+     * Users that were never scheduled are always due.
+     *
+     * @param user        the user to check
+     * @param nowInMillis the current time in milliseconds
+     * @return {@code true} if the user's next poll time has been reached, {@code false} otherwise
+     */
+    public boolean isDue( User user, long nowInMillis )
+    {
+        Long nextPollTime = nextPollTimes.get( user.getUserId( ) );
+        return nextPollTime == null || nextPollTime <= nowInMillis;
+    }
+
+
+    /**
+     * Computes and stores the next poll time of a user that has just been tracked.
+     *
+     * @param user        the user that has just been tracked
+     * @param nowInMillis the current time in milliseconds
+     * @return the delay in seconds before the next poll of the user
+     */
+    public long scheduleNextPoll( User user, long nowInMillis )
+    {
+        long delay = getNextPollingInterval( user );
+        nextPollTimes.put( user.getUserId( ), nowInMillis + TimeUnit.SECONDS.toMillis( delay ) );
+        return delay;
+    }
+
+
+    /**
+     * Computes the delay in seconds before the next poll of a user from its recent movement.
+     *
+     * <p>The delay is half the time the user needs, at its current speed, to reach the closest attraction fence.
+     * It falls back to the default interval when the speed is unknown or implausible, or when the user is already
+     * inside a fence, and it never exceeds the default interval once the user gets close to a fence.</p>
+     *
+     * @param user the user whose next poll is to be scheduled
+     * @return the delay in seconds, between {@link #MIN_POLLING_INTERVAL} and {@link #MAX_POLLING_INTERVAL}
+     */
+    public long getNextPollingInterval( User user )
+    {
+        List<VisitedLocation> visitedLocations = user.getVisitedLocations( );
+        if ( visitedLocations.size( ) < 2 )
+        {
+            return DEFAULT_POLLING_INTERVAL;
+        }
+
+        VisitedLocation last = visitedLocations.get( visitedLocations.size( ) - 1 );
+        VisitedLocation previous = visitedLocations.get( visitedLocations.size( ) - 2 );
+        long elapsedMillis = last.timeVisited.getTime( ) - previous.timeVisited.getTime( );
+        if ( elapsedMillis <= 0 )
+        {
+            return DEFAULT_POLLING_INTERVAL;
+        }
+
+        double displacement = locationService.getDistance( previous.location, last.location );
+        double speed = displacement / ( elapsedMillis / (double) TimeUnit.HOURS.toMillis( 1 ) );
+        if ( speed > MAX_PLAUSIBLE_SPEED_MPH )
+        {
+            return DEFAULT_POLLING_INTERVAL;
+        }
+
+        int proximityBuffer = locationService.getProximityBuffer( );
+        double distanceToFence = getDistanceToClosestAttraction( last ) - proximityBuffer;
+        if ( distanceToFence <= 0 )
+        {
+            return DEFAULT_POLLING_INTERVAL;
+        }
+
+        // Stationary users cannot reach a fence, but those standing next to one may start moving at any time
+        long ceiling = distanceToFence < proximityBuffer ? DEFAULT_POLLING_INTERVAL : MAX_POLLING_INTERVAL;
+        if ( speed < STATIONARY_SPEED_MPH )
+        {
+            return ceiling;
+        }
+
+        long secondsToFence = (long) ( distanceToFence / speed * TimeUnit.HOURS.toSeconds( 1 ) );
+        return Math.max( MIN_POLLING_INTERVAL, Math.min( ceiling, secondsToFence / 2 ) );
+    }
+
+
+    private double getDistanceToClosestAttraction( VisitedLocation visitedLocation )
+    {
+        if ( attractions == null )
+        {
+            attractions = locationService.getGpsUtil( ).getAttractions( );
+        }
+        return attractions.stream( )
+                .mapToDouble( attraction -> locationService.getDistance( attraction, visitedLocation.location ) )
+                .min( )
+                .orElse( Double.MAX_VALUE );
+    }
+}
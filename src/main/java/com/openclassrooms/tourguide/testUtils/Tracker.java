@@ -10,22 +10,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.flight.TrackerCycleEvent;
 import com.openclassrooms.tourguide.domain.User;
 
 public class Tracker extends Thread
 {
     private Logger logger 							  = LoggerFactory.getLogger( Tracker.class );
 
-    private static final long trackingPollingInterval = TimeUnit.MINUTES.toSeconds( 5 );
+    // The tracker wakes up at the shortest polling interval and only tracks the users that are due
+    private static final long trackingPollingInterval = AdaptiveTrackingPolicy.MIN_POLLING_INTERVAL;
     private final ExecutorService executorService 	  = Executors.newSingleThreadExecutor( );
     private final UserService userService;
+    private final AdaptiveTrackingPolicy trackingPolicy;
 
     private boolean stop 							  = false;
 
 
-    public Tracker( UserService userService )
+    public Tracker( UserService userService, AdaptiveTrackingPolicy trackingPolicy )
     {
         this.userService = userService;
+        this.trackingPolicy = trackingPolicy;
 
         executorService.submit( this );
     }
@@ -51,17 +55,31 @@ public class Tracker extends Thread
                 break;
             }
 
-            List<User> users = userService.getAllUsers( );
+            long cycleStart = System.currentTimeMillis( );
+            // Only this node's partition, when users are partitioned across nodes
+            List<User> ownedUsers = userService.getOwnedUsers( );
+            List<User> users = ownedUsers.stream( )
+                    .filter( user -> trackingPolicy.isDue( user, cycleStart ) )
+                    .toList( );
             logger.info( "Begin Tracker. Tracking {} users.", users.size( ) );
+            TrackerCycleEvent event = new TrackerCycleEvent( );
+            event.begin( );
             stopWatch.start( );
-            users.forEach( userService::trackUserLocation );
+            users.forEach( user -> {
+                userService.trackUserLocation( user );
+                trackingPolicy.scheduleNextPoll( user, System.currentTimeMillis( ) );
+            } );
             stopWatch.stop( );
+            event.ownedUsers = ownedUsers.size( );
+            event.trackedUsers = users.size( );
+            event.commit( );
             logger.info( "Tracker Time Elapsed: {} seconds.", TimeUnit.MILLISECONDS.toSeconds( stopWatch.getTime( ) ) );
             stopWatch.reset( );
             try
             {
                 logger.info( "Tracker sleeping" );
-                TimeUnit.SECONDS.sleep( trackingPollingInterval );
+                TimeUnit.MILLISECONDS.sleep( Math.max( 0, TimeUnit.SECONDS.toMillis( trackingPollingInterval )
+                        - ( System.currentTimeMillis( ) - cycleStart ) ) );
             } catch ( InterruptedException e )
             {
                 break;
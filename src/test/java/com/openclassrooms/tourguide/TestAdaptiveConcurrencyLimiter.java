@@ -0,0 +1,133 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.openclassrooms.tourguide.service.call.AdaptiveConcurrencyLimiter;
+import com.openclassrooms.tourguide.service.call.ConcurrencyLimitSettings;
+import org.junit.jupiter.api.Test;
+
+public class TestAdaptiveConcurrencyLimiter
+{
+    private static final int CALLERS = 64;
+    private static final int CALLS   = 3000;
+
+    @Test
+    public void limitGrowsWhileLatencyHolds( ) throws InterruptedException
+    {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter( "steady", new ConcurrencyLimitSettings( ) );
+
+        // WHEN
+        load( limiter, saturatingStandIn( Integer.MAX_VALUE ) );
+
+        // THEN
+        assertTrue( limiter.getLimit( ) >= CALLERS );
+        assertEquals( CALLS, limiter.getStats( ).getCompleted( ) );
+    }
+
+    @Test
+    public void limitBacksOffWhenLatencyInflates( ) throws InterruptedException
+    {
+        for ( ConcurrencyLimitSettings.Algorithm algorithm : ConcurrencyLimitSettings.Algorithm.values( ) )
+        {
+            // GIVEN
+            ConcurrencyLimitSettings settings = new ConcurrencyLimitSettings( );
+            settings.setAlgorithm( algorithm );
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter( "saturated", settings );
+
+            // WHEN
+            load( limiter, saturatingStandIn( 16 ) );
+
+            System.out.println( "limitBacksOffWhenLatencyInflates: " + algorithm + " limit " + limiter.getLimit( )
+                    + ", latency " + limiter.getStats( ).getLatencyMillis( ) + " ms" );
+
+            // THEN
+            assertTrue( limiter.getLimit( ) < CALLERS * 3 / 4, algorithm + " limit " + limiter.getLimit( ) );
+        }
+    }
+
+    @Test
+    public void queuedAsyncCallsStartAsSlotsAreReleased( )
+    {
+        // GIVEN
+        ConcurrencyLimitSettings settings = new ConcurrencyLimitSettings( );
+        settings.setInitialLimit( 2 );
+        settings.setMaxQueued( 3 );
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter( "queued", settings );
+        List<CompletableFuture<Integer>> pending = new ArrayList<>( );
+        List<CompletableFuture<Integer>> results = new ArrayList<>( );
+
+        // WHEN
+        for ( int i = 0; i < 6; i++ )
+        {
+            results.add( limiter.callAsync( ( ) -> {
+                CompletableFuture<Integer> call = new CompletableFuture<>( );
+                pending.add( call );
+                return call;
+            } ) );
+        }
+
+        // THEN
+        assertEquals( 2, pending.size( ) );
+        assertEquals( 3, limiter.getStats( ).getWaiting( ) );
+        assertThrows( CompletionException.class, ( ) -> results.get( 5 ).join( ) );
+        for ( int i = 0; i < 5; i++ )
+        {
+            pending.get( i ).complete( i );
+        }
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertEquals( i, results.get( i ).join( ) );
+        }
+        assertEquals( 1, limiter.getStats( ).getRejected( ) );
+    }
+
+    /**
+     * Stand-in serving at most the given number of calls at once in about 2 ms each, and queuing the calls beyond:
+     * its latency grows with the calls in flight once saturated.
+     */
+    private Supplier<Integer> saturatingStandIn( int capacity )
+    {
+        Semaphore workers = new Semaphore( capacity, true );
+        return ( ) -> {
+            try
+            {
+                workers.acquire( );
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep( 2 );
+                } finally
+                {
+                    workers.release( );
+                }
+            } catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            return 0;
+        };
+    }
+
+    private void load( AdaptiveConcurrencyLimiter limiter, Supplier<Integer> dependency ) throws InterruptedException
+    {
+        ExecutorService callers = Executors.newFixedThreadPool( CALLERS );
+        for ( int i = 0; i < CALLS; i++ )
+        {
+            callers.execute( ( ) -> limiter.call( dependency ) );
+        }
+        callers.shutdown( );
+        assertTrue( callers.awaitTermination( 1, TimeUnit.MINUTES ) );
+    }
+}
@@ -0,0 +1,114 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.testUtils.AdaptiveTrackingPolicy;
+import org.junit.jupiter.api.Test;
+
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.domain.User;
+
+public class TestAdaptiveTracking
+{
+    private static final long   SIMULATION_DURATION = TimeUnit.HOURS.toSeconds( 3 );
+    private static final double MILES_PER_DEGREE    = 69.0;
+
+    /*
+     * Simulated movement dataset: stationary users spread far away from any attraction, and drivers crossing
+     * an attraction at 60 mph. The fence of an attraction (10 miles proximity buffer) is crossed in 20 minutes.
+     */
+    @Test
+    public void adaptiveTrackingReducesPollsWithoutMissingRewards( )
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        AdaptiveTrackingPolicy trackingPolicy = new AdaptiveTrackingPolicy( locationService );
+        List<Attraction> attractions = gpsUtil.getAttractions( );
+        Random random = new Random( 42 );
+
+        List<LongFunction<Location>> stationaryUsers = new ArrayList<>( );
+        for ( int i = 0; i < 30; i++ )
+        {
+            // South Pacific, thousands of miles away from every attraction
+            Location location = new Location( -40 - random.nextDouble( ) * 20, -140 + random.nextDouble( ) * 20 );
+            stationaryUsers.add( seconds -> location );
+        }
+
+        List<LongFunction<Location>> drivers = new ArrayList<>( );
+        List<Attraction> targets = new ArrayList<>( );
+        for ( int i = 0; i < 10; i++ )
+        {
+            Attraction target = attractions.get( i );
+            // Starts 60 miles north of the attraction and drives south at 60 mph
+            drivers.add( seconds -> new Location( target.latitude + ( 60 - seconds / 60.0 ) / MILES_PER_DEGREE, target.longitude ) );
+            targets.add( target );
+        }
+
+        ToLongFunction<User> fixedPolicy = user -> AdaptiveTrackingPolicy.DEFAULT_POLLING_INTERVAL;
+        ToLongFunction<User> adaptivePolicy = trackingPolicy::getNextPollingInterval;
+
+        // WHEN
+        int fixedPolls = 0;
+        int adaptivePolls = 0;
+        for ( LongFunction<Location> movement : stationaryUsers )
+        {
+            fixedPolls += simulate( movement, fixedPolicy ).size( );
+            adaptivePolls += simulate( movement, adaptivePolicy ).size( );
+        }
+
+        int fixedDetections = 0;
+        int adaptiveDetections = 0;
+        for ( int i = 0; i < drivers.size( ); i++ )
+        {
+            List<VisitedLocation> fixedSamples = simulate( drivers.get( i ), fixedPolicy );
+            List<VisitedLocation> adaptiveSamples = simulate( drivers.get( i ), adaptivePolicy );
+            fixedPolls += fixedSamples.size( );
+            adaptivePolls += adaptiveSamples.size( );
+            fixedDetections += detected( locationService, targets.get( i ), fixedSamples ) ? 1 : 0;
+            adaptiveDetections += detected( locationService, targets.get( i ), adaptiveSamples ) ? 1 : 0;
+        }
+
+        System.out.println( "adaptiveTracking: fixed polls " + fixedPolls + ", adaptive polls " + adaptivePolls );
+
+        // THEN
+        assertTrue( adaptivePolls < fixedPolls / 2 );
+        assertEquals( drivers.size( ), fixedDetections );
+        assertEquals( fixedDetections, adaptiveDetections );
+    }
+
+    private List<VisitedLocation> simulate( LongFunction<Location> movement, ToLongFunction<User> pollingPolicy )
+    {
+        User user = new User( UUID.randomUUID( ), "simulated", "000", "simulated@tourGuide.com" );
+        long seconds = 0;
+        while ( seconds <= SIMULATION_DURATION )
+        {
+            user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), movement.apply( seconds ),
+                    new Date( TimeUnit.SECONDS.toMillis( seconds ) ) ) );
+            seconds += pollingPolicy.applyAsLong( user );
+        }
+        return user.getVisitedLocations( );
+    }
+
+    private boolean detected( LocationService locationService, Attraction attraction, List<VisitedLocation> samples )
+    {
+        return samples.stream( ).anyMatch( sample ->
+                locationService.getDistance( attraction, sample.location ) <= locationService.getProximityBuffer( ) );
+    }
+}
@@ -0,0 +1,85 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TestConditionalResponses
+{
+    static
+    {
+        // Must be set before the application context creates the internal users
+        InternalTestHelper.setInternalUserNumber( 5 );
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void unchangedRewardsAreNotModified( ) throws Exception
+    {
+        // GIVEN
+        userService.tracker.stopTracking( );
+        User user = userService.getAllUsers( ).get( 0 );
+        String eTag = mockMvc.perform( get( "/getRewards" ).param( "userName", user.getUserName( ) ) )
+                .andExpect( status( ).isOk( ) )
+                .andExpect( header( ).exists( "ETag" ) )
+                .andReturn( ).getResponse( ).getHeader( "ETag" );
+
+        // WHEN THEN
+        mockMvc.perform( get( "/getRewards" ).param( "userName", user.getUserName( ) ).header( "If-None-Match", eTag ) )
+                .andExpect( status( ).isNotModified( ) );
+
+        // WHEN
+        Attraction attraction = new Attraction( "Disneyland", "Anaheim", "CA", 33.817595, -117.922008 );
+        user.addUserReward( new UserReward( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ), attraction ) );
+
+        // THEN
+        String changedETag = mockMvc.perform( get( "/getRewards" ).param( "userName", user.getUserName( ) ).header( "If-None-Match", eTag ) )
+                .andExpect( status( ).isOk( ) )
+                .andReturn( ).getResponse( ).getHeader( "ETag" );
+        assertNotEquals( eTag, changedETag );
+    }
+
+    @Test
+    public void unchangedLocationIsNotModified( ) throws Exception
+    {
+        // GIVEN
+        userService.tracker.stopTracking( );
+        User user = userService.getAllUsers( ).get( 1 );
+        String eTag = mockMvc.perform( get( "/getLocation" ).param( "userName", user.getUserName( ) ) )
+                .andExpect( status( ).isOk( ) )
+                .andReturn( ).getResponse( ).getHeader( "ETag" );
+
+        // WHEN THEN
+        mockMvc.perform( get( "/getLocation" ).param( "userName", user.getUserName( ) ).header( "If-None-Match", eTag ) )
+                .andExpect( status( ).isNotModified( ) );
+
+        // WHEN
+        userService.trackUserLocation( user );
+
+        // THEN
+        mockMvc.perform( get( "/getLocation" ).param( "userName", user.getUserName( ) ).header( "If-None-Match", eTag ) )
+                .andExpect( status( ).isOk( ) );
+    }
+}
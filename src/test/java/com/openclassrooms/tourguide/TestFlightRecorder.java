@@ -0,0 +1,100 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.FlightRecordingDumpDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.flight.FlightRecorderService;
+import com.openclassrooms.tourguide.service.flight.FlightRecorderSettings;
+import com.openclassrooms.tourguide.service.test.TestingService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import gpsUtil.location.VisitedLocation;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestFlightRecorder
+{
+    @TempDir
+    Path dumpDirectory;
+
+    @Test
+    public void trackingIsRecorded( ) throws IOException
+    {
+        // GIVEN
+        FlightRecorderSettings settings = new FlightRecorderSettings( );
+        settings.setEnabled( true );
+        settings.setSettings( "classpath:flight/tourguide-all.jfc" );
+        settings.setDumpDirectory( dumpDirectory.toString( ) );
+        FlightRecorderService flightRecorder = new FlightRecorderService( settings );
+
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        locationService.setProximityBuffer( Integer.MAX_VALUE );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        UserService userService = new UserService( gpsUtil, rewardsService, new TestingService( ) );
+        userService.tracker.stopTracking( );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+
+        // WHEN
+        VisitedLocation visitedLocation = userService.trackUserLocation( user );
+        user.getRewardsSettled( ).join( );
+        FlightRecordingDumpDTO dump = flightRecorder.dump( );
+        flightRecorder.destroy( );
+
+        // THEN
+        assertFalse( flightRecorder.isRecording( ) );
+        assertTrue( dump.getSizeBytes( ) > 0 );
+        List<RecordedEvent> events = RecordingFile.readAllEvents( Path.of( dump.getPath( ) ) ).stream( )
+                .filter( event -> event.getEventType( ).getName( ).startsWith( "tourguide." ) )
+                .filter( event -> event.hasField( "userId" ) && user.getUserId( ).toString( ).equals( event.getString( "userId" ) ) )
+                .toList( );
+
+        RecordedEvent tracked = single( events, "tourguide.LocationTracked" );
+        assertEquals( visitedLocation.location.latitude, tracked.getDouble( "latitude" ) );
+        assertTrue( tracked.getLong( "fetchNanos" ) <= tracked.getDuration( ).toNanos( ) );
+
+        RecordedEvent evaluation = single( events, "tourguide.RewardEvaluation" );
+        assertEquals( 1, evaluation.getInt( "locationsScanned" ) );
+        assertEquals( gpsUtil.getAttractions( ).size( ), evaluation.getInt( "attractionsScanned" ) );
+        assertEquals( user.getUserRewards( ).size( ), evaluation.getInt( "rewardsCreated" ) );
+
+        List<RecordedEvent> externalCalls = events.stream( )
+                .filter( event -> event.getEventType( ).getName( ).equals( "tourguide.ExternalCall" ) )
+                .toList( );
+        assertTrue( externalCalls.stream( ).anyMatch( event -> event.getString( "operation" ).equals( "getUserLocation" ) ) );
+        assertTrue( externalCalls.stream( ).anyMatch( event -> event.getString( "operation" ).equals( "getAttractionRewardPoints" ) ) );
+    }
+
+    @Test
+    public void disabledRecorderDoesNotDump( )
+    {
+        FlightRecorderService flightRecorder = new FlightRecorderService( );
+
+        assertFalse( flightRecorder.isRecording( ) );
+        assertThrows( IllegalStateException.class, flightRecorder::dump );
+    }
+
+    private static RecordedEvent single( List<RecordedEvent> events, String name )
+    {
+        List<RecordedEvent> matching = events.stream( ).filter( event -> event.getEventType( ).getName( ).equals( name ) ).toList( );
+        assertEquals( 1, matching.size( ), name );
+        return matching.get( 0 );
+    }
+}
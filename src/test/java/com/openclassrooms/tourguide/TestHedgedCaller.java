@@ -0,0 +1,119 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.openclassrooms.tourguide.service.call.DeadlineExceededException;
+import com.openclassrooms.tourguide.service.call.HedgedCaller;
+import com.openclassrooms.tourguide.service.call.HedgingSettings;
+import org.junit.jupiter.api.Test;
+
+public class TestHedgedCaller
+{
+    private static final int WARM_UP_CALLS = 50;
+    private static final int CALLS         = 200;
+
+    @Test
+    public void hedgingCutsTailLatency( )
+    {
+        // GIVEN
+        HedgingSettings unhedgedSettings = new HedgingSettings( );
+        unhedgedSettings.setHedgingEnabled( false );
+        HedgedCaller unhedgedCaller = new HedgedCaller( "unhedged", unhedgedSettings );
+        HedgedCaller hedgedCaller = new HedgedCaller( "hedged", new HedgingSettings( ) );
+
+        // WHEN
+        long unhedgedP99 = measureP99( unhedgedCaller, latencyInjectingStandIn( new Random( 7 ) ) );
+        long hedgedP99 = measureP99( hedgedCaller, latencyInjectingStandIn( new Random( 7 ) ) );
+
+        System.out.println( "hedgingCutsTailLatency: p99 without hedging " + unhedgedP99 + " ms, with hedging " + hedgedP99
+                + " ms, " + hedgedCaller.getHedgeCount( ) + " hedges" );
+
+        // THEN
+        assertTrue( hedgedP99 * 2 < unhedgedP99 );
+        assertTrue( hedgedCaller.getHedgeCount( ) <= 0.1 * hedgedCaller.getCallCount( ) );
+    }
+
+    @Test
+    public void callFailsAfterDeadline( )
+    {
+        // GIVEN
+        HedgingSettings settings = new HedgingSettings( );
+        settings.setDeadline( Duration.ofMillis( 50 ) );
+        HedgedCaller caller = new HedgedCaller( "stuck", settings );
+
+        // WHEN
+        assertThrows( DeadlineExceededException.class, ( ) -> caller.call( ( ) -> sleep( 1000 ) ) );
+
+        // THEN
+        assertEquals( 1, caller.getTimeoutCount( ) );
+    }
+
+    @Test
+    public void firstAttemptRunsOnCallingThread( )
+    {
+        // GIVEN
+        HedgedCaller caller = new HedgedCaller( "inline", new HedgingSettings( ) );
+
+        // WHEN
+        Thread attemptThread = caller.call( Thread::currentThread );
+
+        // THEN
+        assertEquals( Thread.currentThread( ), attemptThread );
+        assertFalse( Thread.currentThread( ).isInterrupted( ) );
+    }
+
+    /**
+     * Stand-in for a dependency answering in about 2 ms, except for 3% of the calls that take 200 ms.
+     */
+    private Supplier<Integer> latencyInjectingStandIn( Random random )
+    {
+        return ( ) -> {
+            boolean slow;
+            synchronized ( random )
+            {
+                slow = random.nextInt( 100 ) < 3;
+            }
+            return sleep( slow ? 200 : 2 );
+        };
+    }
+
+    private long measureP99( HedgedCaller caller, Supplier<Integer> dependency )
+    {
+        // Warm up, so that the caller has observed enough latencies to hedge
+        for ( int i = 0; i < WARM_UP_CALLS; i++ )
+        {
+            caller.call( dependency );
+        }
+
+        long[] latencies = new long[ CALLS ];
+        for ( int i = 0; i < CALLS; i++ )
+        {
+            long start = System.nanoTime( );
+            caller.call( dependency );
+            latencies[ i ] = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - start );
+        }
+        Arrays.sort( latencies );
+        return latencies[ (int) Math.ceil( 0.99 * CALLS ) - 1 ];
+    }
+
+    private static int sleep( long millis )
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep( millis );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,165 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.dto.ItineraryDTO;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.ItineraryService;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.geo.AttractionDistanceMatrix;
+import com.openclassrooms.tourguide.service.itinerary.ItineraryPlanner;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestItineraryPlanner
+{
+    private static final int STOPS  = 8;
+    private static final int ROUNDS = 20;
+
+    private final LocationService locationService = new LocationService( new LibraryRewardGateway( ), new LibraryGpsGateway( ) );
+
+    @Test
+    public void matrixMatchesDistances( )
+    {
+        // GIVEN
+        List<Attraction> attractions = randomAttractions( new Random( 5 ), 40 );
+
+        // WHEN
+        AttractionDistanceMatrix matrix = new AttractionDistanceMatrix( attractions, locationService::getDistance );
+
+        // THEN
+        for ( int i = 0; i < attractions.size( ); i++ )
+        {
+            for ( int j = 0; j < attractions.size( ); j++ )
+            {
+                // The distance from an attraction to itself can be NaN, rounding taking the cosine past 1
+                double expected = i == j ? 0 : locationService.getDistance( attractions.get( i ), attractions.get( j ) );
+                assertEquals( expected, matrix.getDistance( i, j ), 0.01 );
+            }
+        }
+        assertEquals( 7, matrix.indexOf( "attraction7" ) );
+        assertEquals( -1, matrix.indexOf( "unknown" ) );
+    }
+
+    @Test
+    public void tourIsCloseToOptimal( )
+    {
+        Random random = new Random( 9 );
+        double worstRatio = 1;
+        for ( int round = 0; round < ROUNDS; round++ )
+        {
+            // GIVEN
+            List<Attraction> attractions = randomAttractions( random, STOPS );
+            AttractionDistanceMatrix matrix = new AttractionDistanceMatrix( attractions, locationService::getDistance );
+            Location start = new Location( 35 + random.nextDouble( ) * 5, -100 + random.nextDouble( ) * 5 );
+            int[] stops = new int[ STOPS ];
+            double[] fromStart = new double[ STOPS ];
+            for ( int i = 0; i < STOPS; i++ )
+            {
+                stops[ i ] = i;
+                fromStart[ i ] = locationService.getDistance( start, attractions.get( i ) );
+            }
+
+            // WHEN
+            ItineraryPlanner.Route route = ItineraryPlanner.plan( stops, fromStart, matrix, System.nanoTime( ) + 1_000_000_000L );
+
+            // THEN
+            assertTrue( route.converged( ) );
+            assertEquals( STOPS, route.order( ).length );
+            assertEquals( STOPS, Arrays.stream( route.order( ) ).distinct( ).count( ) );
+            double optimal = shortest( new int[ STOPS ], new boolean[ STOPS ], 0, -1, 0, fromStart, matrix );
+            assertTrue( route.length( ) >= optimal - 1e-6 );
+            worstRatio = Math.max( worstRatio, route.length( ) / optimal );
+        }
+        System.out.println( "tourIsCloseToOptimal: worst ratio to the optimal tour " + worstRatio );
+        assertTrue( worstRatio < 1.25 );
+    }
+
+    @Test
+    public void itineraryVisitsNamedAttractions( )
+    {
+        // GIVEN
+        ItineraryService itineraryService = new ItineraryService( locationService );
+        List<Attraction> catalog = locationService.getNearbyAttractionsCache( ).getAttractions( );
+        List<String> names = List.of( catalog.get( 0 ).attractionName, catalog.get( 3 ).attractionName,
+                catalog.get( 7 ).attractionName, catalog.get( 0 ).attractionName );
+        VisitedLocation visitedLocation = new VisitedLocation( UUID.randomUUID( ), new Location( 40, -100 ), new Date( ) );
+
+        // WHEN
+        ItineraryDTO itinerary = itineraryService.planItinerary( visitedLocation, names, 5 );
+        ItineraryDTO closest = itineraryService.planItinerary( visitedLocation, List.of( ), 5 );
+
+        // THEN
+        assertEquals( 3, itinerary.getStops( ).size( ) );
+        assertEquals( itinerary.getTotalDistanceInMiles( ),
+                itinerary.getStops( ).get( 2 ).getCumulativeDistanceInMiles( ), 1e-9 );
+        assertTrue( itinerary.getStops( ).stream( ).allMatch( stop -> stop.getRewardPoints( ) > 0 ) );
+        assertEquals( 5, closest.getStops( ).size( ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> itineraryService.planItinerary( visitedLocation, List.of( "Nowhere" ), 5 ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> itineraryService.planItinerary( visitedLocation, null, 0 ) );
+    }
+
+    @Test
+    public void stopsWithoutRewardPointsAreDegraded( )
+    {
+        // GIVEN rewardCentral failing
+        LocationService failingLocationService = new LocationService( ( attractionId, userId ) -> {
+            throw new IllegalStateException( "rewardCentral down" );
+        }, new LibraryGpsGateway( ) );
+        ItineraryService itineraryService = new ItineraryService( failingLocationService );
+        VisitedLocation visitedLocation = new VisitedLocation( UUID.randomUUID( ), new Location( 40, -100 ), new Date( ) );
+
+        // WHEN
+        ItineraryDTO itinerary = itineraryService.planItinerary( visitedLocation, List.of( ), 3 );
+
+        // THEN
+        assertEquals( 3, itinerary.getStops( ).size( ) );
+        assertTrue( itinerary.isDegraded( ) );
+        assertEquals( 0, itinerary.getTotalRewardPoints( ) );
+        assertTrue( itinerary.getStops( ).stream( ).allMatch( stop -> stop.isDegraded( ) && stop.getRewardPoints( ) == null ) );
+    }
+
+    private static List<Attraction> randomAttractions( Random random, int count )
+    {
+        List<Attraction> attractions = new ArrayList<>( );
+        for ( int i = 0; i < count; i++ )
+        {
+            attractions.add( new Attraction( "attraction" + i, "City", "ST", 30 + random.nextDouble( ) * 15, -110 + random.nextDouble( ) * 20 ) );
+        }
+        return attractions;
+    }
+
+    // Exhaustive search of the shortest open tour from the start
+    private static double shortest( int[] order, boolean[] used, int depth, int previous, double length, double[] fromStart,
+                                    AttractionDistanceMatrix matrix )
+    {
+        if ( depth == order.length )
+        {
+            return length;
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for ( int stop = 0; stop < order.length; stop++ )
+        {
+            if ( !used[ stop ] )
+            {
+                used[ stop ] = true;
+                double leg = previous < 0 ? fromStart[ stop ] : matrix.getDistance( previous, stop );
+                best = Math.min( best, shortest( order, used, depth + 1, stop, length + leg, fromStart, matrix ) );
+                used[ stop ] = false;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,155 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.serial.KeyedSerialExecutor;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestKeyedSerialExecutor
+{
+    private static final int KEYS          = 16;
+    private static final int TASKS_PER_KEY = 2000;
+
+    @Test
+    public void tasksOfAKeyRunInOrderAndAlone( ) throws InterruptedException
+    {
+        // GIVEN
+        ExecutorService pool = Executors.newFixedThreadPool( 8 );
+        KeyedSerialExecutor<Integer> serialExecutor = new KeyedSerialExecutor<>( 64, pool );
+        List<List<Integer>> executed = new ArrayList<>( );
+        AtomicInteger[] running = new AtomicInteger[ KEYS ];
+        Set<Integer> overlaps = ConcurrentHashMap.newKeySet( );
+        for ( int key = 0; key < KEYS; key++ )
+        {
+            executed.add( new ArrayList<>( ) );
+            running[ key ] = new AtomicInteger( );
+        }
+
+        // WHEN
+        List<CompletableFuture<Void>> results = new ArrayList<>( );
+        for ( int i = 0; i < TASKS_PER_KEY; i++ )
+        {
+            for ( int key = 0; key < KEYS; key++ )
+            {
+                int k = key;
+                int sequence = i;
+                results.add( serialExecutor.submit( k, ( ) -> {
+                    if ( running[ k ].incrementAndGet( ) > 1 )
+                    {
+                        overlaps.add( k );
+                    }
+                    // Not thread-safe on purpose: only serialized tasks keep it consistent
+                    executed.get( k ).add( sequence );
+                    running[ k ].decrementAndGet( );
+                    return null;
+                } ) );
+            }
+        }
+        CompletableFuture.allOf( results.toArray( CompletableFuture[]::new ) ).join( );
+        pool.shutdown( );
+
+        // THEN
+        assertTrue( overlaps.isEmpty( ) );
+        for ( int key = 0; key < KEYS; key++ )
+        {
+            List<Integer> sequences = executed.get( key );
+            assertEquals( TASKS_PER_KEY, sequences.size( ) );
+            for ( int i = 0; i < TASKS_PER_KEY; i++ )
+            {
+                assertEquals( i, sequences.get( i ) );
+            }
+        }
+        assertEquals( 0, serialExecutor.getQueuedTasks( ) );
+    }
+
+    @Test
+    public void concurrentRewardCalculationsRewardEachAttractionOnce( ) throws InterruptedException
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        locationService.setProximityBuffer( Integer.MAX_VALUE );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        List<Attraction> attractions = gpsUtil.getAttractions( );
+
+        // WHEN
+        ExecutorService callers = Executors.newFixedThreadPool( 8 );
+        for ( int i = 0; i < 200; i++ )
+        {
+            Attraction attraction = attractions.get( i % attractions.size( ) );
+            callers.execute( ( ) -> {
+                rewardsService.getUserExecutor( ).run( user.getUserId( ),
+                        ( ) -> user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) ) );
+                rewardsService.calculateRewards( user );
+            } );
+        }
+        callers.shutdown( );
+        assertTrue( callers.awaitTermination( 1, TimeUnit.MINUTES ) );
+
+        // THEN
+        assertEquals( 200, user.getVisitedLocations( ).size( ) );
+        assertEquals( attractions.size( ), user.getUserRewards( ).stream( )
+                .map( UserReward::getAttraction )
+                .map( attraction -> attraction.attractionName )
+                .distinct( )
+                .count( ) );
+        assertEquals( attractions.size( ), user.getUserRewards( ).size( ) );
+    }
+
+    @Test
+    public void failedTasksAndRejectedDrainsLeaveTheKeyUsable( )
+    {
+        // GIVEN an executor running the drains inline, until it rejects them
+        AtomicBoolean shutDown = new AtomicBoolean( );
+        KeyedSerialExecutor<Integer> serialExecutor = new KeyedSerialExecutor<>( 1, drain -> {
+            if ( shutDown.get( ) )
+            {
+                throw new RejectedExecutionException( "shut down" );
+            }
+            drain.run( );
+        } );
+
+        // WHEN a task throws an error
+        // THEN its caller gets the error rather than waiting forever
+        assertThrows( AssertionError.class, ( ) -> serialExecutor.call( 1, ( ) -> {
+            throw new AssertionError( "failed" );
+        } ) );
+
+        // WHEN the drain of a task is rejected
+        shutDown.set( true );
+        // THEN the task is rejected, and left out of the queue
+        assertThrows( RejectedExecutionException.class, ( ) -> serialExecutor.submit( 1, ( ) -> 0 ) );
+        assertEquals( 0, serialExecutor.getQueuedTasks( ) );
+
+        // WHEN the executor accepts drains again
+        shutDown.set( false );
+        // THEN the key runs again
+        assertEquals( 42, serialExecutor.call( 1, ( ) -> 42 ) );
+    }
+}
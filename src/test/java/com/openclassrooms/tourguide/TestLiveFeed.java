@@ -0,0 +1,198 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.UserFeedUpdateDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LiveFeedService;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.feed.FeedSink;
+import com.openclassrooms.tourguide.service.feed.FeedSubscription;
+import com.openclassrooms.tourguide.service.feed.LiveFeedSettings;
+import com.openclassrooms.tourguide.service.test.TestingService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestLiveFeed
+{
+    @Test
+    public void slowSubscriberReceivesConflatedUpdates( ) throws InterruptedException
+    {
+        // GIVEN
+        ExecutorService deliveryExecutor = Executors.newSingleThreadExecutor( );
+        CountDownLatch firstUpdateSent = new CountDownLatch( 1 );
+        CountDownLatch clientResumed = new CountDownLatch( 1 );
+        List<UserFeedUpdateDTO> received = new ArrayList<>( );
+        FeedSubscription subscription = new FeedSubscription( null, update -> {
+            received.add( update );
+            firstUpdateSent.countDown( );
+            try
+            {
+                // A client stalled on its first update
+                clientResumed.await( );
+            } catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+        }, deliveryExecutor, closed -> { } );
+        User jon = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        User jane = new User( UUID.randomUUID( ), "jane", "000", "jane@tourGuide.com" );
+        Attraction attraction = new Attraction( "Disneyland", "Anaheim", "CA", 33.817595, -117.922008 );
+
+        // WHEN
+        subscription.offerLocation( jon, location( jon, 0 ) );
+        assertTrue( firstUpdateSent.await( 10, TimeUnit.SECONDS ) );
+        // Offered while the client is stalled, without waiting for it
+        for ( int i = 1; i <= 1000; i++ )
+        {
+            subscription.offerLocation( jon, location( jon, i ) );
+            subscription.offerLocation( jane, location( jane, i ) );
+        }
+        UserReward reward = new UserReward( location( jon, 1000 ), attraction );
+        subscription.offerReward( jon, reward, 300 );
+        subscription.offerReward( jon, new UserReward( location( jon, 1000 ), attraction ), 200 );
+        clientResumed.countDown( );
+        deliveryExecutor.shutdown( );
+        assertTrue( deliveryExecutor.awaitTermination( 10, TimeUnit.SECONDS ) );
+
+        // THEN
+        assertEquals( 3, received.size( ) );
+        UserFeedUpdateDTO jonUpdate = received.get( 1 );
+        UserFeedUpdateDTO janeUpdate = received.get( 2 );
+        assertEquals( "jon", jonUpdate.getUserName( ) );
+        assertEquals( 1000, jonUpdate.getLocation( ).location.latitude );
+        assertSame( reward, jonUpdate.getRewards( ).get( 0 ) );
+        assertEquals( 2, jonUpdate.getRewards( ).size( ) );
+        assertEquals( 300, jonUpdate.getCumulativeRewardPoints( ) );
+        assertEquals( 1001, jonUpdate.getConflated( ) );
+        assertEquals( 1000, janeUpdate.getLocation( ).location.latitude );
+        assertNull( janeUpdate.getCumulativeRewardPoints( ) );
+        assertEquals( 3, subscription.getSent( ) );
+    }
+
+    @Test
+    public void trackedLocationsAreFannedOutToFollowers( ) throws InterruptedException
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        UserService userService = new UserService( gpsUtil, rewardsService, new TestingService( ) );
+        LiveFeedSettings settings = new LiveFeedSettings( );
+        settings.setMaxSubscribers( 2 );
+        LiveFeedService liveFeedService = new LiveFeedService( userService, rewardsService, settings );
+        User jon = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        User jane = new User( UUID.randomUUID( ), "jane", "000", "jane@tourGuide.com" );
+        LinkedBlockingQueue<UserFeedUpdateDTO> allUsers = new LinkedBlockingQueue<>( );
+        LinkedBlockingQueue<UserFeedUpdateDTO> janeOnly = new LinkedBlockingQueue<>( );
+        liveFeedService.subscribe( null, allUsers::add );
+        FeedSubscription janeSubscription = liveFeedService.subscribe( Set.of( jane.getUserId( ) ), janeOnly::add );
+
+        // WHEN
+        VisitedLocation tracked = userService.trackUserLocation( jon );
+        userService.tracker.stopTracking( );
+
+        // THEN
+        UserFeedUpdateDTO update = allUsers.poll( 10, TimeUnit.SECONDS );
+        assertEquals( jon.getUserId( ), update.getUserId( ) );
+        assertSame( tracked, update.getLocation( ) );
+        assertNull( janeOnly.poll( 100, TimeUnit.MILLISECONDS ) );
+        assertThrows( IllegalStateException.class, ( ) -> liveFeedService.subscribe( null, allUsers::add ) );
+        janeSubscription.close( );
+        assertEquals( 1, liveFeedService.getSubscriptionCount( ) );
+        liveFeedService.subscribe( null, failed -> {
+            throw new IOException( "Client gone" );
+        } );
+        userService.trackUserLocation( jane );
+        assertEquals( jane.getUserId( ), allUsers.poll( 10, TimeUnit.SECONDS ).getUserId( ) );
+        // The subscription whose client is gone is closed on its first update
+        for ( int i = 0; i < 100 && liveFeedService.getSubscriptionCount( ) > 1; i++ )
+        {
+            TimeUnit.MILLISECONDS.sleep( 10 );
+        }
+        assertEquals( 1, liveFeedService.getSubscriptionCount( ) );
+    }
+
+    @Test
+    public void stalledSubscriberIsDropped( ) throws InterruptedException
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        UserService userService = new UserService( gpsUtil, rewardsService, new TestingService( ) );
+        userService.tracker.stopTracking( );
+        LiveFeedSettings settings = new LiveFeedSettings( );
+        settings.setDeliveryThreads( 1 );
+        settings.setSendTimeout( Duration.ofMillis( 100 ) );
+        LiveFeedService liveFeedService = new LiveFeedService( userService, rewardsService, settings );
+        CountDownLatch stalledClosed = new CountDownLatch( 1 );
+        FeedSubscription stalledSubscription = liveFeedService.subscribe( null, new FeedSink( )
+        {
+            @Override
+            public void send( UserFeedUpdateDTO update )
+            {
+                try
+                {
+                    // A client that never reads, holding the only delivery thread
+                    new CountDownLatch( 1 ).await( );
+                } catch ( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                }
+            }
+
+            @Override
+            public void close( )
+            {
+                stalledClosed.countDown( );
+            }
+        } );
+        LinkedBlockingQueue<UserFeedUpdateDTO> received = new LinkedBlockingQueue<>( );
+        liveFeedService.subscribe( null, received::add );
+        User jon = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+
+        // WHEN
+        liveFeedService.onLocationRecorded( jon, location( jon, 1 ) );
+
+        // THEN
+        assertEquals( jon.getUserId( ), received.poll( 10, TimeUnit.SECONDS ).getUserId( ) );
+        assertTrue( stalledClosed.await( 10, TimeUnit.SECONDS ) );
+        assertTrue( stalledSubscription.isClosed( ) );
+        assertEquals( 1, liveFeedService.getSubscriptionCount( ) );
+        liveFeedService.shutdown( );
+    }
+
+    private VisitedLocation location( User user, int sequence )
+    {
+        return new VisitedLocation( user.getUserId( ), new Location( sequence, sequence ), new Date( ) );
+    }
+}
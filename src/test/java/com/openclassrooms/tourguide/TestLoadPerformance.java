@@ -0,0 +1,195 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/*
+ * HTTP load test of the TourGuide endpoints, run against the application started on a random port.
+ *
+ * The load is open-loop: requests are fired at the target rate whatever the response times, and each latency is
+ * measured from the time the request was scheduled to be sent, so that a slow server cannot hide its own queuing.
+ * Latencies are recorded per endpoint in HdrHistograms, and a JSON report is written for run-to-run comparison.
+ *
+ * Disabled by default, run it with:
+ *
+ * mvn test -Dtest=TestLoadPerformance -Dloadtest=true -Dloadtest.users=1000 -Dloadtest.rps=50
+ *     -Dloadtest.durationSeconds=60 -Dloadtest.mix=getLocation:40,getNearbyAttractions:20,getRewards:30,getTripDeals:10
+ *     -Dloadtest.report=target/load-test-report.json
+ */
+@EnabledIfSystemProperty( named = "loadtest", matches = "true" )
+@SpringBootTest( webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT )
+public class TestLoadPerformance
+{
+    private static final int    USERS            = Integer.getInteger( "loadtest.users", 1000 );
+    private static final int    TARGET_RPS       = Integer.getInteger( "loadtest.rps", 50 );
+    private static final int    DURATION_SECONDS = Integer.getInteger( "loadtest.durationSeconds", 60 );
+    private static final String MIX              = System.getProperty( "loadtest.mix",
+            "getLocation:40,getNearbyAttractions:20,getRewards:30,getTripDeals:10" );
+    private static final String REPORT           = System.getProperty( "loadtest.report", "target/load-test-report.json" );
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds( 30 );
+    private static final long     HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos( 1 );
+
+    static
+    {
+        // Must be set before the application context creates the internal users
+        InternalTestHelper.setInternalUserNumber( USERS );
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void endpointsUnderOpenLoopLoad( ) throws IOException, InterruptedException
+    {
+        // GIVEN
+        Map<String, EndpointStats> endpoints = parseMix( MIX );
+        List<String> weightedEndpoints = new ArrayList<>( );
+        endpoints.forEach( ( endpoint, stats ) -> {
+            for ( int i = 0; i < stats.weight; i++ )
+            {
+                weightedEndpoints.add( endpoint );
+            }
+        } );
+
+        HttpClient httpClient = HttpClient.newBuilder( ).connectTimeout( REQUEST_TIMEOUT ).build( );
+        Random random = new Random( 42 );
+        List<CompletableFuture<Void>> responses = new ArrayList<>( );
+        long intervalNanos = TimeUnit.SECONDS.toNanos( 1 ) / TARGET_RPS;
+        long totalRequests = (long) TARGET_RPS * DURATION_SECONDS;
+
+        // WHEN
+        long start = System.nanoTime( );
+        for ( long i = 0; i < totalRequests; i++ )
+        {
+            long intendedStart = start + i * intervalNanos;
+            long wait = intendedStart - System.nanoTime( );
+            if ( wait > 0 )
+            {
+                LockSupport.parkNanos( wait );
+            }
+
+            String endpoint = weightedEndpoints.get( random.nextInt( weightedEndpoints.size( ) ) );
+            String userName = "internalUser" + random.nextInt( USERS );
+            HttpRequest request = HttpRequest.newBuilder( URI.create( "http://localhost:" + port + "/" + endpoint + "?userName=" + userName ) )
+                    .timeout( REQUEST_TIMEOUT )
+                    .GET( )
+                    .build( );
+
+            EndpointStats stats = endpoints.get( endpoint );
+            responses.add( httpClient.sendAsync( request, HttpResponse.BodyHandlers.discarding( ) )
+                    .handle( ( response, failure ) -> {
+                        stats.record( System.nanoTime( ) - intendedStart, failure == null && response.statusCode( ) < 400 );
+                        return null;
+                    } ) );
+        }
+        CompletableFuture.allOf( responses.toArray( CompletableFuture[]::new ) ).join( );
+        long elapsedNanos = System.nanoTime( ) - start;
+
+        Path report = writeReport( endpoints, totalRequests, elapsedNanos );
+        System.out.println( "endpointsUnderOpenLoopLoad: report written to " + report.toAbsolutePath( ) );
+
+        // THEN
+        assertTrue( Files.exists( report ) );
+        assertTrue( endpoints.values( ).stream( ).mapToLong( stats -> stats.histogram.getTotalCount( ) ).sum( ) == totalRequests );
+    }
+
+    private Map<String, EndpointStats> parseMix( String mix )
+    {
+        Map<String, EndpointStats> endpoints = new LinkedHashMap<>( );
+        for ( String entry : mix.split( "," ) )
+        {
+            String[] endpointAndWeight = entry.trim( ).split( ":" );
+            endpoints.put( endpointAndWeight[ 0 ], new EndpointStats( Integer.parseInt( endpointAndWeight[ 1 ] ) ) );
+        }
+        return endpoints;
+    }
+
+    private Path writeReport( Map<String, EndpointStats> endpoints, long totalRequests, long elapsedNanos ) throws IOException
+    {
+        Map<String, Object> report = new LinkedHashMap<>( );
+        report.put( "timestamp", Instant.now( ).toString( ) );
+        report.put( "users", USERS );
+        report.put( "targetRps", TARGET_RPS );
+        report.put( "durationSeconds", DURATION_SECONDS );
+        report.put( "requests", totalRequests );
+        report.put( "achievedRps", totalRequests * (double) TimeUnit.SECONDS.toNanos( 1 ) / elapsedNanos );
+
+        Map<String, Object> endpointReports = new LinkedHashMap<>( );
+        endpoints.forEach( ( endpoint, stats ) -> endpointReports.put( endpoint, stats.toReport( ) ) );
+        report.put( "endpoints", endpointReports );
+
+        Path path = Path.of( REPORT );
+        if ( path.getParent( ) != null )
+        {
+            Files.createDirectories( path.getParent( ) );
+        }
+        new ObjectMapper( ).enable( SerializationFeature.INDENT_OUTPUT ).writeValue( path.toFile( ), report );
+        return path;
+    }
+
+    private static class EndpointStats
+    {
+        private final int weight;
+        private final Histogram histogram = new ConcurrentHistogram( HIGHEST_LATENCY, 3 );
+        private final LongAdder errors = new LongAdder( );
+
+        EndpointStats( int weight )
+        {
+            this.weight = weight;
+        }
+
+        void record( long latencyNanos, boolean success )
+        {
+            histogram.recordValue( Math.min( latencyNanos, HIGHEST_LATENCY ) );
+            if ( !success )
+            {
+                errors.increment( );
+            }
+        }
+
+        Map<String, Object> toReport( )
+        {
+            long count = histogram.getTotalCount( );
+            Map<String, Object> report = new LinkedHashMap<>( );
+            report.put( "requests", count );
+            report.put( "errors", errors.sum( ) );
+            report.put( "errorRate", count == 0 ? 0 : errors.sum( ) / (double) count );
+            report.put( "meanMs", histogram.getMean( ) / 1e6 );
+            report.put( "p50Ms", histogram.getValueAtPercentile( 50 ) / 1e6 );
+            report.put( "p90Ms", histogram.getValueAtPercentile( 90 ) / 1e6 );
+            report.put( "p99Ms", histogram.getValueAtPercentile( 99 ) / 1e6 );
+            report.put( "p999Ms", histogram.getValueAtPercentile( 99.9 ) / 1e6 );
+            report.put( "maxMs", histogram.getMaxValue( ) / 1e6 );
+            return report;
+        }
+    }
+}
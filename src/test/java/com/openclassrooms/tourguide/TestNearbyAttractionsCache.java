@@ -0,0 +1,171 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.AttractionInRangeDTO;
+import com.openclassrooms.tourguide.domain.dto.NearbyAttractionsCacheStatsDTO;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulationClock;
+import com.openclassrooms.tourguide.external.simulation.SimulationSettings;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.geo.AttractionRangeIndex;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsCache;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsSettings;
+import com.openclassrooms.tourguide.service.geo.ProximitySettings;
+import gpsUtil.GpsUtil;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestNearbyAttractionsCache
+{
+    private static final int LOCATIONS = 2000;
+
+    @Test
+    public void cachedAttractionsMatchFullScan( )
+    {
+        // GIVEN
+        List<Attraction> catalog = new GpsUtil( ).getAttractions( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ),
+                new SimulatedGpsGateway( new SimulationSettings( ), SimulationClock.system( ), catalog ) );
+        NearbyAttractionsSettings settings = new NearbyAttractionsSettings( );
+        NearbyAttractionsCache cache = new NearbyAttractionsCache( ( ) -> catalog, locationService::getDistance, settings, 5 );
+
+        // Clustered around a few points, so that the cells are visited several times, borders included
+        Random random = new Random( 7 );
+        List<Location> locations = new ArrayList<>( );
+        for ( int i = 0; i < LOCATIONS; i++ )
+        {
+            Attraction near = catalog.get( random.nextInt( catalog.size( ) ) );
+            locations.add( new Location( near.latitude + random.nextGaussian( ) * 0.5, near.longitude + random.nextGaussian( ) * 0.5 ) );
+        }
+
+        // WHEN / THEN
+        for ( Location location : locations )
+        {
+            assertEquals( fullScan( catalog, location, locationService ), names( cache.getClosestAttractions( location ) ) );
+        }
+        NearbyAttractionsCacheStatsDTO stats = cache.getStats( );
+        assertEquals( LOCATIONS, stats.getHits( ) + stats.getMisses( ) );
+        assertTrue( stats.getHits( ) > stats.getMisses( ) );
+    }
+
+    @Test
+    public void catalogChangeInvalidatesCells( )
+    {
+        // GIVEN
+        List<Attraction> initialCatalog = new GpsUtil( ).getAttractions( );
+        AtomicReference<List<Attraction>> catalog = new AtomicReference<>( initialCatalog );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ),
+                new SimulatedGpsGateway( new SimulationSettings( ), SimulationClock.system( ), initialCatalog ) );
+        NearbyAttractionsCache cache = new NearbyAttractionsCache( catalog::get, locationService::getDistance,
+                new NearbyAttractionsSettings( ), 5 );
+        Attraction first = initialCatalog.get( 0 );
+        Location location = new Location( first.latitude + 0.01, first.longitude + 0.01 );
+        cache.getClosestAttractions( location );
+        long initialVersion = cache.getStats( ).getCatalogVersion( );
+
+        // WHEN
+        Attraction opened = new Attraction( "Newly Opened", "Nowhere", "NA", location.latitude, location.longitude );
+        List<Attraction> changedCatalog = new ArrayList<>( initialCatalog );
+        changedCatalog.add( opened );
+        catalog.set( changedCatalog );
+        cache.invalidate( );
+        List<Map.Entry<Attraction, Double>> closest = cache.getClosestAttractions( location );
+
+        // THEN
+        assertNotEquals( initialVersion, cache.getStats( ).getCatalogVersion( ) );
+        assertEquals( "Newly Opened", closest.get( 0 ).getKey( ).attractionName );
+        assertEquals( fullScan( changedCatalog, location, locationService ), names( closest ) );
+    }
+
+    @Test
+    public void rangeQueryMatchesFullScan( )
+    {
+        // GIVEN
+        List<Attraction> catalog = new ArrayList<>( new GpsUtil( ).getAttractions( ) );
+        // Attractions on both sides of the antimeridian and close to a pole
+        catalog.add( new Attraction( "East Edge", "Nowhere", "NA", 10, 179.9 ) );
+        catalog.add( new Attraction( "West Edge", "Nowhere", "NA", 10, -179.9 ) );
+        catalog.add( new Attraction( "North Pole", "Nowhere", "NA", 89.9, 0 ) );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ),
+                new SimulatedGpsGateway( new SimulationSettings( ), SimulationClock.system( ), catalog ) );
+        AttractionRangeIndex index = new AttractionRangeIndex( catalog );
+        Random random = new Random( 11 );
+
+        // WHEN / THEN
+        for ( int i = 0; i < LOCATIONS; i++ )
+        {
+            Attraction near = catalog.get( random.nextInt( catalog.size( ) ) );
+            Location location = new Location( Math.max( -90, Math.min( 90, near.latitude + random.nextGaussian( ) * 3 ) ),
+                    near.longitude + random.nextGaussian( ) * 3 );
+            double radius = random.nextInt( 500 );
+
+            List<String> expected = catalog.stream( )
+                    .filter( attraction -> locationService.getDistance( attraction, location ) <= radius )
+                    .map( attraction -> attraction.attractionName )
+                    .sorted( )
+                    .toList( );
+            List<String> actual = names( index.getAttractionsWithin( location, radius, locationService::getDistance ) ).stream( )
+                    .sorted( )
+                    .toList( );
+            assertEquals( expected, actual );
+        }
+        assertEquals( 2, index.getAttractionsWithin( new Location( 10, 180 ), 50, locationService::getDistance ).size( ) );
+    }
+
+    @Test
+    public void userPreferenceDrivesProximityRadius( )
+    {
+        // GIVEN
+        List<Attraction> catalog = new GpsUtil( ).getAttractions( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ),
+                new SimulatedGpsGateway( new SimulationSettings( ), SimulationClock.system( ), catalog ) );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        Attraction attraction = catalog.get( 0 );
+        VisitedLocation visitedLocation = new VisitedLocation( user.getUserId( ), attraction, new Date( ) );
+
+        // WHEN
+        List<AttractionInRangeDTO> everywhere = locationService.getAttractionsInUserProximity( user, visitedLocation );
+        user.getUserPreferences( ).setAttractionProximity( 1 );
+        List<AttractionInRangeDTO> nextDoor = locationService.getAttractionsInUserProximity( user, visitedLocation );
+        ProximitySettings before = locationService.getProximitySettings( );
+        locationService.setProximityBuffer( 42 );
+
+        // THEN
+        assertEquals( catalog.size( ), everywhere.size( ) );
+        assertEquals( 1, nextDoor.size( ) );
+        assertEquals( attraction.attractionName, nextDoor.get( 0 ).getAttractionName( ) );
+        // Snapshots are immutable, and changing a radius keeps the other one
+        assertEquals( ProximitySettings.DEFAULT.getProximityBuffer( ), before.getProximityBuffer( ) );
+        assertEquals( 42, locationService.getProximityBuffer( ) );
+        assertEquals( before.getAttractionProximityRange( ), locationService.getAttractionProximityRange( ) );
+    }
+
+    private List<String> fullScan( List<Attraction> catalog, Location location, LocationService locationService )
+    {
+        return catalog.stream( )
+                .sorted( ( a, b ) -> Double.compare( locationService.getDistance( a, location ), locationService.getDistance( b, location ) ) )
+                .limit( 5 )
+                .map( attraction -> attraction.attractionName )
+                .toList( );
+    }
+
+    private List<String> names( List<Map.Entry<Attraction, Double>> closest )
+    {
+        return closest.stream( ).map( entry -> entry.getKey( ).attractionName ).toList( );
+    }
+}
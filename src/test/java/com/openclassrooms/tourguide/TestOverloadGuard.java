@@ -0,0 +1,147 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.UserReward;
+import com.openclassrooms.tourguide.domain.dto.ClosestAttractionsDTO;
+import com.openclassrooms.tourguide.domain.dto.OverloadGuardStatsDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.call.OverloadGuard;
+import com.openclassrooms.tourguide.service.call.OverloadGuardSettings;
+import com.openclassrooms.tourguide.service.call.OverloadedException;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestOverloadGuard
+{
+    @Test
+    public void requestsAreDegradedThenRejectedAsConcurrencyGrows( )
+    {
+        // GIVEN
+        OverloadGuardSettings settings = new OverloadGuardSettings( );
+        settings.setDegradeConcurrency( 2 );
+        settings.setMaxConcurrent( 4 );
+        settings.setRetryAfter( Duration.ofSeconds( 3 ) );
+        AtomicBoolean saturated = new AtomicBoolean( );
+        OverloadGuard guard = new OverloadGuard( "test", settings, saturated::get );
+        List<OverloadGuard.Admission> admissions = new ArrayList<>( );
+
+        // WHEN
+        for ( int i = 0; i < 4; i++ )
+        {
+            admissions.add( guard.admit( ) );
+        }
+        OverloadedException rejection = assertThrows( OverloadedException.class, guard::admit );
+        admissions.forEach( OverloadGuard.Admission::close );
+        saturated.set( true );
+        OverloadGuard.Admission whileSaturated = guard.admit( );
+        whileSaturated.close( );
+
+        // THEN
+        assertEquals( List.of( false, false, true, true ), admissions.stream( ).map( OverloadGuard.Admission::isDegraded ).toList( ) );
+        assertEquals( Duration.ofSeconds( 3 ), rejection.getRetryAfter( ) );
+        assertTrue( whileSaturated.isDegraded( ) );
+        OverloadGuardStatsDTO stats = guard.getStats( );
+        assertEquals( 0, stats.getInFlight( ) );
+        assertEquals( 2, stats.getServed( ) );
+        assertEquals( 3, stats.getDegraded( ) );
+        assertEquals( 1, stats.getRejected( ) );
+    }
+
+    @Test
+    public void slowRequestsDegradeUntilTheLatencyWindowElapses( ) throws InterruptedException
+    {
+        // GIVEN
+        OverloadGuardSettings settings = new OverloadGuardSettings( );
+        settings.setLatencyThreshold( Duration.ofMillis( 20 ) );
+        settings.setLatencyWindow( Duration.ofMillis( 300 ) );
+        OverloadGuard guard = new OverloadGuard( "test", settings, ( ) -> false );
+
+        // WHEN
+        try ( OverloadGuard.Admission fastFailure = guard.admit( ) )
+        {
+            assertFalse( fastFailure.isDegraded( ) );
+        }
+        boolean degradedAfterFastFailure;
+        try ( OverloadGuard.Admission next = guard.admit( ) )
+        {
+            degradedAfterFastFailure = next.isDegraded( );
+        }
+        try ( OverloadGuard.Admission slowFailure = guard.admit( ) )
+        {
+            assertFalse( slowFailure.isDegraded( ) );
+            TimeUnit.MILLISECONDS.sleep( 50 );
+        }
+        boolean degradedAfterSlowFailure;
+        try ( OverloadGuard.Admission next = guard.admit( ) )
+        {
+            degradedAfterSlowFailure = next.isDegraded( );
+        }
+        TimeUnit.MILLISECONDS.sleep( 400 );
+        try ( OverloadGuard.Admission slow = guard.admit( ) )
+        {
+            TimeUnit.MILLISECONDS.sleep( 50 );
+            slow.succeeded( );
+        }
+        boolean degradedAfterSlowRequest;
+        try ( OverloadGuard.Admission next = guard.admit( ) )
+        {
+            degradedAfterSlowRequest = next.isDegraded( );
+        }
+        TimeUnit.MILLISECONDS.sleep( 400 );
+        boolean degradedOnceWindowElapsed;
+        try ( OverloadGuard.Admission probe = guard.admit( ) )
+        {
+            degradedOnceWindowElapsed = probe.isDegraded( );
+        }
+
+        // THEN
+        assertFalse( degradedAfterFastFailure );
+        assertTrue( degradedAfterSlowFailure );
+        assertTrue( degradedAfterSlowRequest );
+        assertFalse( degradedOnceWindowElapsed );
+    }
+
+    @Test
+    public void degradedNearbyAttractionsKeepKnownPoints( )
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        VisitedLocation visitedLocation = new VisitedLocation( user.getUserId( ), new Location( 33.8, -117.9 ), new Date( ) );
+        List<ClosestAttractionsDTO> full = locationService.getFiveClosestAttractions( visitedLocation );
+        ClosestAttractionsDTO closest = full.get( 0 );
+        UserReward reward = new UserReward( visitedLocation, locationService.findAttraction( closest.getAttractionName( ) ).orElseThrow( ) );
+        reward.setRewardPoints( 123 );
+        user.addUserReward( reward );
+
+        // WHEN
+        List<ClosestAttractionsDTO> degraded = locationService.getFiveClosestAttractionsWithKnownPoints( user, visitedLocation );
+
+        // THEN
+        assertFalse( full.stream( ).anyMatch( ClosestAttractionsDTO::isDegraded ) );
+        assertEquals( full.stream( ).map( ClosestAttractionsDTO::getAttractionName ).toList( ),
+                degraded.stream( ).map( ClosestAttractionsDTO::getAttractionName ).toList( ) );
+        assertTrue( degraded.stream( ).allMatch( ClosestAttractionsDTO::isDegraded ) );
+        assertEquals( 123, degraded.get( 0 ).getRewardPoints( ) );
+        assertNull( degraded.get( 1 ).getRewardPoints( ) );
+    }
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.partition.ConsistentHashRing;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+public class TestPartitioning
+{
+    private static final String SECRET = "test-cluster-secret";
+
+    @Test
+    public void ringSpreadsUsersEvenlyAndMovesFewOnJoin( )
+    {
+        // GIVEN
+        ConsistentHashRing ring = new ConsistentHashRing( List.of( "http://a", "http://b", "http://c" ), 128 );
+        int users = 30000;
+        Map<UUID, String> owners = new HashMap<>( );
+        Map<String, Integer> partitionSizes = new HashMap<>( );
+        for ( int i = 0; i < users; i++ )
+        {
+            UUID userId = User.nameBasedId( "user" + i );
+            owners.put( userId, ring.getOwner( userId ) );
+            partitionSizes.merge( ring.getOwner( userId ), 1, Integer::sum );
+        }
+
+        // WHEN
+        ConsistentHashRing grownRing = ring.with( "http://d" );
+        int moved = 0;
+        for ( Map.Entry<UUID, String> owner : owners.entrySet( ) )
+        {
+            String newOwner = grownRing.getOwner( owner.getKey( ) );
+            if ( !newOwner.equals( owner.getValue( ) ) )
+            {
+                moved++;
+                // THEN only users of the joining node move
+                assertEquals( "http://d", newOwner );
+            }
+        }
+
+        // THEN
+        partitionSizes.values( ).forEach( size -> assertTrue( Math.abs( size - users / 3 ) < users / 3 * 0.2 ) );
+        assertTrue( moved < users * 0.35 );
+        assertTrue( moved > users * 0.15 );
+    }
+
+    @Test
+    public void nodesServeTheirPartitionAndHandOffOnLeave( ) throws IOException, InterruptedException
+    {
+        // GIVEN
+        InternalTestHelper.setInternalUserNumber( 40 );
+        String nodeA = "http://localhost:" + freePort( );
+        String nodeB = "http://localhost:" + freePort( );
+        HttpClient httpClient = HttpClient.newHttpClient( );
+
+        try ( ConfigurableApplicationContext contextA = startNode( nodeA, nodeB );
+              ConfigurableApplicationContext contextB = startNode( nodeB, nodeA ) )
+        {
+            UserService userServiceA = contextA.getBean( UserService.class );
+            UserService userServiceB = contextB.getBean( UserService.class );
+            userServiceA.tracker.stopTracking( );
+            userServiceB.tracker.stopTracking( );
+
+            // WHEN
+            Set<String> usersA = userNames( userServiceA );
+            Set<String> usersB = userNames( userServiceB );
+            String userOfB = usersB.iterator( ).next( );
+            HttpResponse<Void> redirect = httpClient.send( HttpRequest.newBuilder( URI.create( nodeA + "/getRewards?userName=" + userOfB ) ).build( ),
+                    HttpResponse.BodyHandlers.discarding( ) );
+
+            // THEN
+            assertEquals( 40, usersA.size( ) + usersB.size( ) );
+            assertTrue( usersA.stream( ).noneMatch( usersB::contains ) );
+            assertTrue( !usersA.isEmpty( ) && !usersB.isEmpty( ) );
+            assertEquals( 307, redirect.statusCode( ) );
+            assertEquals( nodeB + "/getRewards?userName=" + userOfB, redirect.headers( ).firstValue( "Location" ).orElseThrow( ) );
+
+            // WHEN node B is told to leave without the cluster secret
+            HttpResponse<Void> rejected = httpClient.send( HttpRequest.newBuilder( URI.create( nodeA + "/partition/members?node=" + nodeB ) )
+                    .DELETE( ).header( PartitionService.SECRET_HEADER, "wrong" ).build( ), HttpResponse.BodyHandlers.discarding( ) );
+            HttpResponse<Void> anonymous = httpClient.send( HttpRequest.newBuilder( URI.create( nodeA + "/partition/users" ) )
+                    .header( "Content-Type", "application/json" ).POST( HttpRequest.BodyPublishers.ofString( "[]" ) ).build( ),
+                    HttpResponse.BodyHandlers.discarding( ) );
+
+            // THEN
+            assertEquals( 403, rejected.statusCode( ) );
+            assertEquals( 403, anonymous.statusCode( ) );
+            assertEquals( Set.of( nodeA, nodeB ), contextA.getBean( PartitionService.class ).getMembers( ) );
+
+            // WHEN node B leaves, told to both nodes
+            for ( String node : List.of( nodeA, nodeB ) )
+            {
+                HttpResponse<Void> response = httpClient.send( HttpRequest.newBuilder( URI.create( node + "/partition/members?node=" + nodeB ) )
+                        .DELETE( ).header( PartitionService.SECRET_HEADER, SECRET ).build( ), HttpResponse.BodyHandlers.discarding( ) );
+                assertEquals( 200, response.statusCode( ) );
+            }
+
+            // THEN
+            assertEquals( 40, userServiceA.getAllUsers( ).size( ) );
+            assertTrue( userServiceB.getAllUsers( ).isEmpty( ) );
+            HttpResponse<Void> served = httpClient.send( HttpRequest.newBuilder( URI.create( nodeA + "/getRewards?userName=" + userOfB ) ).build( ),
+                    HttpResponse.BodyHandlers.discarding( ) );
+            assertEquals( 200, served.statusCode( ) );
+        }
+    }
+
+    private ConfigurableApplicationContext startNode( String self, String member )
+    {
+        // Command line arguments, which take precedence over application.properties
+        return new SpringApplicationBuilder( TourguideApplication.class ).run(
+                "--server.port=" + URI.create( self ).getPort( ),
+                "--tourguide.partition.enabled=true",
+                "--tourguide.partition.self=" + self,
+                "--tourguide.partition.members=" + member,
+                "--tourguide.partition.secret=" + SECRET );
+    }
+
+    private Set<String> userNames( UserService userService )
+    {
+        Set<String> userNames = new HashSet<>( );
+        userService.getAllUsers( ).forEach( user -> userNames.add( user.getUserName( ) ) );
+        return userNames;
+    }
+
+    private static int freePort( ) throws IOException
+    {
+        try ( ServerSocket socket = new ServerSocket( 0 ) )
+        {
+            return socket.getLocalPort( );
+        }
+    }
+}
@@ -14,10 +14,11 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-import gpsUtil.GpsUtil;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
 import gpsUtil.location.Attraction;
 import gpsUtil.location.VisitedLocation;
-import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
 import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.domain.User;
@@ -48,11 +49,11 @@ public class TestPerformance
      */
     @Disabled
     @Test
-    public void highVolumeTrackLocation( )
+    public void highVolumeTrackLocation( ) throws InterruptedException
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService(gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService(gpsUtil, new LibraryRewardGateway( ), locationService );
         // Users should be incremented up to 100,000, and test finishes within 15
         // minutes
         InternalTestHelper.setInternalUserNumber( 100000 );
@@ -68,6 +69,7 @@ public class TestPerformance
         {
             userService.parallelizedTrackUserLocation( user );
         }
+        assertTrue( userService.awaitParallelizedTracking( 15, TimeUnit.MINUTES ) );
         stopWatch.stop( );
         userService.tracker.stopTracking( );
 
@@ -80,9 +82,9 @@ public class TestPerformance
     @Test
     public void highVolumeGetRewards( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
 
         // Users should be incremented up to 100,000, and test finishes within 20
         // minutes
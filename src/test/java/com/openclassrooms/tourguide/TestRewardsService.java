@@ -3,19 +3,40 @@ package com.openclassrooms.tourguide;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.call.ConcurrencyLimitSettings;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.geo.NearbyAttractionsSettings;
+import com.openclassrooms.tourguide.service.geofence.GeofenceEvent;
 import com.openclassrooms.tourguide.service.test.TestingService;
 import com.openclassrooms.tourguide.service.UserService;
 import org.junit.jupiter.api.Test;
 
-import gpsUtil.GpsUtil;
+import com.openclassrooms.tourguide.domain.dto.AttractionRewardStatsDTO;
+import com.openclassrooms.tourguide.domain.dto.LeaderboardEntryDTO;
+import com.openclassrooms.tourguide.domain.dto.RewardStatsDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.RewardGateway;
+import com.openclassrooms.tourguide.external.simulation.LatencySettings;
+import com.openclassrooms.tourguide.external.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedRewardGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulationClock;
+import com.openclassrooms.tourguide.external.simulation.SimulationSettings;
 import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
-import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
 import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.domain.User;
@@ -27,9 +48,9 @@ public class TestRewardsService
     public void userGetRewards( )
     {
         // GIVEN
-        GpsUtil gpsUtil = new GpsUtil( );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
         TestingService testingService = new TestingService( );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), new LocationService( new RewardCentral( ), gpsUtil ) );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), new LocationService( new LibraryRewardGateway( ), gpsUtil ) );
 
         InternalTestHelper.setInternalUserNumber( 0 );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -50,8 +71,8 @@ public class TestRewardsService
     public void isWithinAttractionProximity( )
     {
         // GIVEN
-        GpsUtil gpsUtil = new GpsUtil( );
-        RewardCentral rewardCentral = new RewardCentral( );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LibraryRewardGateway rewardCentral = new LibraryRewardGateway( );
         LocationService locationService = new LocationService( rewardCentral, gpsUtil );
 
         // WHEN
@@ -65,13 +86,13 @@ public class TestRewardsService
     public void nearAllAttractions( )
     {
         //GIVEN
-        GpsUtil gpsUtil = new GpsUtil( );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
         TestingService testingService = new TestingService( );
-        RewardCentral rewardCentral = new RewardCentral( );
+        LibraryRewardGateway rewardCentral = new LibraryRewardGateway( );
         LocationService locationService = new LocationService( rewardCentral, gpsUtil );
         locationService.setProximityBuffer( Integer.MAX_VALUE );
 
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
 
         InternalTestHelper.setInternalUserNumber( 1 );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -85,6 +106,220 @@ public class TestRewardsService
         // THEN
         assertEquals( gpsUtil.getAttractions( ).size( ), userRewards.size( ) );
     }
-}
 
+    @Test
+    public void geofenceEnterAndExitEvents( )
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), new LocationService( new LibraryRewardGateway( ), gpsUtil ) );
+        List<GeofenceEvent> events = new ArrayList<>( );
+        rewardsService.getGeofenceEngine( ).addListener( events::add );
+
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        Attraction attraction = gpsUtil.getAttractions( ).get( 0 );
 
+        // WHEN
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( 0, 0 ), new Date( ) ) );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        rewardsService.calculateRewards( user );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( 0, 0 ), new Date( ) ) );
+        rewardsService.calculateRewards( user );
+
+        // THEN
+        assertEquals( 2, events.size( ) );
+        assertEquals( GeofenceEvent.Type.ENTER, events.get( 0 ).getType( ) );
+        assertEquals( attraction.attractionName, events.get( 0 ).getAttraction( ).attractionName );
+        assertEquals( GeofenceEvent.Type.EXIT, events.get( 1 ).getType( ) );
+        assertEquals( 1, user.getUserRewards( ).size( ) );
+    }
+
+    @Test
+    public void lateLocationIsEvaluated( )
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), new LocationService( new LibraryRewardGateway( ), gpsUtil ) );
+        List<GeofenceEvent> events = new ArrayList<>( );
+        rewardsService.getGeofenceEngine( ).addListener( events::add );
+
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        Attraction attraction = gpsUtil.getAttractions( ).get( 0 );
+        long now = System.currentTimeMillis( );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( 0, 0 ), new Date( now - 3000 ) ) );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( 0, 0 ), new Date( now - 1000 ) ) );
+        rewardsService.calculateRewards( user );
+
+        // WHEN a location visited between the two evaluated ones arrives late
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( now - 2000 ) ) );
+        rewardsService.calculateRewards( user );
+
+        // THEN
+        assertEquals( 2, events.size( ) );
+        assertEquals( GeofenceEvent.Type.ENTER, events.get( 0 ).getType( ) );
+        assertEquals( GeofenceEvent.Type.EXIT, events.get( 1 ).getType( ) );
+        assertEquals( 1, user.getUserRewards( ).size( ) );
+    }
+
+    @Test
+    public void cumulativeRewardPointsSettle( ) throws Exception
+    {
+        // GIVEN
+        // The simulated catalog keeps the same attraction ids from one call to another
+        SimulationSettings settings = new SimulationSettings( );
+        GpsGateway gpsUtil = new SimulatedGpsGateway( settings, SimulationClock.system( ), new LibraryGpsGateway( ).getAttractions( ) );
+        List<Attraction> attractions = gpsUtil.getAttractions( );
+        settings.getRewardCentral( ).setType( LatencySettings.Type.UNIFORM );
+        settings.getRewardCentral( ).setBase( Duration.ofMillis( 10 ) );
+        settings.getRewardCentral( ).setMax( Duration.ofMillis( 100 ) );
+        RewardGateway rewardCentral = new SimulatedRewardGateway( settings, SimulationClock.system( ), attractions );
+        LocationService locationService = new LocationService( rewardCentral, gpsUtil );
+        locationService.setProximityBuffer( Integer.MAX_VALUE );
+        RewardsService rewardsService = new RewardsService( gpsUtil, rewardCentral, locationService );
+
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( 0, 0 ), new Date( ) ) );
+
+        // WHEN
+        rewardsService.calculateRewards( user );
+        user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        int expectedPoints = attractions.stream( )
+                .mapToInt( attraction -> rewardCentral.getAttractionRewardPoints( attraction.attractionId, user.getUserId( ) ) )
+                .sum( );
+        assertEquals( attractions.size( ), user.getUserRewards( ).size( ) );
+        assertEquals( expectedPoints, user.getCumulativeRewardPoints( ) );
+        assertEquals( expectedPoints, user.getUserRewards( ).stream( ).mapToInt( UserReward::getRewardPoints ).sum( ) );
+    }
+
+    @Test
+    public void failedRewardLookupIsRetried( ) throws Exception
+    {
+        // GIVEN
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        AtomicBoolean failing = new AtomicBoolean( true );
+        RewardGateway rewardCentral = ( attractionId, userId ) -> {
+            if ( failing.getAndSet( false ) )
+            {
+                throw new IllegalStateException( "rewardCentral unavailable" );
+            }
+            return 42;
+        };
+        RewardsService rewardsService = new RewardsService( gpsUtil, rewardCentral, new LocationService( rewardCentral, gpsUtil ) );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        Attraction attraction = gpsUtil.getAttractions( ).get( 0 );
+
+        // WHEN
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        rewardsService.calculateRewards( user );
+        user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        assertTrue( user.getUserRewards( ).isEmpty( ) );
+        assertEquals( 0, user.getCumulativeRewardPoints( ) );
+
+        // WHEN the user is still at the attraction
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        rewardsService.calculateRewards( user );
+        user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        assertEquals( 1, user.getUserRewards( ).size( ) );
+        assertEquals( 42, user.getCumulativeRewardPoints( ) );
+    }
+
+    @Test
+    public void rewardLookupRejectedByTheLimiterIsRetried( ) throws Exception
+    {
+        // GIVEN a limiter of a single slot and no queue, the slot being held
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        RewardGateway rewardCentral = ( attractionId, userId ) -> 42;
+        ExternalCallSettings externalCallSettings = new ExternalCallSettings( );
+        ConcurrencyLimitSettings concurrency = externalCallSettings.getRewardCentralConcurrency( );
+        concurrency.setInitialLimit( 1 );
+        concurrency.setMinLimit( 1 );
+        concurrency.setMaxLimit( 1 );
+        concurrency.setMaxQueued( 0 );
+        LocationService locationService = new LocationService( rewardCentral, gpsUtil, externalCallSettings, new NearbyAttractionsSettings( ) );
+        RewardsService rewardsService = new RewardsService( gpsUtil, rewardCentral, locationService );
+        CompletableFuture<Integer> heldSlot = new CompletableFuture<>( );
+        locationService.getRewardCentralLimiter( ).callAsync( ( ) -> heldSlot );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        Attraction attraction = gpsUtil.getAttractions( ).get( 0 );
+
+        // WHEN the lookup is rejected synchronously, while the location is evaluated
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        rewardsService.calculateRewards( user );
+        user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        assertTrue( user.getUserRewards( ).isEmpty( ) );
+
+        // WHEN the slot is released, the user still being at the attraction
+        heldSlot.complete( 0 );
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attraction, new Date( ) ) );
+        rewardsService.calculateRewards( user );
+        user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+
+        // THEN
+        assertEquals( 1, user.getUserRewards( ).size( ) );
+        assertEquals( 42, user.getCumulativeRewardPoints( ) );
+    }
+
+    @Test
+    public void leaderboardAndStatsFollowSettledRewards( ) throws Exception
+    {
+        // GIVEN
+        SimulationSettings settings = new SimulationSettings( );
+        GpsGateway gpsUtil = new SimulatedGpsGateway( settings, SimulationClock.system( ), new LibraryGpsGateway( ).getAttractions( ) );
+        List<Attraction> attractions = gpsUtil.getAttractions( );
+        RewardGateway rewardCentral = new SimulatedRewardGateway( settings, SimulationClock.system( ), attractions );
+        LocationService locationService = new LocationService( rewardCentral, gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, rewardCentral, locationService );
+
+        List<User> users = new ArrayList<>( );
+        for ( int i = 0; i < 3; i++ )
+        {
+            User user = new User( UUID.randomUUID( ), "user" + i, "000", "user" + i + "@tourGuide.com" );
+            // Each user visits a different number of attractions
+            for ( int j = 0; j <= i * 5; j++ )
+            {
+                user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), attractions.get( j ), new Date( ) ) );
+            }
+            users.add( user );
+        }
+
+        // WHEN
+        for ( User user : users )
+        {
+            rewardsService.calculateRewards( user );
+        }
+        for ( User user : users )
+        {
+            user.getRewardsSettled( ).get( 10, TimeUnit.SECONDS );
+        }
+        List<LeaderboardEntryDTO> leaderboard = rewardsService.getRewardAnalytics( ).getLeaderboard( 2 );
+        RewardStatsDTO stats = rewardsService.getRewardAnalytics( ).getStats( );
+
+        // THEN
+        List<User> ranking = new ArrayList<>( users );
+        ranking.sort( Comparator.comparingInt( User::getCumulativeRewardPoints ).reversed( ) );
+        assertEquals( 2, leaderboard.size( ) );
+        for ( int i = 0; i < leaderboard.size( ); i++ )
+        {
+            assertEquals( i + 1, leaderboard.get( i ).getRank( ) );
+            assertEquals( ranking.get( i ).getUserName( ), leaderboard.get( i ).getUserName( ) );
+            assertEquals( ranking.get( i ).getCumulativeRewardPoints( ), leaderboard.get( i ).getRewardPoints( ) );
+        }
+
+        int rewards = users.stream( ).mapToInt( user -> user.getUserRewards( ).size( ) ).sum( );
+        int points = users.stream( ).mapToInt( User::getCumulativeRewardPoints ).sum( );
+        assertEquals( rewards, stats.getTotalRewards( ) );
+        assertEquals( points, stats.getTotalRewardPoints( ) );
+        assertEquals( 3, stats.getRewardedUsers( ) );
+        assertEquals( rewards, stats.getAttractions( ).stream( ).mapToLong( AttractionRewardStatsDTO::getRewards ).sum( ) );
+        assertEquals( 3, stats.getPointsDistribution( ).values( ).stream( ).mapToLong( Long::longValue ).sum( ) );
+    }
+}
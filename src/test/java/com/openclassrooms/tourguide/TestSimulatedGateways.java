@@ -0,0 +1,167 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.simulation.LatencySettings;
+import com.openclassrooms.tourguide.external.simulation.SimulatedGpsGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedRewardGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulatedTripPricerGateway;
+import com.openclassrooms.tourguide.external.simulation.SimulationClock;
+import com.openclassrooms.tourguide.external.simulation.SimulationSettings;
+import com.openclassrooms.tourguide.external.simulation.VirtualClock;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import com.openclassrooms.tourguide.service.partition.PartitionSettings;
+import com.openclassrooms.tourguide.service.pipeline.TrackingPipelineSettings;
+import com.openclassrooms.tourguide.service.test.TestingService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.VisitedLocation;
+import org.apache.commons.lang3.time.StopWatch;
+import org.junit.jupiter.api.Test;
+import tripPricer.Provider;
+
+public class TestSimulatedGateways
+{
+    private static final List<Attraction> CATALOG = new LibraryGpsGateway( ).getAttractions( );
+
+    @Test
+    public void sameSeedSameOutputs( )
+    {
+        // GIVEN
+        SimulationSettings settings = new SimulationSettings( );
+        SimulationClock clock = SimulationClock.virtual( 0 );
+        UUID userId = UUID.randomUUID( );
+        Attraction attraction = CATALOG.get( 0 );
+
+        SimulatedGpsGateway firstGps = new SimulatedGpsGateway( settings, clock, CATALOG );
+        SimulatedGpsGateway secondGps = new SimulatedGpsGateway( settings, clock, CATALOG );
+
+        // WHEN
+        for ( int i = 0; i < 10; i++ )
+        {
+            VisitedLocation first = firstGps.getUserLocation( userId );
+            VisitedLocation second = secondGps.getUserLocation( userId );
+
+            // THEN
+            assertEquals( first.location.latitude, second.location.latitude );
+            assertEquals( first.location.longitude, second.location.longitude );
+        }
+        assertEquals( new SimulatedRewardGateway( settings, clock, CATALOG ).getAttractionRewardPoints( attraction.attractionId, userId ),
+                new SimulatedRewardGateway( settings, clock, CATALOG ).getAttractionRewardPoints( attraction.attractionId, userId ) );
+
+        List<Provider> firstDeals = new SimulatedTripPricerGateway( settings, clock ).getPrice( "key", attraction.attractionId, 2, 1, 3, 100 );
+        List<Provider> secondDeals = new SimulatedTripPricerGateway( settings, clock ).getPrice( "key", attraction.attractionId, 2, 1, 3, 100 );
+        assertEquals( 5, firstDeals.size( ) );
+        for ( int i = 0; i < firstDeals.size( ); i++ )
+        {
+            assertEquals( firstDeals.get( i ).name, secondDeals.get( i ).name );
+            assertEquals( firstDeals.get( i ).price, secondDeals.get( i ).price );
+        }
+    }
+
+    @Test
+    public void virtualClockAccountsLatencyWithoutWaiting( )
+    {
+        // GIVEN
+        SimulationSettings settings = new SimulationSettings( );
+        settings.getGpsUtil( ).setType( LatencySettings.Type.FIXED );
+        settings.getGpsUtil( ).setBase( Duration.ofSeconds( 1 ) );
+        VirtualClock clock = (VirtualClock) SimulationClock.virtual( 0 );
+        SimulatedGpsGateway gpsGateway = new SimulatedGpsGateway( settings, clock, CATALOG );
+
+        // WHEN
+        long start = System.nanoTime( );
+        for ( int i = 0; i < 100; i++ )
+        {
+            gpsGateway.getUserLocation( UUID.randomUUID( ) );
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - start );
+
+        // THEN
+        assertEquals( Duration.ofSeconds( 100 ), clock.getElapsed( ) );
+        assertTrue( elapsedMillis < 1000 );
+    }
+
+    @Test
+    public void longTailLatencyStaysWithinBounds( )
+    {
+        // GIVEN
+        LatencySettings latencySettings = new LatencySettings( );
+        latencySettings.setType( LatencySettings.Type.LONG_TAIL );
+        latencySettings.setBase( Duration.ofMillis( 5 ) );
+        latencySettings.setMax( Duration.ofSeconds( 1 ) );
+        SimulationSettings settings = new SimulationSettings( );
+        settings.setRewardCentral( latencySettings );
+        VirtualClock clock = (VirtualClock) SimulationClock.virtual( 0 );
+        SimulatedRewardGateway rewardGateway = new SimulatedRewardGateway( settings, clock, CATALOG );
+
+        // WHEN
+        int calls = 1000;
+        for ( int i = 0; i < calls; i++ )
+        {
+            int points = rewardGateway.getAttractionRewardPoints( CATALOG.get( i % CATALOG.size( ) ).attractionId, UUID.randomUUID( ) );
+            assertTrue( points >= 1 && points <= 1000 );
+        }
+
+        // THEN
+        long total = clock.getElapsed( ).toMillis( );
+        assertTrue( total >= 5L * calls );
+        assertTrue( total <= 1000L * calls );
+    }
+
+    /*
+     * With zero latency, the time elapsed is the CPU cost of tracking users and calculating their rewards.
+     */
+    @Test
+    public void trackUsersWithZeroLatency( ) throws InterruptedException
+    {
+        // GIVEN
+        SimulationSettings settings = new SimulationSettings( );
+        SimulationClock clock = SimulationClock.virtual( System.currentTimeMillis( ) );
+        SimulatedGpsGateway gpsUtil = new SimulatedGpsGateway( settings, clock, CATALOG );
+        SimulatedRewardGateway rewardCentral = new SimulatedRewardGateway( settings, clock, CATALOG );
+        LocationService locationService = new LocationService( rewardCentral, gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, rewardCentral, locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        UserService userService = new UserService( gpsUtil, new SimulatedTripPricerGateway( settings, clock ), rewardsService,
+                new TestingService( ), new PartitionService( new PartitionSettings( ) ), new TrackingPipelineSettings( ),
+                new ExternalCallSettings( ) );
+        userService.tracker.stopTracking( );
+
+        int users = 1000;
+        for ( int i = 0; i < users; i++ )
+        {
+            userService.addUser( new User( UUID.randomUUID( ), "simulated" + i, "000", "simulated" + i + "@tourGuide.com" ) );
+        }
+
+        // WHEN
+        StopWatch stopWatch = new StopWatch( );
+        stopWatch.start( );
+        for ( int round = 0; round < 10; round++ )
+        {
+            for ( User user : userService.getAllUsers( ) )
+            {
+                userService.parallelizedTrackUserLocation( user );
+            }
+            assertTrue( userService.awaitParallelizedTracking( 1, TimeUnit.MINUTES ) );
+        }
+        stopWatch.stop( );
+
+        System.out.println( "trackUsersWithZeroLatency: " + users * 10 + " locations tracked in " + stopWatch.getTime( ) + " ms" );
+
+        // THEN
+        assertTrue( userService.getAllUsers( ).stream( ).allMatch( user -> user.getVisitedLocations( ).size( ) == 10 ) );
+    }
+}
@@ -0,0 +1,117 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.DailyVisitsDTO;
+import com.openclassrooms.tourguide.domain.dto.VisitDTO;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.visit.StayPointDetector;
+import com.openclassrooms.tourguide.service.visit.StayPointSettings;
+import gpsUtil.location.Attraction;
+import gpsUtil.location.Location;
+import gpsUtil.location.VisitedLocation;
+import org.junit.jupiter.api.Test;
+
+public class TestStayPointDetector
+{
+    private static final LocalDateTime DAY = LocalDateTime.of( 2024, 6, 1, 0, 0 );
+
+    private final LocationService locationService = new LocationService( new LibraryRewardGateway( ), new LibraryGpsGateway( ) );
+    private final List<Attraction> attractions = List.of(
+            new Attraction( "Museum", "Paris", "FR", 48.8606, 2.3376 ),
+            new Attraction( "Tower", "Paris", "FR", 48.8584, 2.2945 ),
+            new Attraction( "Cathedral", "Paris", "FR", 48.8530, 2.3499 ) );
+
+    @Test
+    public void staysBecomeVisitsOfTheirDay( )
+    {
+        // GIVEN
+        StayPointDetector detector = detector( );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+
+        // WHEN
+        // 40 minutes at the museum, 10 at the tower, 30 around the cathedral, then on the move, and back at the museum
+        stay( detector, user, 48.8607, 2.3377, 10, 0, 40 );
+        stay( detector, user, 48.8585, 2.2946, 10, 45, 10 );
+        stay( detector, user, 48.8531, 2.3500, 11, 0, 30 );
+        stay( detector, user, 48.9, 2.4, 11, 40, 0 );
+        stay( detector, user, 48.95, 2.45, 11, 50, 0 );
+        stay( detector, user, 48.8606, 2.3377, 23, 30, 60 );
+        DailyVisitsDTO day = detector.getVisits( user.getUserId( ), DAY.toLocalDate( ) );
+
+        // THEN
+        assertEquals( List.of( "Museum", "Cathedral", "Museum" ), day.getVisits( ).stream( ).map( VisitDTO::getAttractionName ).toList( ) );
+        VisitDTO museum = day.getVisits( ).get( 0 );
+        assertEquals( 40, museum.getDwellMinutes( ) );
+        assertEquals( 9, museum.getLocations( ) );
+        assertTrue( museum.getAttractionDistanceInMiles( ) < 0.1 );
+        assertFalse( museum.isOngoing( ) );
+        // The last visit goes on past midnight, and is counted on its day of arrival
+        assertTrue( day.getVisits( ).get( 2 ).isOngoing( ) );
+        assertEquals( 130, day.getTotalDwellMinutes( ) );
+        assertEquals( 2, day.getDistinctAttractions( ) );
+        assertTrue( detector.getVisits( user.getUserId( ), DAY.toLocalDate( ).plusDays( 1 ) ).getVisits( ).isEmpty( ) );
+    }
+
+    @Test
+    public void firstObservationReplaysTheHistory( )
+    {
+        // GIVEN
+        StayPointDetector incremental = detector( );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        stay( incremental, user, 48.8607, 2.3377, 9, 0, 30 );
+        stay( incremental, user, 48.8531, 2.3500, 10, 0, 30 );
+        stay( incremental, user, 48.8585, 2.2946, 11, 0, 5 );
+
+        // WHEN
+        StayPointDetector replayed = detector( );
+        replayed.observe( user, user.getLastVisitedLocation( ) );
+
+        // THEN
+        LocalDate date = DAY.toLocalDate( );
+        assertEquals( 2, replayed.getVisits( user.getUserId( ), date ).getVisits( ).size( ) );
+        assertEquals( summary( incremental.getVisits( user.getUserId( ), date ) ), summary( replayed.getVisits( user.getUserId( ), date ) ) );
+    }
+
+    private StayPointDetector detector( )
+    {
+        return new StayPointDetector( new StayPointSettings( ), locationService::getDistance, location -> attractions.stream( )
+                .map( attraction -> Map.entry( attraction, locationService.getDistance( attraction, location ) ) )
+                .min( Map.Entry.comparingByValue( Comparator.naturalOrder( ) ) )
+                .orElse( null ) );
+    }
+
+    private static List<String> summary( DailyVisitsDTO day )
+    {
+        return day.getVisits( ).stream( )
+                .map( visit -> visit.getAttractionName( ) + " " + visit.getArrival( ) + " " + visit.getDwellMinutes( ) + " " + visit.getLocations( ) )
+                .toList( );
+    }
+
+    // A location every 5 minutes within a few feet of the given one, from the given time for the given minutes
+    private void stay( StayPointDetector detector, User user, double latitude, double longitude, int hour, int minute, int minutes )
+    {
+        for ( int elapsed = 0; elapsed <= minutes; elapsed += 5 )
+        {
+            double jitter = ( elapsed % 10 == 0 ? 1 : -1 ) * 0.0001;
+            Date time = Date.from( DAY.plusHours( hour ).plusMinutes( minute + elapsed ).toInstant( ZoneOffset.UTC ) );
+            VisitedLocation visitedLocation = new VisitedLocation( user.getUserId( ), new Location( latitude + jitter, longitude - jitter ), time );
+            user.addToVisitedLocations( visitedLocation );
+            detector.observe( user, visitedLocation );
+        }
+    }
+}
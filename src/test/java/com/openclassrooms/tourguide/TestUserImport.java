@@ -0,0 +1,170 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.domain.dto.UserImportReportDTO;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.RewardsService;
+import com.openclassrooms.tourguide.service.UserImportService;
+import com.openclassrooms.tourguide.service.UserService;
+import com.openclassrooms.tourguide.service.bulk.CsvLine;
+import com.openclassrooms.tourguide.service.bulk.UserImportFormat;
+import com.openclassrooms.tourguide.service.bulk.UserImportSettings;
+import com.openclassrooms.tourguide.service.test.TestingService;
+import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestUserImport
+{
+    private UserService userService;
+    private UserImportService userImportService;
+
+    @BeforeEach
+    public void setUp( )
+    {
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        userService = new UserService( gpsUtil, rewardsService, new TestingService( ) );
+        UserImportSettings settings = new UserImportSettings( );
+        settings.setBatchSize( 7 );
+        settings.setParallelism( 4 );
+        userImportService = new UserImportService( userService, new ObjectMapper( ), settings );
+    }
+
+    @AfterEach
+    public void tearDown( )
+    {
+        userService.tracker.stopTracking( );
+    }
+
+    @Test
+    public void ndjsonImportCountsDuplicatesAndRejections( ) throws IOException, InterruptedException
+    {
+        // GIVEN
+        String records = """
+                {"userName":"jon","phoneNumber":"000","emailAddress":"jon@tourGuide.com","latitude":33.8,"longitude":-117.9}
+                {"userName":"jane"}
+
+                {"userName":"jon","phoneNumber":"111"}
+                {"userName":"jim","latitude":33.8}
+                {"userName":
+                {"phoneNumber":"222"}
+                {"userName":"joe","latitude":95,"longitude":0}
+                """;
+
+        // WHEN
+        UserImportReportDTO report = userImportService.importUsers( stream( records ), UserImportFormat.NDJSON, true );
+
+        // THEN
+        assertEquals( 7, report.getRecords( ) );
+        assertEquals( 2, report.getImported( ) );
+        assertEquals( 1, report.getDuplicates( ) );
+        assertEquals( 4, report.getRejected( ) );
+        assertEquals( 2, report.getTrackingEnqueued( ) );
+        assertEquals( List.of( 5L, 6L, 7L, 8L ), report.getErrors( ).stream( )
+                .map( error -> Long.valueOf( error.substring( "line ".length( ), error.indexOf( ':' ) ) ) )
+                .toList( ) );
+        User jon = userService.getUser( "jon" );
+        assertEquals( "000", jon.getPhoneNumber( ) );
+        assertEquals( User.nameBasedId( "jon" ), jon.getUserId( ) );
+        assertEquals( 33.8, jon.getVisitedLocations( ).get( 0 ).location.latitude );
+        assertTrue( userService.awaitParallelizedTracking( 1, TimeUnit.MINUTES ) );
+        assertEquals( 2, jon.getVisitedLocations( ).size( ) );
+    }
+
+    @Test
+    public void csvImportMapsColumnsByHeader( ) throws IOException
+    {
+        // GIVEN
+        String records = """
+                emailAddress,userName,longitude,latitude
+                "jon@tourGuide.com","Jon ""the"" Traveler",-117.9,33.8
+                jane@tourGuide.com,jane,,
+                jim@tourGuide.com,jim,north,10
+                joe@tourGuide.com,joe
+                jay@tourGuide.com,jay,NaN,10
+                """;
+
+        // WHEN
+        UserImportReportDTO report = userImportService.importUsers( stream( records ), UserImportFormat.CSV, false );
+
+        // THEN
+        assertEquals( 5, report.getRecords( ) );
+        assertEquals( 2, report.getImported( ) );
+        assertEquals( 3, report.getRejected( ) );
+        assertEquals( 0, report.getTrackingEnqueued( ) );
+        User jon = userService.getUser( "Jon \"the\" Traveler" );
+        assertEquals( "jon@tourGuide.com", jon.getEmailAddress( ) );
+        assertEquals( -117.9, jon.getLastVisitedLocation( ).location.longitude );
+        assertNull( userService.getUser( "jane" ).getPhoneNumber( ) );
+        assertTrue( userService.getUser( "jane" ).getVisitedLocations( ).isEmpty( ) );
+        assertEquals( List.of( "a", "", "b,\"c\"", "" ), CsvLine.split( "a,,\"b,\"\"c\"\"\"," ) );
+        assertThrows( IllegalArgumentException.class,
+                ( ) -> userImportService.importUsers( stream( "name,phoneNumber\njon,000\n" ), UserImportFormat.CSV, false ) );
+    }
+
+    @Test
+    public void parallelImportInsertsEachUserOnce( ) throws IOException
+    {
+        // GIVEN
+        int users = 5000;
+        StringBuilder records = new StringBuilder( );
+        for ( int i = 0; i < users * 2; i++ )
+        {
+            // Every user twice, the second time in another batch
+            records.append( "{\"userName\":\"user" ).append( i % users ).append( "\"}\n" );
+        }
+
+        // WHEN
+        UserImportReportDTO report = userImportService.importUsers( stream( records.toString( ) ), UserImportFormat.NDJSON, false );
+
+        // THEN
+        assertEquals( users, report.getImported( ) );
+        assertEquals( users, report.getDuplicates( ) );
+        assertEquals( users, userService.getAllUsers( ).size( ) );
+        assertTrue( report.getRecordsPerSecond( ) > 0 );
+    }
+
+    @Test
+    public void trackingIsSkippedBeyondTheBacklog( ) throws IOException
+    {
+        // GIVEN
+        UserImportSettings settings = new UserImportSettings( );
+        settings.setMaxTrackingBacklog( 0 );
+        UserImportService boundedImportService = new UserImportService( userService, new ObjectMapper( ), settings );
+
+        // WHEN
+        UserImportReportDTO report = boundedImportService.importUsers( stream( "{\"userName\":\"jon\"}\n{\"userName\":\"jane\"}\n" ),
+                UserImportFormat.NDJSON, true );
+
+        // THEN
+        assertEquals( 2, report.getImported( ) );
+        assertEquals( 0, report.getTrackingEnqueued( ) );
+        assertEquals( 2, report.getTrackingSkipped( ) );
+        assertTrue( userService.getUser( "jon" ).getVisitedLocations( ).isEmpty( ) );
+    }
+
+    private InputStream stream( String records )
+    {
+        return new ByteArrayInputStream( records.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
@@ -0,0 +1,116 @@
+package com.openclassrooms.tourguide;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.openclassrooms.tourguide.domain.User;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
+import com.openclassrooms.tourguide.service.LocationService;
+import com.openclassrooms.tourguide.service.geo.UserLocationIndex;
+import gpsUtil.location.Location;
+import org.junit.jupiter.api.Test;
+
+public class TestUserLocationIndex
+{
+    private static final int USERS   = 5000;
+    private static final int QUERIES = 200;
+
+    private final LocationService locationService = new LocationService( new LibraryRewardGateway( ), new LibraryGpsGateway( ) );
+
+    @Test
+    public void queriesMatchFullScan( )
+    {
+        // GIVEN
+        Random random = new Random( 3 );
+        UserLocationIndex index = new UserLocationIndex( 10, locationService::getDistance );
+        Map<User, Location> positions = new HashMap<>( );
+        List<User> users = new ArrayList<>( );
+        for ( int i = 0; i < USERS; i++ )
+        {
+            User user = new User( UUID.randomUUID( ), "user" + i, "000", "user" + i + "@tourGuide.com" );
+            users.add( user );
+            // Crowded around a few spots, and a few users anywhere
+            Location location = i % 10 == 0 ? randomLocation( random ) : near( random, i % 7 );
+            index.update( user, location );
+            positions.put( user, location );
+        }
+        // Half of the users move, some of them across the world
+        for ( int i = 0; i < USERS; i += 2 )
+        {
+            Location location = i % 20 == 0 ? randomLocation( random ) : near( random, i % 5 );
+            index.update( users.get( i ), location );
+            positions.put( users.get( i ), location );
+        }
+        index.remove( users.get( 1 ).getUserId( ) );
+        positions.remove( users.get( 1 ) );
+
+        // WHEN / THEN
+        assertEquals( USERS - 1, index.size( ) );
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            Location center = i % 2 == 0 ? near( random, i % 7 ) : randomLocation( random );
+            double radius = random.nextInt( 300 );
+            int k = 1 + random.nextInt( 50 );
+
+            List<String> expectedWithin = positions.entrySet( ).stream( )
+                    .filter( entry -> locationService.getDistance( entry.getValue( ), center ) <= radius )
+                    .map( entry -> entry.getKey( ).getUserName( ) )
+                    .sorted( )
+                    .toList( );
+            assertEquals( expectedWithin, names( index.getUsersWithin( center, radius ) ).stream( ).sorted( ).toList( ) );
+
+            List<Double> expectedNearest = positions.values( ).stream( )
+                    .map( location -> locationService.getDistance( location, center ) )
+                    .sorted( Comparator.naturalOrder( ) )
+                    .limit( k )
+                    .toList( );
+            assertEquals( expectedNearest, index.getNearestUsers( center, k ).stream( ).map( UserLocationIndex.Match::distanceMiles ).toList( ) );
+        }
+    }
+
+    @Test
+    public void nearestUsersAreFoundFarAway( )
+    {
+        // GIVEN
+        UserLocationIndex index = new UserLocationIndex( 10, locationService::getDistance );
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        index.update( user, new Location( -33.8, 151.2 ) );
+
+        // WHEN
+        List<UserLocationIndex.Match> nearest = index.getNearestUsers( new Location( 48.8, 2.3 ), 3 );
+
+        // THEN
+        assertEquals( 1, nearest.size( ) );
+        assertEquals( "jon", nearest.get( 0 ).user( ).getUserName( ) );
+        assertEquals( -33.8, nearest.get( 0 ).location( ).latitude );
+        assertTrue( nearest.get( 0 ).distanceMiles( ) > 10000 );
+        assertThrows( IllegalArgumentException.class, ( ) -> index.getNearestUsers( new Location( 48.8, 2.3 ), 0 ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> index.getUsersWithin( new Location( 48.8, 2.3 ), -1 ) );
+        assertThrows( IllegalArgumentException.class, ( ) -> index.getUsersWithin( new Location( 48.8, 2.3 ), Double.NaN ) );
+    }
+
+    private static Location near( Random random, int spot )
+    {
+        return new Location( 40 + spot * 0.7 + random.nextGaussian( ) * 0.3, -100 + spot * 0.9 + random.nextGaussian( ) * 0.3 );
+    }
+
+    private static Location randomLocation( Random random )
+    {
+        return new Location( -85 + random.nextDouble( ) * 170, -180 + random.nextDouble( ) * 360 );
+    }
+
+    private static List<String> names( List<UserLocationIndex.Match> users )
+    {
+        return users.stream( ).map( match -> match.user( ).getUserName( ) ).toList( );
+    }
+}
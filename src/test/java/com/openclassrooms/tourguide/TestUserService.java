@@ -1,20 +1,36 @@
 package com.openclassrooms.tourguide;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 import com.openclassrooms.tourguide.domain.dto.ClosestAttractionsDTO;
+import com.openclassrooms.tourguide.domain.dto.LocationHistoryPageDTO;
+import com.openclassrooms.tourguide.domain.dto.TripDealScenariosDTO;
+import com.openclassrooms.tourguide.external.LibraryTripPricerGateway;
+import com.openclassrooms.tourguide.external.TripPricerGateway;
+import com.openclassrooms.tourguide.service.call.ExternalCallSettings;
+import com.openclassrooms.tourguide.service.partition.PartitionService;
+import com.openclassrooms.tourguide.service.partition.PartitionSettings;
+import com.openclassrooms.tourguide.service.pipeline.TrackingPipelineSettings;
 import com.openclassrooms.tourguide.service.LocationService;
 import com.openclassrooms.tourguide.service.test.TestingService;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-import gpsUtil.GpsUtil;
+import com.openclassrooms.tourguide.external.GpsGateway;
+import com.openclassrooms.tourguide.external.LibraryGpsGateway;
+import gpsUtil.location.Location;
 import gpsUtil.location.VisitedLocation;
-import rewardCentral.RewardCentral;
+import com.openclassrooms.tourguide.external.LibraryRewardGateway;
 import com.openclassrooms.tourguide.testUtils.InternalTestHelper;
 import com.openclassrooms.tourguide.service.RewardsService;
 import com.openclassrooms.tourguide.service.UserService;
@@ -26,9 +42,9 @@ public class TestUserService
     @Test
     public void getUserLocation( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -42,9 +58,9 @@ public class TestUserService
     @Test
     public void addUser( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -67,9 +83,9 @@ public class TestUserService
     @Test
     public void getAllUsers( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -91,9 +107,9 @@ public class TestUserService
     @Test
     public void trackUser( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -106,12 +122,41 @@ public class TestUserService
         assertEquals( user.getUserId( ), visitedLocation.userId );
     }
 
+    @Test
+    public void parallelizedTrackUsers( ) throws InterruptedException
+    {
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        TestingService testingService = new TestingService( );
+        long rewardWorkersBefore = countRewardWorkers( );
+        UserService userService = new UserService( gpsUtil, rewardsService, testingService );
+        userService.tracker.stopTracking( );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            userService.addUser( new User( UUID.randomUUID( ), "jon" + i, "000", "jon" + i + "@tourGuide.com" ) );
+        }
+        List<User> allUsers = userService.getAllUsers( );
+        allUsers.forEach( userService::parallelizedTrackUserLocation );
+        boolean idle = userService.awaitParallelizedTracking( 1, TimeUnit.MINUTES );
+
+        assertTrue( idle );
+        allUsers.forEach( user -> assertEquals( 1, user.getVisitedLocations( ).size( ) ) );
+        assertEquals( 20, userService.getTrackingPipelineStats( ).get( 1 ).getCompleted( ) );
+        // The reward workers exit once the services are shut down
+        userService.shutdown( );
+        rewardsService.shutdown( );
+        assertTrue( countRewardWorkers( ) <= rewardWorkersBefore );
+    }
+
     @Test
     public void getFiveClosestAttractions( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -131,9 +176,9 @@ public class TestUserService
     @Disabled
     public void getTripDeals( )
     {
-        GpsUtil gpsUtil = new GpsUtil( );
-        LocationService locationService = new LocationService( new RewardCentral( ), gpsUtil );
-        RewardsService rewardsService = new RewardsService( gpsUtil, new RewardCentral( ), locationService );
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
         InternalTestHelper.setInternalUserNumber( 0 );
         TestingService testingService = new TestingService( );
         UserService userService = new UserService( gpsUtil, rewardsService, testingService );
@@ -146,4 +191,117 @@ public class TestUserService
 
         assertEquals( 10, providers.size( ) );
     }
+
+    @Test
+    public void getTripDealScenarios( )
+    {
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        TestingService testingService = new TestingService( );
+        ExternalCallSettings externalCallSettings = new ExternalCallSettings( );
+        externalCallSettings.getTripPricer( ).setDeadline( Duration.ofMillis( 500 ) );
+        externalCallSettings.getTripPricer( ).setHedgingEnabled( false );
+        // Two weeks trips are never priced in time
+        LibraryTripPricerGateway library = new LibraryTripPricerGateway( );
+        TripPricerGateway tripPricer = ( apiKey, attractionId, adults, children, nightsStay, rewardsPoints ) -> {
+            if ( nightsStay == 14 )
+            {
+                sleep( 5000 );
+            }
+            return library.getPrice( apiKey, attractionId, adults, children, nightsStay, rewardsPoints );
+        };
+        UserService userService = new UserService( gpsUtil, tripPricer, rewardsService, testingService,
+                new PartitionService( new PartitionSettings( ) ), new TrackingPipelineSettings( ), externalCallSettings );
+
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+
+        long start = System.nanoTime( );
+        TripDealScenariosDTO deals = userService.getTripDealScenarios( user, List.of( 3, 7, 14 ), List.of( 1, 2 ), null, 8 );
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - start );
+
+        userService.tracker.stopTracking( );
+
+        assertEquals( 6, deals.getScenarios( ) );
+        assertEquals( 4, deals.getPricedScenarios( ) );
+        assertTrue( deals.isPartial( ) );
+        assertEquals( 2, deals.getUnpricedScenarios( ).size( ) );
+        assertEquals( 8, deals.getOffers( ).size( ) );
+        for ( int i = 1; i < deals.getOffers( ).size( ); i++ )
+        {
+            assertTrue( deals.getOffers( ).get( i - 1 ).getPrice( ) <= deals.getOffers( ).get( i ).getPrice( ) );
+        }
+        assertTrue( deals.getOffers( ).stream( ).noneMatch( offer -> offer.getTripDuration( ) == 14 ) );
+        // The scenarios were priced concurrently, within their shared deadline
+        assertTrue( elapsedMillis < 2000 );
+        // Too many combinations are rejected before any is built
+        List<Integer> values = IntStream.rangeClosed( 1, 100_000 ).boxed( ).toList( );
+        assertThrows( IllegalArgumentException.class, ( ) -> userService.getTripDealScenarios( user, values, values, values, 8 ) );
+    }
+
+    @Test
+    public void getLocationHistory( )
+    {
+        GpsGateway gpsUtil = new LibraryGpsGateway( );
+        LocationService locationService = new LocationService( new LibraryRewardGateway( ), gpsUtil );
+        RewardsService rewardsService = new RewardsService( gpsUtil, new LibraryRewardGateway( ), locationService );
+        InternalTestHelper.setInternalUserNumber( 0 );
+        TestingService testingService = new TestingService( );
+        UserService userService = new UserService( gpsUtil, rewardsService, testingService );
+
+        // A location every minute, by pairs sharing the same time, and a late one
+        User user = new User( UUID.randomUUID( ), "jon", "000", "jon@tourGuide.com" );
+        for ( int i = 0; i < 500; i++ )
+        {
+            user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( i, 0 ), new Date( ( i / 2 ) * 60_000L ) ) );
+        }
+        user.addToVisitedLocations( new VisitedLocation( user.getUserId( ), new Location( -1, 0 ), new Date( 100 * 60_000L ) ) );
+        Date from = new Date( 50 * 60_000L );
+        Date to = new Date( 200 * 60_000L );
+
+        List<VisitedLocation> read = new ArrayList<>( );
+        String cursor = null;
+        int pages = 0;
+        do
+        {
+            LocationHistoryPageDTO page = userService.getLocationHistory( user, from, to, cursor, 7 );
+            assertTrue( page.getLocations( ).size( ) <= 7 );
+            read.addAll( page.getLocations( ) );
+            cursor = page.getNextCursor( );
+            pages++;
+        } while ( cursor != null );
+
+        userService.tracker.stopTracking( );
+
+        List<VisitedLocation> expected = user.getVisitedLocations( ).stream( )
+                .filter( visitedLocation -> !visitedLocation.timeVisited.before( from ) && visitedLocation.timeVisited.before( to ) )
+                .toList( );
+        assertEquals( 301, expected.size( ) );
+        assertEquals( expected, read );
+        assertEquals( 43, pages );
+        for ( int i = 1; i < user.getVisitedLocations( ).size( ); i++ )
+        {
+            assertTrue( !user.getVisitedLocations( ).get( i ).timeVisited.before( user.getVisitedLocations( ).get( i - 1 ).timeVisited ) );
+        }
+        assertThrows( IllegalArgumentException.class, ( ) -> userService.getLocationHistory( user, null, null, "garbage", 7 ) );
+    }
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep( millis );
+        } catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+    }
+
+    private long countRewardWorkers( )
+    {
+        return Thread.getAllStackTraces( ).keySet( ).stream( )
+                .filter( thread -> thread.getName( ).startsWith( "reward-worker-" ) )
+                .count( );
+    }
 }